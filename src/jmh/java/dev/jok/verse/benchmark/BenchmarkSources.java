@@ -0,0 +1,112 @@
+package dev.jok.verse.benchmark;
+
+/**
+ * Generates Verse sources for the benchmarks, so they don't depend on files on disk.
+ */
+public final class BenchmarkSources {
+
+    private BenchmarkSources() {
+    }
+
+    /**
+     * A file of {@code functionCount} functions with a mix of declarations, arithmetic, ifs and calls.
+     */
+    public static String generate(int functionCount) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Sqrt<native>(X : float) : float\n\n");
+        builder.append("Scale : int = 3\n\n");
+
+        for (int i = 0; i < functionCount; i++) {
+            builder.append("# generated function ").append(i).append('\n');
+            builder.append("Compute").append(i).append("(A : int, B : int) : int = {\n");
+            builder.append("    var Sum : int = A + B * ").append(i % 7 + 1).append('\n');
+            builder.append("    Root := Sqrt(").append(i).append(".5)\n");
+            builder.append("    if (Sum > ").append(i % 100).append(") {\n");
+            builder.append("        set Sum = Sum - Scale\n");
+            builder.append("    } else {\n");
+            builder.append("        set Sum = Sum + Scale\n");
+            builder.append("    }\n");
+            if (i > 0) {
+                builder.append("    Compute").append(i - 1).append("(Sum, -B) / 2\n");
+            } else {
+                builder.append("    Sum\n");
+            }
+            builder.append("}\n\n");
+        }
+
+        return builder.toString();
+    }
+
+    public static final String PROGRAM = """
+            Sqrt<native>(X : float) : float
+
+            Arithmetic(X : int) : int = {
+                A := X * 3 + 7
+                B := A - X / 2
+                C := A * B - 11
+                D := C / 3 + A * 2
+                E := D - B * 4 + C
+                F := E * 2 - D / 5
+                if (F > E) {
+                    F - E + A * B
+                } else {
+                    E - F + C / 2
+                }
+            }
+
+            Fib(N : int) : int = {
+                if (N < 2) {
+                    N
+                } else {
+                    Fib(N - 1) + Fib(N - 2)
+                }
+            }
+
+            SqrtChain(N : int, Value : float) : float = {
+                if (N < 1) {
+                    Value
+                } else {
+                    SqrtChain(N - 1, Sqrt(Value + 2.0))
+                }
+            }
+            """;
+
+    /**
+     * Tasks that spawn two more until they're {@code Depth} deep, each yielding or sleeping once
+     * before it finishes, and {@code N} races in a row that each cancel a sleeping loser.
+     */
+    public static final String TASKS = """
+            Sleep<native>(Seconds : float)<suspends> : void
+
+            Tree(Depth : int)<suspends> : void = {
+                if (Depth > 0) {
+                    spawn { Tree(Depth - 1) }
+                    spawn { Tree(Depth - 1) }
+                }
+                Sleep(0.0)
+            }
+
+            SleepTree(Depth : int)<suspends> : void = {
+                if (Depth > 0) {
+                    spawn { SleepTree(Depth - 1) }
+                    spawn { SleepTree(Depth - 1) }
+                }
+                Sleep(60.0)
+            }
+
+            Wait(Seconds : float)<suspends> : void = {
+                Sleep(Seconds)
+            }
+
+            Churn(N : int)<suspends> : void = {
+                if (N > 0) {
+                    race {
+                        Wait(100.0)
+                        Wait(0.0)
+                    }
+                    Churn(N - 1)
+                }
+            }
+            """;
+
+}
@@ -0,0 +1,129 @@
+package dev.jok.verse.benchmark;
+
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.interpreter.VerseInterpreter;
+import dev.jok.verse.interpreter.VerseNative;
+import dev.jok.verse.jvm.JvmCompiler;
+import dev.jok.verse.jvm.JvmFunction;
+import dev.jok.verse.jvm.JvmProgram;
+import dev.jok.verse.lexer.VerseScanner;
+import dev.jok.verse.nodes.FunctionRoot;
+import dev.jok.verse.nodes.NodeInterpreter;
+import dev.jok.verse.parser.VerseParser;
+import dev.jok.verse.parser.pass.ConstantFolder;
+import dev.jok.verse.parser.pass.Resolver;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import dev.jok.verse.vm.BytecodeCompiler;
+import dev.jok.verse.vm.CompiledFunction;
+import dev.jok.verse.vm.CompiledProgram;
+import dev.jok.verse.vm.VerseVM;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterpreterBenchmark {
+
+    @Param({ "interpreter", "bytecode", "nodes", "jvm" })
+    public String engine;
+
+    private Function<Object[], Object> arithmetic;
+    private Function<Object[], Object> fib;
+    private Function<Object[], Object> sqrtChain;
+
+    private final Object[] arithmeticArguments = { VInteger.valueOf(12345) };
+    private final Object[] fibArguments = { VInteger.valueOf(15) };
+    private final Object[] sqrtChainArguments = { VInteger.valueOf(200), new VFloat(1.0f) };
+
+    @Setup
+    public void setup() {
+        List<AstStmt> statements = new VerseParser(false, new VerseScanner(BenchmarkSources.PROGRAM).scanTokens()).parse();
+        statements = new ConstantFolder().fold(statements);
+        Resolver resolver = new Resolver(new Diagnostics());
+        resolver.resolve(statements);
+
+        switch (engine) {
+            case "interpreter" -> {
+                VerseInterpreter interpreter = new VerseInterpreter(statements, resolver.getGlobalFrameSize());
+                interpreter.interpret(statements);
+                arithmetic = interpreterEntry(interpreter, "Arithmetic");
+                fib = interpreterEntry(interpreter, "Fib");
+                sqrtChain = interpreterEntry(interpreter, "SqrtChain");
+            }
+
+            case "bytecode" -> {
+                CompiledProgram program = new BytecodeCompiler(statements, resolver.getGlobalFrameSize(), new VerseNative()).compile();
+                VerseVM vm = new VerseVM(program);
+                vm.initialize();
+                arithmetic = vmEntry(vm, program, "Arithmetic");
+                fib = vmEntry(vm, program, "Fib");
+                sqrtChain = vmEntry(vm, program, "SqrtChain");
+            }
+
+            case "nodes" -> {
+                NodeInterpreter interpreter = new NodeInterpreter(statements, resolver.getGlobalFrameSize());
+                interpreter.initialize();
+                arithmetic = nodeEntry(interpreter, "Arithmetic");
+                fib = nodeEntry(interpreter, "Fib");
+                sqrtChain = nodeEntry(interpreter, "SqrtChain");
+            }
+
+            case "jvm" -> {
+                JvmProgram program = new JvmCompiler(statements, resolver.getGlobalFrameSize(), "benchmark.verse", new VerseNative()).compile();
+                program.initialize();
+                arithmetic = jvmEntry(program, "Arithmetic");
+                fib = jvmEntry(program, "Fib");
+                sqrtChain = jvmEntry(program, "SqrtChain");
+            }
+
+            default -> throw new IllegalArgumentException("Unknown engine " + engine);
+        }
+    }
+
+    private static Function<Object[], Object> interpreterEntry(VerseInterpreter interpreter, String name) {
+        AstFunctionDecl function = Objects.requireNonNull(interpreter.lookupFunctionDecl(name));
+        return arguments -> interpreter.invoke(function, arguments);
+    }
+
+    private static Function<Object[], Object> vmEntry(VerseVM vm, CompiledProgram program, String name) {
+        CompiledFunction function = Objects.requireNonNull(program.lookupFunction(name));
+        return arguments -> vm.call(function, arguments);
+    }
+
+    private static Function<Object[], Object> nodeEntry(NodeInterpreter interpreter, String name) {
+        FunctionRoot function = Objects.requireNonNull(interpreter.lookupFunction(name));
+        return function::call;
+    }
+
+    private static Function<Object[], Object> jvmEntry(JvmProgram program, String name) {
+        JvmFunction function = Objects.requireNonNull(program.lookupFunction(name));
+        return function::call;
+    }
+
+    @Benchmark
+    public Object arithmetic() {
+        return arithmetic.apply(arithmeticArguments);
+    }
+
+    @Benchmark
+    public Object calls() {
+        return fib.apply(fibArguments);
+    }
+
+    @Benchmark
+    public Object nativeDispatch() {
+        return sqrtChain.apply(sqrtChainArguments);
+    }
+
+}
@@ -0,0 +1,109 @@
+package dev.jok.verse.benchmark;
+
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.cache.AstCache;
+import dev.jok.verse.lexer.StreamingTokenSource;
+import dev.jok.verse.lexer.Token;
+import dev.jok.verse.lexer.TokenBuffer;
+import dev.jok.verse.lexer.VerseScanner;
+import dev.jok.verse.parser.IncrementalParser;
+import dev.jok.verse.parser.ParallelParser;
+import dev.jok.verse.parser.VerseParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({ "small", "medium", "large" })
+    public String size;
+
+    private String source;
+    private List<Token> tokens;
+    private TokenBuffer buffer;
+    private IncrementalParser incremental;
+    private int editOffset;
+    private Path cacheDirectory;
+    private AstCache cache;
+    private byte[] sourceBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        int functionCount = switch (size) {
+            case "small" -> 10;
+            case "medium" -> 500;
+            case "large" -> 10_000;
+            default -> throw new IllegalArgumentException("Unknown size " + size);
+        };
+
+        source = BenchmarkSources.generate(functionCount);
+        tokens = new VerseScanner(source).scanTokens();
+        buffer = new VerseScanner(source).scanBuffer();
+        incremental = new IncrementalParser(false, source);
+        // the start of a line in the middle of the file
+        editOffset = source.indexOf('\n', source.length() / 2) + 1;
+
+        cacheDirectory = Files.createTempDirectory("verse-cache");
+        cache = new AstCache(cacheDirectory);
+        sourceBytes = source.getBytes(StandardCharsets.UTF_8);
+        cache.store(sourceBytes, new VerseParser(false, buffer).parse());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.walk(cacheDirectory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<AstStmt> parse() {
+        return new VerseParser(false, tokens).parse();
+    }
+
+    @Benchmark
+    public List<AstStmt> parseBuffer() {
+        return new VerseParser(false, buffer).parse();
+    }
+
+    @Benchmark
+    public List<AstStmt> parseParallel() {
+        return new ParallelParser(false, buffer).parse();
+    }
+
+    // hashing the source and reading the mapped entry, which stands in for scanning and parsing
+    @Benchmark
+    public List<AstStmt> loadCached() {
+        return cache.load(sourceBytes);
+    }
+
+    // a keystroke and its undo, in the middle of the file
+    @Benchmark
+    public List<AstStmt> parseIncremental() {
+        incremental.edit(editOffset, 0, " ");
+        return incremental.edit(editOffset, 1, "");
+    }
+
+    // scanning included, tokens are pulled through the ring buffer as the parser needs them
+    @Benchmark
+    public List<AstStmt> parseStreaming() {
+        VerseScanner scanner = new VerseScanner(new StringReader(source));
+        return new VerseParser(false, new StreamingTokenSource(scanner)).parse();
+    }
+
+}
@@ -0,0 +1,68 @@
+package dev.jok.verse.benchmark;
+
+import dev.jok.verse.lexer.Token;
+import dev.jok.verse.lexer.TokenBuffer;
+import dev.jok.verse.lexer.Utf8Scanner;
+import dev.jok.verse.lexer.VerseScanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScannerBenchmark {
+
+    private String source;
+    private ByteBuffer utf8;
+    private long sourceBytes;
+
+    /**
+     * Counts the bytes scanned, which JMH reports as a rate next to the ops/s score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+
+        public long bytes;
+
+    }
+
+    @Setup
+    public void setup() {
+        source = BenchmarkSources.generate(2000);
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        utf8 = ByteBuffer.allocateDirect(bytes.length);
+        utf8.put(bytes).flip();
+        sourceBytes = utf8.limit();
+    }
+
+    @Benchmark
+    public List<Token> scanTokens(Throughput throughput) {
+        List<Token> tokens = new VerseScanner(source).scanTokens();
+        throughput.bytes += sourceBytes;
+        return tokens;
+    }
+
+    @Benchmark
+    public TokenBuffer scanBuffer(Throughput throughput) {
+        TokenBuffer tokens = new VerseScanner(source).scanBuffer();
+        throughput.bytes += sourceBytes;
+        return tokens;
+    }
+
+    // off heap like a mapped file, without the file system in the measurement
+    @Benchmark
+    public TokenBuffer scanUtf8(Throughput throughput) {
+        TokenBuffer tokens = new Utf8Scanner(utf8.duplicate()).scanBuffer();
+        throughput.bytes += sourceBytes;
+        return tokens;
+    }
+
+}
@@ -0,0 +1,82 @@
+package dev.jok.verse.benchmark;
+
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.interpreter.VerseNative;
+import dev.jok.verse.lexer.VerseScanner;
+import dev.jok.verse.parser.VerseParser;
+import dev.jok.verse.parser.pass.ConstantFolder;
+import dev.jok.verse.parser.pass.Resolver;
+import dev.jok.verse.task.TaskScheduler;
+import dev.jok.verse.task.VirtualClock;
+import dev.jok.verse.types.number.VInteger;
+import dev.jok.verse.vm.BytecodeCompiler;
+import dev.jok.verse.vm.CompiledFunction;
+import dev.jok.verse.vm.CompiledProgram;
+import dev.jok.verse.vm.VerseVM;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spawning, switching between, finishing and cancelling tasks on the bytecode VM, the only engine
+ * that runs them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskBenchmark {
+
+    // 2^(depth + 1) - 1 tasks
+    @Param({ "10", "16" })
+    public int depth;
+
+    private CompiledProgram program;
+    private CompiledFunction tree;
+    private CompiledFunction churn;
+    private CompiledFunction sleepTree;
+    private Object[] arguments;
+
+    @Setup
+    public void setup() {
+        List<AstStmt> statements = new VerseParser(false, new VerseScanner(BenchmarkSources.TASKS).scanTokens()).parse();
+        statements = new ConstantFolder().fold(statements);
+        Resolver resolver = new Resolver(new Diagnostics());
+        resolver.resolve(statements);
+
+        program = new BytecodeCompiler(statements, resolver.getGlobalFrameSize(), new VerseNative()).compile();
+        tree = Objects.requireNonNull(program.lookupFunction("Tree"));
+        churn = Objects.requireNonNull(program.lookupFunction("Churn"));
+        sleepTree = Objects.requireNonNull(program.lookupFunction("SleepTree"));
+        arguments = new Object[] { VInteger.valueOf(depth) };
+    }
+
+    @Benchmark
+    public Object spawnTree() {
+        VerseVM vm = new VerseVM(program);
+        vm.initialize();
+        return vm.run(tree, arguments);
+    }
+
+    // every task sleeps a minute of virtual time, so this is all scheduling and expiring timers
+    @Benchmark
+    public Object sleepTree() {
+        VerseVM vm = new VerseVM(program, new TaskScheduler(new VirtualClock()));
+        vm.initialize();
+        return vm.run(sleepTree, arguments);
+    }
+
+    // as many races as spawnTree has tasks, so each one starts two and cancels one
+    @Benchmark
+    public Object raceChurn() {
+        VerseVM vm = new VerseVM(program);
+        vm.initialize();
+        return vm.run(churn, new Object[] { VInteger.valueOf((1 << depth) - 1) });
+    }
+
+}
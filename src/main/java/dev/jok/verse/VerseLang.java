@@ -2,17 +2,44 @@ package dev.jok.verse;
 
 import dev.jok.verse.ast.types.AstStmt;
 import dev.jok.verse.ast.types.decl.AstFunctionDecl;
-import dev.jok.verse.interpreter.FunctionSearchVisitor;
+import dev.jok.verse.cache.AstCache;
+import dev.jok.verse.diagnostic.CompileError;
+import dev.jok.verse.diagnostic.Diagnostic;
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.diagnostic.Severity;
+import dev.jok.verse.interpreter.Profiler;
 import dev.jok.verse.interpreter.VerseInterpreter;
-import dev.jok.verse.lexer.Token;
+import dev.jok.verse.interpreter.VerseNative;
+import dev.jok.verse.jvm.JvmCompiler;
+import dev.jok.verse.jvm.JvmFunction;
+import dev.jok.verse.jvm.JvmProgram;
+import dev.jok.verse.lexer.StreamingTokenSource;
+import dev.jok.verse.lexer.Symbols;
+import dev.jok.verse.lexer.TokenBuffer;
+import dev.jok.verse.lexer.Utf8Scanner;
+import dev.jok.verse.nodes.FunctionRoot;
+import dev.jok.verse.nodes.NodeInterpreter;
 import dev.jok.verse.lexer.VerseScanner;
+import dev.jok.verse.parser.ParallelParser;
 import dev.jok.verse.parser.VerseParser;
+import dev.jok.verse.parser.pass.ConstantFolder;
+import dev.jok.verse.parser.pass.Resolver;
+import dev.jok.verse.project.CompiledFile;
+import dev.jok.verse.project.ProjectBuild;
+import dev.jok.verse.project.ProjectCompiler;
+import dev.jok.verse.project.ProjectModule;
+import dev.jok.verse.task.TaskScheduler;
+import dev.jok.verse.task.VirtualClock;
 import dev.jok.verse.util.AstPrinter;
-import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
+import dev.jok.verse.vm.BytecodeCompiler;
+import dev.jok.verse.vm.CompiledFunction;
+import dev.jok.verse.vm.CompiledProgram;
+import dev.jok.verse.vm.VerseVM;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.function.Function;
 import java.util.logging.Level;
@@ -22,16 +49,37 @@ import java.util.logging.Logger;
 public class VerseLang {
 
     public static final AstPrinter PRINTER = new AstPrinter();
+    private static final String ENGINE_INTERPRETER = "interpreter";
+    private static final String ENGINE_BYTECODE = "bytecode";
+    private static final String ENGINE_NODES = "nodes";
+    private static final String ENGINE_JVM = "jvm";
+    // -Dverse.profile=profile.json profiles the interpreter and writes the results to that file
+    private static final String PROFILE_PROPERTY = "verse.profile";
+    // -Dverse.parallel=true parses on every core, which needs the whole file scanned up front
+    private static final String PARALLEL_PROPERTY = "verse.parallel";
+
+    // -Dverse.cache=directory keeps parsed scripts there, so unchanged scripts aren't parsed again
+    private static final String CACHE_PROPERTY = "verse.cache";
+
+    // -Dverse.virtualTime=true runs sleeps on a simulated clock, which skips ahead instead of waiting
+    private static final String VIRTUAL_TIME_PROPERTY = "verse.virtualTime";
+
     private static Logger LOGGER;
-    private static boolean hadSyntaxError = false;
 
     public static void main(String[] args) throws IOException {
         InputStream stream = VerseLang.class.getClassLoader().getResourceAsStream("logging.properties");
         LogManager.getLogManager().readConfiguration(stream);
         LOGGER = Logger.getLogger("Verse");
 
-        if (args.length != 2) {
-            LOGGER.log(Level.SEVERE, "Usage: verse [script] [debug]");
+        if (args.length < 2 || args.length > 3) {
+            LOGGER.log(Level.SEVERE, "Usage: verse [script] [debug] [engine]\n"
+                    + "  script can also be a project directory, which is only checked for errors, not run");
+            System.exit(64);
+        }
+
+        String engine = args.length == 3 ? args[2] : ENGINE_INTERPRETER;
+        if (!engine.equals(ENGINE_INTERPRETER) && !engine.equals(ENGINE_BYTECODE) && !engine.equals(ENGINE_NODES) && !engine.equals(ENGINE_JVM)) {
+            LOGGER.log(Level.SEVERE, "Unknown engine: " + engine + ", expected " + ENGINE_INTERPRETER + ", " + ENGINE_BYTECODE + ", " + ENGINE_NODES + " or " + ENGINE_JVM);
             System.exit(64);
         }
 
@@ -42,35 +90,59 @@ public class VerseLang {
             System.exit(64);
         }
 
+        boolean debug = Boolean.parseBoolean(args[1]);
+
+        if (file.isDirectory()) {
+            buildProject(file.toPath(), debug);
+            return;
+        }
+
         if (!file.isFile()) {
             LOGGER.log(Level.SEVERE, "Input is not a file: " + fileName);
             System.exit(64);
         }
 
-        String fileContent = Files.readString(file.toPath());
-
-        boolean debug = Boolean.parseBoolean(args[1]);
-
-        List<Token> tokens = new VerseScanner(fileContent).scanTokens();
-        VerseParser parser = new VerseParser(debug, tokens);
+        Diagnostics diagnostics = new Diagnostics(VerseLang::logDiagnostic);
 
         List<AstStmt> statements;
         long start = System.currentTimeMillis();
         try {
-            statements = parser.parse();
+            String cacheDirectory = System.getProperty(CACHE_PROPERTY);
+            if (cacheDirectory != null) {
+                statements = parseCached(new AstCache(Path.of(cacheDirectory)), file.toPath(), debug, diagnostics);
+            } else if (Boolean.getBoolean(PARALLEL_PROPERTY)) {
+                // the file is scanned straight from memory, as UTF-8, instead of being decoded into a string first
+                TokenBuffer tokens = Utf8Scanner.open(file.toPath(), diagnostics).scanBuffer();
+                statements = new ParallelParser(debug, tokens, diagnostics).parse();
+            } else {
+                // tokens are scanned as the parser needs them, so neither the whole file nor all its tokens are ever in memory
+                try (Reader reader = Files.newBufferedReader(file.toPath())) {
+                    statements = new VerseParser(debug, new StreamingTokenSource(new VerseScanner(reader, diagnostics)), diagnostics).parse();
+                }
+            }
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error while parsing", e);
             // @Todo(Jok): exit codes
             return;
         }
 
-        if (hadSyntaxError) {
+        if (diagnostics.hasErrors()) {
             // @Todo(Jok): exit codes
             return;
         }
 
         LOGGER.log(Level.INFO, "Parsed " + statements.size() + " statements in " + (System.currentTimeMillis() - start) + "ms");
 
+        statements = new ConstantFolder().fold(statements);
+
+        Resolver resolver = new Resolver(diagnostics);
+        resolver.resolve(statements);
+
+        if (diagnostics.hasErrors()) {
+            // @Todo(Jok): exit codes
+            return;
+        }
+
         try (BufferedWriter writer = new BufferedWriter(new FileWriter("out.txt"))) {
             for (AstStmt stmt : statements) {
                 writer.write(PRINTER.print(stmt));
@@ -79,9 +151,95 @@ public class VerseLang {
         }
 
         System.out.println();
+
+        if (System.getProperty(PROFILE_PROPERTY) != null && !engine.equals(ENGINE_INTERPRETER)) {
+            LOGGER.log(Level.WARNING, "Profiling is only supported by the " + ENGINE_INTERPRETER + " engine");
+        }
+
+        if (!engine.equals(ENGINE_BYTECODE) && suspendsMain(statements)) {
+            LOGGER.log(Level.SEVERE, "Main is <suspends>, which only the " + ENGINE_BYTECODE + " engine can run");
+            return;
+        }
+
+        if (engine.equals(ENGINE_BYTECODE)) {
+            runBytecode(statements, resolver.getGlobalFrameSize(), debug, diagnostics);
+        } else if (engine.equals(ENGINE_NODES)) {
+            runNodes(statements, resolver.getGlobalFrameSize());
+        } else if (engine.equals(ENGINE_JVM)) {
+            runJvm(statements, resolver.getGlobalFrameSize(), file.getName(), debug, diagnostics);
+        } else {
+            runInterpreter(statements, resolver.getGlobalFrameSize());
+        }
+    }
+
+    private static boolean suspendsMain(List<AstStmt> statements) {
+        for (AstStmt stmt : statements) {
+            if (stmt instanceof AstFunctionDecl function && function.name.lexeme.equals("Main")) {
+                return function.hasEffect(Symbols.SUSPENDS);
+            }
+        }
+
+        return false;
+    }
+
+    private static List<AstStmt> parseCached(AstCache cache, Path path, boolean debug, Diagnostics diagnostics) {
+        byte[] source;
+        try {
+            source = Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        List<AstStmt> statements = cache.load(source);
+        if (statements != null) {
+            return statements;
+        }
+
+        TokenBuffer tokens = new Utf8Scanner(ByteBuffer.wrap(source), diagnostics).scanBuffer();
+        statements = Boolean.getBoolean(PARALLEL_PROPERTY) ? new ParallelParser(debug, tokens, diagnostics).parse() : new VerseParser(debug, tokens, diagnostics).parse();
+
+        // only scripts that parsed cleanly are kept, the errors of the rest have to be reported every time
+        if (!diagnostics.hasErrors()) {
+            try {
+                cache.store(source, statements);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Couldn't cache the parsed script", e);
+            }
+        }
+
+        return statements;
+    }
+
+    private static void buildProject(Path root, boolean debug) throws IOException {
+        long start = System.currentTimeMillis();
+        ProjectBuild build = new ProjectCompiler(root, debug).build();
+
+        for (ProjectModule module : build.modules) {
+            for (CompiledFile file : module.files) {
+                String path = root.relativize(file.source.path).toString();
+                for (Diagnostic diagnostic : file.source.diagnostics.getDiagnostics()) {
+                    logDiagnostic(path, diagnostic);
+                }
+
+                for (Diagnostic diagnostic : file.diagnostics.getDiagnostics()) {
+                    logDiagnostic(path, diagnostic);
+                }
+            }
+        }
+
+        LOGGER.log(Level.INFO, "Built " + build.modules.size() + " modules in " + (System.currentTimeMillis() - start) + "ms");
+
+        // @Todo(Jok): link the modules into one program so a project can be run like a single file
+        LOGGER.log(Level.INFO, "Projects are only checked for errors for now, modules aren't linked into a program to run");
+    }
+
+    private static void runInterpreter(List<AstStmt> statements, int globalFrameSize) throws IOException {
         LOGGER.log(Level.INFO, "Running interpreter...");
 
-        VerseInterpreter interp = new VerseInterpreter(statements);
+        String profilePath = System.getProperty(PROFILE_PROPERTY);
+        Profiler profiler = profilePath != null ? new Profiler() : null;
+
+        VerseInterpreter interp = new VerseInterpreter(statements, globalFrameSize, profiler);
         AstFunctionDecl mainFunction = interp.lookupFunctionDecl("Main");
 
         if (mainFunction == null) {
@@ -89,19 +247,110 @@ public class VerseLang {
             return;
         }
 
-        interp.interpret(mainFunction.body);
+        try {
+            // initialize globals before running main
+            interp.interpret(statements);
+            interp.call(mainFunction, new Object[0]);
+        } finally {
+            if (profiler != null) {
+                System.out.println();
+                profiler.printReport(System.out);
+                profiler.writeJson(Path.of(profilePath));
+                LOGGER.log(Level.INFO, "Wrote profile to " + profilePath);
+            }
+        }
+    }
+
+    private static void runNodes(List<AstStmt> statements, int globalFrameSize) {
+        LOGGER.log(Level.INFO, "Running node interpreter...");
+
+        NodeInterpreter interp = new NodeInterpreter(statements, globalFrameSize);
+        FunctionRoot mainFunction = interp.lookupFunction("Main");
+
+        if (mainFunction == null) {
+            LOGGER.log(Level.SEVERE, "No main function found");
+            return;
+        }
+
+        interp.initialize();
+        mainFunction.call(new Object[0]);
+    }
+
+    private static void runBytecode(List<AstStmt> statements, int globalFrameSize, boolean debug, Diagnostics diagnostics) {
+        LOGGER.log(Level.INFO, "Compiling bytecode...");
+
+        CompiledProgram program;
+        try {
+            program = new BytecodeCompiler(statements, globalFrameSize, new VerseNative()).compile();
+        } catch (CompileError e) {
+            e.report(diagnostics);
+            // @Todo(Jok): exit codes
+            return;
+        }
+
+        CompiledFunction mainFunction = program.lookupFunction("Main");
+
+        if (mainFunction == null) {
+            LOGGER.log(Level.SEVERE, "No main function found");
+            return;
+        }
+
+        if (debug) {
+            System.out.println(program.initializer.disassemble());
+            for (CompiledFunction function : program.functions) {
+                System.out.println(function.disassemble());
+            }
+        }
+
+        LOGGER.log(Level.INFO, "Running bytecode...");
+
+        TaskScheduler scheduler = Boolean.getBoolean(VIRTUAL_TIME_PROPERTY) ? new TaskScheduler(new VirtualClock()) : new TaskScheduler();
+        VerseVM vm = new VerseVM(program, scheduler);
+        vm.initialize();
+        // Main runs as the first task, so it can suspend and spawn more
+        vm.run(mainFunction, new Object[0]);
+
+        if (scheduler.getSpawnedTasks() > 1) {
+            LOGGER.log(Level.INFO, "Ran " + scheduler.getSpawnedTasks() + " tasks, " + scheduler.getCancelledTasks() + " cancelled, " + scheduler.getLiveTasks() + " still live");
+        }
+    }
+
+    private static void runJvm(List<AstStmt> statements, int globalFrameSize, String sourceName, boolean debug, Diagnostics diagnostics) throws IOException {
+        LOGGER.log(Level.INFO, "Compiling to JVM bytecode...");
+
+        JvmProgram program;
+        try {
+            program = new JvmCompiler(statements, globalFrameSize, sourceName, new VerseNative()).compile();
+        } catch (CompileError e) {
+            e.report(diagnostics);
+            // @Todo(Jok): exit codes
+            return;
+        }
+
+        JvmFunction mainFunction = program.lookupFunction("Main");
+
+        if (mainFunction == null) {
+            LOGGER.log(Level.SEVERE, "No main function found");
+            return;
+        }
+
+        if (debug) {
+            // inspect with javap -c -p VerseScript.class
+            Files.write(Path.of("VerseScript.class"), program.classFile);
+        }
+
+        LOGGER.log(Level.INFO, "Running compiled script...");
+
+        program.initialize();
+        mainFunction.call(new Object[0]);
     }
 
-    public static void syntaxError(@Nullable Token previous, @NotNull Token current, @Nullable Token next, String message) {
-        message = message.replace("{peek}", current.errorString());
-        message = message.replace("{peekNext}", next != null ? next.errorString() : "null");
-        message = message.replace("{peekPrev}", previous != null ? previous.errorString() : "null");
-        syntaxError(current.line, current.col, message);
+    private static void logDiagnostic(Diagnostic diagnostic) {
+        LOGGER.log(diagnostic.severity == Severity.ERROR ? Level.SEVERE : Level.WARNING, diagnostic.toString());
     }
 
-    public static void syntaxError(int line, int col, String message) {
-        hadSyntaxError = true;
-        LOGGER.log(Level.SEVERE, "Syntax Error: " + message + " [ Ln " + line + ", Col " + col + " ]");
+    private static void logDiagnostic(String path, Diagnostic diagnostic) {
+        LOGGER.log(diagnostic.severity == Severity.ERROR ? Level.SEVERE : Level.WARNING, path + ": " + diagnostic);
     }
 
 }
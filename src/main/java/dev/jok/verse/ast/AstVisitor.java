@@ -2,6 +2,7 @@ package dev.jok.verse.ast;
 
 import dev.jok.verse.ast.types.*;
 import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
 import dev.jok.verse.ast.types.decl.AstVariableDecl;
 import dev.jok.verse.ast.types.expr.*;
 import dev.jok.verse.ast.types.stmt.AstBlock;
@@ -12,6 +13,7 @@ public interface AstVisitor<R> {
     R visitTypeExpr(AstType type);
     R visitFunctionDecl(AstFunctionDecl astFunctionDecl);
     R visitVariableDecl(AstVariableDecl astVariableDecl);
+    R visitUsingDecl(AstUsingDecl astUsingDecl);
     R visitExpressionStmt(AstExpressionStmt astExpressionStmt);
     R visitBlock(AstBlock astBlock);
     R visitParameter(AstParameter astParameter);
@@ -30,5 +32,7 @@ public interface AstVisitor<R> {
 
     R visitCallExpr(AstCallExpr astCall);
     R visitGetExpr(AstGetExpr astGet);
+    R visitSpawnExpr(AstSpawnExpr astSpawn);
+    R visitConcurrentExpr(AstConcurrentExpr astConcurrent);
 
 }
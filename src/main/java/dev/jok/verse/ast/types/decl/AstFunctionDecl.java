@@ -20,14 +20,27 @@ public class AstFunctionDecl extends AstStmt {
     public final AstType type;
     public final @Nullable List<AstStmt> body;
 
+    // number of slots a call frame needs (parameters + locals), filled in by the Resolver
+    public int frameSize = 0;
+
     @Override
     public <R> R accept(AstVisitor<R> visitor) {
         return visitor.visitFunctionDecl(this);
     }
 
-    public boolean hasSpecifier(String specifierName) {
+    public boolean hasSpecifier(int specifierSymbol) {
         for (AstType specifier : specifiers) {
-            if (specifier.name.lexeme.equals(specifierName)) {
+            if (specifier.name.symbol == specifierSymbol) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public boolean hasEffect(int effectSymbol) {
+        for (AstType effect : effects) {
+            if (effect.name.symbol == effectSymbol) {
                 return true;
             }
         }
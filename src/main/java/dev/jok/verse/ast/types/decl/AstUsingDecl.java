@@ -0,0 +1,28 @@
+package dev.jok.verse.ast.types.decl;
+
+import dev.jok.verse.ast.AstVisitor;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.lexer.Token;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@code using { LGLib.Base }}, which makes another module's definitions visible to this file.
+ * Paths starting with a {@code /}, like {@code /Verse.org/Simulation}, are modules from outside the
+ * project.
+ */
+@RequiredArgsConstructor
+public class AstUsingDecl extends AstStmt {
+
+    public final @NotNull Token keyword;
+    public final @NotNull String path;
+
+    public boolean isExternal() {
+        return path.startsWith("/");
+    }
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitUsingDecl(this);
+    }
+}
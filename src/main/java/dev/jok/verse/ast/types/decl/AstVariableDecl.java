@@ -20,6 +20,9 @@ public class AstVariableDecl extends AstStmt {
     public final @NotNull AstExpr initializer;
     public final boolean mutable;
 
+    // filled in by the Resolver, -1 until resolved
+    public int slot = -1;
+
     @Override
     public <R> R accept(AstVisitor<R> visitor) {
         return visitor.visitVariableDecl(this);
@@ -11,6 +11,10 @@ public class AstAssignExpr extends AstExpr {
     public final Token name;
     public final AstExpr value;
 
+    // filled in by the Resolver, -1 until resolved
+    public int depth = -1;
+    public int slot = -1;
+
     @Override
     public <R> R accept(AstVisitor<R> visitor) {
         return visitor.visitAssignExpr(this);
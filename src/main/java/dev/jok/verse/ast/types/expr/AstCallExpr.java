@@ -13,6 +13,9 @@ public class AstCallExpr extends AstExpr {
     public final @NotNull AstExpr callee;
     public final @NotNull List<AstExpr> arguments;
 
+    // numbered by the Resolver, so engines can keep what they link each call to on their own side
+    public int site = -1;
+
     @Override
     public <R> R accept(AstVisitor<R> visitor) {
         return visitor.visitCallExpr(this);
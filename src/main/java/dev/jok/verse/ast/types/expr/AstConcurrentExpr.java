@@ -0,0 +1,32 @@
+package dev.jok.verse.ast.types.expr;
+
+import dev.jok.verse.ast.AstVisitor;
+import dev.jok.verse.ast.types.AstExpr;
+import dev.jok.verse.lexer.Token;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * {@code sync}, {@code race}, {@code rush} or {@code branch}, going by the keyword, with a block of
+ * calls that each run as a task of their own. Like {@link AstSpawnExpr}, every branch is a single
+ * call and its arguments are evaluated straight away.
+ * <ul>
+ *     <li>{@code sync} waits for every branch and evaluates to all of their results.</li>
+ *     <li>{@code race} evaluates to the first branch to finish and cancels the rest.</li>
+ *     <li>{@code rush} evaluates to the first branch to finish and leaves the rest running.</li>
+ *     <li>{@code branch} doesn't wait at all, and its branch is cancelled if the task that started it finishes first.</li>
+ * </ul>
+ */
+@RequiredArgsConstructor
+public class AstConcurrentExpr extends AstExpr {
+
+    public final @NotNull Token keyword;
+    public final @NotNull List<AstCallExpr> branches;
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitConcurrentExpr(this);
+    }
+}
@@ -0,0 +1,24 @@
+package dev.jok.verse.ast.types.expr;
+
+import dev.jok.verse.ast.AstVisitor;
+import dev.jok.verse.ast.types.AstExpr;
+import dev.jok.verse.lexer.Token;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@code spawn { Routine(Arguments) }}, which starts the call as a new task and carries on without
+ * waiting for it. Like in Verse, the body is a single call, and its arguments are evaluated straight
+ * away by the spawning code.
+ */
+@RequiredArgsConstructor
+public class AstSpawnExpr extends AstExpr {
+
+    public final @NotNull Token keyword;
+    public final @NotNull AstCallExpr call;
+
+    @Override
+    public <R> R accept(AstVisitor<R> visitor) {
+        return visitor.visitSpawnExpr(this);
+    }
+}
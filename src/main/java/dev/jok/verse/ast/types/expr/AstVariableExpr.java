@@ -10,6 +10,10 @@ public class AstVariableExpr extends AstExpr {
 
     public final Token name;
 
+    // filled in by the Resolver, -1 until resolved
+    public int depth = -1;
+    public int slot = -1;
+
     @Override
     public <R> R accept(AstVisitor<R> visitor) {
         return visitor.visitVariableExpr(this);
@@ -0,0 +1,122 @@
+package dev.jok.verse.cache;
+
+import dev.jok.verse.ast.types.AstStmt;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Parsed scripts stored on disk, so a script that hasn't changed since the last run skips scanning
+ * and parsing. An entry is keyed by a hash of the source and of the compiler that parsed it, so an
+ * edited script or a rebuilt compiler never picks up a stale AST, and entries are memory mapped and
+ * read in place when they're loaded.
+ * <p>
+ * Entries are written to a temporary file and moved into place, so several runs can share a
+ * directory.
+ */
+public class AstCache {
+
+    private static final String EXTENSION = ".ast";
+
+    private final Path directory;
+    // stands in for the compiler's version, it changes whenever the compiler is rebuilt
+    private final byte[] compilerFingerprint;
+
+    public AstCache(Path directory) {
+        this.directory = directory;
+        this.compilerFingerprint = compilerFingerprint();
+    }
+
+    /**
+     * The statements parsed from the source last time, or null if there are none for this source and
+     * compiler or they couldn't be read, in which case the source has to be parsed.
+     */
+    public @Nullable List<AstStmt> load(byte[] source) {
+        byte[] key = key(source);
+        Path path = directory.resolve(HexFormat.of().formatHex(key) + EXTENSION);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return AstReader.read(buffer, key);
+        } catch (IOException | RuntimeException e) {
+            // a file cut short by a crash or written by something else, it's just parsed again
+            return null;
+        }
+    }
+
+    public void store(byte[] source, List<AstStmt> statements) throws IOException {
+        byte[] key = key(source);
+        byte[] bytes = AstWriter.write(key, statements);
+
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "verse", ".tmp");
+        try {
+            Files.write(temporary, bytes);
+            Files.move(temporary, directory.resolve(HexFormat.of().formatHex(key) + EXTENSION), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private byte[] key(byte[] source) {
+        MessageDigest digest = sha256();
+        digest.update(compilerFingerprint);
+        digest.update(source);
+        return digest.digest();
+    }
+
+    /**
+     * A hash of the format version and of where the compiler's classes are, along with their sizes
+     * and modification times. Reading the classes themselves would cost more than the cache saves.
+     */
+    private static byte[] compilerFingerprint() {
+        MessageDigest digest = sha256();
+        digest.update(ByteBuffer.allocate(4).putInt(AstFormat.VERSION).array());
+
+        CodeSource codeSource = AstCache.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            return digest.digest();
+        }
+
+        try (Stream<Path> files = Files.walk(Path.of(codeSource.getLocation().toURI()))) {
+            // the jar, or every class file when running from a build directory
+            files.filter(file -> file.toString().endsWith(".class") || file.toString().endsWith(".jar")).sorted().forEach(file -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    digest.update(file.toString().getBytes(StandardCharsets.UTF_8));
+                    digest.update(ByteBuffer.allocate(16).putLong(attributes.size()).putLong(attributes.lastModifiedTime().toMillis()).array());
+                } catch (IOException e) {
+                    // a file that went away while walking doesn't change anything
+                }
+            });
+        } catch (IOException | URISyntaxException | FileSystemNotFoundException e) {
+            // only the format version is left to tell compilers apart
+        }
+
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+
+}
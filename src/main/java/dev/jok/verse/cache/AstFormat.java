@@ -0,0 +1,54 @@
+package dev.jok.verse.cache;
+
+/**
+ * The layout of a cached AST:
+ * <pre>
+ * int     MAGIC
+ * int     VERSION
+ * byte[32] key, the same key as the file's name
+ * varint  string count, then each string as a varint byte length and its UTF-8 bytes
+ * varint  statement count, then each statement
+ * </pre>
+ * A node is a tag followed by its fields in declaration order. Tokens are their type, the index of
+ * their lexeme in the strings, line and column, everything else about a token is worked out from
+ * those. Lists are a varint count, and a list that can be null is stored as its count plus one, with
+ * 0 for null.
+ */
+final class AstFormat {
+
+    static final int MAGIC = 0x56415354; // VAST
+    // bump whenever the layout or any node's fields change
+    static final int VERSION = 2;
+    static final int KEY_LENGTH = 32;
+
+    static final byte NULL = 0;
+    static final byte TYPE = 1;
+    static final byte FUNCTION_DECL = 2;
+    static final byte VARIABLE_DECL = 3;
+    static final byte USING_DECL = 4;
+    static final byte EXPRESSION_STMT = 5;
+    static final byte BLOCK = 6;
+    static final byte PARAMETER = 7;
+    static final byte IF = 8;
+    static final byte ASSIGN = 9;
+    static final byte BINARY = 10;
+    static final byte GROUPING = 11;
+    static final byte LITERAL = 12;
+    static final byte UNARY = 13;
+    static final byte VARIABLE = 14;
+    static final byte CALL = 15;
+    static final byte GET = 16;
+    static final byte SPAWN = 17;
+    static final byte CONCURRENT = 18;
+
+    // the kinds of value a literal can have
+    static final byte VALUE_NULL = 0;
+    static final byte VALUE_FALSE = 1;
+    static final byte VALUE_TRUE = 2;
+    static final byte VALUE_INT = 3;
+    static final byte VALUE_FLOAT = 4;
+    static final byte VALUE_STRING = 5;
+
+    private AstFormat() { }
+
+}
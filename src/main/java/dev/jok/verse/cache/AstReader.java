@@ -0,0 +1,266 @@
+package dev.jok.verse.cache;
+
+import dev.jok.verse.ast.types.AstExpr;
+import dev.jok.verse.ast.types.AstParameter;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.AstType;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
+import dev.jok.verse.ast.types.decl.AstVariableDecl;
+import dev.jok.verse.ast.types.expr.*;
+import dev.jok.verse.ast.types.stmt.AstBlock;
+import dev.jok.verse.ast.types.stmt.AstExpressionStmt;
+import dev.jok.verse.lexer.Symbols;
+import dev.jok.verse.lexer.Token;
+import dev.jok.verse.lexer.TokenType;
+import dev.jok.verse.lexer.VerseScanner;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads statements back out of the {@link AstFormat}, straight from a (usually memory mapped)
+ * buffer. Symbols aren't stable between runs, so identifiers are interned again as they're read.
+ */
+class AstReader {
+
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int NOT_INTERNED = -2;
+
+    private final ByteBuffer buffer;
+    private final String[] strings;
+    // the symbol of each string once an identifier has used it, NOT_INTERNED until then
+    private final int[] symbols;
+
+    private AstReader(ByteBuffer buffer, String[] strings) {
+        this.buffer = buffer;
+        this.strings = strings;
+        this.symbols = new int[strings.length];
+        Arrays.fill(symbols, NOT_INTERNED);
+    }
+
+    /**
+     * The statements in the buffer, or null if it wasn't written for the given key by this version
+     * of the format. A buffer that's been cut short or is corrupt throws.
+     */
+    static @Nullable List<AstStmt> read(ByteBuffer buffer, byte[] key) {
+        if (buffer.remaining() < 8 + AstFormat.KEY_LENGTH || buffer.getInt() != AstFormat.MAGIC || buffer.getInt() != AstFormat.VERSION) {
+            return null;
+        }
+
+        byte[] storedKey = new byte[AstFormat.KEY_LENGTH];
+        buffer.get(storedKey);
+        if (!Arrays.equals(storedKey, key)) {
+            return null;
+        }
+
+        String[] strings = new String[readVarInt(buffer)];
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < strings.length; i++) {
+            int length = readVarInt(buffer);
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+
+            buffer.get(bytes, 0, length);
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        AstReader reader = new AstReader(buffer, strings);
+        int count = readVarInt(buffer);
+        List<AstStmt> statements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            statements.add(reader.readStmt());
+        }
+
+        if (buffer.hasRemaining()) {
+            throw new IllegalStateException("Found " + buffer.remaining() + " bytes after the last statement");
+        }
+
+        return statements;
+    }
+
+    private @Nullable AstStmt readStmt() {
+        byte tag = buffer.get();
+        return switch (tag) {
+            case AstFormat.NULL -> null;
+            case AstFormat.FUNCTION_DECL -> new AstFunctionDecl(readToken(), readTypes(), readTypes(), readParameters(), readType(), readNullableStmts());
+            case AstFormat.VARIABLE_DECL -> new AstVariableDecl(readToken(), readTypes(), readType(), readExpr(), readBoolean());
+            case AstFormat.USING_DECL -> new AstUsingDecl(readToken(), readString());
+            case AstFormat.EXPRESSION_STMT -> new AstExpressionStmt(readExpr());
+            case AstFormat.BLOCK -> new AstBlock(readStmts());
+            default -> throw new IllegalStateException("Expected a statement but found tag " + tag);
+        };
+    }
+
+    private AstExpr readExpr() {
+        byte tag = buffer.get();
+        return switch (tag) {
+            case AstFormat.IF -> new AstIfExpr(readExpr(), readStmts(), readStmts());
+            case AstFormat.ASSIGN -> new AstAssignExpr(readToken(), readExpr());
+            case AstFormat.BINARY -> new AstBinaryExpr(readExpr(), readToken(), readExpr());
+            case AstFormat.GROUPING -> new AstGroupingExpr(readExpr());
+            case AstFormat.LITERAL -> new AstLiteralExpr(readValue());
+            case AstFormat.UNARY -> new AstUnaryExpr(readToken(), readExpr());
+            case AstFormat.VARIABLE -> new AstVariableExpr(readToken());
+            case AstFormat.CALL -> new AstCallExpr(readExpr(), readExprs());
+            case AstFormat.GET -> new AstGetExpr(readExpr(), readToken());
+            case AstFormat.SPAWN -> new AstSpawnExpr(readToken(), readCall());
+            case AstFormat.CONCURRENT -> new AstConcurrentExpr(readToken(), readCalls());
+            default -> throw new IllegalStateException("Expected an expression but found tag " + tag);
+        };
+    }
+
+    private AstCallExpr readCall() {
+        if (!(readExpr() instanceof AstCallExpr call)) {
+            throw new IllegalStateException("Expected a call");
+        }
+
+        return call;
+    }
+
+    private List<AstCallExpr> readCalls() {
+        int count = readVarInt(buffer);
+        List<AstCallExpr> calls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            calls.add(readCall());
+        }
+
+        return calls;
+    }
+
+    private @Nullable AstType readType() {
+        byte tag = buffer.get();
+        return switch (tag) {
+            case AstFormat.NULL -> null;
+            case AstFormat.TYPE -> new AstType(readToken(), readBoolean(), readBoolean(), readType(), readBoolean());
+            default -> throw new IllegalStateException("Expected a type but found tag " + tag);
+        };
+    }
+
+    private AstParameter readParameter() {
+        byte tag = buffer.get();
+        if (tag != AstFormat.PARAMETER) {
+            throw new IllegalStateException("Expected a parameter but found tag " + tag);
+        }
+
+        return new AstParameter(readToken(), readType());
+    }
+
+    private List<AstStmt> readStmts() {
+        int count = readVarInt(buffer);
+        List<AstStmt> statements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            statements.add(readStmt());
+        }
+
+        return statements;
+    }
+
+    private @Nullable List<AstStmt> readNullableStmts() {
+        // stored as the count plus one, 0 is null
+        int stored = readVarInt(buffer);
+        if (stored == 0) {
+            return null;
+        }
+
+        int count = stored - 1;
+        List<AstStmt> statements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            statements.add(readStmt());
+        }
+
+        return statements;
+    }
+
+    private List<AstExpr> readExprs() {
+        int count = readVarInt(buffer);
+        List<AstExpr> expressions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            expressions.add(readExpr());
+        }
+
+        return expressions;
+    }
+
+    private List<AstType> readTypes() {
+        int count = readVarInt(buffer);
+        List<AstType> types = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            types.add(readType());
+        }
+
+        return types;
+    }
+
+    private List<AstParameter> readParameters() {
+        int count = readVarInt(buffer);
+        List<AstParameter> parameters = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            parameters.add(readParameter());
+        }
+
+        return parameters;
+    }
+
+    private Token readToken() {
+        TokenType type = TYPES[buffer.get()];
+        int index = readVarInt(buffer);
+        int line = readVarInt(buffer);
+        int col = readVarInt(buffer);
+
+        if (type == TokenType.IDENTIFIER) {
+            int symbol = symbols[index];
+            if (symbol == NOT_INTERNED) {
+                symbol = Symbols.intern(strings[index]);
+                symbols[index] = symbol;
+            }
+
+            return new Token(type, Symbols.name(symbol), null, line, col, symbol);
+        }
+
+        String lexeme = strings[index];
+        return new Token(type, lexeme, VerseScanner.literal(type, lexeme), line, col, Symbols.NONE);
+    }
+
+    private @Nullable Object readValue() {
+        byte kind = buffer.get();
+        return switch (kind) {
+            case AstFormat.VALUE_NULL -> null;
+            case AstFormat.VALUE_FALSE -> false;
+            case AstFormat.VALUE_TRUE -> true;
+            case AstFormat.VALUE_INT -> VInteger.valueOf(buffer.getInt());
+            case AstFormat.VALUE_FLOAT -> new VFloat(Float.intBitsToFloat(buffer.getInt()));
+            case AstFormat.VALUE_STRING -> readString();
+            default -> throw new IllegalStateException("Unknown literal kind " + kind);
+        };
+    }
+
+    private String readString() {
+        return strings[readVarInt(buffer)];
+    }
+
+    private boolean readBoolean() {
+        return buffer.get() != 0;
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+
+        throw new IllegalStateException("Malformed varint");
+    }
+
+}
@@ -0,0 +1,320 @@
+package dev.jok.verse.cache;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.ast.AstVisitor;
+import dev.jok.verse.ast.types.AstParameter;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.AstType;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
+import dev.jok.verse.ast.types.decl.AstVariableDecl;
+import dev.jok.verse.ast.types.expr.*;
+import dev.jok.verse.ast.types.stmt.AstBlock;
+import dev.jok.verse.ast.types.stmt.AstExpressionStmt;
+import dev.jok.verse.lexer.Token;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes statements in the {@link AstFormat}. The nodes are written first, collecting every lexeme
+ * into one table on the way, and the table is put in front of them once it's complete.
+ */
+class AstWriter implements AstVisitor<Void> {
+
+    private final Output nodes = new Output();
+    private final Map<String, Integer> stringIndexes = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    static byte[] write(byte[] key, List<AstStmt> statements) {
+        AstWriter writer = new AstWriter();
+        writer.nodes.writeVarInt(statements.size());
+        for (AstStmt stmt : statements) {
+            writer.writeNode(stmt);
+        }
+
+        Output output = new Output();
+        output.writeInt(AstFormat.MAGIC);
+        output.writeInt(AstFormat.VERSION);
+        output.writeBytes(key, key.length);
+        output.writeVarInt(writer.strings.size());
+        for (String string : writer.strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            output.writeVarInt(bytes.length);
+            output.writeBytes(bytes, bytes.length);
+        }
+
+        output.writeBytes(writer.nodes.bytes, writer.nodes.size);
+        return output.toByteArray();
+    }
+
+    private void writeNode(@Nullable AstNode node) {
+        if (node == null) {
+            nodes.writeByte(AstFormat.NULL);
+        } else {
+            node.accept(this);
+        }
+    }
+
+    private void writeNodes(List<? extends AstNode> list) {
+        nodes.writeVarInt(list.size());
+        for (AstNode node : list) {
+            writeNode(node);
+        }
+    }
+
+    private void writeNullableNodes(@Nullable List<? extends AstNode> list) {
+        if (list == null) {
+            nodes.writeVarInt(0);
+            return;
+        }
+
+        nodes.writeVarInt(list.size() + 1);
+        for (AstNode node : list) {
+            writeNode(node);
+        }
+    }
+
+    private void writeToken(Token token) {
+        nodes.writeByte(token.type.ordinal());
+        nodes.writeVarInt(string(token.lexeme));
+        nodes.writeVarInt(token.line);
+        nodes.writeVarInt(token.col);
+    }
+
+    private int string(String string) {
+        Integer index = stringIndexes.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.add(string);
+            stringIndexes.put(string, index);
+        }
+
+        return index;
+    }
+
+    private void writeBoolean(boolean value) {
+        nodes.writeByte(value ? 1 : 0);
+    }
+
+    @Override
+    public Void visitTypeExpr(AstType type) {
+        nodes.writeByte(AstFormat.TYPE);
+        writeToken(type.name);
+        writeBoolean(type.array);
+        writeBoolean(type.map);
+        writeNode(type.keyType);
+        writeBoolean(type.optional);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionDecl(AstFunctionDecl function) {
+        nodes.writeByte(AstFormat.FUNCTION_DECL);
+        writeToken(function.name);
+        writeNodes(function.specifiers);
+        writeNodes(function.effects);
+        writeNodes(function.parameters);
+        writeNode(function.type);
+        writeNullableNodes(function.body);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableDecl(AstVariableDecl variable) {
+        nodes.writeByte(AstFormat.VARIABLE_DECL);
+        writeToken(variable.name);
+        writeNodes(variable.specifier);
+        writeNode(variable.type);
+        writeNode(variable.initializer);
+        writeBoolean(variable.mutable);
+        return null;
+    }
+
+    @Override
+    public Void visitUsingDecl(AstUsingDecl using) {
+        nodes.writeByte(AstFormat.USING_DECL);
+        writeToken(using.keyword);
+        nodes.writeVarInt(string(using.path));
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(AstExpressionStmt expression) {
+        nodes.writeByte(AstFormat.EXPRESSION_STMT);
+        writeNode(expression.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(AstBlock block) {
+        nodes.writeByte(AstFormat.BLOCK);
+        writeNodes(block.statements);
+        return null;
+    }
+
+    @Override
+    public Void visitParameter(AstParameter parameter) {
+        nodes.writeByte(AstFormat.PARAMETER);
+        writeToken(parameter.name);
+        writeNode(parameter.type);
+        return null;
+    }
+
+    @Override
+    public Void visitIf(AstIfExpr astIf) {
+        nodes.writeByte(AstFormat.IF);
+        writeNode(astIf.condition);
+        writeNodes(astIf.thenBranch);
+        writeNodes(astIf.elseBranch);
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(AstAssignExpr assign) {
+        nodes.writeByte(AstFormat.ASSIGN);
+        writeToken(assign.name);
+        writeNode(assign.value);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(AstBinaryExpr binary) {
+        nodes.writeByte(AstFormat.BINARY);
+        writeNode(binary.left);
+        writeToken(binary.operator);
+        writeNode(binary.right);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(AstGroupingExpr grouping) {
+        nodes.writeByte(AstFormat.GROUPING);
+        writeNode(grouping.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(AstLiteralExpr literal) {
+        nodes.writeByte(AstFormat.LITERAL);
+        Object value = literal.value;
+        if (value == null) {
+            nodes.writeByte(AstFormat.VALUE_NULL);
+        } else if (value instanceof Boolean bool) {
+            nodes.writeByte(bool ? AstFormat.VALUE_TRUE : AstFormat.VALUE_FALSE);
+        } else if (value instanceof VInteger integer) {
+            nodes.writeByte(AstFormat.VALUE_INT);
+            nodes.writeInt(integer.intValue());
+        } else if (value instanceof VFloat number) {
+            nodes.writeByte(AstFormat.VALUE_FLOAT);
+            nodes.writeInt(Float.floatToRawIntBits(number.floatValue()));
+        } else if (value instanceof String string) {
+            nodes.writeByte(AstFormat.VALUE_STRING);
+            nodes.writeVarInt(string(string));
+        } else {
+            throw new IllegalArgumentException("Can't write a literal of type " + value.getClass().getSimpleName());
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(AstUnaryExpr unary) {
+        nodes.writeByte(AstFormat.UNARY);
+        writeToken(unary.operator);
+        writeNode(unary.right);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(AstVariableExpr variable) {
+        nodes.writeByte(AstFormat.VARIABLE);
+        writeToken(variable.name);
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(AstCallExpr call) {
+        nodes.writeByte(AstFormat.CALL);
+        writeNode(call.callee);
+        writeNodes(call.arguments);
+        return null;
+    }
+
+    @Override
+    public Void visitGetExpr(AstGetExpr get) {
+        nodes.writeByte(AstFormat.GET);
+        writeNode(get.expr);
+        writeToken(get.name);
+        return null;
+    }
+
+    @Override
+    public Void visitSpawnExpr(AstSpawnExpr spawn) {
+        nodes.writeByte(AstFormat.SPAWN);
+        writeToken(spawn.keyword);
+        writeNode(spawn.call);
+        return null;
+    }
+
+    @Override
+    public Void visitConcurrentExpr(AstConcurrentExpr concurrent) {
+        nodes.writeByte(AstFormat.CONCURRENT);
+        writeToken(concurrent.keyword);
+        writeNodes(concurrent.branches);
+        return null;
+    }
+
+    private static final class Output {
+
+        private byte[] bytes = new byte[4096];
+        private int size = 0;
+
+        private void writeByte(int value) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+
+            bytes[size++] = (byte) value;
+        }
+
+        private void writeInt(int value) {
+            writeByte(value >>> 24);
+            writeByte(value >>> 16);
+            writeByte(value >>> 8);
+            writeByte(value);
+        }
+
+        // 7 bits at a time, low bits first, with the top bit set on every byte but the last
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+
+            writeByte(value);
+        }
+
+        private void writeBytes(byte[] source, int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+
+            System.arraycopy(source, 0, bytes, size, length);
+            size += length;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+    }
+
+}
@@ -0,0 +1,26 @@
+package dev.jok.verse.diagnostic;
+
+import dev.jok.verse.lexer.Token;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Thrown by a compiler when it can't compile a script, which stops the whole compilation. It keeps
+ * where the problem is so it can be reported like any other diagnostic, see {@link #report}.
+ */
+public class CompileError extends RuntimeException {
+
+    // 0 when there's no token to point at
+    public final int line;
+    public final int col;
+
+    public CompileError(@Nullable Token token, String message) {
+        super(message);
+        this.line = token != null ? token.line : 0;
+        this.col = token != null ? token.col : 0;
+    }
+
+    public void report(Diagnostics diagnostics) {
+        diagnostics.error(Stage.COMPILE, line, col, getMessage());
+    }
+
+}
@@ -0,0 +1,35 @@
+package dev.jok.verse.diagnostic;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * A single error or warning. The message is kept as a template with {@code {name}} placeholders and
+ * the text for each of them, so tools can match on the template without parsing the final message.
+ */
+@RequiredArgsConstructor
+public class Diagnostic {
+
+    public final Severity severity;
+    public final Stage stage;
+    public final int line;
+    public final int col;
+    public final String template;
+    public final Map<String, String> arguments;
+
+    public String getMessage() {
+        String message = template;
+        for (Map.Entry<String, String> argument : arguments.entrySet()) {
+            message = message.replace("{" + argument.getKey() + "}", argument.getValue());
+        }
+
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return stage.getLabel() + " " + severity.getLabel() + ": " + getMessage() + " [ Ln " + line + ", Col " + col + " ]";
+    }
+
+}
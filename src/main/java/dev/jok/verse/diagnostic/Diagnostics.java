@@ -0,0 +1,63 @@
+package dev.jok.verse.diagnostic;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Collects the diagnostics of one compilation. Every scanner, parser and pass of a compilation
+ * reports into the same instance instead of anything global, so separate compilations can run on
+ * separate threads at the same time. Reporting is synchronized, so the stages of one compilation can
+ * share it across threads too.
+ */
+public class Diagnostics {
+
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    // told about each diagnostic as it's reported, e.g. to log it straight away
+    private final @Nullable Consumer<Diagnostic> listener;
+    private int errorCount = 0;
+
+    public Diagnostics() {
+        this(null);
+    }
+
+    public Diagnostics(@Nullable Consumer<Diagnostic> listener) {
+        this.listener = listener;
+    }
+
+    public void error(Stage stage, int line, int col, String message) {
+        report(new Diagnostic(Severity.ERROR, stage, line, col, message, Map.of()));
+    }
+
+    public synchronized void report(Diagnostic diagnostic) {
+        diagnostics.add(diagnostic);
+        if (diagnostic.severity == Severity.ERROR) {
+            errorCount++;
+        }
+
+        if (listener != null) {
+            listener.accept(diagnostic);
+        }
+    }
+
+    /**
+     * Reports everything another instance collected, in the order it was reported there.
+     */
+    public void reportAll(Diagnostics other) {
+        for (Diagnostic diagnostic : other.getDiagnostics()) {
+            report(diagnostic);
+        }
+    }
+
+    public synchronized boolean hasErrors() {
+        return errorCount > 0;
+    }
+
+    public synchronized List<Diagnostic> getDiagnostics() {
+        return new ArrayList<>(diagnostics);
+    }
+
+}
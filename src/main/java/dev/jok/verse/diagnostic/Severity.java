@@ -0,0 +1,14 @@
+package dev.jok.verse.diagnostic;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public enum Severity {
+
+    WARNING("Warning"),
+    ERROR("Error");
+
+    private final @Getter String label;
+
+}
@@ -0,0 +1,18 @@
+package dev.jok.verse.diagnostic;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Which part of the compiler found a problem.
+ */
+@RequiredArgsConstructor
+public enum Stage {
+
+    SYNTAX("Syntax"),
+    RESOLVE("Resolve"),
+    COMPILE("Compile");
+
+    private final @Getter String label;
+
+}
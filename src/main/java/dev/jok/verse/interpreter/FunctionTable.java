@@ -0,0 +1,89 @@
+package dev.jok.verse.interpreter;
+
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.lexer.Symbols;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Every top-level function in a file, indexed by the symbol of its name. Built once before the
+ * interpreter runs so call sites never have to search the statement list.
+ * <p>
+ * Symbols are shared by everything the process has ever scanned, so the table is only as long as
+ * the largest symbol this file declares rather than every symbol there is.
+ */
+public class FunctionTable {
+
+    private final VerseCallable[] functions;
+
+    private FunctionTable(int size) {
+        this.functions = new VerseCallable[size];
+    }
+
+    public static FunctionTable build(List<AstStmt> statements, VerseNative verseNative) {
+        int maxSymbol = Symbols.NONE;
+        for (AstStmt stmt : statements) {
+            if (stmt instanceof AstFunctionDecl function) {
+                maxSymbol = Math.max(maxSymbol, function.name.symbol);
+            }
+        }
+
+        FunctionTable table = new FunctionTable(maxSymbol + 1);
+        for (AstStmt stmt : statements) {
+            if (stmt instanceof AstFunctionDecl function) {
+                table.add(function, verseNative);
+            }
+        }
+
+        return table;
+    }
+
+    private void add(AstFunctionDecl function, VerseNative verseNative) {
+        // @Todo(Jok): overloads, for now the first declaration wins
+        int symbol = function.name.symbol;
+        if (lookup(symbol) != null) {
+            return;
+        }
+
+        VerseCallable callable;
+        if (function.hasSpecifier(Symbols.NATIVE)) {
+            callable = new NativeFunction(function, verseNative.lookup(symbol));
+        } else if (function.body != null) {
+            callable = new VerseFunction(function);
+        } else {
+            // abstract declarations aren't callable
+            return;
+        }
+
+        functions[symbol] = callable;
+    }
+
+    /**
+     * Puts every function behind the profiler, for an interpreter that's being profiled. Natives that
+     * failed to link are left as they are, so calling them still reports why.
+     */
+    public void instrument(Profiler profiler) {
+        for (int i = 0; i < functions.length; i++) {
+            VerseCallable function = functions[i];
+            if (function != null && !(function instanceof NativeFunction nativeFunction && nativeFunction.getLinkError() != null)) {
+                functions[i] = profiler.instrument(function);
+            }
+        }
+    }
+
+    public @Nullable VerseCallable lookup(int symbol) {
+        return symbol >= 0 && symbol < functions.length ? functions[symbol] : null;
+    }
+
+    public @Nullable VerseCallable lookup(String name) {
+        return lookup(Symbols.find(name));
+    }
+
+    // how many symbols the table has room for
+    int capacity() {
+        return functions.length;
+    }
+
+}
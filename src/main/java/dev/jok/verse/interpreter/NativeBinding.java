@@ -0,0 +1,157 @@
+package dev.jok.verse.interpreter;
+
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/**
+ * A native method linked into a {@link MethodHandle} that takes and returns Verse values directly.
+ * <p>
+ * All the work of unboxing arguments, checking their types and wrapping the result is decided once
+ * when the binding is created and baked into the handle as argument and return value filters.
+ */
+public class NativeBinding {
+
+    private static final MethodHandle TO_INT;
+    private static final MethodHandle TO_FLOAT;
+    private static final MethodHandle CHECK_TYPE;
+    private static final MethodHandle FROM_INT;
+    private static final MethodHandle FROM_FLOAT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TO_INT = lookup.findStatic(NativeBinding.class, "toInt", MethodType.methodType(int.class, String.class, int.class, Object.class));
+            TO_FLOAT = lookup.findStatic(NativeBinding.class, "toFloat", MethodType.methodType(float.class, String.class, int.class, Object.class));
+            CHECK_TYPE = lookup.findStatic(NativeBinding.class, "checkType", MethodType.methodType(Object.class, Class.class, String.class, int.class, Object.class));
+            FROM_INT = lookup.findStatic(VInteger.class, "valueOf", MethodType.methodType(VInteger.class, int.class));
+            FROM_FLOAT = lookup.findConstructor(VFloat.class, MethodType.methodType(void.class, float.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public final Method method;
+    public final String name;
+    public final Class<?>[] parameterTypes;
+    // (Object, Object, ...) -> Object
+    private final MethodHandle handle;
+    // (Object[]) -> Object
+    private final MethodHandle spreader;
+
+    public NativeBinding(Method method) throws IllegalAccessException {
+        this.method = method;
+        this.name = method.getName();
+        this.parameterTypes = method.getParameterTypes();
+
+        MethodHandle target = MethodHandles.publicLookup().unreflect(method);
+
+        MethodHandle[] filters = new MethodHandle[parameterTypes.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            filters[i] = argumentFilter(parameterTypes[i], i);
+        }
+        target = MethodHandles.filterArguments(target, 0, filters);
+
+        Class<?> returnType = method.getReturnType();
+        if (returnType == int.class) {
+            target = MethodHandles.filterReturnValue(target, FROM_INT);
+        } else if (returnType == float.class) {
+            target = MethodHandles.filterReturnValue(target, FROM_FLOAT);
+        }
+
+        // converting a void return to Object makes the handle return null
+        this.handle = target.asType(MethodType.genericMethodType(parameterTypes.length));
+        this.spreader = handle.asSpreader(Object[].class, parameterTypes.length);
+    }
+
+    private MethodHandle argumentFilter(Class<?> type, int index) {
+        if (type == int.class) {
+            return MethodHandles.insertArguments(TO_INT, 0, name, index);
+        }
+
+        if (type == float.class) {
+            return MethodHandles.insertArguments(TO_FLOAT, 0, name, index);
+        }
+
+        Class<?> boxed = MethodType.methodType(type).wrap().returnType();
+        MethodHandle check = MethodHandles.insertArguments(CHECK_TYPE, 0, boxed, name, index);
+        return check.asType(MethodType.methodType(type, Object.class));
+    }
+
+    public int arity() {
+        return parameterTypes.length;
+    }
+
+    public Object invoke(Object[] arguments) {
+        try {
+            return switch (arguments.length) {
+                case 0 -> (Object) handle.invokeExact();
+                case 1 -> (Object) handle.invokeExact(arguments[0]);
+                case 2 -> (Object) handle.invokeExact(arguments[0], arguments[1]);
+                case 3 -> (Object) handle.invokeExact(arguments[0], arguments[1], arguments[2]);
+                default -> (Object) spreader.invokeExact(arguments);
+            };
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException("Calling native method " + name + " failed", e);
+        }
+    }
+
+    /**
+     * Same as {@link #invoke(Object[])}, but reads the arguments straight out of a register file.
+     */
+    public Object invoke(Object[] registers, int start, int count) {
+        try {
+            return switch (count) {
+                case 0 -> (Object) handle.invokeExact();
+                case 1 -> (Object) handle.invokeExact(registers[start]);
+                case 2 -> (Object) handle.invokeExact(registers[start], registers[start + 1]);
+                case 3 -> (Object) handle.invokeExact(registers[start], registers[start + 1], registers[start + 2]);
+                default -> {
+                    Object[] arguments = new Object[count];
+                    System.arraycopy(registers, start, arguments, 0, count);
+                    yield (Object) spreader.invokeExact(arguments);
+                }
+            };
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException("Calling native method " + name + " failed", e);
+        }
+    }
+
+    private static int toInt(String name, int index, Object value) {
+        if (value instanceof VInteger integer) {
+            return integer.intValue();
+        }
+
+        throw argumentError(name, index, int.class, value);
+    }
+
+    private static float toFloat(String name, int index, Object value) {
+        if (value instanceof VFloat number) {
+            return number.floatValue();
+        }
+
+        throw argumentError(name, index, float.class, value);
+    }
+
+    private static Object checkType(Class<?> type, String name, int index, Object value) {
+        if (type.isInstance(value)) {
+            return value;
+        }
+
+        throw argumentError(name, index, type, value);
+    }
+
+    private static RuntimeException argumentError(String name, int index, Class<?> type, Object value) {
+        String actual = value == null ? "nothing" : value.getClass().getSimpleName();
+        return new RuntimeException("Native method " + name + " requires argument " + index + " to be of type " + type.getSimpleName() + ", but got " + actual);
+    }
+
+}
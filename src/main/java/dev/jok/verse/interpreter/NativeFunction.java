@@ -0,0 +1,101 @@
+package dev.jok.verse.interpreter;
+
+import dev.jok.verse.ast.types.AstParameter;
+import dev.jok.verse.ast.types.AstType;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.types.collection.VArray;
+import dev.jok.verse.types.collection.VMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * A {@code <native>} function declaration bound to its Java implementation. Whether the two match up
+ * is worked out when it's created, but it's only an error once something tries to call it.
+ */
+public class NativeFunction implements VerseCallable {
+
+    public final AstFunctionDecl declaration;
+    private final @Nullable NativeBinding binding;
+    private final @Nullable String linkError;
+
+    public NativeFunction(AstFunctionDecl declaration, @Nullable NativeBinding binding) {
+        this.declaration = declaration;
+        this.binding = binding;
+        this.linkError = checkLink(declaration, binding);
+    }
+
+    private static @Nullable String checkLink(AstFunctionDecl declaration, @Nullable NativeBinding binding) {
+        String name = declaration.name.lexeme;
+        if (binding == null) {
+            return "Native method " + name + " not found";
+        }
+
+        List<AstParameter> parameters = declaration.parameters;
+        if (parameters.size() != binding.arity()) {
+            return "Native method " + name + " requires " + binding.arity() + " arguments, but is declared with " + parameters.size();
+        }
+
+        for (int i = 0; i < parameters.size(); i++) {
+            AstType type = parameters.get(i).type;
+            Class<?> expected = type != null ? javaType(type) : null;
+            if (expected != null && expected != binding.parameterTypes[i]) {
+                return "Native method " + name + " requires argument " + i + " to be of type " + binding.parameterTypes[i].getSimpleName() + ", but it is declared as " + type;
+            }
+        }
+
+        return null;
+    }
+
+    // the Java type a Verse type is passed to natives as, or null if we can't check it
+    private static @Nullable Class<?> javaType(AstType type) {
+        return switch (type.toString()) {
+            case "int" -> int.class;
+            case "float" -> float.class;
+            case "logic" -> boolean.class;
+            case "char" -> char.class;
+            case "string", "[]char" -> String.class;
+            default -> type.map ? VMap.class : type.array ? VArray.class : null;
+        };
+    }
+
+    public @Nullable NativeBinding getBinding() {
+        return binding;
+    }
+
+    public @Nullable String getLinkError() {
+        return linkError;
+    }
+
+    @Override
+    public String name() {
+        return declaration.name.lexeme;
+    }
+
+    @Override
+    public int arity() {
+        return declaration.parameters.size();
+    }
+
+    @Override
+    public Object call(VerseInterpreter interpreter, Object[] arguments) {
+        return invoke(arguments);
+    }
+
+    public Object invoke(Object[] arguments) {
+        return linked().invoke(arguments);
+    }
+
+    public Object invoke(Object[] registers, int start, int count) {
+        return linked().invoke(registers, start, count);
+    }
+
+    private NativeBinding linked() {
+        if (linkError != null || binding == null) {
+            throw new RuntimeException(linkError);
+        }
+
+        return binding;
+    }
+
+}
@@ -0,0 +1,37 @@
+package dev.jok.verse.interpreter;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Wraps a function while profiling. These are only put in the function table when profiling is
+ * enabled, so normal runs don't pay anything for it.
+ */
+@RequiredArgsConstructor
+public class ProfiledCallable implements VerseCallable {
+
+    private final @Getter VerseCallable delegate;
+    private final Profiler profiler;
+    private final Profiler.Entry entry;
+
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+
+    @Override
+    public int arity() {
+        return delegate.arity();
+    }
+
+    @Override
+    public Object call(VerseInterpreter interpreter, Object[] arguments) {
+        profiler.enter(entry);
+        try {
+            return delegate.call(interpreter, arguments);
+        } finally {
+            profiler.exit(entry);
+        }
+    }
+
+}
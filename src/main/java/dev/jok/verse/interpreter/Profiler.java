@@ -0,0 +1,167 @@
+package dev.jok.verse.interpreter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records calls, wall time and allocations for every function and native the interpreter calls.
+ * <p>
+ * Inclusive numbers cover everything that happened during a call, exclusive numbers leave out what
+ * was spent in other profiled functions. Allocations are the bytes the JVM allocated on this thread,
+ * which includes the interpreter's own garbage as well as the script's values.
+ */
+public class Profiler {
+
+    private final Map<VerseCallable, ProfiledCallable> wrappers = new HashMap<>();
+    // keyed by name and kind, so the same function reached through different callables is counted once
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Deque<Activation> stack = new ArrayDeque<>();
+    private final com.sun.management.ThreadMXBean threads;
+
+    public Profiler() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            this.threads = threads;
+        } else {
+            this.threads = null;
+        }
+    }
+
+    public VerseCallable instrument(VerseCallable callable) {
+        return wrappers.computeIfAbsent(callable, key -> {
+            boolean isNative = key instanceof NativeFunction;
+            Entry entry = entries.computeIfAbsent((isNative ? "native:" : "verse:") + key.name(), name -> new Entry(key.name(), isNative));
+            return new ProfiledCallable(key, this, entry);
+        });
+    }
+
+    void enter(Entry entry) {
+        entry.calls++;
+        entry.active++;
+        stack.push(new Activation(System.nanoTime(), allocatedBytes()));
+    }
+
+    void exit(Entry entry) {
+        long time = System.nanoTime();
+        long bytes = allocatedBytes();
+
+        Activation activation = stack.pop();
+        long elapsed = time - activation.startTime;
+        long allocated = bytes - activation.startBytes;
+
+        entry.exclusiveTime += elapsed - activation.childTime;
+        entry.exclusiveBytes += allocated - activation.childBytes;
+
+        // recursive calls are already covered by the outermost one
+        if (--entry.active == 0) {
+            entry.inclusiveTime += elapsed;
+            entry.inclusiveBytes += allocated;
+        }
+
+        Activation parent = stack.peek();
+        if (parent != null) {
+            parent.childTime += elapsed;
+            parent.childBytes += allocated;
+        }
+    }
+
+    private long allocatedBytes() {
+        return threads != null ? threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private List<Entry> sortedEntries() {
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.removeIf(entry -> entry.calls == 0);
+        sorted.sort(Comparator.comparingLong((Entry entry) -> entry.exclusiveTime).reversed());
+        return sorted;
+    }
+
+    /**
+     * Prints a table of every function that was called, most exclusive time first.
+     */
+    public void printReport(PrintStream out) {
+        out.printf(Locale.ROOT, "%-32s %-8s %10s %12s %12s %12s %12s%n", "Function", "Kind", "Calls", "Incl ms", "Excl ms", "Incl KB", "Excl KB");
+        for (Entry entry : sortedEntries()) {
+            out.printf(Locale.ROOT, "%-32s %-8s %10d %12.3f %12.3f %12.1f %12.1f%n",
+                    entry.name, entry.kind(), entry.calls,
+                    entry.inclusiveTime / 1e6, entry.exclusiveTime / 1e6,
+                    entry.inclusiveBytes / 1024.0, entry.exclusiveBytes / 1024.0);
+        }
+
+        if (threads == null) {
+            out.println("(allocations are not supported by this JVM)");
+        }
+    }
+
+    /**
+     * Writes the same numbers as {@link #printReport} as JSON, times in nanoseconds and allocations in bytes.
+     */
+    public void writeJson(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            writer.write("[");
+            List<Entry> sorted = sortedEntries();
+            for (int i = 0; i < sorted.size(); i++) {
+                Entry entry = sorted.get(i);
+                writer.write(i == 0 ? "\n" : ",\n");
+                writer.write("  {\"name\": \"" + entry.name + "\", \"kind\": \"" + entry.kind() + "\", \"calls\": " + entry.calls
+                        + ", \"inclusiveNanos\": " + entry.inclusiveTime + ", \"exclusiveNanos\": " + entry.exclusiveTime
+                        + ", \"inclusiveBytes\": " + entry.inclusiveBytes + ", \"exclusiveBytes\": " + entry.exclusiveBytes + "}");
+            }
+            writer.write("\n]\n");
+        }
+    }
+
+    static final class Entry {
+
+        private final String name;
+        private final boolean isNative;
+        private long calls;
+        // number of calls currently on the stack, for recursion
+        private int active;
+        private long inclusiveTime;
+        private long exclusiveTime;
+        private long inclusiveBytes;
+        private long exclusiveBytes;
+
+        private Entry(String name, boolean isNative) {
+            this.name = name;
+            this.isNative = isNative;
+        }
+
+        private String kind() {
+            return isNative ? "native" : "verse";
+        }
+
+    }
+
+    private static final class Activation {
+
+        private final long startTime;
+        private final long startBytes;
+        // time and allocations of profiled calls made from this one
+        private long childTime;
+        private long childBytes;
+
+        private Activation(long startTime, long startBytes) {
+            this.startTime = startTime;
+            this.startBytes = startBytes;
+        }
+
+    }
+
+}
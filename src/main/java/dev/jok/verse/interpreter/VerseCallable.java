@@ -0,0 +1,11 @@
+package dev.jok.verse.interpreter;
+
+public interface VerseCallable {
+
+    String name();
+
+    int arity();
+
+    Object call(VerseInterpreter interpreter, Object[] arguments);
+
+}
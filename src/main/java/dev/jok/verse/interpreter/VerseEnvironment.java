@@ -1,55 +1,127 @@
 package dev.jok.verse.interpreter;
 
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.Map;
-
+/**
+ * A single call frame. Variables are addressed by the slot the Resolver gave them, and variables
+ * from enclosing frames by how many frames out they are.
+ * <p>
+ * Slots can also hold an unboxed int or float, which the node interpreter uses to keep arithmetic
+ * from allocating. The slot then holds a marker and the value lives in a separate bank, which is
+ * only allocated once something is stored unboxed, so the tree interpreter never pays for it.
+ */
 public class VerseEnvironment {
 
+    // markers for slots whose value is in the unboxed bank
+    private static final Object INT_SLOT = new Object();
+    private static final Object FLOAT_SLOT = new Object();
+
     private final @Nullable VerseEnvironment parent;
-    private final Map<String, Object> values = new HashMap<>();
+    private final Object[] slots;
+    // ints as themselves and floats as their raw bits
+    private int @Nullable [] values;
 
-    public VerseEnvironment() {
-        this(null);
+    public VerseEnvironment(int size) {
+        this(null, size);
     }
 
-    public VerseEnvironment(@Nullable VerseEnvironment parent) {
+    public VerseEnvironment(@Nullable VerseEnvironment parent, int size) {
         this.parent = parent;
+        this.slots = new Object[size];
+    }
+
+    public void define(int slot, Object value) {
+        slots[slot] = value;
+    }
+
+    public Object getValue(int depth, int slot) {
+        if (depth == 0) {
+            return get(slot);
+        }
+
+        return ancestor(depth).get(slot);
     }
 
-    public void defineVariable(String name, Object value) {
-        if (values.containsKey(name)) {
-            throw VerseInterpreter.internalError("Variable '" + name + "' already defined.");
+    public void setValue(int depth, int slot, Object value) {
+        if (depth == 0) {
+            slots[slot] = value;
+            return;
         }
 
-        values.put(name, value);
+        ancestor(depth).slots[slot] = value;
+    }
+
+    /**
+     * The frame the given number of frames out, where a variable at that depth lives.
+     */
+    public VerseEnvironment at(int depth) {
+        return depth == 0 ? this : ancestor(depth);
     }
 
-    public Object getValue(String name) {
-        if (values.containsKey(name)) {
-            return values.get(name);
+    /**
+     * The slot's value, boxed if it's stored unboxed.
+     */
+    public Object get(int slot) {
+        Object value = slots[slot];
+        if (value == INT_SLOT) {
+            return VInteger.valueOf(values[slot]);
         }
 
-        if (parent != null) {
-            return parent.getValue(name);
+        if (value == FLOAT_SLOT) {
+            return new VFloat(Float.intBitsToFloat(values[slot]));
         }
 
-        throw VerseInterpreter.internalError("Undefined variable '" + name + "'.");
+        return value;
     }
 
-    public void setValue(String name, Object value) {
-        if (values.containsKey(name)) {
-            values.put(name, value);
-            return;
+    public boolean holdsInt(int slot) {
+        return slots[slot] == INT_SLOT;
+    }
+
+    public boolean holdsFloat(int slot) {
+        return slots[slot] == FLOAT_SLOT;
+    }
+
+    // only valid when the slot holds an unboxed value of that type
+    public int getInt(int slot) {
+        return values[slot];
+    }
+
+    public float getFloat(int slot) {
+        return Float.intBitsToFloat(values[slot]);
+    }
+
+    public void setInt(int slot, int value) {
+        valueBank()[slot] = value;
+        slots[slot] = INT_SLOT;
+    }
+
+    public void setFloat(int slot, float value) {
+        valueBank()[slot] = Float.floatToRawIntBits(value);
+        slots[slot] = FLOAT_SLOT;
+    }
+
+    private int[] valueBank() {
+        int[] values = this.values;
+        if (values == null) {
+            values = this.values = new int[slots.length];
         }
 
-        if (parent != null) {
-            parent.setValue(name, value);
-            return;
+        return values;
+    }
+
+    private VerseEnvironment ancestor(int depth) {
+        VerseEnvironment environment = this;
+        for (int i = 0; i < depth; i++) {
+            environment = environment.parent;
+            if (environment == null) {
+                throw VerseInterpreter.internalError("Variable depth " + depth + " is outside of the frame chain.");
+            }
         }
 
-        throw VerseInterpreter.internalError("Undefined variable '" + name + "'.");
+        return environment;
     }
 
 }
@@ -0,0 +1,26 @@
+package dev.jok.verse.interpreter;
+
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class VerseFunction implements VerseCallable {
+
+    public final AstFunctionDecl declaration;
+
+    @Override
+    public String name() {
+        return declaration.name.lexeme;
+    }
+
+    @Override
+    public int arity() {
+        return declaration.parameters.size();
+    }
+
+    @Override
+    public Object call(VerseInterpreter interpreter, Object[] arguments) {
+        return interpreter.invoke(declaration, arguments);
+    }
+
+}
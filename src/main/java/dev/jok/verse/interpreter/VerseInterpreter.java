@@ -4,20 +4,43 @@ import dev.jok.verse.ast.AstNode;
 import dev.jok.verse.ast.AstVisitor;
 import dev.jok.verse.ast.types.*;
 import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
 import dev.jok.verse.ast.types.decl.AstVariableDecl;
 import dev.jok.verse.ast.types.expr.*;
 import dev.jok.verse.ast.types.stmt.AstBlock;
 import dev.jok.verse.ast.types.stmt.AstExpressionStmt;
 import dev.jok.verse.types.number.VNumber;
-import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
 import java.util.List;
 
-@RequiredArgsConstructor
 public class VerseInterpreter implements AstVisitor<Object> {
 
-    private final List<AstStmt> statements;
     private final VerseNative verseNative = new VerseNative();
+    private final FunctionTable functions;
+    private final VerseEnvironment globals;
+    // only set when profiling, the function table then holds profiled wrappers
+    private final @Nullable Profiler profiler;
+    // what each call site has been linked to, indexed by the site the Resolver gave it. The AST can be
+    // shared between interpreters, so this is kept here rather than on the calls themselves
+    private VerseCallable[] targets = new VerseCallable[0];
+    private VerseEnvironment environment;
+
+    public VerseInterpreter(List<AstStmt> statements, int globalFrameSize) {
+        this(statements, globalFrameSize, null);
+    }
+
+    public VerseInterpreter(List<AstStmt> statements, int globalFrameSize, @Nullable Profiler profiler) {
+        this.functions = FunctionTable.build(statements, verseNative);
+        this.globals = new VerseEnvironment(globalFrameSize);
+        this.profiler = profiler;
+        this.environment = globals;
+
+        if (profiler != null) {
+            functions.instrument(profiler);
+        }
+    }
 
     public void interpret(List<AstStmt> statements) {
         for (AstStmt stmt : statements) {
@@ -25,8 +48,55 @@ public class VerseInterpreter implements AstVisitor<Object> {
         }
     }
 
-    private void interpret(AstStmt stmt) {
-        stmt.accept(this);
+    private Object interpret(AstStmt stmt) {
+        return stmt.accept(this);
+    }
+
+    /**
+     * Calls a function with already evaluated arguments. Any parameters without an argument are left unset.
+     */
+    public Object invoke(AstFunctionDecl function, Object[] arguments) {
+        if (function.body == null) {
+            throw runtimeError(function, "Function '" + function.name.lexeme + "' has no body");
+        }
+
+        VerseEnvironment frame = new VerseEnvironment(globals, function.frameSize);
+        for (int i = 0; i < arguments.length; i++) {
+            frame.define(i, arguments[i]);
+        }
+
+        return executeBody(function.body, frame);
+    }
+
+    /**
+     * Same as {@link #invoke}, but goes through the profiler like a call site would.
+     */
+    public Object call(AstFunctionDecl function, Object[] arguments) {
+        if (profiler == null) {
+            return invoke(function, arguments);
+        }
+
+        return profiler.instrument(new VerseFunction(function)).call(this, arguments);
+    }
+
+    private Object executeBody(List<AstStmt> body, VerseEnvironment frame) {
+        VerseEnvironment previous = environment;
+        try {
+            environment = frame;
+            return executeStatements(body);
+        } finally {
+            environment = previous;
+        }
+    }
+
+    // a list of statements evaluates to its last statement
+    private Object executeStatements(List<AstStmt> statements) {
+        Object result = null;
+        for (AstStmt stmt : statements) {
+            result = interpret(stmt);
+        }
+
+        return result;
     }
 
     public void interpret(AstExpr expr) {
@@ -35,14 +105,13 @@ public class VerseInterpreter implements AstVisitor<Object> {
     }
 
     @Override
-    public Void visitExpressionStmt(AstExpressionStmt expression) {
-        evaluate(expression.expression);
-        return null;
+    public Object visitExpressionStmt(AstExpressionStmt expression) {
+        return evaluate(expression.expression);
     }
 
     @Override
-    public Void visitBlock(AstBlock block) {
-        return null;
+    public Object visitBlock(AstBlock block) {
+        return executeStatements(block.statements);
     }
 
     @Override
@@ -58,18 +127,35 @@ public class VerseInterpreter implements AstVisitor<Object> {
     }
 
     @Override
-    public Void visitIf(AstIfExpr astIf) {
-        return null;
+    public Object visitIf(AstIfExpr astIf) {
+        if (isTruthy(evaluate(astIf.condition))) {
+            return executeStatements(astIf.thenBranch);
+        }
+
+        return executeStatements(astIf.elseBranch);
+    }
+
+    @Override
+    public Object visitVariableDecl(AstVariableDecl variableDeclaration) {
+        Object value = evaluate(variableDeclaration.initializer);
+        environment.define(variableDeclaration.slot, value);
+        return value;
     }
 
     @Override
-    public Void visitVariableDecl(AstVariableDecl variableDeclaration) {
+    public Void visitUsingDecl(AstUsingDecl using) {
         return null;
     }
 
     @Override
     public Object visitAssignExpr(AstAssignExpr assign) {
-        return null;
+        if (assign.slot == -1) {
+            throw internalError(assign, "Unresolved variable '" + assign.name.lexeme + "'.");
+        }
+
+        Object value = evaluate(assign.value);
+        environment.setValue(assign.depth, assign.slot, value);
+        return value;
     }
 
     @Override
@@ -179,30 +265,59 @@ public class VerseInterpreter implements AstVisitor<Object> {
 
     @Override
     public Object visitVariableExpr(AstVariableExpr variable) {
-        return variable;
+        if (variable.slot == -1) {
+            throw internalError(variable, "Unresolved variable '" + variable.name.lexeme + "'.");
+        }
+
+        return environment.getValue(variable.depth, variable.slot);
     }
 
     @Override
     public Object visitCallExpr(AstCallExpr call) {
-        if (call.callee instanceof AstVariableExpr variable) {
-            AstFunctionDecl functionDecl = lookupFunctionDecl(variable.name.lexeme);
-
-            if (functionDecl == null) {
-                throw runtimeError(call, "Undefined function '" + variable.name.lexeme + "'.");
-            }
+        int site = call.site;
+        VerseCallable target = site >= 0 && site < targets.length ? targets[site] : null;
+        if (target == null) {
+            target = link(call);
+        }
 
-            if (functionDecl.hasSpecifier("native")) {
-                return callNativeFunction(functionDecl, call.arguments);
-            }
+        if (target.arity() != call.arguments.size()) {
+            throw runtimeError(call, "Function '" + target.name() + "' expects " + target.arity() + " arguments but got " + call.arguments.size());
+        }
 
-            return null;
+        Object[] arguments = new Object[call.arguments.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = evaluate(call.arguments.get(i));
         }
 
-        throw runtimeError(call, "Can only call functions");
+        return target.call(this, arguments);
     }
 
-    private Object callNativeFunction(AstFunctionDecl functionDecl, List<AstExpr> arguments) {
-        return verseNative.callNative(functionDecl.name.lexeme, arguments.stream().map(this::evaluate).toArray());
+    // call sites are linked to their target the first time they run
+    private VerseCallable link(AstCallExpr call) {
+        if (!(call.callee instanceof AstVariableExpr variable)) {
+            throw runtimeError(call, "Can only call functions");
+        }
+
+        VerseCallable target = functions.lookup(variable.name.symbol);
+        if (target == null) {
+            throw runtimeError(call, "Undefined function '" + variable.name.lexeme + "'.");
+        }
+
+        if (target instanceof NativeFunction nativeFunction && nativeFunction.getLinkError() != null) {
+            throw runtimeError(call, nativeFunction.getLinkError());
+        }
+
+        // calls that weren't resolved have no site, and are linked every time they run
+        int site = call.site;
+        if (site >= 0) {
+            if (site >= targets.length) {
+                targets = Arrays.copyOf(targets, Math.max(site + 1, targets.length * 2));
+            }
+
+            targets[site] = target;
+        }
+
+        return target;
     }
 
     @Override
@@ -210,18 +325,30 @@ public class VerseInterpreter implements AstVisitor<Object> {
         return null;
     }
 
+    @Override
+    public Object visitSpawnExpr(AstSpawnExpr spawn) {
+        // @Todo(Jok): calls recurse on the Java stack here, so there's nothing to park a task with
+        throw runtimeError(spawn, "Tasks are only supported by the bytecode engine");
+    }
+
+    @Override
+    public Object visitConcurrentExpr(AstConcurrentExpr concurrent) {
+        throw runtimeError(concurrent, "Tasks are only supported by the bytecode engine");
+    }
+
     @Override
     public Object visitTypeExpr(AstType type) {
         return null;
     }
 
-    public AstFunctionDecl lookupFunctionDecl(String name) {
-        FunctionSearchVisitor visitor = new FunctionSearchVisitor(name);
-        for (AstStmt stmt : statements) {
-            AstFunctionDecl function = stmt.accept(visitor);
-            if (function != null) {
-                return function;
-            }
+    public @Nullable AstFunctionDecl lookupFunctionDecl(String name) {
+        VerseCallable function = functions.lookup(name);
+        if (function instanceof ProfiledCallable profiled) {
+            function = profiled.getDelegate();
+        }
+
+        if (function instanceof VerseFunction verseFunction) {
+            return verseFunction.declaration;
         }
 
         return null;
@@ -248,9 +375,9 @@ public class VerseInterpreter implements AstVisitor<Object> {
     }
 
     // @Todo(Jok) @Error: we should use better interpreter handling for this kind of error
-    @Deprecated
+    // for when there's no expression to blame, like the frames shared with the node engine
     public static InternalError internalError(String message) {
-        return new InternalError("Internal error interpreting " + ": " + message);
+        return new InternalError("Internal error interpreting: " + message);
     }
 
     private static final class RuntimeError extends RuntimeException {
@@ -1,6 +1,12 @@
 package dev.jok.verse.interpreter.modules;
 
 import dev.jok.verse.interpreter.VerseNativeImpl;
+import dev.jok.verse.task.Delay;
+import dev.jok.verse.task.Suspension;
+import dev.jok.verse.types.collection.ElementVisitor;
+import dev.jok.verse.types.collection.VArray;
+
+import java.util.StringJoiner;
 
 public class VerseNativeModule implements NativeModule {
 
@@ -15,8 +21,26 @@ public class VerseNativeModule implements NativeModule {
     }
 
     @VerseNativeImpl
-    public static String Join(String[] strings, String separator) {
-        return String.join(separator, strings);
+    public static String Join(VArray strings, String separator) {
+        StringJoiner joined = new StringJoiner(separator);
+        strings.visitElements(new ElementVisitor() {
+            @Override
+            public void visit(Object element) {
+                joined.add(String.valueOf(element));
+            }
+
+            @Override
+            public void visitInt(int element) {
+                joined.add(String.valueOf(element));
+            }
+
+            @Override
+            public void visitFloat(float element) {
+                joined.add(String.valueOf(element));
+            }
+        });
+
+        return joined.toString();
     }
 
     @VerseNativeImpl
@@ -24,6 +48,10 @@ public class VerseNativeModule implements NativeModule {
         return String.valueOf(character);
     }
 
-
+    // declared as Sleep<native>(Seconds : float)<suspends> : void, only tasks can sleep
+    @VerseNativeImpl
+    public static Suspension Sleep(float seconds) {
+        return new Delay(seconds);
+    }
 
 }
@@ -0,0 +1,759 @@
+package dev.jok.verse.jvm;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.ast.AstVisitor;
+import dev.jok.verse.ast.types.AstExpr;
+import dev.jok.verse.ast.types.AstParameter;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.AstType;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
+import dev.jok.verse.ast.types.decl.AstVariableDecl;
+import dev.jok.verse.ast.types.expr.*;
+import dev.jok.verse.ast.types.stmt.AstBlock;
+import dev.jok.verse.ast.types.stmt.AstExpressionStmt;
+import dev.jok.verse.diagnostic.CompileError;
+import dev.jok.verse.interpreter.FunctionTable;
+import dev.jok.verse.interpreter.NativeBinding;
+import dev.jok.verse.interpreter.NativeFunction;
+import dev.jok.verse.interpreter.VerseCallable;
+import dev.jok.verse.interpreter.VerseFunction;
+import dev.jok.verse.interpreter.VerseNative;
+import dev.jok.verse.lexer.Token;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import dev.jok.verse.util.AstPositions;
+import dev.jok.verse.vm.TypeInference;
+import dev.jok.verse.vm.ValueType;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Compiles resolved statements into JVM bytecode, one static method per function on a single hidden
+ * class, so HotSpot can JIT scripts like any other Java code.
+ * <p>
+ * Parameters, return values and locals whose type is known to be {@code int}, {@code float} or
+ * {@code logic} are JVM primitives, anything else is a boxed Verse value and goes through
+ * {@link JvmRuntime}. Which ones those are is worked out by the same {@link TypeInference} as the
+ * bytecode compiler uses. Resolver slots map straight onto JVM locals, and native calls are linked
+ * directly to their Java method. Every visit leaves the value on the operand stack and returns its type.
+ */
+public class JvmCompiler implements AstVisitor<JvmType> {
+
+    private static final String CLASS_NAME = "dev/jok/verse/jvm/VerseScript";
+    private static final String RUNTIME = Type.getInternalName(JvmRuntime.class);
+    private static final String OBJECT_ARRAY = "[Ljava/lang/Object;";
+    static final String INITIALIZER = "$initialize";
+
+    private final List<AstStmt> statements;
+    private final int globalCount;
+    private final String sourceName;
+    private final FunctionTable functionTable;
+    // literals that can't be loaded with ldc, handed to the class as class data
+    private final List<Object> constants = new ArrayList<>();
+    private final TypeInference inference;
+
+    // state for the method currently being compiled
+    private MethodVisitor mv;
+    private int lastLine;
+
+    public JvmCompiler(List<AstStmt> statements, int globalCount, String sourceName, VerseNative verseNative) {
+        this.statements = statements;
+        this.globalCount = globalCount;
+        this.sourceName = sourceName;
+        this.functionTable = FunctionTable.build(statements, verseNative);
+        this.inference = new JvmTypeInference(functionTable);
+    }
+
+    public JvmProgram compile() {
+        ClassWriter cw = new ScriptClassWriter();
+        cw.visit(V17, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, CLASS_NAME, null, "java/lang/Object", null);
+        cw.visitSource(sourceName, null);
+        cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "globals", OBJECT_ARRAY, null, null).visitEnd();
+        cw.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL, "constants", OBJECT_ARRAY, null, null).visitEnd();
+
+        List<AstFunctionDecl> functions = new ArrayList<>();
+        for (AstStmt stmt : statements) {
+            if (stmt instanceof AstFunctionDecl function && functionTable.lookup(function.name.symbol) instanceof VerseFunction verseFunction && verseFunction.declaration == function) {
+                functions.add(function);
+            }
+        }
+
+        inference.inferSignatures(statements, functions);
+
+        Map<String, MethodType> functionTypes = new HashMap<>();
+        for (AstFunctionDecl function : functions) {
+            compileFunction(cw, function);
+            functionTypes.put(function.name.lexeme, methodType(function));
+        }
+
+        compileInitializer(cw);
+        compileClassInitializer(cw);
+        cw.visitEnd();
+
+        byte[] classFile = cw.toByteArray();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClassWithClassData(classFile, constants.toArray(), true);
+            return new JvmProgram(lookup, classFile, functionTypes);
+        } catch (IllegalAccessException e) {
+            throw new CompileError(null, "Could not define the script class: " + e.getMessage());
+        }
+    }
+
+    private void compileFunction(ClassWriter cw, AstFunctionDecl function) {
+        inference.beginFunction(function);
+        beginMethod(cw, function.name.lexeme, methodType(function).toMethodDescriptorString());
+        line(function.name);
+
+        JvmType returnType = JvmType.of(Objects.requireNonNull(inference.signature(function)).getReturnType());
+        coerce(compileStatements(Objects.requireNonNull(function.body)), returnType);
+        mv.visitInsn(switch (returnType) {
+            case INT, LOGIC -> IRETURN;
+            case FLOAT -> FRETURN;
+            case OBJECT -> ARETURN;
+        });
+
+        endMethod();
+    }
+
+    private void compileInitializer(ClassWriter cw) {
+        inference.beginTopLevel();
+        beginMethod(cw, INITIALIZER, "()V");
+
+        for (AstStmt stmt : statements) {
+            if (stmt instanceof AstFunctionDecl || stmt instanceof AstUsingDecl) {
+                continue;
+            }
+
+            compile(stmt);
+            mv.visitInsn(POP);
+        }
+
+        mv.visitInsn(RETURN);
+        endMethod();
+    }
+
+    private void compileClassInitializer(ClassWriter cw) {
+        beginMethod(cw, "<clinit>", "()V");
+
+        mv.visitMethodInsn(INVOKESTATIC, "java/lang/invoke/MethodHandles", "lookup", "()Ljava/lang/invoke/MethodHandles$Lookup;", false);
+        mv.visitLdcInsn("_");
+        mv.visitLdcInsn(Type.getType(OBJECT_ARRAY));
+        mv.visitMethodInsn(INVOKESTATIC, "java/lang/invoke/MethodHandles", "classData", "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;", false);
+        mv.visitTypeInsn(CHECKCAST, OBJECT_ARRAY);
+        mv.visitFieldInsn(PUTSTATIC, CLASS_NAME, "constants", OBJECT_ARRAY);
+
+        push(globalCount);
+        mv.visitTypeInsn(ANEWARRAY, "java/lang/Object");
+        mv.visitFieldInsn(PUTSTATIC, CLASS_NAME, "globals", OBJECT_ARRAY);
+
+        mv.visitInsn(RETURN);
+        endMethod();
+    }
+
+    private void beginMethod(ClassWriter cw, String name, String descriptor) {
+        mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, name, descriptor, null, null);
+        mv.visitCode();
+        lastLine = -1;
+    }
+
+    private void endMethod() {
+        // frames and max sizes are computed by the ClassWriter
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        mv = null;
+    }
+
+    // a list of statements evaluates to its last statement
+    private JvmType compileStatements(List<AstStmt> statements) {
+        if (statements.isEmpty()) {
+            mv.visitInsn(ACONST_NULL);
+            return JvmType.OBJECT;
+        }
+
+        JvmType type = JvmType.OBJECT;
+        for (int i = 0; i < statements.size(); i++) {
+            type = compile(statements.get(i));
+            if (i < statements.size() - 1) {
+                mv.visitInsn(POP);
+            }
+        }
+
+        return type;
+    }
+
+    private JvmType compile(AstStmt stmt) {
+        return stmt.accept(this);
+    }
+
+    private JvmType compile(AstExpr expr) {
+        return expr.accept(this);
+    }
+
+    private JvmType compile(AstExpr expr, JvmType type) {
+        coerce(compile(expr), type);
+        return type;
+    }
+
+    @Override
+    public JvmType visitTypeExpr(AstType type) {
+        throw compileError(type, "Types can't be compiled");
+    }
+
+    @Override
+    public JvmType visitFunctionDecl(AstFunctionDecl function) {
+        throw compileError(function, "Nested functions are not supported");
+    }
+
+    @Override
+    public JvmType visitVariableDecl(AstVariableDecl variable) {
+        line(variable.name);
+        return store(variable, 0, variable.slot, JvmType.of(inference.declare(variable)), variable.initializer);
+    }
+
+    @Override
+    public JvmType visitUsingDecl(AstUsingDecl using) {
+        throw compileError(using, "Using declarations can't be compiled");
+    }
+
+    @Override
+    public JvmType visitExpressionStmt(AstExpressionStmt expression) {
+        return compile(expression.expression);
+    }
+
+    @Override
+    public JvmType visitBlock(AstBlock block) {
+        return compileStatements(block.statements);
+    }
+
+    @Override
+    public JvmType visitParameter(AstParameter parameter) {
+        throw compileError(parameter, "Parameters can't be compiled");
+    }
+
+    @Override
+    public JvmType visitIf(AstIfExpr astIf) {
+        JvmType type = JvmType.of(inference.infer(astIf));
+        Label elseBranch = new Label();
+        Label end = new Label();
+
+        compileCondition(astIf.condition, elseBranch);
+        coerce(compileStatements(astIf.thenBranch), type);
+        mv.visitJumpInsn(GOTO, end);
+
+        mv.visitLabel(elseBranch);
+        coerce(compileStatements(astIf.elseBranch), type);
+        mv.visitLabel(end);
+
+        return type;
+    }
+
+    // jumps to whenFalse if the condition isn't true, comparisons between primitives jump directly
+    private void compileCondition(AstExpr condition, Label whenFalse) {
+        if (condition instanceof AstBinaryExpr binary && isComparison(binary)) {
+            JvmType type = JvmType.of(inference.operandType(binary));
+            if (type != JvmType.OBJECT) {
+                line(binary.operator);
+                compile(binary.left, type);
+                compile(binary.right, type);
+                jumpUnless(binary, type, whenFalse);
+                return;
+            }
+        }
+
+        toLogic(compile(condition));
+        mv.visitJumpInsn(IFEQ, whenFalse);
+    }
+
+    @Override
+    public JvmType visitAssignExpr(AstAssignExpr assign) {
+        line(assign.name);
+        JvmType type = JvmType.of(inference.infer(assign));
+        return store(assign, assign.depth, assign.slot, type, assign.value);
+    }
+
+    @Override
+    public JvmType visitBinaryExpr(AstBinaryExpr binary) {
+        JvmType type = JvmType.of(inference.operandType(binary));
+        line(binary.operator);
+
+        switch (binary.operator.type) {
+            case PLUS, MINUS, STAR, SLASH -> {
+                compile(binary.left, type);
+                compile(binary.right, type);
+                arithmetic(binary, type);
+                return type;
+            }
+
+            case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> {
+                compile(binary.left, type);
+                compile(binary.right, type);
+
+                if (type == JvmType.OBJECT) {
+                    String method = switch (binary.operator.type) {
+                        case GREATER -> "greaterThan";
+                        case GREATER_EQUAL -> "greaterThanOrEqual";
+                        case LESS -> "lessThan";
+                        default -> "lessThanOrEqual";
+                    };
+                    mv.visitMethodInsn(INVOKESTATIC, RUNTIME, method, "(Ljava/lang/Object;Ljava/lang/Object;)Z", false);
+                } else {
+                    Label whenFalse = new Label();
+                    jumpUnless(binary, type, whenFalse);
+                    materializeLogic(whenFalse);
+                }
+
+                return JvmType.LOGIC;
+            }
+
+            case EQUALS -> {
+                compile(binary.left, type);
+                compile(binary.right, type);
+
+                switch (type) {
+                    case INT, LOGIC -> {
+                        Label whenFalse = new Label();
+                        mv.visitJumpInsn(IF_ICMPNE, whenFalse);
+                        materializeLogic(whenFalse);
+                    }
+                    case FLOAT -> mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "floatEqual", "(FF)Z", false);
+                    case OBJECT -> mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "equal", "(Ljava/lang/Object;Ljava/lang/Object;)Z", false);
+                }
+
+                return JvmType.LOGIC;
+            }
+
+            default -> throw compileError(binary, "Unknown binary operator: " + binary.operator.type);
+        }
+    }
+
+    private void arithmetic(AstBinaryExpr binary, JvmType type) {
+        int offset = switch (type) {
+            case INT -> 0;
+            case FLOAT -> 2;
+            default -> -1;
+        };
+
+        if (offset == -1) {
+            String method = switch (binary.operator.type) {
+                case PLUS -> "add";
+                case MINUS -> "subtract";
+                case STAR -> "multiply";
+                default -> "divide";
+            };
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, method, "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", false);
+            return;
+        }
+
+        // IADD, FADD, ... are laid out as I, L, F, D variants of each operation
+        int opcode = switch (binary.operator.type) {
+            case PLUS -> IADD;
+            case MINUS -> ISUB;
+            case STAR -> IMUL;
+            default -> IDIV;
+        };
+        mv.visitInsn(opcode + offset);
+    }
+
+    // both operands are already on the stack as primitives of the given type
+    private void jumpUnless(AstBinaryExpr binary, JvmType type, Label whenFalse) {
+        if (type == JvmType.INT) {
+            mv.visitJumpInsn(switch (binary.operator.type) {
+                case GREATER -> IF_ICMPLE;
+                case GREATER_EQUAL -> IF_ICMPLT;
+                case LESS -> IF_ICMPGE;
+                default -> IF_ICMPGT;
+            }, whenFalse);
+            return;
+        }
+
+        // same as javac, so comparisons with NaN are always false
+        switch (binary.operator.type) {
+            case GREATER -> {
+                mv.visitInsn(FCMPL);
+                mv.visitJumpInsn(IFLE, whenFalse);
+            }
+            case GREATER_EQUAL -> {
+                mv.visitInsn(FCMPL);
+                mv.visitJumpInsn(IFLT, whenFalse);
+            }
+            case LESS -> {
+                mv.visitInsn(FCMPG);
+                mv.visitJumpInsn(IFGE, whenFalse);
+            }
+            default -> {
+                mv.visitInsn(FCMPG);
+                mv.visitJumpInsn(IFGT, whenFalse);
+            }
+        }
+    }
+
+    private void materializeLogic(Label whenFalse) {
+        Label end = new Label();
+        mv.visitInsn(ICONST_1);
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(whenFalse);
+        mv.visitInsn(ICONST_0);
+        mv.visitLabel(end);
+    }
+
+    @Override
+    public JvmType visitGroupingExpr(AstGroupingExpr grouping) {
+        return compile(grouping.expression);
+    }
+
+    @Override
+    public JvmType visitLiteralExpr(AstLiteralExpr literal) {
+        Object value = literal.value;
+        if (value instanceof VInteger integer) {
+            push(integer.intValue());
+            return JvmType.INT;
+        }
+
+        if (value instanceof VFloat number) {
+            mv.visitLdcInsn(number.floatValue());
+            return JvmType.FLOAT;
+        }
+
+        if (value instanceof Boolean logic) {
+            mv.visitInsn(logic ? ICONST_1 : ICONST_0);
+            return JvmType.LOGIC;
+        }
+
+        if (value == null) {
+            mv.visitInsn(ACONST_NULL);
+        } else if (value instanceof String string) {
+            mv.visitLdcInsn(string);
+        } else {
+            mv.visitFieldInsn(GETSTATIC, CLASS_NAME, "constants", OBJECT_ARRAY);
+            push(constants.size());
+            mv.visitInsn(AALOAD);
+            constants.add(value);
+        }
+
+        return JvmType.OBJECT;
+    }
+
+    @Override
+    public JvmType visitUnaryExpr(AstUnaryExpr unary) {
+        line(unary.operator);
+
+        return switch (unary.operator.type) {
+            case MINUS -> {
+                JvmType type = compile(unary.right);
+                switch (type) {
+                    case INT -> mv.visitInsn(INEG);
+                    case FLOAT -> mv.visitInsn(FNEG);
+                    default -> {
+                        coerce(type, JvmType.OBJECT);
+                        mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "negate", "(Ljava/lang/Object;)Ljava/lang/Object;", false);
+                        type = JvmType.OBJECT;
+                    }
+                }
+
+                yield type;
+            }
+
+            case NOT -> {
+                toLogic(compile(unary.right));
+                mv.visitInsn(ICONST_1);
+                mv.visitInsn(IXOR);
+                yield JvmType.LOGIC;
+            }
+
+            default -> throw compileError(unary, "Unknown unary operator: " + unary.operator.type);
+        };
+    }
+
+    @Override
+    public JvmType visitVariableExpr(AstVariableExpr variable) {
+        if (variable.slot == -1) {
+            throw compileError(variable, "Unresolved variable '" + variable.name.lexeme + "'.");
+        }
+
+        if (inference.isGlobal(variable, variable.depth)) {
+            mv.visitFieldInsn(GETSTATIC, CLASS_NAME, "globals", OBJECT_ARRAY);
+            push(variable.slot);
+            mv.visitInsn(AALOAD);
+            return JvmType.OBJECT;
+        }
+
+        JvmType type = JvmType.of(inference.slotType(variable, variable.slot));
+        mv.visitVarInsn(loadOpcode(type), variable.slot);
+        return type;
+    }
+
+    @Override
+    public JvmType visitCallExpr(AstCallExpr call) {
+        if (!(call.callee instanceof AstVariableExpr variable)) {
+            throw compileError(call, "Can only call functions");
+        }
+
+        VerseCallable target = functionTable.lookup(variable.name.symbol);
+        if (target == null) {
+            throw compileError(call, "Undefined function '" + variable.name.lexeme + "'.");
+        }
+
+        if (target.arity() != call.arguments.size()) {
+            throw compileError(call, "Function '" + target.name() + "' expects " + target.arity() + " arguments but got " + call.arguments.size());
+        }
+
+        if (target instanceof VerseFunction verseFunction) {
+            TypeInference.Signature signature = Objects.requireNonNull(inference.signature(verseFunction.declaration));
+            for (int i = 0; i < call.arguments.size(); i++) {
+                compile(call.arguments.get(i), JvmType.of(signature.parameters[i]));
+            }
+
+            line(variable.name);
+            mv.visitMethodInsn(INVOKESTATIC, CLASS_NAME, verseFunction.declaration.name.lexeme, methodType(verseFunction.declaration).toMethodDescriptorString(), false);
+            return JvmType.of(signature.getReturnType());
+        }
+
+        if (target instanceof NativeFunction nativeFunction) {
+            return callNative(call, nativeFunction, variable.name);
+        }
+
+        throw compileError(call, "Unsupported call target '" + target.name() + "'");
+    }
+
+    // natives are called with invokestatic on their Java method, so there's nothing in between
+    private JvmType callNative(AstCallExpr call, NativeFunction nativeFunction, Token name) {
+        NativeBinding binding = nativeFunction.getBinding();
+        if (nativeFunction.getLinkError() != null || binding == null) {
+            throw compileError(call, nativeFunction.getLinkError());
+        }
+
+        Method method = binding.method;
+        if (!Modifier.isStatic(method.getModifiers())) {
+            throw compileError(call, "Native method " + binding.name + " must be static to be compiled");
+        }
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Class<?> parameterType = parameterTypes[i];
+            JvmType type = JvmType.of(parameterType);
+            if (type != JvmType.OBJECT) {
+                compile(call.arguments.get(i), type);
+                continue;
+            }
+
+            Class<?> boxed = MethodType.methodType(parameterType).wrap().returnType();
+            compile(call.arguments.get(i), JvmType.OBJECT);
+            mv.visitLdcInsn(Type.getType(boxed));
+            mv.visitLdcInsn(binding.name);
+            push(i);
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "checkArgument", "(Ljava/lang/Object;Ljava/lang/Class;Ljava/lang/String;I)Ljava/lang/Object;", false);
+            mv.visitTypeInsn(CHECKCAST, Type.getInternalName(boxed));
+            if (parameterType.isPrimitive()) {
+                mv.visitMethodInsn(INVOKEVIRTUAL, Type.getInternalName(boxed), parameterType.getName() + "Value", "()" + Type.getDescriptor(parameterType), false);
+            }
+        }
+
+        line(name);
+        mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(method.getDeclaringClass()), method.getName(), Type.getMethodDescriptor(method), false);
+
+        Class<?> returnType = method.getReturnType();
+        if (returnType == void.class) {
+            mv.visitInsn(ACONST_NULL);
+            return JvmType.OBJECT;
+        }
+
+        JvmType type = JvmType.of(returnType);
+        if (type == JvmType.OBJECT && returnType.isPrimitive()) {
+            Class<?> boxed = MethodType.methodType(returnType).wrap().returnType();
+            mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(boxed), "valueOf", "(" + Type.getDescriptor(returnType) + ")" + Type.getDescriptor(boxed), false);
+        }
+
+        return type;
+    }
+
+    @Override
+    public JvmType visitGetExpr(AstGetExpr get) {
+        throw compileError(get, "Member access is not supported by the JVM compiler yet");
+    }
+
+    @Override
+    public JvmType visitSpawnExpr(AstSpawnExpr spawn) {
+        throw compileError(spawn, "Tasks are only supported by the bytecode engine");
+    }
+
+    @Override
+    public JvmType visitConcurrentExpr(AstConcurrentExpr concurrent) {
+        throw compileError(concurrent, "Tasks are only supported by the bytecode engine");
+    }
+
+    // leaves the stored value on the stack, as assignments and declarations evaluate to it
+    private JvmType store(AstNode node, int depth, int slot, JvmType type, AstExpr value) {
+        if (slot == -1) {
+            throw compileError(node, "Unresolved variable");
+        }
+
+        if (inference.isGlobal(node, depth)) {
+            mv.visitFieldInsn(GETSTATIC, CLASS_NAME, "globals", OBJECT_ARRAY);
+            push(slot);
+            compile(value, JvmType.OBJECT);
+            mv.visitInsn(DUP_X2);
+            mv.visitInsn(AASTORE);
+            return JvmType.OBJECT;
+        }
+
+        compile(value, type);
+        mv.visitInsn(DUP);
+        mv.visitVarInsn(storeOpcode(type), slot);
+        return type;
+    }
+
+    // converts the value on top of the stack from one type to another
+    private void coerce(JvmType from, JvmType to) {
+        if (from == to) {
+            return;
+        }
+
+        switch (from) {
+            case INT -> mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "fromInt", "(I)Ljava/lang/Object;", false);
+            case FLOAT -> mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "fromFloat", "(F)Ljava/lang/Object;", false);
+            case LOGIC -> mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "fromLogic", "(Z)Ljava/lang/Object;", false);
+            case OBJECT -> {
+            }
+        }
+
+        // primitives of the wrong type are boxed first, so the conversion below fails like it would at runtime
+        switch (to) {
+            case INT -> mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "toInt", "(Ljava/lang/Object;)I", false);
+            case FLOAT -> mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "toFloat", "(Ljava/lang/Object;)F", false);
+            case LOGIC -> mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "toLogic", "(Ljava/lang/Object;)Z", false);
+            case OBJECT -> {
+            }
+        }
+    }
+
+    // only logic true is truthy, like the interpreter
+    private void toLogic(JvmType type) {
+        switch (type) {
+            case LOGIC -> {
+            }
+            case OBJECT -> mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "isTruthy", "(Ljava/lang/Object;)Z", false);
+            default -> {
+                mv.visitInsn(POP);
+                mv.visitInsn(ICONST_0);
+            }
+        }
+    }
+
+    private void push(int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    private void line(Token token) {
+        if (token.line != lastLine) {
+            Label label = new Label();
+            mv.visitLabel(label);
+            mv.visitLineNumber(token.line, label);
+            lastLine = token.line;
+        }
+    }
+
+    private static boolean isComparison(AstBinaryExpr binary) {
+        return switch (binary.operator.type) {
+            case GREATER, GREATER_EQUAL, LESS, LESS_EQUAL -> true;
+            default -> false;
+        };
+    }
+
+    private static int loadOpcode(JvmType type) {
+        return switch (type) {
+            case INT, LOGIC -> ILOAD;
+            case FLOAT -> FLOAD;
+            case OBJECT -> ALOAD;
+        };
+    }
+
+    private static int storeOpcode(JvmType type) {
+        return switch (type) {
+            case INT, LOGIC -> ISTORE;
+            case FLOAT -> FSTORE;
+            case OBJECT -> ASTORE;
+        };
+    }
+
+    private static CompileError compileError(AstNode node, String message) {
+        return new CompileError(AstPositions.firstToken(node), message);
+    }
+
+    private MethodType methodType(AstFunctionDecl function) {
+        TypeInference.Signature signature = Objects.requireNonNull(inference.signature(function));
+        Class<?>[] parameterTypes = new Class<?>[signature.parameters.length];
+        for (int i = 0; i < parameterTypes.length; i++) {
+            parameterTypes[i] = JvmType.of(signature.parameters[i]).javaType();
+        }
+
+        return MethodType.methodType(JvmType.of(signature.getReturnType()).javaType(), parameterTypes);
+    }
+
+    /**
+     * Comparisons and {@code not} are always compiled to a primitive boolean, and natives are called
+     * directly, so they return their Java method's type.
+     */
+    private static final class JvmTypeInference extends TypeInference {
+
+        private JvmTypeInference(FunctionTable functionTable) {
+            super(functionTable);
+        }
+
+        @Override
+        protected ValueType comparisonType(ValueType operandType) {
+            return ValueType.LOGIC;
+        }
+
+        @Override
+        protected ValueType notType(ValueType operandType) {
+            return ValueType.LOGIC;
+        }
+
+        @Override
+        protected ValueType nativeReturnType(NativeFunction nativeFunction) {
+            if (nativeFunction.getBinding() == null) {
+                return ValueType.OBJECT;
+            }
+
+            return JvmType.of(nativeFunction.getBinding().method.getReturnType()).valueType();
+        }
+
+    }
+
+    /**
+     * Frames are computed by ASM, which normally loads classes to merge types. Generated code only
+     * ever relies on values being an Object, so everything merges to that.
+     */
+    private static final class ScriptClassWriter extends ClassWriter {
+
+        private ScriptClassWriter() {
+            super(ClassWriter.COMPUTE_FRAMES);
+        }
+
+        @Override
+        protected String getCommonSuperClass(String type1, String type2) {
+            return "java/lang/Object";
+        }
+
+    }
+
+}
@@ -0,0 +1,107 @@
+package dev.jok.verse.jvm;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+
+/**
+ * A compiled function, callable from Java with boxed Verse values.
+ */
+public class JvmFunction {
+
+    private static final MethodHandle TO_INT;
+    private static final MethodHandle TO_FLOAT;
+    private static final MethodHandle TO_LOGIC;
+    private static final MethodHandle FROM_INT;
+    private static final MethodHandle FROM_FLOAT;
+    private static final MethodHandle FROM_LOGIC;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TO_INT = lookup.findStatic(JvmRuntime.class, "toInt", MethodType.methodType(int.class, Object.class));
+            TO_FLOAT = lookup.findStatic(JvmRuntime.class, "toFloat", MethodType.methodType(float.class, Object.class));
+            TO_LOGIC = lookup.findStatic(JvmRuntime.class, "toLogic", MethodType.methodType(boolean.class, Object.class));
+            FROM_INT = lookup.findStatic(JvmRuntime.class, "fromInt", MethodType.methodType(Object.class, int.class));
+            FROM_FLOAT = lookup.findStatic(JvmRuntime.class, "fromFloat", MethodType.methodType(Object.class, float.class));
+            FROM_LOGIC = lookup.findStatic(JvmRuntime.class, "fromLogic", MethodType.methodType(Object.class, boolean.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public final String name;
+    public final int arity;
+    // (Object[]) -> Object
+    private final MethodHandle spreader;
+
+    JvmFunction(String name, MethodHandle target) {
+        this.name = name;
+        this.arity = target.type().parameterCount();
+
+        MethodType type = target.type();
+        MethodHandle[] filters = new MethodHandle[type.parameterCount()];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = unboxer(type.parameterType(i));
+        }
+        target = MethodHandles.filterArguments(target, 0, filters);
+
+        MethodHandle boxer = boxer(type.returnType());
+        if (boxer != null) {
+            target = MethodHandles.filterReturnValue(target, boxer);
+        }
+
+        this.spreader = target.asType(MethodType.genericMethodType(type.parameterCount())).asSpreader(Object[].class, type.parameterCount());
+    }
+
+    private static MethodHandle unboxer(Class<?> type) {
+        if (type == int.class) {
+            return TO_INT;
+        }
+
+        if (type == float.class) {
+            return TO_FLOAT;
+        }
+
+        if (type == boolean.class) {
+            return TO_LOGIC;
+        }
+
+        return null;
+    }
+
+    private static MethodHandle boxer(Class<?> type) {
+        if (type == int.class) {
+            return FROM_INT;
+        }
+
+        if (type == float.class) {
+            return FROM_FLOAT;
+        }
+
+        if (type == boolean.class) {
+            return FROM_LOGIC;
+        }
+
+        return null;
+    }
+
+    /**
+     * Calls the function with already evaluated arguments. Any parameters without an argument are left unset.
+     */
+    public Object call(Object[] arguments) {
+        if (arguments.length < arity) {
+            arguments = Arrays.copyOf(arguments, arity);
+        }
+
+        try {
+            return (Object) spreader.invokeExact(arguments);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException("Calling " + name + " failed", e);
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package dev.jok.verse.jvm;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A script compiled to a hidden class by {@link JvmCompiler}.
+ */
+public class JvmProgram {
+
+    private final MethodHandles.Lookup lookup;
+    // the generated class file, kept around so it can be dumped for debugging
+    public final byte[] classFile;
+    private final Map<String, MethodType> functionTypes;
+    private final Map<String, JvmFunction> functions = new HashMap<>();
+
+    JvmProgram(MethodHandles.Lookup lookup, byte[] classFile, Map<String, MethodType> functionTypes) {
+        this.lookup = lookup;
+        this.classFile = classFile;
+        this.functionTypes = functionTypes;
+    }
+
+    /**
+     * Runs the top-level statements, which initializes the globals.
+     */
+    public void initialize() {
+        MethodHandle initializer = findStatic(JvmCompiler.INITIALIZER, MethodType.methodType(void.class));
+        try {
+            initializer.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException("Initializing the script failed", e);
+        }
+    }
+
+    public @Nullable JvmFunction lookupFunction(String name) {
+        MethodType type = functionTypes.get(name);
+        if (type == null) {
+            return null;
+        }
+
+        return functions.computeIfAbsent(name, key -> new JvmFunction(key, findStatic(key, type)));
+    }
+
+    private MethodHandle findStatic(String name, MethodType type) {
+        try {
+            return lookup.findStatic(lookup.lookupClass(), name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Compiled script is missing " + name, e);
+        }
+    }
+
+}
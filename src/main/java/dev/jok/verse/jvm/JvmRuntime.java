@@ -0,0 +1,140 @@
+package dev.jok.verse.jvm;
+
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import dev.jok.verse.types.number.VNumber;
+
+import java.util.Objects;
+
+/**
+ * Helpers called from generated code for everything that isn't a single JVM instruction. Generic
+ * operations behave exactly like the tree walking interpreter.
+ */
+public final class JvmRuntime {
+
+    private JvmRuntime() {
+    }
+
+    public static Object fromInt(int value) {
+        return VInteger.valueOf(value);
+    }
+
+    public static Object fromFloat(float value) {
+        return new VFloat(value);
+    }
+
+    public static Object fromLogic(boolean value) {
+        return value;
+    }
+
+    public static int toInt(Object value) {
+        if (value instanceof VInteger integer) {
+            return integer.intValue();
+        }
+
+        throw conversionError("int", value);
+    }
+
+    public static float toFloat(Object value) {
+        if (value instanceof VFloat number) {
+            return number.floatValue();
+        }
+
+        throw conversionError("float", value);
+    }
+
+    public static boolean toLogic(Object value) {
+        if (value instanceof Boolean logic) {
+            return logic;
+        }
+
+        throw conversionError("logic", value);
+    }
+
+    public static boolean isTruthy(Object value) {
+        if (value instanceof Boolean logic) {
+            return logic;
+        }
+
+        return false;
+    }
+
+    public static Object checkArgument(Object value, Class<?> type, String name, int index) {
+        if (type.isInstance(value)) {
+            return value;
+        }
+
+        String actual = value == null ? "nothing" : value.getClass().getSimpleName();
+        throw new JvmRuntimeError("Native method " + name + " requires argument " + index + " to be of type " + type.getSimpleName() + ", but got " + actual);
+    }
+
+    public static Object add(Object left, Object right) {
+        return number(left).add(number(right));
+    }
+
+    public static Object subtract(Object left, Object right) {
+        return number(left).subtract(number(right));
+    }
+
+    public static Object multiply(Object left, Object right) {
+        return number(left).multiply(number(right));
+    }
+
+    public static Object divide(Object left, Object right) {
+        return number(left).divide(number(right));
+    }
+
+    public static boolean greaterThan(Object left, Object right) {
+        return number(left).greaterThan(number(right));
+    }
+
+    public static boolean greaterThanOrEqual(Object left, Object right) {
+        return number(left).greaterThanOrEqual(number(right));
+    }
+
+    public static boolean lessThan(Object left, Object right) {
+        return number(left).lessThan(number(right));
+    }
+
+    public static boolean lessThanOrEqual(Object left, Object right) {
+        return number(left).lessThanOrEqual(number(right));
+    }
+
+    public static boolean equal(Object left, Object right) {
+        return Objects.equals(left, right);
+    }
+
+    // same as VFloat.equals, so NaN equals itself
+    public static boolean floatEqual(float left, float right) {
+        return Float.floatToIntBits(left) == Float.floatToIntBits(right);
+    }
+
+    public static Object negate(Object value) {
+        return number(value).negate();
+    }
+
+    private static VNumber<?> number(Object value) {
+        if (value instanceof VNumber<?> number) {
+            return number;
+        }
+
+        throw new JvmRuntimeError("Expected numbers");
+    }
+
+    private static JvmRuntimeError conversionError(String type, Object value) {
+        String actual = value == null ? "nothing" : value.getClass().getSimpleName();
+        return new JvmRuntimeError("Expected " + type + ", but got " + actual);
+    }
+
+    /**
+     * Thrown by generated code. The stack trace has the script's line numbers in it.
+     */
+    public static final class JvmRuntimeError extends RuntimeException {
+
+        public JvmRuntimeError(String message) {
+            super(message);
+        }
+
+    }
+
+}
@@ -0,0 +1,78 @@
+package dev.jok.verse.jvm;
+
+import dev.jok.verse.ast.types.AstType;
+import dev.jok.verse.vm.ValueType;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * How a value is held in generated code. Ints, floats and logics whose type is known at compile
+ * time stay as JVM primitives, everything else is a boxed Verse value.
+ */
+@RequiredArgsConstructor
+public enum JvmType {
+
+    INT("I"),
+    FLOAT("F"),
+    LOGIC("Z"),
+    OBJECT("Ljava/lang/Object;");
+
+    public final String descriptor;
+
+    public static JvmType of(@Nullable AstType type) {
+        if (type == null) {
+            return OBJECT;
+        }
+
+        return switch (type.toString()) {
+            case "int" -> INT;
+            case "float" -> FLOAT;
+            case "logic" -> LOGIC;
+            default -> OBJECT;
+        };
+    }
+
+    public static JvmType of(Class<?> type) {
+        if (type == int.class) {
+            return INT;
+        }
+
+        if (type == float.class) {
+            return FLOAT;
+        }
+
+        if (type == boolean.class) {
+            return LOGIC;
+        }
+
+        return OBJECT;
+    }
+
+    public static JvmType of(ValueType type) {
+        return switch (type) {
+            case INT -> INT;
+            case FLOAT -> FLOAT;
+            case LOGIC -> LOGIC;
+            case OBJECT -> OBJECT;
+        };
+    }
+
+    public ValueType valueType() {
+        return switch (this) {
+            case INT -> ValueType.INT;
+            case FLOAT -> ValueType.FLOAT;
+            case LOGIC -> ValueType.LOGIC;
+            case OBJECT -> ValueType.OBJECT;
+        };
+    }
+
+    public Class<?> javaType() {
+        return switch (this) {
+            case INT -> int.class;
+            case FLOAT -> float.class;
+            case LOGIC -> boolean.class;
+            case OBJECT -> Object.class;
+        };
+    }
+
+}
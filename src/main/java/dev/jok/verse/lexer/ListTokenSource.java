@@ -0,0 +1,26 @@
+package dev.jok.verse.lexer;
+
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Tokens that were all scanned up front.
+ */
+@RequiredArgsConstructor
+public class ListTokenSource implements TokenSource {
+
+    private final List<Token> tokens;
+
+    @Override
+    public @Nullable Token peek(int index) {
+        return index < tokens.size() ? tokens.get(index) : null;
+    }
+
+    @Override
+    public void release(int index) {
+        // the list is owned by whoever scanned it
+    }
+
+}
@@ -0,0 +1,79 @@
+package dev.jok.verse.lexer;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Pulls tokens from a {@link VerseScanner} as the parser asks for them, keeping only the ones it
+ * may still look at in a ring buffer.
+ * <p>
+ * The window spans from the oldest token that hasn't been released to the furthest the parser has
+ * looked ahead. The buffer only grows if a single statement needs more lookahead than it can hold,
+ * so memory depends on the longest statement rather than the size of the file.
+ */
+public class StreamingTokenSource implements TokenSource {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final VerseScanner scanner;
+    private Token[] ring = new Token[INITIAL_CAPACITY];
+    // absolute index of the oldest token still held
+    private int first = 0;
+    // absolute index one past the newest token scanned
+    private int end = 0;
+    private boolean scannedEof = false;
+
+    public StreamingTokenSource(VerseScanner scanner) {
+        this.scanner = scanner;
+    }
+
+    @Override
+    public @Nullable Token peek(int index) {
+        if (index < first) {
+            throw new IllegalStateException("Token " + index + " was already released, the oldest token held is " + first);
+        }
+
+        while (index >= end) {
+            if (scannedEof) {
+                return null;
+            }
+
+            scanNext();
+        }
+
+        return ring[index & (ring.length - 1)];
+    }
+
+    @Override
+    public void release(int index) {
+        int until = Math.min(index, end);
+        while (first < until) {
+            ring[first & (ring.length - 1)] = null;
+            first++;
+        }
+    }
+
+    private void scanNext() {
+        if (end - first == ring.length) {
+            grow();
+        }
+
+        Token token = scanner.nextToken();
+        ring[end & (ring.length - 1)] = token;
+        end++;
+
+        if (token.type == TokenType.EOF) {
+            scannedEof = true;
+        }
+    }
+
+    private void grow() {
+        // capacity stays a power of two, so indexes can be masked instead of divided
+        Token[] grown = new Token[ring.length * 2];
+        for (int i = first; i < end; i++) {
+            grown[i & (grown.length - 1)] = ring[i & (ring.length - 1)];
+        }
+
+        ring = grown;
+    }
+
+}
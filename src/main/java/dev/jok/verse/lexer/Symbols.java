@@ -0,0 +1,190 @@
+package dev.jok.verse.lexer;
+
+import java.util.Arrays;
+
+/**
+ * The global symbol table. Every identifier is interned once, while it's being scanned, into a small
+ * int ID that stays the same for the life of the process. Function tables and natives are keyed by
+ * these IDs, and tokens for the same name share a single string.
+ * <p>
+ * IDs are handed out densely from 0, so they can index arrays directly. Names that are already in
+ * the table are found without locking, only adding a new one takes the lock.
+ */
+public final class Symbols {
+
+    /**
+     * The symbol of tokens that aren't identifiers.
+     */
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // open addressing table of symbol + 1, 0 is an empty slot
+    private static int[] table = new int[INITIAL_CAPACITY * 2];
+    private static String[] names = new String[INITIAL_CAPACITY];
+    private static int[] hashes = new int[INITIAL_CAPACITY];
+    private static int count = 0;
+
+    // well known names the engines look for
+    public static final int NATIVE = intern("native");
+    public static final int SUSPENDS = intern("suspends");
+
+    private Symbols() { }
+
+    public static int intern(String name) {
+        return intern(name.toCharArray(), 0, name.length());
+    }
+
+    /**
+     * The symbol for the chars between from and to, which only become a string the first time that
+     * name is seen.
+     */
+    public static int intern(char[] chars, int from, int to) {
+        int hash = hash(chars, from, to);
+        int symbol = probe(chars, from, to, hash);
+        return symbol != NONE ? symbol : internLocked(chars, from, to, hash);
+    }
+
+    /**
+     * Looks the name up without the lock. The arrays can be swapped out or only partly visible while
+     * another thread adds a symbol, but a name only ever matches the symbol it was added as, so the
+     * worst this can do is miss and leave it to {@link #internLocked}.
+     */
+    private static int probe(char[] chars, int from, int to, int hash) {
+        int[] table = Symbols.table;
+        String[] names = Symbols.names;
+        int[] hashes = Symbols.hashes;
+        int mask = table.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            int entry = table[i];
+            if (entry == 0 || entry > names.length || entry > hashes.length) {
+                return NONE;
+            }
+
+            int symbol = entry - 1;
+            String name = names[symbol];
+            if (name == null) {
+                return NONE;
+            }
+
+            if (hashes[symbol] == hash && matches(name, chars, from, to)) {
+                return symbol;
+            }
+        }
+    }
+
+    private static synchronized int internLocked(char[] chars, int from, int to, int hash) {
+        int mask = table.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            int entry = table[i];
+            if (entry == 0) {
+                return add(new String(chars, from, to - from), hash, i);
+            }
+
+            int symbol = entry - 1;
+            if (hashes[symbol] == hash && matches(names[symbol], chars, from, to)) {
+                return symbol;
+            }
+        }
+    }
+
+    /**
+     * The symbol for the name if it has been interned, or {@link #NONE}. Unlike {@link #intern} this
+     * doesn't grow the table for names nothing was ever called.
+     */
+    public static synchronized int find(String name) {
+        int hash = name.hashCode();
+        int mask = table.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            int entry = table[i];
+            if (entry == 0) {
+                return NONE;
+            }
+
+            if (hashes[entry - 1] == hash && names[entry - 1].equals(name)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    public static String name(int symbol) {
+        String[] names = Symbols.names;
+        String name = symbol < names.length ? names[symbol] : null;
+        return name != null ? name : nameLocked(symbol);
+    }
+
+    private static synchronized String nameLocked(int symbol) {
+        return names[symbol];
+    }
+
+    /**
+     * How many symbols there are, every symbol is less than this.
+     */
+    public static synchronized int count() {
+        return count;
+    }
+
+    private static int add(String name, int hash, int slot) {
+        int symbol = count++;
+        if (symbol == names.length) {
+            names = Arrays.copyOf(names, symbol * 2);
+            hashes = Arrays.copyOf(hashes, symbol * 2);
+        }
+
+        names[symbol] = name;
+        hashes[symbol] = hash;
+        table[slot] = symbol + 1;
+
+        // keep the table at most half full
+        if (count * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+
+        return symbol;
+    }
+
+    private static void rehash(int capacity) {
+        int[] newTable = new int[capacity];
+        int mask = capacity - 1;
+        for (int symbol = 0; symbol < count; symbol++) {
+            int i = spread(hashes[symbol]) & mask;
+            while (newTable[i] != 0) {
+                i = (i + 1) & mask;
+            }
+
+            newTable[i] = symbol + 1;
+        }
+
+        table = newTable;
+    }
+
+    // same as String.hashCode, so find can use the string's cached hash
+    private static int hash(char[] chars, int from, int to) {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + chars[i];
+        }
+
+        return hash;
+    }
+
+    // mixes the high bits into the low ones the mask keeps
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String name, char[] chars, int from, int to) {
+        if (name.length() != to - from) {
+            return false;
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != chars[from + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
@@ -10,6 +10,8 @@ public class Token {
     public final Object literal;
     public final int line;
     public final int col;
+    // the interned name of an identifier, Symbols.NONE for every other token
+    public final int symbol;
 
     @Override
     public String toString() {
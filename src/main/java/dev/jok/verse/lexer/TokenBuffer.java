@@ -0,0 +1,206 @@
+package dev.jok.verse.lexer;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * All the tokens of a source, stored as parallel int arrays instead of one {@link Token} object and
+ * lexeme string per token. Text and literal values are only made from the source when asked for, so
+ * punctuation and keywords, which the parser only ever checks the type of, never become objects.
+ * <p>
+ * The source is either chars, or UTF-8 bytes when it was scanned by a {@link Utf8Scanner}, in which
+ * case token starts and ends are byte offsets.
+ */
+public class TokenBuffer implements TokenSource {
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final char @Nullable [] source;
+    private final @Nullable ByteBuffer utf8;
+    private int[] types;
+    private int[] starts;
+    private int[] ends;
+    private int[] lines;
+    private int[] cols;
+    private int[] symbols;
+    private int size = 0;
+    // punctuation and keywords always have the same text, so each type only needs one string
+    private final String[] fixedLexemes = new String[TYPES.length];
+
+    public TokenBuffer(char[] source, int capacity) {
+        this(source, null, capacity);
+    }
+
+    public TokenBuffer(ByteBuffer utf8, int capacity) {
+        this(null, utf8, capacity);
+    }
+
+    private TokenBuffer(char @Nullable [] source, @Nullable ByteBuffer utf8, int capacity) {
+        this.source = source;
+        this.utf8 = utf8;
+
+        this.types = new int[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.lines = new int[capacity];
+        this.cols = new int[capacity];
+        this.symbols = new int[capacity];
+    }
+
+    public void add(TokenType type, int start, int end, int line, int col, int symbol) {
+        if (size == types.length) {
+            ensureCapacity(size + 1);
+        }
+
+        types[size] = type.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        lines[size] = line;
+        cols[size] = col;
+        symbols[size] = symbol;
+        size++;
+    }
+
+    /**
+     * Copies the tokens from {@code from} to {@code to} of another buffer onto the end of this one,
+     * moved by {@code offsetDelta} chars and {@code lineDelta} lines. Tokens on {@code colLine} also
+     * move by {@code colDelta} columns.
+     */
+    public void addShifted(TokenBuffer other, int from, int to, int offsetDelta, int lineDelta, int colDelta, int colLine) {
+        int count = to - from;
+        ensureCapacity(size + count);
+
+        System.arraycopy(other.types, from, types, size, count);
+        System.arraycopy(other.symbols, from, symbols, size, count);
+        for (int i = 0; i < count; i++) {
+            int line = other.lines[from + i];
+            starts[size + i] = other.starts[from + i] + offsetDelta;
+            ends[size + i] = other.ends[from + i] + offsetDelta;
+            lines[size + i] = line + lineDelta;
+            cols[size + i] = line == colLine ? other.cols[from + i] + colDelta : other.cols[from + i];
+        }
+
+        size += count;
+    }
+
+    /**
+     * Drops every token from the given index on.
+     */
+    public void truncate(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Drops the spare capacity left over from growing, once all the tokens have been added.
+     */
+    public void trim() {
+        types = Arrays.copyOf(types, size);
+        starts = Arrays.copyOf(starts, size);
+        ends = Arrays.copyOf(ends, size);
+        lines = Arrays.copyOf(lines, size);
+        cols = Arrays.copyOf(cols, size);
+        symbols = Arrays.copyOf(symbols, size);
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= types.length) {
+            return;
+        }
+
+        int capacity = Math.max(Math.max(types.length * 2, needed), 16);
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        cols = Arrays.copyOf(cols, capacity);
+        symbols = Arrays.copyOf(symbols, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public @Nullable TokenType type(int index) {
+        return index < size ? TYPES[types[index]] : null;
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int end(int index) {
+        return ends[index];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    public int col(int index) {
+        return cols[index];
+    }
+
+    public int symbol(int index) {
+        return symbols[index];
+    }
+
+    public String lexeme(int index) {
+        // identifiers already have a string in the symbol table
+        if (symbols[index] != Symbols.NONE) {
+            return Symbols.name(symbols[index]);
+        }
+
+        TokenType type = TYPES[types[index]];
+        if (type.isSelfDescribing()) {
+            String lexeme = fixedLexemes[type.ordinal()];
+            if (lexeme == null) {
+                lexeme = text(index);
+                fixedLexemes[type.ordinal()] = lexeme;
+            }
+
+            return lexeme;
+        }
+
+        return text(index);
+    }
+
+    private String text(int index) {
+        int length = ends[index] - starts[index];
+        if (source != null) {
+            return new String(source, starts[index], length);
+        }
+
+        byte[] bytes = new byte[length];
+        utf8.get(starts[index], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public @Nullable Object literal(int index) {
+        return VerseScanner.literal(TYPES[types[index]], lexeme(index));
+    }
+
+    /**
+     * A new {@link Token} for the given index. Nothing is cached, the parser only asks for the
+     * tokens it keeps in the AST or reports errors at.
+     */
+    @Override
+    public @Nullable Token peek(int index) {
+        if (index >= size) {
+            return null;
+        }
+
+        TokenType type = TYPES[types[index]];
+        String lexeme = lexeme(index);
+        return new Token(type, lexeme, VerseScanner.literal(type, lexeme), lines[index], cols[index], symbols[index]);
+    }
+
+    @Override
+    public void release(int index) {
+        // the buffer is owned by whoever scanned it
+    }
+
+}
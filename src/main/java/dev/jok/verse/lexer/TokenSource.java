@@ -0,0 +1,29 @@
+package dev.jok.verse.lexer;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Where the parser gets its tokens from. Tokens are addressed by their absolute index in the file.
+ */
+public interface TokenSource {
+
+    /**
+     * The token at the given index, or null if it's past the EOF token.
+     */
+    @Nullable Token peek(int index);
+
+    /**
+     * The type of the token at the given index, or null if it's past the EOF token. Sources that
+     * don't keep {@link Token} objects around can answer this without making one.
+     */
+    default @Nullable TokenType type(int index) {
+        Token token = peek(index);
+        return token != null ? token.type : null;
+    }
+
+    /**
+     * Tells the source the parser won't look at anything before the given index again.
+     */
+    void release(int index);
+
+}
@@ -18,10 +18,10 @@ public enum TokenType {
 
     // Keywords
     AND(true), OR(true), NOT(true), TRUE(true), FALSE(true),
-    VAR(true), RETURN(true), SELF(true),
+    VAR(true), SET(true), RETURN(true), SELF(true),
     IF(true), ELSE(true), FOR(true), BREAK(true),
 
-    CLASS(true), MODULE(true),
+    CLASS(true), MODULE(true), USING(true),
 
     // Effects
     TRANSACTS, VARIES, COMPUTES, CONVERGES,
@@ -39,7 +39,7 @@ public enum TokenType {
     CONTINUE, YIELD,
 
     // Block statements
-    BLOCK, SPAWN,
+    BLOCK, SPAWN, SYNC, RACE, RUSH, BRANCH,
 
     EOF;
 
@@ -0,0 +1,352 @@
+package dev.jok.verse.lexer;
+
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.diagnostic.Stage;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Scans UTF-8 bytes straight into a {@link TokenBuffer}, without decoding the whole source into
+ * chars first. Usually the bytes are a file mapped into memory with {@link #open}, so the source is
+ * never copied at all, and the buffer only decodes a token's text when the parser asks for it.
+ * <p>
+ * ASCII, which is nearly all of a script, is handled a byte at a time, and only identifiers and
+ * other characters outside it are decoded. Tokens, lines, columns and errors are the same as
+ * {@link VerseScanner}'s for the decoded text, with columns still counted in UTF-16 chars.
+ */
+public class Utf8Scanner {
+
+    private static final int REPLACEMENT = 0xFFFD;
+
+    private final @Getter Diagnostics diagnostics;
+    private final ByteBuffer source;
+    private final int limit;
+    private int start = 0;
+    private int current = 0;
+    private int line = 1;
+    private int col = 1;
+    // how many UTF-16 chars are before start and current, for working out the column a token started at
+    private int startChars = 0;
+    private int currentChars = 0;
+    // a new line token's own position is on the line it ends, so the line is only moved on after it
+    private boolean pendingNewLine = false;
+    // the length in bytes of the code point codePointAt last decoded
+    private int width;
+    // the identifier being scanned, decoded so it can be matched against keywords and interned
+    private char[] name = new char[64];
+    private int nameLength;
+
+    public Utf8Scanner(ByteBuffer source) {
+        this(source, new Diagnostics());
+    }
+
+    /**
+     * Scans the bytes from the buffer's position up to its limit.
+     */
+    public Utf8Scanner(ByteBuffer source, Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+        this.source = source;
+        this.limit = source.limit();
+        this.start = source.position();
+        this.current = source.position();
+    }
+
+    /**
+     * A scanner over the file mapped into memory. The mapping lives as long as the scanner, or the
+     * token buffer it scans into, is reachable.
+     */
+    public static Utf8Scanner open(Path path, Diagnostics diagnostics) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Utf8Scanner(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), diagnostics);
+        }
+    }
+
+    /**
+     * Scans the whole source into a {@link TokenBuffer} over the same bytes.
+     */
+    public TokenBuffer scanBuffer() {
+        // roughly one token every four bytes in typical code
+        TokenBuffer tokens = new TokenBuffer(source, (limit - current) / 4);
+        while (scanInto(tokens) != TokenType.EOF) { }
+
+        tokens.trim();
+        return tokens;
+    }
+
+    /**
+     * Scans the next token onto the end of the buffer, which has to be over the same source, and
+     * returns its type.
+     */
+    public TokenType scanInto(TokenBuffer tokens) {
+        TokenType type = scanNext();
+        int symbol = type == TokenType.IDENTIFIER ? Symbols.intern(name, 0, nameLength) : Symbols.NONE;
+        tokens.add(type, start, current, line, tokenCol(), symbol);
+        return type;
+    }
+
+    // the type of the next token, which spans start to current
+    private TokenType scanNext() {
+        if (pendingNewLine) {
+            newLine();
+            pendingNewLine = false;
+        }
+
+        while (!isAtEnd()) {
+            start = current;
+            startChars = currentChars;
+            TokenType type = scanToken();
+            if (type != null) {
+                return type;
+            }
+        }
+
+        start = current;
+        startChars = currentChars;
+        return TokenType.EOF;
+    }
+
+    // the type of the token starting at start, or null if it was whitespace, a comment or an error
+    private @Nullable TokenType scanToken() {
+        int c = advance();
+
+        return switch (c) {
+            case '(' -> TokenType.LEFT_PAREN;
+            case ')' -> TokenType.RIGHT_PAREN;
+            case '{' -> TokenType.LEFT_BRACE;
+            case '}' -> TokenType.RIGHT_BRACE;
+            case '[' -> TokenType.LEFT_BRACKET;
+            case ']' -> TokenType.RIGHT_BRACKET;
+
+            case ',' -> TokenType.COMMA;
+            case '.' -> TokenType.DOT;
+            case ';' -> TokenType.SEMICOLON;
+            case ':' -> advanceIf('=') ? TokenType.INFERRED_DECL : TokenType.COLON;
+            case '?' -> TokenType.QUESTION_MARK;
+            case '\n' -> {
+                pendingNewLine = true;
+                yield TokenType.NEW_LINE;
+            }
+
+            case '=' -> TokenType.EQUALS;
+            case '+' -> TokenType.PLUS;
+            case '-' -> TokenType.MINUS;
+            case '*' -> TokenType.STAR;
+            case '/' -> TokenType.SLASH;
+
+            case '>' -> advanceIf('=') ? TokenType.GREATER_EQUAL : TokenType.GREATER;
+            case '<' -> advanceIf('=') ? TokenType.LESS_EQUAL : TokenType.LESS;
+
+            case '"' -> string();
+
+            // # is comments
+            case '#' -> {
+                advanceTillEol();
+                yield null;
+            }
+
+            case ' ', '\t', '\r' -> {
+                // Ignore whitespace.
+                yield null;
+            }
+
+            default -> {
+                if (Character.isDigit(c)) {
+                    yield number();
+                } else if (isIdentifierStart(c)) {
+                    yield identifier(c);
+                }
+
+                error("Unexpected character: '" + Character.toString(c) + "'");
+                yield null;
+            }
+        };
+    }
+
+    private TokenType number() {
+        boolean isFloat = false;
+        while (Character.isDigit(peek())) {
+            advance();
+        }
+
+        // Look for a decimal point
+        if (peek() == '.' && Character.isDigit(peekNext())) {
+            isFloat = true;
+
+            // Consume the "."
+            advance();
+
+            while (Character.isDigit(peek())) {
+                advance();
+            }
+        }
+
+        return isFloat ? TokenType.NUMBER_FLOAT : TokenType.NUMBER_INT;
+    }
+
+    private TokenType identifier(int first) {
+        nameLength = 0;
+        appendName(first);
+        while (isIdentifierPart(peek())) {
+            appendName(advance());
+        }
+
+        return VerseScanner.keyword(name, 0, nameLength);
+    }
+
+    private void appendName(int c) {
+        if (nameLength + 2 > name.length) {
+            char[] grown = new char[name.length * 2];
+            System.arraycopy(name, 0, grown, 0, nameLength);
+            name = grown;
+        }
+
+        nameLength += Character.toChars(c, name, nameLength);
+    }
+
+    private @Nullable TokenType string() {
+        while (peek() != '"' && !isAtEnd()) {
+            if (peek() == '\n') {
+                newLine();
+            }
+
+            advance();
+        }
+
+        if (isAtEnd()) {
+            error("Unterminated string");
+            return null;
+        }
+
+        // The closing "
+        advance();
+        return TokenType.STRING;
+    }
+
+    private void newLine() {
+        line++;
+        col = 1;
+    }
+
+    private boolean isIdentifierStart(int c) {
+        return Character.isAlphabetic(c) || c == '_';
+    }
+
+    private boolean isIdentifierPart(int c) {
+        return Character.isAlphabetic(c) || Character.isDigit(c) || c == '_';
+    }
+
+    private int peek() {
+        if (isAtEnd()) {
+            return '\0';
+        }
+
+        return codePointAt(current);
+    }
+
+    private int peekNext() {
+        if (isAtEnd()) {
+            return '\0';
+        }
+
+        codePointAt(current);
+        int next = current + width;
+        return next < limit ? codePointAt(next) : '\0';
+    }
+
+    private int advance() {
+        int c = codePointAt(current);
+        current += width;
+
+        int chars = Character.charCount(c);
+        col += chars;
+        currentChars += chars;
+        return c;
+    }
+
+    private void advanceTillEol() {
+        while (peek() != '\n' && !isAtEnd()) {
+            advance();
+        }
+    }
+
+    // like VerseScanner, this doesn't move the column on
+    private boolean advanceIf(char expected) {
+        if (isAtEnd()) return false;
+        if (source.get(current) != expected) return false;
+
+        current++;
+        currentChars++;
+        return true;
+    }
+
+    /**
+     * The code point starting at the given byte, leaving its length in {@link #width}. A malformed
+     * sequence is a single byte of {@link #REPLACEMENT}, the same as decoding it would give.
+     */
+    private int codePointAt(int index) {
+        int lead = source.get(index);
+        if (lead >= 0) {
+            width = 1;
+            return lead;
+        }
+
+        int length;
+        int c;
+        if ((lead & 0xE0) == 0xC0) {
+            length = 2;
+            c = lead & 0x1F;
+        } else if ((lead & 0xF0) == 0xE0) {
+            length = 3;
+            c = lead & 0x0F;
+        } else if ((lead & 0xF8) == 0xF0) {
+            length = 4;
+            c = lead & 0x07;
+        } else {
+            width = 1;
+            return REPLACEMENT;
+        }
+
+        if (index + length > limit) {
+            width = 1;
+            return REPLACEMENT;
+        }
+
+        for (int i = 1; i < length; i++) {
+            int b = source.get(index + i);
+            if ((b & 0xC0) != 0x80) {
+                width = 1;
+                return REPLACEMENT;
+            }
+
+            c = (c << 6) | (b & 0x3F);
+        }
+
+        if (!Character.isValidCodePoint(c)) {
+            width = 1;
+            return REPLACEMENT;
+        }
+
+        width = length;
+        return c;
+    }
+
+    // the column the token being scanned started at
+    private int tokenCol() {
+        return col - (currentChars - startChars);
+    }
+
+    private boolean isAtEnd() {
+        return current >= limit;
+    }
+
+    private void error(String message) {
+        diagnostics.error(Stage.SYNTAX, line, col, message);
+    }
+
+}
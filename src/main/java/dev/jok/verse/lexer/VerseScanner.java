@@ -1,87 +1,229 @@
 package dev.jok.verse.lexer;
 
-import dev.jok.verse.VerseLang;
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.diagnostic.Stage;
 import dev.jok.verse.types.number.VFloat;
 import dev.jok.verse.types.number.VInteger;
-import lombok.RequiredArgsConstructor;
+import lombok.Getter;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-@RequiredArgsConstructor
+/**
+ * Turns source text into tokens. The whole file can be scanned up front with {@link #scanTokens()},
+ * or into a compact {@link TokenBuffer} with {@link #scanBuffer()}, or tokens can be pulled one at a
+ * time with {@link #nextToken()} when scanning from a {@link Reader}, in which case only the
+ * characters of the token being scanned are held in memory.
+ */
 public class VerseScanner {
 
-    private final String source;
-    private final List<Token> tokens = new ArrayList<>();
+    private static final int BUFFER_SIZE = 8192;
+
+    private final @Getter Diagnostics diagnostics;
+    private final @Nullable Reader reader;
+    private char[] buffer;
+    // number of chars in the buffer that have been read
+    private int limit;
+    private boolean readerDone;
     private int start = 0;
     private int current = 0;
     private int line = 1;
     private int col = 1;
+    // a new line token's own position is on the line it ends, so the line is only moved on after it
+    private boolean pendingNewLine = false;
+
+    public VerseScanner(String source) {
+        this(source, new Diagnostics());
+    }
+
+    public VerseScanner(String source, Diagnostics diagnostics) {
+        this(source.toCharArray(), 0, 1, 1, diagnostics);
+    }
+
+    /**
+     * Scans the source from the given offset on, which has to be where a token could start, at the
+     * given line and column.
+     */
+    public VerseScanner(char[] source, int offset, int line, int col, Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+        this.reader = null;
+        this.buffer = source;
+        this.limit = source.length;
+        this.readerDone = true;
+        this.start = offset;
+        this.current = offset;
+        this.line = line;
+        this.col = col;
+    }
+
+    public VerseScanner(Reader reader) {
+        this(reader, new Diagnostics());
+    }
+
+    public VerseScanner(Reader reader, Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+        this.limit = 0;
+        this.readerDone = false;
+    }
 
     public List<Token> scanTokens() {
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = nextToken();
+            tokens.add(token);
+        } while (token.type != TokenType.EOF);
+
+        return tokens;
+    }
+
+    /**
+     * Scans the whole source into a {@link TokenBuffer}, which keeps the source and only turns tokens
+     * into text when asked. Only works for sources scanned from a string.
+     */
+    public TokenBuffer scanBuffer() {
+        if (reader != null) {
+            throw new IllegalStateException("Only sources scanned from a string can be kept in a token buffer");
+        }
+
+        // roughly one token every four chars in typical code
+        TokenBuffer tokens = new TokenBuffer(buffer, (limit - current) / 4);
+        while (scanInto(tokens) != TokenType.EOF) { }
+
+        tokens.trim();
+        return tokens;
+    }
+
+    /**
+     * Scans the next token onto the end of the buffer, which has to be over the same source, and
+     * returns its type.
+     */
+    public TokenType scanInto(TokenBuffer tokens) {
+        TokenType type = scanNext();
+        int symbol = type == TokenType.IDENTIFIER ? Symbols.intern(buffer, start, current) : Symbols.NONE;
+        tokens.add(type, start, current, line, tokenCol(), symbol);
+        return type;
+    }
+
+    /**
+     * Scans the next token, skipping whitespace and comments. Once the end of the input is reached
+     * this keeps returning EOF tokens.
+     */
+    public Token nextToken() {
+        TokenType type = scanNext();
+        if (type == TokenType.IDENTIFIER) {
+            // every token for the same name shares the interned string
+            int symbol = Symbols.intern(buffer, start, current);
+            return new Token(type, Symbols.name(symbol), null, line, tokenCol(), symbol);
+        }
+
+        String text = text(start, current);
+        return new Token(type, text, literal(type, text), line, tokenCol(), Symbols.NONE);
+    }
+
+    // the type of the next token, which spans start to current
+    private TokenType scanNext() {
+        if (pendingNewLine) {
+            newLine();
+            pendingNewLine = false;
+        }
+
         while (!isAtEnd()) {
             start = current;
-            scanToken();
+            TokenType type = scanToken();
+            if (type != null) {
+                return type;
+            }
         }
 
+        start = current;
+        return TokenType.EOF;
+    }
 
-        addToken(TokenType.EOF);
-        return tokens;
+    /**
+     * The value of a literal token, parsed from its text.
+     */
+    public static @Nullable Object literal(TokenType type, String text) {
+        return switch (type) {
+            case NUMBER_INT -> VInteger.parseInt(text);
+            case NUMBER_FLOAT -> VFloat.parseFloat(text);
+            // Trim the surrounding quotes
+            case STRING -> text.substring(1, text.length() - 1);
+            default -> null;
+        };
     }
 
-    private void scanToken() {
+    // the type of the token starting at start, or null if it was whitespace, a comment or an error
+    private @Nullable TokenType scanToken() {
         char c = advance();
 
-        switch (c) {
-            case '(' -> addToken(TokenType.LEFT_PAREN);
-            case ')' -> addToken(TokenType.RIGHT_PAREN);
-            case '{' -> addToken(TokenType.LEFT_BRACE);
-            case '}' -> addToken(TokenType.RIGHT_BRACE);
-            case '[' -> addToken(TokenType.LEFT_BRACKET);
-            case ']' -> addToken(TokenType.RIGHT_BRACKET);
-
-            case ',' -> addToken(TokenType.COMMA);
-            case '.' -> addToken(TokenType.DOT);
-            case ';' -> addToken(TokenType.SEMICOLON);
-            case ':' -> addToken(advanceIf('=') ? TokenType.INFERRED_DECL : TokenType.COLON);
-            case '?' -> addToken(TokenType.QUESTION_MARK);
+        return switch (c) {
+            case '(' -> TokenType.LEFT_PAREN;
+            case ')' -> TokenType.RIGHT_PAREN;
+            case '{' -> TokenType.LEFT_BRACE;
+            case '}' -> TokenType.RIGHT_BRACE;
+            case '[' -> TokenType.LEFT_BRACKET;
+            case ']' -> TokenType.RIGHT_BRACKET;
+
+            case ',' -> TokenType.COMMA;
+            case '.' -> TokenType.DOT;
+            case ';' -> TokenType.SEMICOLON;
+            case ':' -> advanceIf('=') ? TokenType.INFERRED_DECL : TokenType.COLON;
+            case '?' -> TokenType.QUESTION_MARK;
             case '\n' -> {
-                addToken(TokenType.NEW_LINE);
-                newLine();
+                pendingNewLine = true;
+                yield TokenType.NEW_LINE;
             }
 
-            case '=' -> addToken(TokenType.EQUALS);
-            case '+' -> addToken(TokenType.PLUS);
-            case '-' -> addToken(TokenType.MINUS);
-            case '*' -> addToken(TokenType.STAR);
-            case '/' -> addToken(TokenType.SLASH);
+            case '=' -> TokenType.EQUALS;
+            case '+' -> TokenType.PLUS;
+            case '-' -> TokenType.MINUS;
+            case '*' -> TokenType.STAR;
+            case '/' -> TokenType.SLASH;
 
-            case '>' -> addToken(advanceIf('=') ? TokenType.GREATER_EQUAL : TokenType.GREATER);
-            case '<' -> addToken(advanceIf('=') ? TokenType.LESS_EQUAL : TokenType.LESS);
+            case '>' -> advanceIf('=') ? TokenType.GREATER_EQUAL : TokenType.GREATER;
+            case '<' -> advanceIf('=') ? TokenType.LESS_EQUAL : TokenType.LESS;
 
             case '"' -> string();
 
             // # is comments
-            case '#' -> advanceTillEol();
+            case '#' -> {
+                advanceTillEol();
+                yield null;
+            }
 
             case ' ', '\t', '\r' -> {
                 // Ignore whitespace.
+                yield null;
             }
 
             default -> {
                 if (Character.isDigit(c)) {
-                    number();
+                    yield number();
                 } else if (isIdentifierStart(c)) {
-                    identifier();
-                } else {
-                    error("Unexpected character: '" + c + "'");
+                    yield identifier();
+                }
+
+                // a character outside the BMP is one bad character, not two halves of one
+                if (Character.isHighSurrogate(c) && Character.isLowSurrogate(peek())) {
+                    error("Unexpected character: '" + Character.toString(Character.toCodePoint(c, advance())) + "'");
+                    yield null;
                 }
+
+                error("Unexpected character: '" + c + "'");
+                yield null;
             }
-        }
+        };
     }
 
-    private void number() {
+    private TokenType number() {
         boolean isFloat = false;
         while (Character.isDigit(peek())) {
             advance();
@@ -99,43 +241,82 @@ public class VerseScanner {
             }
         }
 
-        String text = source.substring(start, current);
-        if (isFloat) {
-            addToken(TokenType.NUMBER_FLOAT, VFloat.parseFloat(text));
-            return;
-        }
-
-        addToken(TokenType.NUMBER_INT, VInteger.parseInt(text));
+        return isFloat ? TokenType.NUMBER_FLOAT : TokenType.NUMBER_INT;
     }
 
-    private void identifier() {
+    private TokenType identifier() {
         while (isIdentifierPart(peek())) {
             advance();
         }
 
-        String text = source.substring(start, current);
-        TokenType type = TokenType.IDENTIFIER;
-        if (text.equals("and")) type = TokenType.AND;
-        if (text.equals("or")) type = TokenType.OR;
-        if (text.equals("not")) type = TokenType.NOT;
-        if (text.equals("true")) type = TokenType.TRUE;
-        if (text.equals("false")) type = TokenType.FALSE;
-        if (text.equals("var")) type = TokenType.VAR;
-        if (text.equals("return")) type = TokenType.RETURN;
-        if (text.equals("self")) type = TokenType.SELF;
-        if (text.equals("if")) type = TokenType.IF;
-        if (text.equals("else")) type = TokenType.ELSE;
-        if (text.equals("for")) type = TokenType.FOR;
-        if (text.equals("block")) type = TokenType.BLOCK;
-        if (text.equals("spawn")) type = TokenType.SPAWN;
-        if (text.equals("break")) type = TokenType.BREAK;
-        if (text.equals("class")) type = TokenType.CLASS;
-        if (text.equals("module")) type = TokenType.MODULE;
-
-        addToken(type);
-    }
-
-    private void string() {
+        // keywords are matched against the buffer so identifiers don't need a string yet
+        return keyword(buffer, start, current);
+    }
+
+    /**
+     * The keyword the chars between from and to spell, or {@link TokenType#IDENTIFIER} if they aren't
+     * one.
+     */
+    static TokenType keyword(char[] chars, int from, int to) {
+        return switch (to - from) {
+            case 2 -> {
+                if (is(chars, from, "or")) yield TokenType.OR;
+                if (is(chars, from, "if")) yield TokenType.IF;
+                yield TokenType.IDENTIFIER;
+            }
+
+            case 3 -> {
+                if (is(chars, from, "and")) yield TokenType.AND;
+                if (is(chars, from, "not")) yield TokenType.NOT;
+                if (is(chars, from, "var")) yield TokenType.VAR;
+                if (is(chars, from, "set")) yield TokenType.SET;
+                if (is(chars, from, "for")) yield TokenType.FOR;
+                yield TokenType.IDENTIFIER;
+            }
+
+            case 4 -> {
+                if (is(chars, from, "true")) yield TokenType.TRUE;
+                if (is(chars, from, "self")) yield TokenType.SELF;
+                if (is(chars, from, "else")) yield TokenType.ELSE;
+                if (is(chars, from, "sync")) yield TokenType.SYNC;
+                if (is(chars, from, "race")) yield TokenType.RACE;
+                if (is(chars, from, "rush")) yield TokenType.RUSH;
+                yield TokenType.IDENTIFIER;
+            }
+
+            case 5 -> {
+                if (is(chars, from, "false")) yield TokenType.FALSE;
+                if (is(chars, from, "block")) yield TokenType.BLOCK;
+                if (is(chars, from, "spawn")) yield TokenType.SPAWN;
+                if (is(chars, from, "break")) yield TokenType.BREAK;
+                if (is(chars, from, "class")) yield TokenType.CLASS;
+                if (is(chars, from, "using")) yield TokenType.USING;
+                yield TokenType.IDENTIFIER;
+            }
+
+            case 6 -> {
+                if (is(chars, from, "return")) yield TokenType.RETURN;
+                if (is(chars, from, "module")) yield TokenType.MODULE;
+                if (is(chars, from, "branch")) yield TokenType.BRANCH;
+                yield TokenType.IDENTIFIER;
+            }
+
+            default -> TokenType.IDENTIFIER;
+        };
+    }
+
+    // whether the chars from the given index on are the given word, which has to be the same length
+    private static boolean is(char[] chars, int from, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (chars[from + i] != word.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private @Nullable TokenType string() {
         while (peek() != '"' && !isAtEnd()) {
             if (peek() == '\n') {
                 newLine();
@@ -146,15 +327,12 @@ public class VerseScanner {
 
         if (isAtEnd()) {
             error("Unterminated string");
-            return;
+            return null;
         }
 
         // The closing "
         advance();
-
-        // Trim the surrounding quotes
-        String value = source.substring(start + 1, current - 1);
-        addToken(TokenType.STRING, value);
+        return TokenType.STRING;
     }
 
     private void newLine() {
@@ -171,24 +349,24 @@ public class VerseScanner {
     }
 
     private char peek() {
-        if (isAtEnd()) {
+        if (!ensure(1)) {
             return '\0';
         }
 
-        return source.charAt(current);
+        return buffer[current];
     }
 
     private char peekNext() {
-        if (current + 1 >= source.length()) {
+        if (!ensure(2)) {
             return '\0';
         }
 
-        return source.charAt(current + 1);
+        return buffer[current + 1];
     }
 
     private char advance() {
         col++;
-        return source.charAt(current++);
+        return buffer[current++];
     }
 
     private void advanceTillEol() {
@@ -199,27 +377,71 @@ public class VerseScanner {
 
     private boolean advanceIf(char expected) {
         if (isAtEnd()) return false;
-        if (source.charAt(current) != expected) return false;
+        if (buffer[current] != expected) return false;
 
         current++;
         return true;
     }
 
-    private void addToken(TokenType type) {
-        addToken(type, null);
+    // the column the token being scanned started at
+    private int tokenCol() {
+        return col - (current - start);
     }
 
-    private void addToken(TokenType type, @Nullable Object literal) {
-        String text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line, col - (current - start)));
+    private String text(int from, int to) {
+        return new String(buffer, from, to - from);
     }
 
     private boolean isAtEnd() {
-        return current >= source.length();
+        return !ensure(1);
+    }
+
+    // makes sure at least count chars from current on are in the buffer, false if the input ends first
+    private boolean ensure(int count) {
+        while (limit - current < count) {
+            if (readerDone) {
+                return false;
+            }
+
+            fill();
+        }
+
+        return true;
+    }
+
+    private void fill() {
+        if (reader == null) {
+            readerDone = true;
+            return;
+        }
+
+        if (limit == buffer.length) {
+            if (start > 0) {
+                // only the token being scanned has to be kept, everything before it can go
+                System.arraycopy(buffer, start, buffer, 0, limit - start);
+                limit -= start;
+                current -= start;
+                start = 0;
+            } else {
+                // a single token longer than the buffer
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+
+        try {
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read == -1) {
+                readerDone = true;
+            } else {
+                limit += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     private void error(String message) {
-        VerseLang.syntaxError(line, col, message);
+        diagnostics.error(Stage.SYNTAX, line, col, message);
     }
 
 
@@ -0,0 +1,55 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.interpreter.VerseEnvironment;
+
+/**
+ * Base for the specializations of a binary operator. A node starts out as a
+ * {@link UninitializedBinaryNode}, which looks at the first operands it sees and replaces itself with
+ * an int or float node, or a {@link GenericBinaryNode} when the operands aren't a single type.
+ */
+public abstract class BinaryNode extends ExecNode {
+
+    protected final BinaryOp op;
+    protected final AstNode source;
+    protected ExecNode left;
+    protected ExecNode right;
+
+    protected BinaryNode(BinaryOp op, AstNode source, ExecNode left, ExecNode right) {
+        this.op = op;
+        this.source = source;
+        this.left = adopt(left);
+        this.right = adopt(right);
+    }
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        Object leftValue = left.execute(frame);
+        Object rightValue = right.execute(frame);
+        return executeWith(leftValue, rightValue);
+    }
+
+    protected abstract Object executeWith(Object leftValue, Object rightValue);
+
+    protected Object deoptimize(Object leftValue, Object rightValue) {
+        if (isReplaced()) {
+            return op.applyGeneric(source, leftValue, rightValue);
+        }
+
+        return replace(new GenericBinaryNode(op, source, left, right)).executeWith(leftValue, rightValue);
+    }
+
+    @Override
+    protected boolean replaceChild(ExecNode child, ExecNode replacement) {
+        if (child == left) {
+            left = replacement;
+        } else if (child == right) {
+            right = replacement;
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+
+}
@@ -0,0 +1,117 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.interpreter.VerseInterpreter;
+import dev.jok.verse.lexer.TokenType;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import dev.jok.verse.types.number.VNumber;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The operation a binary node performs, with a version for each type a node can specialize on.
+ */
+public enum BinaryOp {
+
+    ADD(true) {
+        int intValue(int left, int right) { return left + right; }
+        float floatValue(float left, float right) { return left + right; }
+        Object applyNumbers(VNumber<?> left, VNumber<?> right) { return left.add(right); }
+    },
+    SUBTRACT(true) {
+        int intValue(int left, int right) { return left - right; }
+        float floatValue(float left, float right) { return left - right; }
+        Object applyNumbers(VNumber<?> left, VNumber<?> right) { return left.subtract(right); }
+    },
+    MULTIPLY(true) {
+        int intValue(int left, int right) { return left * right; }
+        float floatValue(float left, float right) { return left * right; }
+        Object applyNumbers(VNumber<?> left, VNumber<?> right) { return left.multiply(right); }
+    },
+    DIVIDE(true) {
+        int intValue(int left, int right) { return left / right; }
+        float floatValue(float left, float right) { return left / right; }
+        Object applyNumbers(VNumber<?> left, VNumber<?> right) { return left.divide(right); }
+    },
+    EQUAL(false) {
+        Object applyInt(int left, int right) { return left == right; }
+        // same as VFloat.equals
+        Object applyFloat(float left, float right) { return Float.floatToIntBits(left) == Float.floatToIntBits(right); }
+        Object applyNumbers(VNumber<?> left, VNumber<?> right) { return left.equals(right); }
+
+        @Override
+        Object applyGeneric(AstNode source, Object left, Object right) {
+            return left.equals(right);
+        }
+    },
+    GREATER(false) {
+        Object applyInt(int left, int right) { return left > right; }
+        Object applyFloat(float left, float right) { return left > right; }
+        Object applyNumbers(VNumber<?> left, VNumber<?> right) { return left.greaterThan(right); }
+    },
+    GREATER_EQUAL(false) {
+        Object applyInt(int left, int right) { return left >= right; }
+        Object applyFloat(float left, float right) { return left >= right; }
+        Object applyNumbers(VNumber<?> left, VNumber<?> right) { return left.greaterThanOrEqual(right); }
+    },
+    LESS(false) {
+        Object applyInt(int left, int right) { return left < right; }
+        Object applyFloat(float left, float right) { return left < right; }
+        Object applyNumbers(VNumber<?> left, VNumber<?> right) { return left.lessThan(right); }
+    },
+    LESS_EQUAL(false) {
+        Object applyInt(int left, int right) { return left <= right; }
+        Object applyFloat(float left, float right) { return left <= right; }
+        Object applyNumbers(VNumber<?> left, VNumber<?> right) { return left.lessThanOrEqual(right); }
+    };
+
+    // whether the result is a number of the operands' type, rather than a logic
+    final boolean arithmetic;
+
+    BinaryOp(boolean arithmetic) {
+        this.arithmetic = arithmetic;
+    }
+
+    Object applyInt(int left, int right) {
+        return VInteger.valueOf(intValue(left, right));
+    }
+
+    Object applyFloat(float left, float right) {
+        return new VFloat(floatValue(left, right));
+    }
+
+    // the unboxed results of the arithmetic operators
+    int intValue(int left, int right) {
+        throw new IllegalStateException(this + " doesn't produce an int");
+    }
+
+    float floatValue(float left, float right) {
+        throw new IllegalStateException(this + " doesn't produce a float");
+    }
+
+    abstract Object applyNumbers(VNumber<?> left, VNumber<?> right);
+
+    Object applyGeneric(AstNode source, Object left, Object right) {
+        if (left instanceof VNumber<?> leftVal && right instanceof VNumber<?> rightVal) {
+            return applyNumbers(leftVal, rightVal);
+        }
+
+        throw VerseInterpreter.runtimeError(source, "Expected numbers");
+    }
+
+    public static @Nullable BinaryOp of(TokenType operator) {
+        return switch (operator) {
+            case PLUS -> ADD;
+            case MINUS -> SUBTRACT;
+            case STAR -> MULTIPLY;
+            case SLASH -> DIVIDE;
+            case EQUALS -> EQUAL;
+            case GREATER -> GREATER;
+            case GREATER_EQUAL -> GREATER_EQUAL;
+            case LESS -> LESS;
+            case LESS_EQUAL -> LESS_EQUAL;
+            default -> null;
+        };
+    }
+
+}
@@ -0,0 +1,65 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.interpreter.VerseEnvironment;
+
+/**
+ * Runs its statements in order and evaluates to the value of the last one.
+ */
+public class BlockNode extends ExecNode {
+
+    private final ExecNode[] statements;
+
+    public BlockNode(ExecNode[] statements) {
+        this.statements = adoptAll(statements);
+    }
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        if (statements.length == 0) {
+            return null;
+        }
+
+        executeAllButLast(frame);
+        return statements[statements.length - 1].execute(frame);
+    }
+
+    @Override
+    public int executeInt(VerseEnvironment frame) throws UnexpectedResultException {
+        if (statements.length == 0) {
+            throw new UnexpectedResultException(null);
+        }
+
+        executeAllButLast(frame);
+        return statements[statements.length - 1].executeInt(frame);
+    }
+
+    @Override
+    public float executeFloat(VerseEnvironment frame) throws UnexpectedResultException {
+        if (statements.length == 0) {
+            throw new UnexpectedResultException(null);
+        }
+
+        executeAllButLast(frame);
+        return statements[statements.length - 1].executeFloat(frame);
+    }
+
+    @Override
+    public void executeVoid(VerseEnvironment frame) {
+        for (ExecNode statement : statements) {
+            statement.executeVoid(frame);
+        }
+    }
+
+    // only the last statement's value is used
+    private void executeAllButLast(VerseEnvironment frame) {
+        for (int i = 0; i < statements.length - 1; i++) {
+            statements[i].executeVoid(frame);
+        }
+    }
+
+    @Override
+    protected boolean replaceChild(ExecNode child, ExecNode replacement) {
+        return replaceIn(statements, child, replacement);
+    }
+
+}
@@ -0,0 +1,37 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.types.expr.AstCallExpr;
+import dev.jok.verse.interpreter.VerseEnvironment;
+
+public abstract class CallNode extends ExecNode {
+
+    protected final AstCallExpr source;
+    protected final ExecNode[] arguments;
+
+    protected CallNode(AstCallExpr source, ExecNode[] arguments) {
+        this.source = source;
+        this.arguments = adoptAll(arguments);
+    }
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        return executeWith(evaluateArguments(frame));
+    }
+
+    protected Object[] evaluateArguments(VerseEnvironment frame) {
+        Object[] values = new Object[arguments.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = arguments[i].execute(frame);
+        }
+
+        return values;
+    }
+
+    protected abstract Object executeWith(Object[] values);
+
+    @Override
+    protected boolean replaceChild(ExecNode child, ExecNode replacement) {
+        return replaceIn(arguments, child, replacement);
+    }
+
+}
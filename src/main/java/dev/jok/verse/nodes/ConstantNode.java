@@ -0,0 +1,16 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.interpreter.VerseEnvironment;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class ConstantNode extends ExecNode {
+
+    private final Object value;
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        return value;
+    }
+
+}
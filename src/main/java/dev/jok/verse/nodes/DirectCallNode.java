@@ -0,0 +1,30 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.types.expr.AstCallExpr;
+import dev.jok.verse.interpreter.VerseEnvironment;
+
+public class DirectCallNode extends CallNode {
+
+    private final FunctionRoot target;
+
+    public DirectCallNode(FunctionRoot target, AstCallExpr source, ExecNode[] arguments) {
+        super(source, arguments);
+        this.target = target;
+    }
+
+    @Override
+    protected Object executeWith(Object[] values) {
+        return target.call(values);
+    }
+
+    @Override
+    public int executeInt(VerseEnvironment frame) throws UnexpectedResultException {
+        return target.callInt(evaluateArguments(frame));
+    }
+
+    @Override
+    public float executeFloat(VerseEnvironment frame) throws UnexpectedResultException {
+        return target.callFloat(evaluateArguments(frame));
+    }
+
+}
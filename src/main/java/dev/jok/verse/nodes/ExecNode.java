@@ -0,0 +1,120 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.interpreter.VerseEnvironment;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A node in the executable tree. Unlike the parser's AST, nodes are free to replace themselves with
+ * a more specialized (or more general) version of themselves while the program runs.
+ * <p>
+ * Parents that expect an int or a float call {@link #executeInt} or {@link #executeFloat}, which
+ * nodes specialized on that type override to produce it without boxing. Anything else falls back to
+ * {@link #execute} and throws {@link UnexpectedResultException} if the value isn't of that type.
+ */
+public abstract class ExecNode {
+
+    private @Nullable ExecNode parent;
+    private boolean replaced = false;
+
+    public abstract Object execute(VerseEnvironment frame);
+
+    public int executeInt(VerseEnvironment frame) throws UnexpectedResultException {
+        return expectInt(execute(frame));
+    }
+
+    public float executeFloat(VerseEnvironment frame) throws UnexpectedResultException {
+        return expectFloat(execute(frame));
+    }
+
+    /**
+     * Runs the node for its side effects only, so its value doesn't have to be boxed.
+     */
+    public void executeVoid(VerseEnvironment frame) {
+        execute(frame);
+    }
+
+    /**
+     * Swaps this node out of the tree for {@code replacement}, which takes over this node's parent.
+     * <p>
+     * Building a replacement re-parents this node's children, so check {@link #isReplaced()} first.
+     */
+    protected final <T extends ExecNode> T replace(T replacement) {
+        if (parent == null) {
+            throw new IllegalStateException("Tried to replace a node that isn't in a tree");
+        }
+
+        if (replaced || !parent.replaceChild(this, replacement)) {
+            throw new IllegalStateException("Tried to replace a node that has already been replaced");
+        }
+
+        ((ExecNode) replacement).parent = parent;
+        replaced = true;
+        return replacement;
+    }
+
+    /**
+     * A recursive call can specialize a node while an outer activation of the same node is still
+     * running. When that outer activation finishes it must not try to rewrite the tree again.
+     */
+    protected final boolean isReplaced() {
+        return replaced;
+    }
+
+    /**
+     * @return false if {@code child} is no longer one of this node's children
+     */
+    protected boolean replaceChild(ExecNode child, ExecNode replacement) {
+        return false;
+    }
+
+    protected final <T extends ExecNode> T adopt(T child) {
+        ((ExecNode) child).parent = this;
+        return child;
+    }
+
+    protected final ExecNode[] adoptAll(ExecNode[] children) {
+        for (ExecNode child : children) {
+            adopt(child);
+        }
+
+        return children;
+    }
+
+    protected static boolean replaceIn(ExecNode[] children, ExecNode child, ExecNode replacement) {
+        for (int i = 0; i < children.length; i++) {
+            if (children[i] == child) {
+                children[i] = replacement;
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    protected static int expectInt(Object value) throws UnexpectedResultException {
+        if (value instanceof VInteger integer) {
+            return integer.intValue();
+        }
+
+        throw new UnexpectedResultException(value);
+    }
+
+    protected static float expectFloat(Object value) throws UnexpectedResultException {
+        if (value instanceof VFloat number) {
+            return number.floatValue();
+        }
+
+        throw new UnexpectedResultException(value);
+    }
+
+    protected static boolean isTruthy(Object obj) {
+        if (obj instanceof Boolean val) {
+            return val;
+        }
+
+        return false;
+    }
+
+}
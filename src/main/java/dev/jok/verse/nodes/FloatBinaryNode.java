@@ -0,0 +1,64 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.interpreter.VerseEnvironment;
+import dev.jok.verse.types.number.VFloat;
+
+public class FloatBinaryNode extends BinaryNode {
+
+    public FloatBinaryNode(BinaryOp op, AstNode source, ExecNode left, ExecNode right) {
+        super(op, source, left, right);
+    }
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        float leftValue;
+        try {
+            leftValue = left.executeFloat(frame);
+        } catch (UnexpectedResultException e) {
+            return deoptimize(e.result, right.execute(frame));
+        }
+
+        float rightValue;
+        try {
+            rightValue = right.executeFloat(frame);
+        } catch (UnexpectedResultException e) {
+            return deoptimize(new VFloat(leftValue), e.result);
+        }
+
+        return op.applyFloat(leftValue, rightValue);
+    }
+
+    @Override
+    public float executeFloat(VerseEnvironment frame) throws UnexpectedResultException {
+        if (!op.arithmetic) {
+            return super.executeFloat(frame);
+        }
+
+        float leftValue;
+        try {
+            leftValue = left.executeFloat(frame);
+        } catch (UnexpectedResultException e) {
+            return expectFloat(deoptimize(e.result, right.execute(frame)));
+        }
+
+        float rightValue;
+        try {
+            rightValue = right.executeFloat(frame);
+        } catch (UnexpectedResultException e) {
+            return expectFloat(deoptimize(new VFloat(leftValue), e.result));
+        }
+
+        return op.floatValue(leftValue, rightValue);
+    }
+
+    @Override
+    protected Object executeWith(Object leftValue, Object rightValue) {
+        if (leftValue instanceof VFloat leftVal && rightValue instanceof VFloat rightVal) {
+            return op.applyFloat(leftVal.floatValue(), rightVal.floatValue());
+        }
+
+        return deoptimize(leftValue, rightValue);
+    }
+
+}
@@ -0,0 +1,48 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.interpreter.VerseEnvironment;
+import dev.jok.verse.types.number.VFloat;
+
+public class FloatNegateNode extends UnaryNode {
+
+    public FloatNegateNode(AstNode source, ExecNode operand) {
+        super(source, operand);
+    }
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        try {
+            return new VFloat(-operand.executeFloat(frame));
+        } catch (UnexpectedResultException e) {
+            return deoptimize(e.result);
+        }
+    }
+
+    @Override
+    public float executeFloat(VerseEnvironment frame) throws UnexpectedResultException {
+        try {
+            return -operand.executeFloat(frame);
+        } catch (UnexpectedResultException e) {
+            return expectFloat(deoptimize(e.result));
+        }
+    }
+
+    @Override
+    protected Object executeWith(Object value) {
+        if (value instanceof VFloat number) {
+            return new VFloat(-number.floatValue());
+        }
+
+        return deoptimize(value);
+    }
+
+    private Object deoptimize(Object value) {
+        if (isReplaced()) {
+            return GenericNegateNode.negate(source, value);
+        }
+
+        return replace(new GenericNegateNode(source, operand)).executeWith(value);
+    }
+
+}
@@ -0,0 +1,43 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.interpreter.VerseEnvironment;
+import dev.jok.verse.types.number.VFloat;
+
+public class FloatWriteVariableNode extends WriteVariableNode {
+
+    public FloatWriteVariableNode(int depth, int slot, ExecNode value) {
+        super(depth, slot, value);
+    }
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        try {
+            return new VFloat(executeFloat(frame));
+        } catch (UnexpectedResultException e) {
+            return e.result;
+        }
+    }
+
+    @Override
+    public float executeFloat(VerseEnvironment frame) throws UnexpectedResultException {
+        float result;
+        try {
+            result = value.executeFloat(frame);
+        } catch (UnexpectedResultException e) {
+            throw new UnexpectedResultException(deoptimize(frame, e.result));
+        }
+
+        frame.at(depth).setFloat(slot, result);
+        return result;
+    }
+
+    @Override
+    public void executeVoid(VerseEnvironment frame) {
+        try {
+            executeFloat(frame);
+        } catch (UnexpectedResultException e) {
+            // already stored by deoptimize
+        }
+    }
+
+}
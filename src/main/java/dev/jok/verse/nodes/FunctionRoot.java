@@ -0,0 +1,82 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.interpreter.VerseEnvironment;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The root of a function's node tree. The body is only built the first time the function is called.
+ */
+public class FunctionRoot extends ExecNode {
+
+    private final NodeInterpreter interpreter;
+    public final AstFunctionDecl declaration;
+    private @Nullable ExecNode body;
+
+    public FunctionRoot(NodeInterpreter interpreter, AstFunctionDecl declaration) {
+        this.interpreter = interpreter;
+        this.declaration = declaration;
+    }
+
+    /**
+     * Calls the function with already evaluated arguments. Any parameters without an argument are left unset.
+     */
+    public Object call(Object[] arguments) {
+        return execute(enter(arguments));
+    }
+
+    /**
+     * Same as {@link #call}, for callers that want an int back.
+     */
+    public int callInt(Object[] arguments) throws UnexpectedResultException {
+        return executeInt(enter(arguments));
+    }
+
+    public float callFloat(Object[] arguments) throws UnexpectedResultException {
+        return executeFloat(enter(arguments));
+    }
+
+    private VerseEnvironment enter(Object[] arguments) {
+        VerseEnvironment frame = new VerseEnvironment(interpreter.globals, declaration.frameSize);
+        for (int i = 0; i < arguments.length; i++) {
+            frame.define(i, arguments[i]);
+        }
+
+        return frame;
+    }
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        return body().execute(frame);
+    }
+
+    @Override
+    public int executeInt(VerseEnvironment frame) throws UnexpectedResultException {
+        return body().executeInt(frame);
+    }
+
+    @Override
+    public float executeFloat(VerseEnvironment frame) throws UnexpectedResultException {
+        return body().executeFloat(frame);
+    }
+
+    private ExecNode body() {
+        ExecNode body = this.body;
+        if (body == null) {
+            body = this.body = adopt(interpreter.builder.buildBody(declaration));
+        }
+
+        return body;
+    }
+
+    @Override
+    protected boolean replaceChild(ExecNode child, ExecNode replacement) {
+        if (child != body) {
+            return false;
+        }
+
+        body = replacement;
+        return true;
+    }
+
+}
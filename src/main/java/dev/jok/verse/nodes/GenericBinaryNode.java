@@ -0,0 +1,16 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.AstNode;
+
+public class GenericBinaryNode extends BinaryNode {
+
+    public GenericBinaryNode(BinaryOp op, AstNode source, ExecNode left, ExecNode right) {
+        super(op, source, left, right);
+    }
+
+    @Override
+    protected Object executeWith(Object leftValue, Object rightValue) {
+        return op.applyGeneric(source, leftValue, rightValue);
+    }
+
+}
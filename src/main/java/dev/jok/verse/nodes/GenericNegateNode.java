@@ -0,0 +1,26 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.interpreter.VerseInterpreter;
+import dev.jok.verse.types.number.VNumber;
+
+public class GenericNegateNode extends UnaryNode {
+
+    public GenericNegateNode(AstNode source, ExecNode operand) {
+        super(source, operand);
+    }
+
+    @Override
+    protected Object executeWith(Object value) {
+        return negate(source, value);
+    }
+
+    static Object negate(AstNode source, Object value) {
+        if (value instanceof VNumber<?> number) {
+            return number.negate();
+        }
+
+        throw VerseInterpreter.runtimeError(source, "Expected number");
+    }
+
+}
@@ -0,0 +1,18 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.interpreter.VerseEnvironment;
+
+public class GenericWriteVariableNode extends WriteVariableNode {
+
+    public GenericWriteVariableNode(int depth, int slot, ExecNode value) {
+        super(depth, slot, value);
+    }
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        Object result = value.execute(frame);
+        frame.setValue(depth, slot, result);
+        return result;
+    }
+
+}
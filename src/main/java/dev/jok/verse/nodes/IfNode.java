@@ -0,0 +1,68 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.interpreter.VerseEnvironment;
+
+public class IfNode extends ExecNode {
+
+    private ExecNode condition;
+    private ExecNode thenBranch;
+    private ExecNode elseBranch;
+
+    public IfNode(ExecNode condition, ExecNode thenBranch, ExecNode elseBranch) {
+        this.condition = adopt(condition);
+        this.thenBranch = adopt(thenBranch);
+        this.elseBranch = adopt(elseBranch);
+    }
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        if (isTruthy(condition.execute(frame))) {
+            return thenBranch.execute(frame);
+        }
+
+        return elseBranch.execute(frame);
+    }
+
+    @Override
+    public int executeInt(VerseEnvironment frame) throws UnexpectedResultException {
+        if (isTruthy(condition.execute(frame))) {
+            return thenBranch.executeInt(frame);
+        }
+
+        return elseBranch.executeInt(frame);
+    }
+
+    @Override
+    public float executeFloat(VerseEnvironment frame) throws UnexpectedResultException {
+        if (isTruthy(condition.execute(frame))) {
+            return thenBranch.executeFloat(frame);
+        }
+
+        return elseBranch.executeFloat(frame);
+    }
+
+    @Override
+    public void executeVoid(VerseEnvironment frame) {
+        if (isTruthy(condition.execute(frame))) {
+            thenBranch.executeVoid(frame);
+        } else {
+            elseBranch.executeVoid(frame);
+        }
+    }
+
+    @Override
+    protected boolean replaceChild(ExecNode child, ExecNode replacement) {
+        if (child == condition) {
+            condition = replacement;
+        } else if (child == thenBranch) {
+            thenBranch = replacement;
+        } else if (child == elseBranch) {
+            elseBranch = replacement;
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+
+}
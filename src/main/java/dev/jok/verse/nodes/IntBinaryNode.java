@@ -0,0 +1,64 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.interpreter.VerseEnvironment;
+import dev.jok.verse.types.number.VInteger;
+
+public class IntBinaryNode extends BinaryNode {
+
+    public IntBinaryNode(BinaryOp op, AstNode source, ExecNode left, ExecNode right) {
+        super(op, source, left, right);
+    }
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        int leftValue;
+        try {
+            leftValue = left.executeInt(frame);
+        } catch (UnexpectedResultException e) {
+            return deoptimize(e.result, right.execute(frame));
+        }
+
+        int rightValue;
+        try {
+            rightValue = right.executeInt(frame);
+        } catch (UnexpectedResultException e) {
+            return deoptimize(VInteger.valueOf(leftValue), e.result);
+        }
+
+        return op.applyInt(leftValue, rightValue);
+    }
+
+    @Override
+    public int executeInt(VerseEnvironment frame) throws UnexpectedResultException {
+        if (!op.arithmetic) {
+            return super.executeInt(frame);
+        }
+
+        int leftValue;
+        try {
+            leftValue = left.executeInt(frame);
+        } catch (UnexpectedResultException e) {
+            return expectInt(deoptimize(e.result, right.execute(frame)));
+        }
+
+        int rightValue;
+        try {
+            rightValue = right.executeInt(frame);
+        } catch (UnexpectedResultException e) {
+            return expectInt(deoptimize(VInteger.valueOf(leftValue), e.result));
+        }
+
+        return op.intValue(leftValue, rightValue);
+    }
+
+    @Override
+    protected Object executeWith(Object leftValue, Object rightValue) {
+        if (leftValue instanceof VInteger leftVal && rightValue instanceof VInteger rightVal) {
+            return op.applyInt(leftVal.intValue(), rightVal.intValue());
+        }
+
+        return deoptimize(leftValue, rightValue);
+    }
+
+}
@@ -0,0 +1,48 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.interpreter.VerseEnvironment;
+import dev.jok.verse.types.number.VInteger;
+
+public class IntNegateNode extends UnaryNode {
+
+    public IntNegateNode(AstNode source, ExecNode operand) {
+        super(source, operand);
+    }
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        try {
+            return VInteger.valueOf(-operand.executeInt(frame));
+        } catch (UnexpectedResultException e) {
+            return deoptimize(e.result);
+        }
+    }
+
+    @Override
+    public int executeInt(VerseEnvironment frame) throws UnexpectedResultException {
+        try {
+            return -operand.executeInt(frame);
+        } catch (UnexpectedResultException e) {
+            return expectInt(deoptimize(e.result));
+        }
+    }
+
+    @Override
+    protected Object executeWith(Object value) {
+        if (value instanceof VInteger integer) {
+            return VInteger.valueOf(-integer.intValue());
+        }
+
+        return deoptimize(value);
+    }
+
+    private Object deoptimize(Object value) {
+        if (isReplaced()) {
+            return GenericNegateNode.negate(source, value);
+        }
+
+        return replace(new GenericNegateNode(source, operand)).executeWith(value);
+    }
+
+}
@@ -0,0 +1,43 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.interpreter.VerseEnvironment;
+import dev.jok.verse.types.number.VInteger;
+
+public class IntWriteVariableNode extends WriteVariableNode {
+
+    public IntWriteVariableNode(int depth, int slot, ExecNode value) {
+        super(depth, slot, value);
+    }
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        try {
+            return VInteger.valueOf(executeInt(frame));
+        } catch (UnexpectedResultException e) {
+            return e.result;
+        }
+    }
+
+    @Override
+    public int executeInt(VerseEnvironment frame) throws UnexpectedResultException {
+        int result;
+        try {
+            result = value.executeInt(frame);
+        } catch (UnexpectedResultException e) {
+            throw new UnexpectedResultException(deoptimize(frame, e.result));
+        }
+
+        frame.at(depth).setInt(slot, result);
+        return result;
+    }
+
+    @Override
+    public void executeVoid(VerseEnvironment frame) {
+        try {
+            executeInt(frame);
+        } catch (UnexpectedResultException e) {
+            // already stored by deoptimize
+        }
+    }
+
+}
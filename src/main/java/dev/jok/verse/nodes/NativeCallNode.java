@@ -0,0 +1,20 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.types.expr.AstCallExpr;
+import dev.jok.verse.interpreter.NativeFunction;
+
+public class NativeCallNode extends CallNode {
+
+    private final NativeFunction target;
+
+    public NativeCallNode(NativeFunction target, AstCallExpr source, ExecNode[] arguments) {
+        super(source, arguments);
+        this.target = target;
+    }
+
+    @Override
+    protected Object executeWith(Object[] values) {
+        return target.invoke(values);
+    }
+
+}
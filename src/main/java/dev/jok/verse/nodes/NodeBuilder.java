@@ -0,0 +1,160 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.AstVisitor;
+import dev.jok.verse.ast.types.AstExpr;
+import dev.jok.verse.ast.types.AstParameter;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.AstType;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
+import dev.jok.verse.ast.types.decl.AstVariableDecl;
+import dev.jok.verse.ast.types.expr.*;
+import dev.jok.verse.ast.types.stmt.AstBlock;
+import dev.jok.verse.ast.types.stmt.AstExpressionStmt;
+import dev.jok.verse.interpreter.VerseInterpreter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Turns resolved AST into executable nodes. Every operator and call starts out uninitialized and
+ * specializes itself once it runs.
+ */
+@RequiredArgsConstructor
+public class NodeBuilder implements AstVisitor<ExecNode> {
+
+    private final NodeInterpreter interpreter;
+
+    public ExecNode buildBody(AstFunctionDecl function) {
+        return buildBlock(Objects.requireNonNull(function.body));
+    }
+
+    public BlockNode buildBlock(List<AstStmt> statements) {
+        ExecNode[] nodes = new ExecNode[statements.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = statements.get(i).accept(this);
+        }
+
+        return new BlockNode(nodes);
+    }
+
+    private ExecNode build(AstExpr expr) {
+        return expr.accept(this);
+    }
+
+    @Override
+    public ExecNode visitTypeExpr(AstType type) {
+        throw VerseInterpreter.runtimeError(type, "Types can't be executed");
+    }
+
+    @Override
+    public ExecNode visitFunctionDecl(AstFunctionDecl function) {
+        // functions are looked up through the function table, so the declaration itself does nothing
+        return new ConstantNode(null);
+    }
+
+    @Override
+    public ExecNode visitVariableDecl(AstVariableDecl variable) {
+        return new UninitializedWriteVariableNode(0, variable.slot, build(variable.initializer));
+    }
+
+    @Override
+    public ExecNode visitUsingDecl(AstUsingDecl using) {
+        // modules are only checked against each other by the ProjectCompiler, nothing is loaded at runtime
+        return new ConstantNode(null);
+    }
+
+    @Override
+    public ExecNode visitExpressionStmt(AstExpressionStmt expression) {
+        return build(expression.expression);
+    }
+
+    @Override
+    public ExecNode visitBlock(AstBlock block) {
+        return buildBlock(block.statements);
+    }
+
+    @Override
+    public ExecNode visitParameter(AstParameter parameter) {
+        throw VerseInterpreter.runtimeError(parameter, "Parameters can't be executed");
+    }
+
+    @Override
+    public ExecNode visitIf(AstIfExpr astIf) {
+        return new IfNode(build(astIf.condition), buildBlock(astIf.thenBranch), buildBlock(astIf.elseBranch));
+    }
+
+    @Override
+    public ExecNode visitAssignExpr(AstAssignExpr assign) {
+        if (assign.slot == -1) {
+            throw VerseInterpreter.internalError(assign, "Unresolved variable '" + assign.name.lexeme + "'.");
+        }
+
+        return new UninitializedWriteVariableNode(assign.depth, assign.slot, build(assign.value));
+    }
+
+    @Override
+    public ExecNode visitBinaryExpr(AstBinaryExpr binary) {
+        BinaryOp op = BinaryOp.of(binary.operator.type);
+        if (op == null) {
+            throw VerseInterpreter.internalError(binary, "Unknown binary operator: " + binary.operator.type);
+        }
+
+        return new UninitializedBinaryNode(op, binary, build(binary.left), build(binary.right));
+    }
+
+    @Override
+    public ExecNode visitGroupingExpr(AstGroupingExpr grouping) {
+        return build(grouping.expression);
+    }
+
+    @Override
+    public ExecNode visitLiteralExpr(AstLiteralExpr literal) {
+        return new ConstantNode(literal.value);
+    }
+
+    @Override
+    public ExecNode visitUnaryExpr(AstUnaryExpr unary) {
+        return switch (unary.operator.type) {
+            case MINUS -> new UninitializedNegateNode(unary, build(unary.right));
+            case NOT -> new NotNode(unary, build(unary.right));
+            default -> throw VerseInterpreter.internalError(unary, "Unknown unary operator: " + unary.operator.type);
+        };
+    }
+
+    @Override
+    public ExecNode visitVariableExpr(AstVariableExpr variable) {
+        if (variable.slot == -1) {
+            throw VerseInterpreter.internalError(variable, "Unresolved variable '" + variable.name.lexeme + "'.");
+        }
+
+        return new ReadVariableNode(variable.depth, variable.slot);
+    }
+
+    @Override
+    public ExecNode visitCallExpr(AstCallExpr call) {
+        ExecNode[] arguments = new ExecNode[call.arguments.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = build(call.arguments.get(i));
+        }
+
+        return new UninitializedCallNode(interpreter, call, arguments);
+    }
+
+    @Override
+    public ExecNode visitGetExpr(AstGetExpr get) {
+        throw VerseInterpreter.runtimeError(get, "Member access is not supported by the node interpreter yet");
+    }
+
+    @Override
+    public ExecNode visitSpawnExpr(AstSpawnExpr spawn) {
+        throw VerseInterpreter.runtimeError(spawn, "Tasks are only supported by the bytecode engine");
+    }
+
+    @Override
+    public ExecNode visitConcurrentExpr(AstConcurrentExpr concurrent) {
+        throw VerseInterpreter.runtimeError(concurrent, "Tasks are only supported by the bytecode engine");
+    }
+
+}
@@ -0,0 +1,54 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.interpreter.FunctionTable;
+import dev.jok.verse.interpreter.VerseCallable;
+import dev.jok.verse.interpreter.VerseEnvironment;
+import dev.jok.verse.interpreter.VerseFunction;
+import dev.jok.verse.interpreter.VerseNative;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs scripts on self-specializing node trees instead of walking the AST.
+ */
+public class NodeInterpreter {
+
+    final FunctionTable functions;
+    final VerseEnvironment globals;
+    final NodeBuilder builder = new NodeBuilder(this);
+    private final List<AstStmt> statements;
+    private final Map<AstFunctionDecl, FunctionRoot> roots = new HashMap<>();
+
+    public NodeInterpreter(List<AstStmt> statements, int globalFrameSize) {
+        this.statements = statements;
+        this.functions = FunctionTable.build(statements, new VerseNative());
+        this.globals = new VerseEnvironment(globalFrameSize);
+    }
+
+    /**
+     * Runs the top-level statements, which initializes the globals.
+     */
+    public void initialize() {
+        BlockNode root = builder.buildBlock(statements);
+        root.execute(globals);
+    }
+
+    public @Nullable FunctionRoot lookupFunction(String name) {
+        VerseCallable function = functions.lookup(name);
+        if (function instanceof VerseFunction verseFunction) {
+            return rootFor(verseFunction.declaration);
+        }
+
+        return null;
+    }
+
+    FunctionRoot rootFor(AstFunctionDecl declaration) {
+        return roots.computeIfAbsent(declaration, key -> new FunctionRoot(this, key));
+    }
+
+}
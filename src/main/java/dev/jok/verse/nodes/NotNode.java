@@ -0,0 +1,16 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.AstNode;
+
+public class NotNode extends UnaryNode {
+
+    public NotNode(AstNode source, ExecNode operand) {
+        super(source, operand);
+    }
+
+    @Override
+    protected Object executeWith(Object value) {
+        return !isTruthy(value);
+    }
+
+}
@@ -0,0 +1,37 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.interpreter.VerseEnvironment;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class ReadVariableNode extends ExecNode {
+
+    private final int depth;
+    private final int slot;
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        return frame.getValue(depth, slot);
+    }
+
+    @Override
+    public int executeInt(VerseEnvironment frame) throws UnexpectedResultException {
+        VerseEnvironment environment = frame.at(depth);
+        if (environment.holdsInt(slot)) {
+            return environment.getInt(slot);
+        }
+
+        return expectInt(environment.get(slot));
+    }
+
+    @Override
+    public float executeFloat(VerseEnvironment frame) throws UnexpectedResultException {
+        VerseEnvironment environment = frame.at(depth);
+        if (environment.holdsFloat(slot)) {
+            return environment.getFloat(slot);
+        }
+
+        return expectFloat(environment.get(slot));
+    }
+
+}
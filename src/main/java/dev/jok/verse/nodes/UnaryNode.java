@@ -0,0 +1,33 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.interpreter.VerseEnvironment;
+
+public abstract class UnaryNode extends ExecNode {
+
+    protected final AstNode source;
+    protected ExecNode operand;
+
+    protected UnaryNode(AstNode source, ExecNode operand) {
+        this.source = source;
+        this.operand = adopt(operand);
+    }
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        return executeWith(operand.execute(frame));
+    }
+
+    protected abstract Object executeWith(Object value);
+
+    @Override
+    protected boolean replaceChild(ExecNode child, ExecNode replacement) {
+        if (child != operand) {
+            return false;
+        }
+
+        operand = replacement;
+        return true;
+    }
+
+}
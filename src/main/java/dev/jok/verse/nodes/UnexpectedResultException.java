@@ -0,0 +1,17 @@
+package dev.jok.verse.nodes;
+
+/**
+ * Thrown by a typed execute method when the value isn't of the type asked for. It carries the value
+ * that was produced, so the caller can carry on with it without running anything again.
+ */
+public final class UnexpectedResultException extends Exception {
+
+    public final Object result;
+
+    public UnexpectedResultException(Object result) {
+        // thrown while respecializing, which is rare enough that a stack trace isn't worth the cost
+        super(null, null, false, false);
+        this.result = result;
+    }
+
+}
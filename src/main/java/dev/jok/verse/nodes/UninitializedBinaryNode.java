@@ -0,0 +1,31 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+
+public class UninitializedBinaryNode extends BinaryNode {
+
+    public UninitializedBinaryNode(BinaryOp op, AstNode source, ExecNode left, ExecNode right) {
+        super(op, source, left, right);
+    }
+
+    @Override
+    protected Object executeWith(Object leftValue, Object rightValue) {
+        if (isReplaced()) {
+            return op.applyGeneric(source, leftValue, rightValue);
+        }
+
+        BinaryNode specialized;
+        if (leftValue instanceof VInteger && rightValue instanceof VInteger) {
+            specialized = new IntBinaryNode(op, source, left, right);
+        } else if (leftValue instanceof VFloat && rightValue instanceof VFloat) {
+            specialized = new FloatBinaryNode(op, source, left, right);
+        } else {
+            specialized = new GenericBinaryNode(op, source, left, right);
+        }
+
+        return replace(specialized).executeWith(leftValue, rightValue);
+    }
+
+}
@@ -0,0 +1,62 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.types.expr.AstCallExpr;
+import dev.jok.verse.ast.types.expr.AstVariableExpr;
+import dev.jok.verse.interpreter.NativeFunction;
+import dev.jok.verse.interpreter.VerseCallable;
+import dev.jok.verse.interpreter.VerseFunction;
+import dev.jok.verse.interpreter.VerseInterpreter;
+
+/**
+ * Links the call to its target the first time it runs, then replaces itself with a call node that
+ * goes straight to that target.
+ */
+public class UninitializedCallNode extends CallNode {
+
+    private final NodeInterpreter interpreter;
+
+    public UninitializedCallNode(NodeInterpreter interpreter, AstCallExpr source, ExecNode[] arguments) {
+        super(source, arguments);
+        this.interpreter = interpreter;
+    }
+
+    @Override
+    protected Object executeWith(Object[] values) {
+        if (!(source.callee instanceof AstVariableExpr variable)) {
+            throw VerseInterpreter.runtimeError(source, "Can only call functions");
+        }
+
+        VerseCallable target = interpreter.functions.lookup(variable.name.symbol);
+        if (target == null) {
+            throw VerseInterpreter.runtimeError(source, "Undefined function '" + variable.name.lexeme + "'.");
+        }
+
+        if (target.arity() != arguments.length) {
+            throw VerseInterpreter.runtimeError(source, "Function '" + target.name() + "' expects " + target.arity() + " arguments but got " + arguments.length);
+        }
+
+        if (target instanceof NativeFunction nativeFunction) {
+            if (nativeFunction.getLinkError() != null) {
+                throw VerseInterpreter.runtimeError(source, nativeFunction.getLinkError());
+            }
+
+            if (isReplaced()) {
+                return nativeFunction.invoke(values);
+            }
+
+            return replace(new NativeCallNode(nativeFunction, source, arguments)).executeWith(values);
+        }
+
+        if (target instanceof VerseFunction verseFunction) {
+            FunctionRoot root = interpreter.rootFor(verseFunction.declaration);
+            if (isReplaced()) {
+                return root.call(values);
+            }
+
+            return replace(new DirectCallNode(root, source, arguments)).executeWith(values);
+        }
+
+        throw VerseInterpreter.runtimeError(source, "Unsupported call target '" + target.name() + "'");
+    }
+
+}
@@ -0,0 +1,31 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+
+public class UninitializedNegateNode extends UnaryNode {
+
+    public UninitializedNegateNode(AstNode source, ExecNode operand) {
+        super(source, operand);
+    }
+
+    @Override
+    protected Object executeWith(Object value) {
+        if (isReplaced()) {
+            return GenericNegateNode.negate(source, value);
+        }
+
+        UnaryNode specialized;
+        if (value instanceof VInteger) {
+            specialized = new IntNegateNode(source, operand);
+        } else if (value instanceof VFloat) {
+            specialized = new FloatNegateNode(source, operand);
+        } else {
+            specialized = new GenericNegateNode(source, operand);
+        }
+
+        return replace(specialized).executeWith(value);
+    }
+
+}
@@ -0,0 +1,36 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.interpreter.VerseEnvironment;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+
+public class UninitializedWriteVariableNode extends WriteVariableNode {
+
+    public UninitializedWriteVariableNode(int depth, int slot, ExecNode value) {
+        super(depth, slot, value);
+    }
+
+    @Override
+    public Object execute(VerseEnvironment frame) {
+        Object result = value.execute(frame);
+        if (result instanceof VInteger integer) {
+            frame.at(depth).setInt(slot, integer.intValue());
+            specialize(new IntWriteVariableNode(depth, slot, value));
+        } else if (result instanceof VFloat number) {
+            frame.at(depth).setFloat(slot, number.floatValue());
+            specialize(new FloatWriteVariableNode(depth, slot, value));
+        } else {
+            frame.setValue(depth, slot, result);
+            specialize(new GenericWriteVariableNode(depth, slot, value));
+        }
+
+        return result;
+    }
+
+    private void specialize(WriteVariableNode specialized) {
+        if (!isReplaced()) {
+            replace(specialized);
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package dev.jok.verse.nodes;
+
+import dev.jok.verse.interpreter.VerseEnvironment;
+
+/**
+ * Base for the specializations of a variable write. A write starts out as a
+ * {@link UninitializedWriteVariableNode}, which stores ints and floats unboxed from then on if that's
+ * what the first value was, and a {@link GenericWriteVariableNode} once anything else comes along.
+ */
+public abstract class WriteVariableNode extends ExecNode {
+
+    protected final int depth;
+    protected final int slot;
+    protected ExecNode value;
+
+    protected WriteVariableNode(int depth, int slot, ExecNode value) {
+        this.depth = depth;
+        this.slot = slot;
+        this.value = adopt(value);
+    }
+
+    // stores a value the specialization didn't expect, and stops expecting it
+    protected Object deoptimize(VerseEnvironment frame, Object result) {
+        frame.setValue(depth, slot, result);
+        if (!isReplaced()) {
+            replace(new GenericWriteVariableNode(depth, slot, value));
+        }
+
+        return result;
+    }
+
+    @Override
+    protected boolean replaceChild(ExecNode child, ExecNode replacement) {
+        if (child != value) {
+            return false;
+        }
+
+        value = replacement;
+        return true;
+    }
+
+}
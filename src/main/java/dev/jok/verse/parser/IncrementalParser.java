@@ -0,0 +1,325 @@
+package dev.jok.verse.parser;
+
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.diagnostic.Diagnostic;
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.lexer.TokenBuffer;
+import dev.jok.verse.lexer.TokenType;
+import dev.jok.verse.lexer.VerseScanner;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the tokens and AST of a file between edits, for tools that recheck a file on every change.
+ * <p>
+ * An edit is only relexed from the start of the top-level statement it's in up to the first old
+ * statement start the scanner lines up with again, and only the statements in between are parsed
+ * again. Everything before them is reused as it is, and everything after them is reused with its
+ * positions moved (see {@link TokenShifter}).
+ * <p>
+ * Errors are kept with the top-level statement they're in, so a reused statement still reports its
+ * own and a statement that was parsed again only reports its new ones.
+ */
+public class IncrementalParser {
+
+    private final boolean debug;
+    private char[] source;
+    private @Getter TokenBuffer tokens;
+    private @Getter List<AstStmt> statements;
+    // the index of the first token of each top-level statement
+    private int[] statementStarts;
+    // the errors in each top-level statement, and in whatever comes before the first one
+    private List<List<Diagnostic>> statementDiagnostics;
+    private List<Diagnostic> leadingDiagnostics;
+    // the errors in the file as it is now, rebuilt after every edit
+    private @Getter Diagnostics diagnostics;
+
+    public IncrementalParser(boolean debug, String source) {
+        this.debug = debug;
+        reparse(source.toCharArray());
+    }
+
+    public String getSource() {
+        return new String(source);
+    }
+
+    /**
+     * Replaces {@code length} chars at {@code offset} with the replacement, and returns the new
+     * top-level statements.
+     */
+    public List<AstStmt> edit(int offset, int length, String replacement) {
+        if (offset < 0 || length < 0 || offset + length > source.length) {
+            throw new IndexOutOfBoundsException("Edit of " + length + " chars at " + offset + " is outside of the " + source.length + " char source");
+        }
+
+        int delta = replacement.length() - length;
+        char[] newSource = new char[source.length + delta];
+        System.arraycopy(source, 0, newSource, 0, offset);
+        replacement.getChars(0, replacement.length(), newSource, offset);
+        System.arraycopy(source, offset + length, newSource, offset + replacement.length(), source.length - offset - length);
+
+        // the statement before the edit is relexed too, the new text could join onto its last token
+        int first = statementBefore(offset);
+        int restartToken = first > 0 ? statementStarts[first] : 0;
+
+        int restartOffset = 0;
+        int line = 1;
+        int col = 1;
+        if (restartToken > 0) {
+            // the scanner can only pick up cleanly right after a statement's terminator
+            int before = restartToken - 1;
+            TokenType type = tokens.type(before);
+            if (type == TokenType.NEW_LINE) {
+                line = tokens.line(before) + 1;
+            } else if (type == TokenType.SEMICOLON) {
+                line = tokens.line(before);
+                col = tokens.col(before) + 1;
+            } else {
+                return reparse(newSource);
+            }
+
+            restartOffset = tokens.end(before);
+        }
+
+        TokenBuffer newTokens = new TokenBuffer(newSource, tokens.size() + Math.max(delta, 0) / 4);
+        newTokens.addShifted(tokens, 0, restartToken, 0, 0, 0, -1);
+
+        // relex until a token starts where an old statement after the edit did, from there on the
+        // old tokens are the same, just moved
+        Collector collector = new Collector();
+        VerseScanner scanner = new VerseScanner(newSource, restartOffset, line, col, collector.diagnostics);
+        int candidate = first(offset + length);
+        TokenType type;
+        do {
+            int index = newTokens.size();
+            type = collector.scan(scanner, newTokens);
+
+            int start = newTokens.start(index);
+            while (candidate < statementStarts.length && tokens.start(statementStarts[candidate]) + delta < start) {
+                candidate++;
+            }
+
+            if (candidate < statementStarts.length && tokens.start(statementStarts[candidate]) + delta == start) {
+                int oldIndex = statementStarts[candidate];
+                int lineDelta = newTokens.line(index) - tokens.line(oldIndex);
+                int colDelta = newTokens.col(index) - tokens.col(oldIndex);
+                newTokens.truncate(index);
+                newTokens.addShifted(tokens, oldIndex, tokens.size(), delta, lineDelta, colDelta, tokens.line(oldIndex));
+                return finishEdit(newSource, newTokens, collector, first, restartToken, candidate, index - oldIndex, new TokenShifter(lineDelta, colDelta, tokens.line(oldIndex)));
+            }
+        } while (type != TokenType.EOF);
+
+        return finishEdit(newSource, newTokens, collector, first, restartToken, -1, 0, null);
+    }
+
+    // resync is the old statement the tokens lined up with again, or -1 if they never did
+    private List<AstStmt> finishEdit(char[] newSource, TokenBuffer newTokens, Collector collector, int first, int restartToken, int resync, int indexDelta, @Nullable TokenShifter shifter) {
+        int reused = Math.max(first, 0);
+        List<AstStmt> newStatements = new ArrayList<>(statements.subList(0, reused));
+        List<List<Diagnostic>> newDiagnostics = new ArrayList<>(statementDiagnostics.subList(0, reused));
+        int[] newStarts = Arrays.copyOf(statementStarts, Math.max(statementStarts.length, 16));
+        int count = reused;
+
+        VerseParser parser = new VerseParser(debug, newTokens, collector.diagnostics);
+        parser.seek(restartToken);
+
+        // parse until the parser is back at the start of a statement it already had
+        int candidate = resync;
+        int reuseFrom = -1;
+        while (!parser.skipBlankLines()) {
+            int position = parser.position();
+            if (candidate >= 0) {
+                while (candidate < statementStarts.length && statementStarts[candidate] + indexDelta < position) {
+                    candidate++;
+                }
+
+                if (candidate < statementStarts.length && statementStarts[candidate] + indexDelta == position) {
+                    reuseFrom = candidate;
+                    break;
+                }
+            }
+
+            if (count == newStarts.length) {
+                newStarts = Arrays.copyOf(newStarts, count * 2);
+            }
+
+            newStarts[count++] = position;
+            newStatements.add(parser.topLevelStatement());
+            newDiagnostics.add(collector.take());
+        }
+
+        // everything before the first statement is only scanned again when the edit is in it
+        List<Diagnostic> newLeading = restartToken == 0 ? new ArrayList<>() : leadingDiagnostics;
+        collector.attributeScanErrors(newStarts, count, newDiagnostics, newLeading);
+
+        if (reuseFrom >= 0) {
+            for (int i = reuseFrom; i < statements.size(); i++) {
+                if (count == newStarts.length) {
+                    newStarts = Arrays.copyOf(newStarts, count * 2);
+                }
+
+                AstStmt stmt = statements.get(i);
+                List<Diagnostic> stmtDiagnostics = statementDiagnostics.get(i);
+                newStarts[count++] = statementStarts[i] + indexDelta;
+                newStatements.add(shifter.isIdentity() ? stmt : shifter.shift(stmt));
+                newDiagnostics.add(shifter.isIdentity() || stmtDiagnostics.isEmpty() ? stmtDiagnostics : stmtDiagnostics.stream().map(shifter::shift).toList());
+            }
+        }
+
+        commit(newSource, newTokens, newStatements, Arrays.copyOf(newStarts, count), newDiagnostics, newLeading);
+        return statements;
+    }
+
+    // scans and parses the whole file again
+    private List<AstStmt> reparse(char[] newSource) {
+        Collector collector = new Collector();
+        VerseScanner scanner = new VerseScanner(newSource, 0, 1, 1, collector.diagnostics);
+        // roughly one token every four chars in typical code
+        TokenBuffer newTokens = new TokenBuffer(newSource, newSource.length / 4);
+        while (collector.scan(scanner, newTokens) != TokenType.EOF) { }
+
+        VerseParser parser = new VerseParser(debug, newTokens, collector.diagnostics);
+        List<AstStmt> parsed = new ArrayList<>();
+        List<List<Diagnostic>> parsedDiagnostics = new ArrayList<>();
+        int[] starts = new int[16];
+        while (!parser.skipBlankLines()) {
+            if (parsed.size() == starts.length) {
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+
+            starts[parsed.size()] = parser.position();
+            parsed.add(parser.topLevelStatement());
+            parsedDiagnostics.add(collector.take());
+        }
+
+        List<Diagnostic> leading = new ArrayList<>();
+        collector.attributeScanErrors(starts, parsed.size(), parsedDiagnostics, leading);
+        commit(newSource, newTokens, parsed, Arrays.copyOf(starts, parsed.size()), parsedDiagnostics, leading);
+        return statements;
+    }
+
+    // only replaces the state once the edit was parsed, so it's left as it was if parsing throws
+    private void commit(char[] newSource, TokenBuffer newTokens, List<AstStmt> newStatements, int[] newStarts, List<List<Diagnostic>> newDiagnostics, List<Diagnostic> newLeading) {
+        Diagnostics all = new Diagnostics();
+        for (Diagnostic diagnostic : newLeading) {
+            all.report(diagnostic);
+        }
+
+        for (List<Diagnostic> stmtDiagnostics : newDiagnostics) {
+            for (Diagnostic diagnostic : stmtDiagnostics) {
+                all.report(diagnostic);
+            }
+        }
+
+        source = newSource;
+        tokens = newTokens;
+        statements = newStatements;
+        statementStarts = newStarts;
+        statementDiagnostics = newDiagnostics;
+        leadingDiagnostics = newLeading;
+        diagnostics = all;
+    }
+
+    // the last statement starting before the offset, or -1 if there's none
+    private int statementBefore(int offset) {
+        int low = 0;
+        int high = statementStarts.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (tokens.start(statementStarts[mid]) < offset) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return found;
+    }
+
+    // the first statement starting at or after the offset
+    private int first(int offset) {
+        return statementBefore(offset) + 1;
+    }
+
+    /**
+     * Catches the errors of one scan and parse, so they can be kept with the statement they're in.
+     * Parse errors belong to the statement being parsed, scan errors to the statement their token
+     * ends up in, which is only known once the statements have been parsed.
+     */
+    private static final class Collector {
+
+        private final List<Diagnostic> reported = new ArrayList<>();
+        private final Diagnostics diagnostics = new Diagnostics(reported::add);
+        // each scan error, with the index of the token it was reported while scanning
+        private final List<Diagnostic> scanErrors = new ArrayList<>();
+        private int[] scanErrorTokens = new int[4];
+
+        private TokenType scan(VerseScanner scanner, TokenBuffer tokens) {
+            int index = tokens.size();
+            TokenType type = scanner.scanInto(tokens);
+            for (Diagnostic diagnostic : reported) {
+                if (scanErrors.size() == scanErrorTokens.length) {
+                    scanErrorTokens = Arrays.copyOf(scanErrorTokens, scanErrorTokens.length * 2);
+                }
+
+                scanErrorTokens[scanErrors.size()] = index;
+                scanErrors.add(diagnostic);
+            }
+
+            reported.clear();
+            return type;
+        }
+
+        // the errors reported since the last call
+        private List<Diagnostic> take() {
+            List<Diagnostic> taken = new ArrayList<>(reported);
+            reported.clear();
+            return taken;
+        }
+
+        // puts each scan error in front of the errors of the last statement starting at or before its token
+        private void attributeScanErrors(int[] starts, int count, List<List<Diagnostic>> statementDiagnostics, List<Diagnostic> leading) {
+            int owner = -1;
+            List<Diagnostic> ownerScanErrors = new ArrayList<>();
+            for (int i = 0; i < scanErrors.size(); i++) {
+                int token = scanErrorTokens[i];
+                int next = owner;
+                while (next + 1 < count && starts[next + 1] <= token) {
+                    next++;
+                }
+
+                if (next != owner) {
+                    prepend(statementDiagnostics, owner, ownerScanErrors, leading);
+                    owner = next;
+                    ownerScanErrors = new ArrayList<>();
+                }
+
+                ownerScanErrors.add(scanErrors.get(i));
+            }
+
+            prepend(statementDiagnostics, owner, ownerScanErrors, leading);
+        }
+
+        private static void prepend(List<List<Diagnostic>> statementDiagnostics, int owner, List<Diagnostic> scanErrors, List<Diagnostic> leading) {
+            if (scanErrors.isEmpty()) {
+                return;
+            }
+
+            if (owner == -1) {
+                leading.addAll(scanErrors);
+                return;
+            }
+
+            scanErrors.addAll(statementDiagnostics.get(owner));
+            statementDiagnostics.set(owner, scanErrors);
+        }
+
+    }
+
+}
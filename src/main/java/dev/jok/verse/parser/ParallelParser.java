@@ -0,0 +1,185 @@
+package dev.jok.verse.parser;
+
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.lexer.TokenBuffer;
+import dev.jok.verse.lexer.TokenType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses a scanned file on several threads. The tokens are split into chunks at lines that look like
+ * the start of a top-level statement, each chunk is parsed by its own {@link VerseParser}, and the
+ * results are joined back up in source order.
+ * <p>
+ * A split is only a guess, a chunk is kept if the chunk before it ended exactly where it starts,
+ * otherwise the statements around it are parsed again on the calling thread. Each chunk reports its
+ * errors into its own {@link Diagnostics}, which are only passed on once the chunk is kept, so the
+ * statements and the errors reported are always the same as a sequential parse's.
+ */
+public class ParallelParser {
+
+    // below this, the tasks cost more than parsing the chunk does
+    private static final int DEFAULT_MIN_CHUNK_TOKENS = 4096;
+
+    private final boolean debug;
+    private final TokenBuffer tokens;
+    private final Diagnostics diagnostics;
+    private final ForkJoinPool pool;
+    private final int minChunkTokens;
+
+    public ParallelParser(boolean debug, TokenBuffer tokens) {
+        this(debug, tokens, new Diagnostics());
+    }
+
+    public ParallelParser(boolean debug, TokenBuffer tokens, Diagnostics diagnostics) {
+        this(debug, tokens, diagnostics, ForkJoinPool.commonPool(), DEFAULT_MIN_CHUNK_TOKENS);
+    }
+
+    public ParallelParser(boolean debug, TokenBuffer tokens, Diagnostics diagnostics, ForkJoinPool pool, int minChunkTokens) {
+        this.debug = debug;
+        this.tokens = tokens;
+        this.diagnostics = diagnostics;
+        this.pool = pool;
+        this.minChunkTokens = minChunkTokens;
+    }
+
+    public @NotNull List<AstStmt> parse() {
+        int[] starts = chunkStarts();
+        if (starts.length == 1) {
+            return new VerseParser(debug, tokens, diagnostics).parse();
+        }
+
+        Chunk[] chunks = new Chunk[starts.length];
+        for (int i = 0; i < starts.length; i++) {
+            int end = i + 1 < starts.length ? starts[i + 1] : tokens.size();
+            chunks[i] = new Chunk(starts[i], end);
+        }
+
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(chunks);
+            }
+        });
+
+        return merge(chunks);
+    }
+
+    /**
+     * Joins the chunks up in order. When a chunk's last statement ran past the next chunk's start,
+     * the parse is carried on from where it really ended until it lines up with a chunk again.
+     */
+    private List<AstStmt> merge(Chunk[] chunks) {
+        List<AstStmt> statements = new ArrayList<>();
+        VerseParser parser = new VerseParser(debug, tokens, diagnostics);
+        int position = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk.start < position) {
+                continue;
+            }
+
+            parser.seek(position);
+            while (position < chunk.start && !parser.skipBlankLines()) {
+                if (parser.position() >= chunk.start) {
+                    break;
+                }
+
+                statements.add(parser.topLevelStatement());
+                position = parser.position();
+            }
+
+            position = parser.position();
+            if (position != chunk.start) {
+                continue;
+            }
+
+            diagnostics.reportAll(chunk.diagnostics);
+
+            if (chunk.failure != null) {
+                throw chunk.failure;
+            }
+
+            statements.addAll(chunk.statements);
+            position = chunk.parsedTo;
+        }
+
+        // the last chunk ran to the end of the file, or its statements were all parsed again above
+        parser.seek(position);
+        while (!parser.skipBlankLines()) {
+            statements.add(parser.topLevelStatement());
+        }
+
+        return statements;
+    }
+
+    /**
+     * Where each chunk starts: the first token of a line that starts in the first column, outside
+     * of any brackets. Top-level statements are the only thing written like that.
+     */
+    private int[] chunkStarts() {
+        int size = tokens.size();
+        int chunkTokens = Math.max(minChunkTokens, size / (pool.getParallelism() * 4));
+        int[] starts = new int[Math.max(size / chunkTokens, 1)];
+        int count = 1;
+
+        int depth = 0;
+        int next = chunkTokens;
+        for (int i = 1; i < size && count < starts.length; i++) {
+            TokenType type = tokens.type(i);
+            switch (type) {
+                case LEFT_PAREN, LEFT_BRACE, LEFT_BRACKET -> depth++;
+                case RIGHT_PAREN, RIGHT_BRACE, RIGHT_BRACKET -> depth = Math.max(depth - 1, 0);
+                default -> { }
+            }
+
+            if (i >= next && depth == 0 && tokens.col(i) == 1 && tokens.type(i - 1) == TokenType.NEW_LINE
+                    && type != TokenType.NEW_LINE && type != TokenType.EOF) {
+                starts[count++] = i;
+                next = i + chunkTokens;
+            }
+        }
+
+        return count == starts.length ? starts : Arrays.copyOf(starts, count);
+    }
+
+    private class Chunk extends RecursiveAction {
+
+        private final int start;
+        private final int end;
+        private final List<AstStmt> statements = new ArrayList<>();
+        private final Diagnostics diagnostics = new Diagnostics();
+        // thrown by a statement that couldn't be recovered from, after which there are no more statements
+        private @Nullable RuntimeException failure;
+        // where the last statement really ended, at or after end
+        private int parsedTo;
+
+        private Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            VerseParser parser = new VerseParser(debug, tokens, diagnostics);
+            parser.seek(start);
+            try {
+                while (!parser.skipBlankLines() && parser.position() < end) {
+                    statements.add(parser.topLevelStatement());
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+
+            parsedTo = parser.position();
+        }
+
+    }
+
+}
@@ -0,0 +1,266 @@
+package dev.jok.verse.parser;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.ast.AstVisitor;
+import dev.jok.verse.ast.types.AstExpr;
+import dev.jok.verse.ast.types.AstParameter;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.AstType;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
+import dev.jok.verse.ast.types.decl.AstVariableDecl;
+import dev.jok.verse.ast.types.expr.*;
+import dev.jok.verse.ast.types.stmt.AstBlock;
+import dev.jok.verse.ast.types.stmt.AstExpressionStmt;
+import dev.jok.verse.diagnostic.Diagnostic;
+import dev.jok.verse.lexer.Token;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Moves the tokens of a statement that was reused after an edit to where they are now. Lines after
+ * the edit move by {@code lineDelta}, and the rest of the line the edit ended on also moves by
+ * {@code colDelta}. Like the ConstantFolder, nodes are only rebuilt when one of their tokens moved.
+ */
+@RequiredArgsConstructor
+class TokenShifter implements AstVisitor<AstNode> {
+
+    private final int lineDelta;
+    private final int colDelta;
+    // the old line the edit ended on, the only one whose columns moved
+    private final int colLine;
+
+    public boolean isIdentity() {
+        return lineDelta == 0 && colDelta == 0;
+    }
+
+    // statements that failed to parse are left in the AST as null
+    public @Nullable AstStmt shift(@Nullable AstStmt stmt) {
+        return stmt != null ? (AstStmt) stmt.accept(this) : null;
+    }
+
+    private AstExpr shift(AstExpr expr) {
+        return (AstExpr) expr.accept(this);
+    }
+
+    private @Nullable AstType shiftType(@Nullable AstType type) {
+        return type != null ? (AstType) type.accept(this) : null;
+    }
+
+    private Token shift(Token token) {
+        int col = token.line == colLine ? token.col + colDelta : token.col;
+        if (lineDelta == 0 && col == token.col) {
+            return token;
+        }
+
+        return new Token(token.type, token.lexeme, token.literal, token.line + lineDelta, col, token.symbol);
+    }
+
+    // errors in a reused statement move with its tokens
+    public Diagnostic shift(Diagnostic diagnostic) {
+        int col = diagnostic.line == colLine ? diagnostic.col + colDelta : diagnostic.col;
+        if (lineDelta == 0 && col == diagnostic.col) {
+            return diagnostic;
+        }
+
+        return new Diagnostic(diagnostic.severity, diagnostic.stage, diagnostic.line + lineDelta, col, diagnostic.template, diagnostic.arguments);
+    }
+
+    private <T> List<T> shiftAll(List<T> nodes, Function<T, T> shift) {
+        List<T> shifted = null;
+        for (int i = 0; i < nodes.size(); i++) {
+            T node = nodes.get(i);
+            T result = shift.apply(node);
+            if (result != node && shifted == null) {
+                shifted = new ArrayList<>(nodes.subList(0, i));
+            }
+
+            if (shifted != null) {
+                shifted.add(result);
+            }
+        }
+
+        return shifted != null ? shifted : nodes;
+    }
+
+    @Override
+    public AstNode visitTypeExpr(AstType type) {
+        Token name = shift(type.name);
+        AstType keyType = shiftType(type.keyType);
+        if (name == type.name && keyType == type.keyType) {
+            return type;
+        }
+
+        return new AstType(name, type.array, type.map, keyType, type.optional);
+    }
+
+    @Override
+    public AstNode visitFunctionDecl(AstFunctionDecl function) {
+        Token name = shift(function.name);
+        List<AstType> specifiers = shiftAll(function.specifiers, this::shiftType);
+        List<AstType> effects = shiftAll(function.effects, this::shiftType);
+        List<AstParameter> parameters = shiftAll(function.parameters, parameter -> (AstParameter) parameter.accept(this));
+        AstType type = shiftType(function.type);
+        List<AstStmt> body = function.body != null ? shiftAll(function.body, this::shift) : null;
+        if (name == function.name && specifiers == function.specifiers && effects == function.effects
+                && parameters == function.parameters && type == function.type && body == function.body) {
+            return function;
+        }
+
+        return new AstFunctionDecl(name, specifiers, effects, parameters, type, body);
+    }
+
+    @Override
+    public AstNode visitVariableDecl(AstVariableDecl variable) {
+        Token name = shift(variable.name);
+        List<AstType> specifiers = shiftAll(variable.specifier, this::shiftType);
+        AstType type = shiftType(variable.type);
+        AstExpr initializer = shift(variable.initializer);
+        if (name == variable.name && specifiers == variable.specifier && type == variable.type && initializer == variable.initializer) {
+            return variable;
+        }
+
+        return new AstVariableDecl(name, specifiers, type, initializer, variable.mutable);
+    }
+
+    @Override
+    public AstNode visitUsingDecl(AstUsingDecl using) {
+        Token keyword = shift(using.keyword);
+        return keyword == using.keyword ? using : new AstUsingDecl(keyword, using.path);
+    }
+
+    @Override
+    public AstNode visitExpressionStmt(AstExpressionStmt expression) {
+        AstExpr shifted = shift(expression.expression);
+        return shifted == expression.expression ? expression : new AstExpressionStmt(shifted);
+    }
+
+    @Override
+    public AstNode visitBlock(AstBlock block) {
+        List<AstStmt> statements = shiftAll(block.statements, this::shift);
+        return statements == block.statements ? block : new AstBlock(statements);
+    }
+
+    @Override
+    public AstNode visitParameter(AstParameter parameter) {
+        Token name = shift(parameter.name);
+        AstType type = shiftType(parameter.type);
+        if (name == parameter.name && type == parameter.type) {
+            return parameter;
+        }
+
+        return new AstParameter(name, type);
+    }
+
+    @Override
+    public AstNode visitIf(AstIfExpr astIf) {
+        AstExpr condition = shift(astIf.condition);
+        List<AstStmt> thenBranch = shiftAll(astIf.thenBranch, this::shift);
+        List<AstStmt> elseBranch = shiftAll(astIf.elseBranch, this::shift);
+        if (condition == astIf.condition && thenBranch == astIf.thenBranch && elseBranch == astIf.elseBranch) {
+            return astIf;
+        }
+
+        return new AstIfExpr(condition, thenBranch, elseBranch);
+    }
+
+    @Override
+    public AstNode visitAssignExpr(AstAssignExpr assign) {
+        Token name = shift(assign.name);
+        AstExpr value = shift(assign.value);
+        if (name == assign.name && value == assign.value) {
+            return assign;
+        }
+
+        return new AstAssignExpr(name, value);
+    }
+
+    @Override
+    public AstNode visitBinaryExpr(AstBinaryExpr binary) {
+        AstExpr left = shift(binary.left);
+        Token operator = shift(binary.operator);
+        AstExpr right = shift(binary.right);
+        if (left == binary.left && operator == binary.operator && right == binary.right) {
+            return binary;
+        }
+
+        return new AstBinaryExpr(left, operator, right);
+    }
+
+    @Override
+    public AstNode visitGroupingExpr(AstGroupingExpr grouping) {
+        AstExpr expression = shift(grouping.expression);
+        return expression == grouping.expression ? grouping : new AstGroupingExpr(expression);
+    }
+
+    @Override
+    public AstNode visitLiteralExpr(AstLiteralExpr literal) {
+        return literal;
+    }
+
+    @Override
+    public AstNode visitUnaryExpr(AstUnaryExpr unary) {
+        Token operator = shift(unary.operator);
+        AstExpr right = shift(unary.right);
+        if (operator == unary.operator && right == unary.right) {
+            return unary;
+        }
+
+        return new AstUnaryExpr(operator, right);
+    }
+
+    @Override
+    public AstNode visitVariableExpr(AstVariableExpr variable) {
+        Token name = shift(variable.name);
+        return name == variable.name ? variable : new AstVariableExpr(name);
+    }
+
+    @Override
+    public AstNode visitCallExpr(AstCallExpr call) {
+        AstExpr callee = shift(call.callee);
+        List<AstExpr> arguments = shiftAll(call.arguments, this::shift);
+        if (callee == call.callee && arguments == call.arguments) {
+            return call;
+        }
+
+        return new AstCallExpr(callee, arguments);
+    }
+
+    @Override
+    public AstNode visitGetExpr(AstGetExpr get) {
+        AstExpr expr = shift(get.expr);
+        Token name = shift(get.name);
+        if (expr == get.expr && name == get.name) {
+            return get;
+        }
+
+        return new AstGetExpr(expr, name);
+    }
+
+    @Override
+    public AstNode visitSpawnExpr(AstSpawnExpr spawn) {
+        Token keyword = shift(spawn.keyword);
+        AstCallExpr call = (AstCallExpr) visitCallExpr(spawn.call);
+        if (keyword == spawn.keyword && call == spawn.call) {
+            return spawn;
+        }
+
+        return new AstSpawnExpr(keyword, call);
+    }
+
+    @Override
+    public AstNode visitConcurrentExpr(AstConcurrentExpr concurrent) {
+        Token keyword = shift(concurrent.keyword);
+        List<AstCallExpr> branches = shiftAll(concurrent.branches, call -> (AstCallExpr) visitCallExpr(call));
+        if (keyword == concurrent.keyword && branches == concurrent.branches) {
+            return concurrent;
+        }
+
+        return new AstConcurrentExpr(keyword, branches);
+    }
+
+}
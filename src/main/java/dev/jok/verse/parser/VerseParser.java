@@ -1,14 +1,21 @@
 package dev.jok.verse.parser;
 
-import dev.jok.verse.VerseLang;
 import dev.jok.verse.ast.types.*;
 import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
 import dev.jok.verse.ast.types.decl.AstVariableDecl;
 import dev.jok.verse.ast.types.expr.*;
 import dev.jok.verse.ast.types.stmt.AstBlock;
 import dev.jok.verse.ast.types.stmt.AstExpressionStmt;
+import dev.jok.verse.diagnostic.Diagnostic;
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.diagnostic.Severity;
+import dev.jok.verse.diagnostic.Stage;
+import dev.jok.verse.lexer.ListTokenSource;
 import dev.jok.verse.lexer.Token;
+import dev.jok.verse.lexer.TokenSource;
 import dev.jok.verse.lexer.TokenType;
+import lombok.Getter;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -23,26 +30,57 @@ public class VerseParser {
     private static final Set<TokenType> VALID_STATEMENT_ENDS = EnumSet.of(RIGHT_BRACE, SEMICOLON, NEW_LINE, EOF);
 
     private final boolean debug;
-    private final List<Token> tokens;
+    private final TokenSource tokens;
+    private final @Getter Diagnostics diagnostics;
     private int current = 0;
-    private int backtrackTo = -1;
 
     public VerseParser(boolean debug, List<Token> tokens) {
+        this(debug, new ListTokenSource(tokens));
+    }
+
+    public VerseParser(boolean debug, TokenSource tokens) {
+        this(debug, tokens, new Diagnostics());
+    }
+
+    public VerseParser(boolean debug, TokenSource tokens, Diagnostics diagnostics) {
         this.debug = debug;
         this.tokens = tokens;
+        this.diagnostics = diagnostics;
     }
 
     public @NotNull List<AstStmt> parse() {
         List<AstStmt> statements = new ArrayList<>();
 
         while (!eatBlankLines()) {
-            statements.add(declaration());
-            advanceExpressionEnd();
+            statements.add(topLevelStatement());
         }
 
         return statements;
     }
 
+    // IncrementalParser parses a file one top-level statement at a time, starting wherever it needs to
+
+    void seek(int position) {
+        current = position;
+    }
+
+    int position() {
+        return current;
+    }
+
+    /**
+     * Skips blank lines up to the next statement, true if the file ends first.
+     */
+    boolean skipBlankLines() {
+        return eatBlankLines();
+    }
+
+    @Nullable AstStmt topLevelStatement() {
+        AstStmt stmt = declaration(true);
+        advanceExpressionEnd();
+        return stmt;
+    }
+
     private List<AstStmt> anonymousBlock() {
         List<AstStmt> statements = new ArrayList<>();
 
@@ -51,22 +89,25 @@ public class VerseParser {
                 break;
             }
 
-            statements.add(declaration());
+            statements.add(declaration(false));
             advanceExpressionEnd();
         }
 
-        advanceExpectToken(RIGHT_BRACE, "after block");
+        advanceExpect(RIGHT_BRACE, "after block");
         return statements;
     }
 
-    private AstStmt declaration() {
+    private AstStmt declaration(boolean topLevel) {
         try {
+            // modules can only be brought in for the whole file
+            if (topLevel && advanceIfAny(USING)) {
+                return usingDecl();
+            }
+
             boolean mutableVar = advanceIfAny(VAR);
             if (peekExpectConditional(mutableVar, IDENTIFIER) && peekNextIsAny(ALLOWED_AFTER_DECL_IDENTIFIER)) {
-                // @Todo(Jok): I don't love backtracking!
-                try {
-                    markBacktrack();
-
+                // `Name(` is the only start shared with an expression, and it's decided before anything is consumed
+                if (mutableVar || !peekNextIs(LEFT_PAREN) || isFunctionDeclStart(1)) {
                     Token name = advanceExpectToken(IDENTIFIER, "in declaration");
                     List<AstType> specifiers = maybeSpecifiers("in declaration");
 
@@ -74,19 +115,12 @@ public class VerseParser {
                         return variableDecl(mutableVar, name, specifiers);
                     }
 
-                    if (!peekIs(LEFT_PAREN)) {
+                    // specifiers can only be on declarations, so this has to be a function
+                    if (!peekIs(LEFT_PAREN) || !isFunctionDeclStart(0)) {
                         throw error("Expected function definition but found {peek}");
                     }
 
-                    if (peekAfterTokenIs(RIGHT_PAREN, COLON)) {
-                        // must be a function decl
-                        return functionDecl(name, specifiers);
-                    } else {
-                        // not a function decl
-                        backtrack();
-                    }
-                } finally {
-                    unmarkBacktrack();
+                    return functionDecl(name, specifiers);
                 }
             }
 
@@ -102,71 +136,49 @@ public class VerseParser {
         }
     }
 
-    private boolean peekAfterTokenIs(TokenType untilToken, TokenType isToken) {
-        int advance = 1;
-        while (true) {
-            Token peek = peek(advance);
-            if (peek == null) {
-                return false;
-            }
-
-            // don't peek past a statement end
-            if (VALID_STATEMENT_ENDS.contains(peek.type)) {
-                return false;
-            }
-
-            if (peek.type == untilToken) {
-                Token afterToken = peek(advance + 1);
-                return afterToken != null && afterToken.type == isToken;
-            }
-
-            advance++;
-        }
-    }
-
-    private void markBacktrack() {
-        backtrackTo = current;
-    }
-
-    private void unmarkBacktrack() {
-        backtrackTo = -1;
-    }
-
-    private void backtrack() {
-        if (backtrackTo == -1) {
-            throw new IllegalStateException("Tried to backtrack but no backtrack point was set");
+    /**
+     * Whether the parameter list opened at the given offset is a function's rather than a call's
+     * arguments. Parameters are always {@code Name : type} and a call argument can never be followed
+     * by a {@code :}, so two tokens past the {@code (} are usually enough to tell. Without parameters
+     * it can also be {@code ()<effect>}, which a comparison can't look like either.
+     */
+    private boolean isFunctionDeclStart(int parenOffset) {
+        TokenType first = peekType(parenOffset + 1);
+        TokenType second = peekType(parenOffset + 2);
+        if (first == RIGHT_PAREN && second == LESS) {
+            return peekType(parenOffset + 3) == IDENTIFIER && peekType(parenOffset + 4) == GREATER;
         }
 
-        updateCurrentPosition(backtrackTo);
+        return (first == RIGHT_PAREN || first == IDENTIFIER) && second == COLON;
     }
 
     private AstFunctionDecl functionDecl(Token name, List<AstType> specifiers) {
-        advanceExpectToken(LEFT_PAREN, "in function declaration");
+        advanceExpect(LEFT_PAREN, "in function declaration");
 
         // parse parameters
         List<AstParameter> parameters = new ArrayList<>();
         if (!peekIs(RIGHT_PAREN)) {
             do {
                 Token parameterName = advanceExpectToken(IDENTIFIER, "in parameter declaration");
-                advanceExpectToken(COLON, "in parameter declaration");
+                advanceExpect(COLON, "in parameter declaration");
                 AstType parameterType = type("in parameter declaration");
 
                 parameters.add(new AstParameter(parameterName, parameterType));
             } while (advanceIfAny(COMMA));
         }
 
-        advanceExpectToken(RIGHT_PAREN, "in function declaration");
+        advanceExpect(RIGHT_PAREN, "in function declaration");
 
         List<AstType> effects = maybeSpecifiers("in function declaration");
 
-        advanceExpectToken(COLON, "in function declaration");
+        advanceExpect(COLON, "in function declaration");
         AstType type = type("in function declaration");
 
         // @Todo(Jok): don't require braces {  } (support :)
         List<AstStmt> body;
         if (peekIs(EQUALS)) {
-            advanceExpectToken(EQUALS, "in function declaration");
-            advanceExpectToken(LEFT_BRACE);
+            advanceExpect(EQUALS, "in function declaration");
+            advanceExpect(LEFT_BRACE);
             body = anonymousBlock();
         } else {
             body = null;
@@ -175,6 +187,25 @@ public class VerseParser {
         return new AstFunctionDecl(name, specifiers, effects, parameters, type, body);
     }
 
+    private AstUsingDecl usingDecl() {
+        Token keyword = peekPrevious();
+        advanceExpect(LEFT_BRACE, "after using");
+
+        // the path is kept as it's written, e.g. `LGLib.Base` or `/Verse.org/Simulation`
+        StringBuilder path = new StringBuilder();
+        while (peekIsAny(IDENTIFIER, DOT, SLASH)) {
+            path.append(peek().lexeme);
+            advance();
+        }
+
+        if (path.isEmpty()) {
+            throw error("Expected module path after using, instead got {peek}");
+        }
+
+        advanceExpect(RIGHT_BRACE, "after module path");
+        return new AstUsingDecl(keyword, path.toString());
+    }
+
     private AstVariableDecl variableDecl(boolean mutableVar, Token identifier, List<AstType> specifiers) {
         // mutables don't support inferred types currently
         if (mutableVar && peekIs(INFERRED_DECL)) {
@@ -185,9 +216,9 @@ public class VerseParser {
 
         // parse type if not inferred
         if (!advanceIfAny(INFERRED_DECL)) {
-            advanceExpectToken(COLON, "in variable definition");
+            advanceExpect(COLON, "in variable definition");
             type = type("in variable definition");
-            advanceExpectToken(EQUALS, "in variable definition");
+            advanceExpect(EQUALS, "in variable definition");
         }
 
         AstExpr initializer = expression();
@@ -199,7 +230,7 @@ public class VerseParser {
         if (advanceIfAny(LESS)) {
             do {
                 specifiers.add(type("specifier type", ""));
-                advanceExpectToken(GREATER, "after specifier type");
+                advanceExpect(GREATER, "after specifier type");
             } while (advanceIfAny(LESS));
         }
 
@@ -227,7 +258,7 @@ public class VerseParser {
                 array = true;
             }
 
-            advanceExpectToken(RIGHT_BRACKET, "in type declaration");
+            advanceExpect(RIGHT_BRACKET, "in type declaration");
         }
 
         boolean optional = advanceIfAny(QUESTION_MARK);
@@ -261,6 +292,13 @@ public class VerseParser {
     }
 
     private AstExpr assignment() {
+        if (advanceIfAny(SET)) {
+            Token name = advanceExpectToken(IDENTIFIER, "after `set`");
+            advanceExpect(EQUALS, "in set expression");
+            AstExpr value = assignment();
+            return new AstAssignExpr(name, value);
+        }
+
         AstExpr expr = ifExpr();
 
         if (advanceIfAny(EQUALS)) {
@@ -284,12 +322,12 @@ public class VerseParser {
             // @Todo(Jok) @Feat: in verse this weird syntax needs to be supported "if { maybe }"
             // @Todo(Jok) @Feat: ifs can also be in expressions, not just statements!
 
-            advanceExpectToken(LEFT_PAREN, "in if statement");
+            advanceExpect(LEFT_PAREN, "in if statement");
             AstExpr expr = expression();
-            advanceExpectToken(RIGHT_PAREN, "in if statement");
+            advanceExpect(RIGHT_PAREN, "in if statement");
 
             // @Todo(Jok) @Feat: don't require braces {  }
-            advanceExpectToken(LEFT_BRACE, "in if statement");
+            advanceExpect(LEFT_BRACE, "in if statement");
 
             // @Todo(Jok) @Feat: support then: block
             List<AstStmt> thenBranch = anonymousBlock();
@@ -297,7 +335,7 @@ public class VerseParser {
             List<AstStmt> elseBranch;
             if (advanceIfAny(ELSE)) {
                 // @Todo(Jok) @Feat: don't require braces {  }
-                advanceExpectToken(LEFT_BRACE, "in else statement");
+                advanceExpect(LEFT_BRACE, "in else statement");
                 elseBranch = anonymousBlock();
             } else {
                 elseBranch = Collections.emptyList();
@@ -398,7 +436,7 @@ public class VerseParser {
             } while (advanceIfAny(COMMA));
         }
 
-        advanceExpectToken(RIGHT_PAREN, "after function arguments");
+        advanceExpect(RIGHT_PAREN, "after function arguments");
 
         return new AstCallExpr(callee, arguments);
     }
@@ -420,6 +458,14 @@ public class VerseParser {
             return new AstVariableExpr(peekPrevious());
         }
 
+        if (advanceIfAny(SPAWN)) {
+            return spawnExpr();
+        }
+
+        if (advanceIfAny(SYNC, RACE, RUSH, BRANCH)) {
+            return concurrentExpr();
+        }
+
         // @Todo(Jok): add support for groups
 //        if (advanceIfAny(LEFT_PAREN)) {
 //            AstExpr expr = expression();
@@ -430,17 +476,63 @@ public class VerseParser {
         throw error("Expected expression, instead got {peek}");
     }
 
+    private AstSpawnExpr spawnExpr() {
+        Token keyword = peekPrevious();
+        // @Todo(Jok) @Feat: support spawn: blocks
+        advanceExpect(LEFT_BRACE, "after spawn");
+        eatBlankLines();
+
+        AstExpr expr = expression();
+        if (!(expr instanceof AstCallExpr call)) {
+            throw error("Expected a function call in spawn");
+        }
+
+        eatBlankLines();
+        advanceExpect(RIGHT_BRACE, "after spawn");
+        return new AstSpawnExpr(keyword, call);
+    }
+
+    private AstConcurrentExpr concurrentExpr() {
+        Token keyword = peekPrevious();
+        String context = "after " + keyword.lexeme;
+        // @Todo(Jok) @Feat: support blocks as branches, not just calls
+        advanceExpect(LEFT_BRACE, context);
+
+        List<AstCallExpr> branches = new ArrayList<>();
+        while (!eatBlankLines()) {
+            if (peekIs(RIGHT_BRACE)) {
+                break;
+            }
+
+            AstExpr expr = expression();
+            if (!(expr instanceof AstCallExpr call)) {
+                throw error("Expected a function call in " + keyword.lexeme);
+            }
+
+            branches.add(call);
+            advanceExpressionEnd();
+        }
+
+        advanceExpect(RIGHT_BRACE, context);
+
+        if (keyword.type == BRANCH ? branches.size() != 1 : branches.size() < 2) {
+            throw error(keyword.type == BRANCH ? "Expected a single call in branch" : "Expected at least two calls in " + keyword.lexeme);
+        }
+
+        return new AstConcurrentExpr(keyword, branches);
+    }
+
     private void synchronize() {
         advance();
 
         while (!isAtEnd()) {
-            if (VALID_STATEMENT_ENDS.contains(peek().type)) {
+            if (VALID_STATEMENT_ENDS.contains(peekType(0))) {
                 return;
             }
 
             // @Todo(Jok) @Important: add more keywords
-            switch (peek().type) {
-                case VAR, FOR, IF, RETURN -> {
+            switch (peekType(0)) {
+                case VAR, SET, FOR, IF, RETURN -> {
                     return;
                 }
             }
@@ -449,20 +541,8 @@ public class VerseParser {
         }
     }
 
-    private boolean peekIs(int offset, TokenType type) {
-        if (isAtEnd()) {
-            return type == EOF;
-        }
-
-        return peek().type == type;
-    }
-
     private boolean peekIs(TokenType type) {
-        if (isAtEnd()) {
-            return type == EOF;
-        }
-
-        return peek().type == type;
+        return peekType(0) == type;
     }
 
     private boolean peekNextIs(TokenType tokenType) {
@@ -470,7 +550,7 @@ public class VerseParser {
             return tokenType == EOF;
         }
 
-        return peekNext().type == tokenType;
+        return peekType(1) == tokenType;
     }
 
     private void errorIfPeekIs(String message, TokenType type) {
@@ -520,8 +600,7 @@ public class VerseParser {
     private boolean peekIsConsecutive(TokenType... types) {
         int advance = 0;
         for (TokenType type : types) {
-            Token ahead = peek(advance);
-            if (ahead == null || ahead.type != type) {
+            if (peekType(advance) != type) {
                 return false;
             }
 
@@ -534,8 +613,7 @@ public class VerseParser {
     private boolean advanceThroughIfConsecutive(TokenType... types) {
         int advance = 0;
         for (TokenType type : types) {
-            Token ahead = peek(advance);
-            if (ahead == null || ahead.type != type) {
+            if (peekType(advance) != type) {
                 return false;
             }
 
@@ -549,16 +627,17 @@ public class VerseParser {
         return true;
     }
 
-    private Token advance() {
+    private void advance() {
         if (!isAtEnd()) {
             updateCurrentPosition(current + 1);
         }
-
-        return peekPrevious();
     }
 
     private void updateCurrentPosition(int newCurrent) {
         current = newCurrent;
+
+        // nothing before the previous token is ever looked at again
+        tokens.release(current - 1);
     }
 
     private boolean advanceIfAny(TokenType... anyOfTypes) {
@@ -581,6 +660,17 @@ public class VerseParser {
         }
     }
 
+    // like advanceExpectToken, for when the token itself isn't needed
+    private void advanceExpect(TokenType tokenType) {
+        advanceExpect(tokenType, null);
+    }
+
+    private void advanceExpect(TokenType tokenType, @Nullable String context) {
+        if (!advanceIfAny(tokenType)) {
+            throw expectError(null, tokenType, context);
+        }
+    }
+
     private Token advanceExpectToken(TokenType tokenType) {
         return advanceExpectToken(tokenType, null);
     }
@@ -591,7 +681,8 @@ public class VerseParser {
 
     private Token advanceExpectToken(@Nullable String expectedName, TokenType tokenType, @Nullable String context) {
         if (peekIs(tokenType)) {
-            return advance();
+            advance();
+            return peekPrevious();
         }
 
         throw expectError(expectedName, tokenType, context);
@@ -602,7 +693,7 @@ public class VerseParser {
     }
 
     private boolean isAtEnd() {
-        return peek().type == EOF;
+        return peekType(0) == EOF;
     }
 
     private @NotNull Token peek() {
@@ -622,21 +713,51 @@ public class VerseParser {
         return peek(-1);
     }
 
+    // only the type, so sources like TokenBuffer don't have to make a Token for every check
+    private @Nullable TokenType peekType(int advance) {
+        int pos = current + advance;
+        if (pos < 0) {
+            return null;
+        }
+
+        return tokens.type(pos);
+    }
+
     private @Nullable Token peek(int advance) {
         int pos = current + advance;
-        if (pos >= tokens.size() || pos < 0) {
+        if (pos < 0) {
             return null;
         }
 
-        return tokens.get(pos);
+        return tokens.peek(pos);
     }
 
     private SyntaxError error(String message) {
-        unmarkBacktrack();
-        VerseLang.syntaxError(peekPrevious(), peek(), peekNext(), message);
-        return new SyntaxError();
+        Token previous = peekPrevious();
+        Token current = peek();
+        Token next = peekNext();
+        Map<String, String> arguments = Map.of(
+                "peek", current.errorString().toString(),
+                "peekNext", next != null ? next.errorString().toString() : "null",
+                "peekPrev", previous != null ? previous.errorString().toString() : "null");
+        diagnostics.report(new Diagnostic(Severity.ERROR, Stage.SYNTAX, current.line, current.col, message, arguments));
+
+        // only worth the stack trace when it's going to be printed
+        return debug ? new SyntaxError(true) : SyntaxError.RECOVER;
     }
 
-    private static class SyntaxError extends RuntimeException { }
+    /**
+     * Unwinds to the nearest statement to recover from an error. The error has already been reported
+     * by then, so this carries nothing and normally has no stack trace, and the one instance is shared.
+     */
+    private static class SyntaxError extends RuntimeException {
+
+        private static final SyntaxError RECOVER = new SyntaxError(false);
+
+        private SyntaxError(boolean stackTrace) {
+            super(null, null, false, stackTrace);
+        }
+
+    }
 
 }
@@ -0,0 +1,410 @@
+package dev.jok.verse.parser.pass;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.ast.AstVisitor;
+import dev.jok.verse.ast.types.AstExpr;
+import dev.jok.verse.ast.types.AstParameter;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.AstType;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
+import dev.jok.verse.ast.types.decl.AstVariableDecl;
+import dev.jok.verse.ast.types.expr.*;
+import dev.jok.verse.ast.types.stmt.AstBlock;
+import dev.jok.verse.ast.types.stmt.AstExpressionStmt;
+import dev.jok.verse.lexer.TokenType;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import dev.jok.verse.types.number.VNumber;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Folds constant expressions and simplifies arithmetic identities before the Resolver runs.
+ * <p>
+ * Folding uses the same {@link VNumber} operations the engines do, and anything that would fail at
+ * runtime (integer division by zero, mixing ints and floats, ...) is left alone so it still fails
+ * when, and only if, it runs. Nodes are only rebuilt when something inside them changed.
+ */
+public class ConstantFolder implements AstVisitor<AstNode> {
+
+    public List<AstStmt> fold(List<AstStmt> statements) {
+        return foldStatements(statements);
+    }
+
+    private List<AstStmt> foldStatements(List<AstStmt> statements) {
+        List<AstStmt> folded = null;
+        for (int i = 0; i < statements.size(); i++) {
+            AstStmt stmt = statements.get(i);
+            AstStmt result = fold(stmt);
+            if (result != stmt && folded == null) {
+                folded = new ArrayList<>(statements.subList(0, i));
+            }
+
+            if (folded != null) {
+                folded.add(result);
+            }
+        }
+
+        return folded != null ? folded : statements;
+    }
+
+    private AstStmt fold(AstStmt stmt) {
+        return (AstStmt) stmt.accept(this);
+    }
+
+    private AstExpr fold(AstExpr expr) {
+        return (AstExpr) expr.accept(this);
+    }
+
+    @Override
+    public AstNode visitTypeExpr(AstType type) {
+        return type;
+    }
+
+    @Override
+    public AstNode visitFunctionDecl(AstFunctionDecl function) {
+        if (function.body == null) {
+            return function;
+        }
+
+        List<AstStmt> body = foldStatements(function.body);
+        if (body == function.body) {
+            return function;
+        }
+
+        return new AstFunctionDecl(function.name, function.specifiers, function.effects, function.parameters, function.type, body);
+    }
+
+    @Override
+    public AstNode visitVariableDecl(AstVariableDecl variable) {
+        AstExpr initializer = fold(variable.initializer);
+        if (initializer == variable.initializer) {
+            return variable;
+        }
+
+        return new AstVariableDecl(variable.name, variable.specifier, variable.type, initializer, variable.mutable);
+    }
+
+    @Override
+    public AstNode visitUsingDecl(AstUsingDecl using) {
+        return using;
+    }
+
+    @Override
+    public AstNode visitExpressionStmt(AstExpressionStmt expression) {
+        AstExpr folded = fold(expression.expression);
+
+        // an if with a constant condition only ever runs one branch, which is just a block
+        if (folded instanceof AstIfExpr astIf && astIf.condition instanceof AstLiteralExpr literal) {
+            return new AstBlock(isTruthy(literal.value) ? astIf.thenBranch : astIf.elseBranch);
+        }
+
+        if (folded == expression.expression) {
+            return expression;
+        }
+
+        return new AstExpressionStmt(folded);
+    }
+
+    @Override
+    public AstNode visitBlock(AstBlock block) {
+        List<AstStmt> statements = foldStatements(block.statements);
+        if (statements == block.statements) {
+            return block;
+        }
+
+        return new AstBlock(statements);
+    }
+
+    @Override
+    public AstNode visitParameter(AstParameter parameter) {
+        return parameter;
+    }
+
+    @Override
+    public AstNode visitIf(AstIfExpr astIf) {
+        AstExpr condition = fold(astIf.condition);
+
+        // the condition is kept so the if still has a value, but the branch that can't run is dropped
+        if (condition instanceof AstLiteralExpr literal) {
+            if (isTruthy(literal.value)) {
+                return new AstIfExpr(condition, foldStatements(astIf.thenBranch), List.of());
+            }
+
+            return new AstIfExpr(condition, List.of(), foldStatements(astIf.elseBranch));
+        }
+
+        List<AstStmt> thenBranch = foldStatements(astIf.thenBranch);
+        List<AstStmt> elseBranch = foldStatements(astIf.elseBranch);
+        if (condition == astIf.condition && thenBranch == astIf.thenBranch && elseBranch == astIf.elseBranch) {
+            return astIf;
+        }
+
+        return new AstIfExpr(condition, thenBranch, elseBranch);
+    }
+
+    @Override
+    public AstNode visitAssignExpr(AstAssignExpr assign) {
+        AstExpr value = fold(assign.value);
+        if (value == assign.value) {
+            return assign;
+        }
+
+        return new AstAssignExpr(assign.name, value);
+    }
+
+    @Override
+    public AstNode visitBinaryExpr(AstBinaryExpr binary) {
+        AstExpr left = fold(binary.left);
+        AstExpr right = fold(binary.right);
+
+        if (left instanceof AstLiteralExpr leftLiteral && right instanceof AstLiteralExpr rightLiteral) {
+            Object value = evaluate(binary, leftLiteral.value, rightLiteral.value);
+            if (value != null) {
+                return new AstLiteralExpr(value);
+            }
+        }
+
+        AstExpr simplified = simplify(binary, left, right);
+        if (simplified != null) {
+            return simplified;
+        }
+
+        if (left == binary.left && right == binary.right) {
+            return binary;
+        }
+
+        return new AstBinaryExpr(left, binary.operator, right);
+    }
+
+    // the folded value, or null if the operation has to be left for runtime
+    private static @Nullable Object evaluate(AstBinaryExpr binary, Object left, Object right) {
+        if (binary.operator.type == TokenType.EQUALS) {
+            return left != null ? left.equals(right) : null;
+        }
+
+        if (!(left instanceof VNumber<?> leftVal) || !(right instanceof VNumber<?> rightVal)) {
+            return null;
+        }
+
+        try {
+            return switch (binary.operator.type) {
+                case PLUS -> leftVal.add(rightVal);
+                case MINUS -> leftVal.subtract(rightVal);
+                case STAR -> leftVal.multiply(rightVal);
+                case SLASH -> leftVal.divide(rightVal);
+                case GREATER -> leftVal.greaterThan(rightVal);
+                case GREATER_EQUAL -> leftVal.greaterThanOrEqual(rightVal);
+                case LESS -> leftVal.lessThan(rightVal);
+                case LESS_EQUAL -> leftVal.lessThanOrEqual(rightVal);
+                default -> null;
+            };
+        } catch (RuntimeException e) {
+            // division by zero, different types, ... have to happen when the expression runs
+            return null;
+        }
+    }
+
+    /**
+     * {@code X + 0}, {@code X * 1} and friends. Only safe when {@code X} is known to be the same kind
+     * of number as the literal, otherwise dropping the operation would also drop its type error.
+     */
+    private static @Nullable AstExpr simplify(AstBinaryExpr binary, AstExpr left, AstExpr right) {
+        return switch (binary.operator.type) {
+            // -0.0 + 0.0 is 0.0, so adding zero is only an identity for ints
+            case PLUS -> {
+                if (isInt(right, 0) && knownType(left) == VInteger.class) {
+                    yield left;
+                }
+
+                yield isInt(left, 0) && knownType(right) == VInteger.class ? right : null;
+            }
+
+            case MINUS -> isIdentity(right, 0, knownType(left)) ? left : null;
+
+            case STAR -> {
+                if (isIdentity(right, 1, knownType(left))) {
+                    yield left;
+                }
+
+                yield isIdentity(left, 1, knownType(right)) ? right : null;
+            }
+
+            case SLASH -> isIdentity(right, 1, knownType(left)) ? left : null;
+
+            default -> null;
+        };
+    }
+
+    private static boolean isIdentity(AstExpr expr, int value, @Nullable Class<?> otherType) {
+        if (otherType == VInteger.class) {
+            return isInt(expr, value);
+        }
+
+        if (otherType == VFloat.class) {
+            return expr instanceof AstLiteralExpr literal && literal.value instanceof VFloat number && number.floatValue() == value;
+        }
+
+        return false;
+    }
+
+    private static boolean isInt(AstExpr expr, int value) {
+        return expr instanceof AstLiteralExpr literal && literal.value instanceof VInteger integer && integer.intValue() == value;
+    }
+
+    // the number type an expression is guaranteed to produce if it doesn't fail, or null if we can't tell
+    private static @Nullable Class<?> knownType(AstExpr expr) {
+        if (expr instanceof AstLiteralExpr literal) {
+            return literal.value instanceof VNumber<?> ? literal.value.getClass() : null;
+        }
+
+        if (expr instanceof AstGroupingExpr grouping) {
+            return knownType(grouping.expression);
+        }
+
+        if (expr instanceof AstUnaryExpr unary && unary.operator.type == TokenType.MINUS) {
+            return knownType(unary.right);
+        }
+
+        // numbers only operate on their own type, so one known side decides the result
+        if (expr instanceof AstBinaryExpr binary) {
+            switch (binary.operator.type) {
+                case PLUS, MINUS, STAR, SLASH -> {
+                    Class<?> left = knownType(binary.left);
+                    return left != null ? left : knownType(binary.right);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public AstNode visitGroupingExpr(AstGroupingExpr grouping) {
+        AstExpr expression = fold(grouping.expression);
+        if (expression instanceof AstLiteralExpr) {
+            return expression;
+        }
+
+        if (expression == grouping.expression) {
+            return grouping;
+        }
+
+        return new AstGroupingExpr(expression);
+    }
+
+    @Override
+    public AstNode visitLiteralExpr(AstLiteralExpr literal) {
+        return literal;
+    }
+
+    @Override
+    public AstNode visitUnaryExpr(AstUnaryExpr unary) {
+        AstExpr right = fold(unary.right);
+
+        switch (unary.operator.type) {
+            case MINUS -> {
+                if (right instanceof AstLiteralExpr literal && literal.value instanceof VNumber<?> number) {
+                    return new AstLiteralExpr(number.negate());
+                }
+
+                // - -X is X, as long as X is a number
+                if (right instanceof AstUnaryExpr inner && inner.operator.type == TokenType.MINUS && knownType(inner.right) != null) {
+                    return inner.right;
+                }
+            }
+
+            case NOT -> {
+                if (right instanceof AstLiteralExpr literal) {
+                    return new AstLiteralExpr(!isTruthy(literal.value));
+                }
+            }
+        }
+
+        if (right == unary.right) {
+            return unary;
+        }
+
+        return new AstUnaryExpr(unary.operator, right);
+    }
+
+    @Override
+    public AstNode visitVariableExpr(AstVariableExpr variable) {
+        return variable;
+    }
+
+    @Override
+    public AstNode visitCallExpr(AstCallExpr call) {
+        AstExpr callee = fold(call.callee);
+
+        List<AstExpr> arguments = null;
+        for (int i = 0; i < call.arguments.size(); i++) {
+            AstExpr argument = call.arguments.get(i);
+            AstExpr result = fold(argument);
+            if (result != argument && arguments == null) {
+                arguments = new ArrayList<>(call.arguments.subList(0, i));
+            }
+
+            if (arguments != null) {
+                arguments.add(result);
+            }
+        }
+
+        if (callee == call.callee && arguments == null) {
+            return call;
+        }
+
+        return new AstCallExpr(callee, arguments != null ? arguments : call.arguments);
+    }
+
+    @Override
+    public AstNode visitGetExpr(AstGetExpr get) {
+        AstExpr expr = fold(get.expr);
+        if (expr == get.expr) {
+            return get;
+        }
+
+        return new AstGetExpr(expr, get.name);
+    }
+
+    @Override
+    public AstNode visitSpawnExpr(AstSpawnExpr spawn) {
+        AstCallExpr call = (AstCallExpr) visitCallExpr(spawn.call);
+        if (call == spawn.call) {
+            return spawn;
+        }
+
+        return new AstSpawnExpr(spawn.keyword, call);
+    }
+
+    @Override
+    public AstNode visitConcurrentExpr(AstConcurrentExpr concurrent) {
+        List<AstCallExpr> branches = null;
+        for (int i = 0; i < concurrent.branches.size(); i++) {
+            AstCallExpr branch = concurrent.branches.get(i);
+            AstCallExpr result = (AstCallExpr) visitCallExpr(branch);
+            if (result != branch && branches == null) {
+                branches = new ArrayList<>(concurrent.branches.subList(0, i));
+            }
+
+            if (branches != null) {
+                branches.add(result);
+            }
+        }
+
+        if (branches == null) {
+            return concurrent;
+        }
+
+        return new AstConcurrentExpr(concurrent.keyword, branches);
+    }
+
+    // same truthiness as the engines, only logic true is true
+    private static boolean isTruthy(Object value) {
+        return value instanceof Boolean logic && logic;
+    }
+
+}
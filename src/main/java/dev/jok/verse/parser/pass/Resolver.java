@@ -1,4 +1,375 @@
 package dev.jok.verse.parser.pass;
 
-public class Resolver {
+import dev.jok.verse.ast.AstVisitor;
+import dev.jok.verse.ast.types.AstExpr;
+import dev.jok.verse.ast.types.AstParameter;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.AstType;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
+import dev.jok.verse.ast.types.decl.AstVariableDecl;
+import dev.jok.verse.ast.types.expr.*;
+import dev.jok.verse.ast.types.stmt.AstBlock;
+import dev.jok.verse.ast.types.stmt.AstExpressionStmt;
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.diagnostic.Stage;
+import dev.jok.verse.lexer.Symbols;
+import dev.jok.verse.lexer.Token;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Works out where every variable lives before the interpreter runs.
+ * <p>
+ * Each function call (and the file itself) gets one flat frame of slots. Blocks inside a function
+ * don't get their own frame, they just allocate more slots in the enclosing one. Variable reads and
+ * assignments are then tagged with how many frames out the variable is ({@code depth}) and which
+ * slot it's in, so the interpreter never has to look anything up by name.
+ * <p>
+ * It also checks that {@code <suspends>} functions are only called from other {@code <suspends>}
+ * functions, or spawned as a task of their own, and that concurrency expressions are only used in
+ * {@code <suspends>} functions.
+ */
+@RequiredArgsConstructor
+public class Resolver implements AstVisitor<Void> {
+
+    private final Diagnostics diagnostics;
+    private @Nullable Frame frame;
+    private @Getter int globalFrameSize;
+    // how many calls have been numbered, each call's site is below it
+    private @Getter int callSiteCount;
+    private Set<String> imported = Set.of();
+    // the file's functions by name, for checking their effects at each call
+    private final Map<String, AstFunctionDecl> functions = new HashMap<>();
+    // whether the function being resolved is <suspends>
+    private boolean suspends = false;
+
+    public void resolve(List<AstStmt> statements) {
+        resolve(statements, Set.of());
+    }
+
+    /**
+     * Resolves a file that can also see the given names from the rest of its module and the modules
+     * it uses.
+     */
+    public void resolve(List<AstStmt> statements, Set<String> imported) {
+        this.imported = imported;
+        frame = new Frame(null);
+        frame.beginScope();
+        functions.clear();
+        callSiteCount = 0;
+
+        // top-level declarations are visible to the whole file, regardless of the order they're in
+        for (AstStmt stmt : statements) {
+            if (stmt instanceof AstVariableDecl variable) {
+                declare(variable);
+            } else if (stmt instanceof AstFunctionDecl function) {
+                functions.put(function.name.lexeme, function);
+            }
+        }
+
+        for (AstStmt stmt : statements) {
+            if (stmt instanceof AstVariableDecl variable) {
+                resolve(variable.initializer);
+            } else {
+                resolve(stmt);
+            }
+        }
+
+        globalFrameSize = frame.slotCount;
+        frame = null;
+    }
+
+    private void resolveStatements(List<AstStmt> statements) {
+        for (AstStmt stmt : statements) {
+            resolve(stmt);
+        }
+    }
+
+    private void resolve(AstStmt stmt) {
+        stmt.accept(this);
+    }
+
+    private void resolve(AstExpr expr) {
+        expr.accept(this);
+    }
+
+    private void resolveScoped(List<AstStmt> statements) {
+        currentFrame().beginScope();
+        resolveStatements(statements);
+        currentFrame().endScope();
+    }
+
+    @Override
+    public Void visitTypeExpr(AstType type) {
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionDecl(AstFunctionDecl function) {
+        if (function.body == null) {
+            return null;
+        }
+
+        Frame enclosing = currentFrame();
+        boolean enclosingSuspends = suspends;
+        frame = new Frame(enclosing);
+        frame.beginScope();
+        suspends = function.hasEffect(Symbols.SUSPENDS);
+
+        // parameters always take the first slots of the frame, in order
+        for (AstParameter parameter : function.parameters) {
+            define(parameter.name, false);
+        }
+
+        resolveStatements(function.body);
+
+        function.frameSize = frame.slotCount;
+        frame = enclosing;
+        suspends = enclosingSuspends;
+        return null;
+    }
+
+    @Override
+    public Void visitVariableDecl(AstVariableDecl variable) {
+        // resolve the initializer first so `X := X` doesn't see itself
+        resolve(variable.initializer);
+        declare(variable);
+        return null;
+    }
+
+    @Override
+    public Void visitUsingDecl(AstUsingDecl using) {
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStmt(AstExpressionStmt expression) {
+        resolve(expression.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(AstBlock block) {
+        resolveScoped(block.statements);
+        return null;
+    }
+
+    @Override
+    public Void visitParameter(AstParameter parameter) {
+        return null;
+    }
+
+    @Override
+    public Void visitIf(AstIfExpr astIf) {
+        resolve(astIf.condition);
+        resolveScoped(astIf.thenBranch);
+        resolveScoped(astIf.elseBranch);
+        return null;
+    }
+
+    @Override
+    public Void visitAssignExpr(AstAssignExpr assign) {
+        resolve(assign.value);
+
+        Resolved resolved = lookup(assign.name);
+        if (resolved == null) {
+            return null;
+        }
+
+        if (!resolved.binding.mutable) {
+            error(assign.name, "Cannot assign to `" + assign.name.lexeme + "`, it was not declared with `var`");
+        }
+
+        assign.depth = resolved.depth;
+        assign.slot = resolved.binding.slot;
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpr(AstBinaryExpr binary) {
+        resolve(binary.left);
+        resolve(binary.right);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpr(AstGroupingExpr grouping) {
+        resolve(grouping.expression);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpr(AstLiteralExpr literal) {
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpr(AstUnaryExpr unary) {
+        resolve(unary.right);
+        return null;
+    }
+
+    @Override
+    public Void visitVariableExpr(AstVariableExpr variable) {
+        Resolved resolved = lookup(variable.name);
+        if (resolved == null) {
+            return null;
+        }
+
+        variable.depth = resolved.depth;
+        variable.slot = resolved.binding.slot;
+        return null;
+    }
+
+    @Override
+    public Void visitCallExpr(AstCallExpr call) {
+        resolveCall(call, false);
+        return null;
+    }
+
+    @Override
+    public Void visitGetExpr(AstGetExpr get) {
+        resolve(get.expr);
+        return null;
+    }
+
+    @Override
+    public Void visitSpawnExpr(AstSpawnExpr spawn) {
+        resolveCall(spawn.call, true);
+        return null;
+    }
+
+    @Override
+    public Void visitConcurrentExpr(AstConcurrentExpr concurrent) {
+        // the branches are children of the task running this, so there has to be one
+        if (!suspends) {
+            error(concurrent.keyword, "`" + concurrent.keyword.lexeme + "` can only be used in a <suspends> function");
+        }
+
+        for (AstCallExpr branch : concurrent.branches) {
+            resolveCall(branch, true);
+        }
+
+        return null;
+    }
+
+    // a spawned call runs as its own task, so it's free to suspend wherever it's spawned from
+    private void resolveCall(AstCallExpr call, boolean spawned) {
+        // numbered again every time, since a call can be reused from an earlier parse (see IncrementalParser)
+        call.site = callSiteCount++;
+
+        // @Todo(Jok): functions aren't values yet, so a plain name callee is looked up as a function by the interpreter
+        if (!(call.callee instanceof AstVariableExpr)) {
+            resolve(call.callee);
+        }
+
+        for (AstExpr argument : call.arguments) {
+            resolve(argument);
+        }
+
+        if (!spawned && !suspends && call.callee instanceof AstVariableExpr callee) {
+            AstFunctionDecl function = functions.get(callee.name.lexeme);
+            if (function != null && function.hasEffect(Symbols.SUSPENDS)) {
+                error(callee.name, "`" + callee.name.lexeme + "` is <suspends>, so it can only be called from a <suspends> function or spawned");
+            }
+        }
+    }
+
+    private void declare(AstVariableDecl variable) {
+        variable.slot = define(variable.name, variable.mutable);
+    }
+
+    private int define(Token name, boolean mutable) {
+        Frame current = currentFrame();
+        Map<String, Binding> scope = current.scopes.peek();
+        if (scope == null) {
+            throw new IllegalStateException("Tried to declare a variable outside of a scope");
+        }
+
+        if (scope.containsKey(name.lexeme)) {
+            error(name, "`" + name.lexeme + "` is already defined in this scope");
+            return scope.get(name.lexeme).slot;
+        }
+
+        int slot = current.slotCount++;
+        scope.put(name.lexeme, new Binding(slot, mutable));
+        return slot;
+    }
+
+    private @Nullable Resolved lookup(Token name) {
+        int depth = 0;
+        for (Frame f = frame; f != null; f = f.enclosing, depth++) {
+            // ArrayDeque iterates from the most recently pushed scope, so inner scopes win
+            for (Map<String, Binding> scope : f.scopes) {
+                Binding binding = scope.get(name.lexeme);
+                if (binding != null) {
+                    return new Resolved(depth, binding);
+                }
+            }
+        }
+
+        // @Todo(Jok): files aren't linked into one program yet, so names from other files are only checked to exist
+        if (imported.contains(name.lexeme)) {
+            return null;
+        }
+
+        error(name, "Undefined variable `" + name.lexeme + "`");
+        return null;
+    }
+
+    private void error(Token token, String message) {
+        diagnostics.error(Stage.RESOLVE, token.line, token.col, message);
+    }
+
+    private @NotNull Frame currentFrame() {
+        if (frame == null) {
+            throw new IllegalStateException("Resolver is not resolving anything");
+        }
+
+        return frame;
+    }
+
+    @RequiredArgsConstructor
+    private static final class Frame {
+
+        private final @Nullable Frame enclosing;
+        private final Deque<Map<String, Binding>> scopes = new ArrayDeque<>();
+        private int slotCount = 0;
+
+        private void beginScope() {
+            scopes.push(new HashMap<>());
+        }
+
+        private void endScope() {
+            scopes.pop();
+        }
+
+    }
+
+    @RequiredArgsConstructor
+    private static final class Binding {
+
+        private final int slot;
+        private final boolean mutable;
+
+    }
+
+    @RequiredArgsConstructor
+    private static final class Resolved {
+
+        private final int depth;
+        private final Binding binding;
+
+    }
+
 }
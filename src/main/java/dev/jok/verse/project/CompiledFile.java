@@ -0,0 +1,25 @@
+package dev.jok.verse.project;
+
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.diagnostic.Diagnostics;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A file after its module has been analyzed, folded and resolved against the modules it uses.
+ */
+@RequiredArgsConstructor
+public class CompiledFile {
+
+    public final SourceFile source;
+    public final List<AstStmt> statements;
+    public final int globalFrameSize;
+    // errors from analyzing the file, its syntax errors are on the source
+    public final Diagnostics diagnostics;
+
+    public boolean hasErrors() {
+        return source.diagnostics.hasErrors() || diagnostics.hasErrors();
+    }
+
+}
@@ -0,0 +1,28 @@
+package dev.jok.verse.project;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * The result of building a project.
+ */
+@RequiredArgsConstructor
+public class ProjectBuild {
+
+    // every module, each one after the modules it uses
+    public final List<ProjectModule> modules;
+    // the names of the modules that had to be analyzed again, the rest were kept from the last build
+    public final List<String> rebuilt;
+
+    public boolean hasErrors() {
+        for (ProjectModule module : modules) {
+            if (module.hasErrors()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
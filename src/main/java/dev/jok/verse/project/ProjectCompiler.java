@@ -0,0 +1,323 @@
+package dev.jok.verse.project;
+
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
+import dev.jok.verse.ast.types.decl.AstVariableDecl;
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.diagnostic.Stage;
+import dev.jok.verse.lexer.Utf8Scanner;
+import dev.jok.verse.parser.VerseParser;
+import dev.jok.verse.parser.pass.ConstantFolder;
+import dev.jok.verse.parser.pass.Resolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Builds every {@code .verse} file under a source root. Each directory is a {@link ProjectModule},
+ * and the {@code using} declarations of its files make up the graph of which modules depend on
+ * which.
+ * <p>
+ * Changed files are scanned and parsed all at once, then modules are analyzed as soon as the modules
+ * they use are done, so modules that don't depend on each other are analyzed at the same time.
+ * <p>
+ * The compiler keeps the last build, and calling {@link #build()} again only parses files that
+ * changed, and only analyzes modules whose files changed or whose dependencies now define different
+ * names.
+ */
+public class ProjectCompiler {
+
+    public static final String EXTENSION = ".verse";
+
+    private final Path root;
+    private final boolean debug;
+    private final ForkJoinPool pool;
+
+    private Map<Path, SourceFile> sources = Map.of();
+    private Map<String, ProjectModule> modules = Map.of();
+
+    public ProjectCompiler(Path root, boolean debug) {
+        this(root, debug, ForkJoinPool.commonPool());
+    }
+
+    public ProjectCompiler(Path root, boolean debug, ForkJoinPool pool) {
+        this.root = root.toAbsolutePath().normalize();
+        this.debug = debug;
+        this.pool = pool;
+    }
+
+    public ProjectBuild build() throws IOException {
+        Map<String, List<Path>> paths = findModules();
+        Map<Path, SourceFile> parsed = parseChanged(paths);
+
+        Map<String, List<SourceFile>> moduleSources = new TreeMap<>();
+        for (Map.Entry<String, List<Path>> entry : paths.entrySet()) {
+            List<SourceFile> files = new ArrayList<>();
+            for (Path path : entry.getValue()) {
+                files.add(parsed.get(path));
+            }
+
+            moduleSources.put(entry.getKey(), files);
+        }
+
+        Map<String, List<String>> dependencies = new HashMap<>();
+        for (Map.Entry<String, List<SourceFile>> entry : moduleSources.entrySet()) {
+            dependencies.put(entry.getKey(), dependencies(entry.getValue(), moduleSources.keySet()));
+        }
+
+        List<String> order = new ArrayList<>();
+        Set<String> cyclic = sort(dependencies, order);
+
+        Map<String, CompletableFuture<ProjectModule>> futures = new HashMap<>();
+        List<String> rebuilt = Collections.synchronizedList(new ArrayList<>());
+        for (String name : order) {
+            List<CompletableFuture<ProjectModule>> used = new ArrayList<>();
+            for (String dependency : dependencies.get(name)) {
+                used.add(futures.get(dependency));
+            }
+
+            futures.put(name, CompletableFuture.allOf(used.toArray(CompletableFuture[]::new)).thenApplyAsync(done -> {
+                List<ProjectModule> usedModules = used.stream().map(CompletableFuture::join).toList();
+                return analyze(name, moduleSources.get(name), dependencies.get(name), usedModules, moduleSources.keySet(), rebuilt);
+            }, pool));
+        }
+
+        Map<String, ProjectModule> built = new HashMap<>();
+        List<ProjectModule> result = new ArrayList<>();
+        for (String name : order) {
+            ProjectModule module = join(futures.get(name));
+            built.put(name, module);
+            result.add(module);
+        }
+
+        // modules that can't be ordered are only checked for syntax errors
+        for (String name : cyclic) {
+            result.add(cycleError(name, moduleSources.get(name), dependencies.get(name), cyclic));
+        }
+
+        sources = parsed;
+        modules = built;
+        rebuilt.sort(Comparator.comparingInt(order::indexOf));
+        return new ProjectBuild(result, List.copyOf(rebuilt));
+    }
+
+    /**
+     * The files of each module, by the module's name. Modules are in name order, and their files in
+     * path order, so every build sees them the same way.
+     */
+    private Map<String, List<Path>> findModules() throws IOException {
+        Map<String, List<Path>> paths = new TreeMap<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(path -> path.getFileName().toString().endsWith(EXTENSION) && Files.isRegularFile(path))
+                    .sorted()
+                    .forEach(path -> paths.computeIfAbsent(moduleName(path.getParent()), name -> new ArrayList<>()).add(path));
+        }
+
+        return paths;
+    }
+
+    private String moduleName(Path directory) {
+        if (directory.equals(root)) {
+            Path name = root.getFileName();
+            return name != null ? name.toString() : "";
+        }
+
+        StringJoiner name = new StringJoiner(".");
+        for (Path part : root.relativize(directory)) {
+            name.add(part.toString());
+        }
+
+        return name.toString();
+    }
+
+    private Map<Path, SourceFile> parseChanged(Map<String, List<Path>> paths) throws IOException {
+        Map<Path, SourceFile> parsed = new HashMap<>();
+        Map<Path, CompletableFuture<SourceFile>> parsing = new HashMap<>();
+        for (List<Path> files : paths.values()) {
+            for (Path path : files) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                SourceFile previous = sources.get(path);
+                if (previous != null && previous.isUpToDate(attributes)) {
+                    parsed.put(path, previous);
+                } else {
+                    parsing.put(path, CompletableFuture.supplyAsync(() -> parse(path, attributes), pool));
+                }
+            }
+        }
+
+        for (Map.Entry<Path, CompletableFuture<SourceFile>> entry : parsing.entrySet()) {
+            parsed.put(entry.getKey(), join(entry.getValue()));
+        }
+
+        return parsed;
+    }
+
+    private SourceFile parse(Path path, BasicFileAttributes attributes) {
+        byte[] source;
+        try {
+            source = Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Diagnostics diagnostics = new Diagnostics();
+        VerseParser parser = new VerseParser(debug, new Utf8Scanner(ByteBuffer.wrap(source), diagnostics).scanBuffer(), diagnostics);
+
+        List<AstStmt> statements;
+        try {
+            statements = parser.parse();
+        } catch (RuntimeException e) {
+            // the error that stopped the parse has been reported, the file just has no statements
+            statements = List.of();
+        }
+
+        List<AstUsingDecl> usings = new ArrayList<>();
+        for (AstStmt stmt : statements) {
+            if (stmt instanceof AstUsingDecl using) {
+                usings.add(using);
+            }
+        }
+
+        return new SourceFile(path, attributes.lastModifiedTime().toMillis(), attributes.size(), statements, usings, diagnostics);
+    }
+
+    private static List<String> dependencies(List<SourceFile> files, Set<String> moduleNames) {
+        Set<String> dependencies = new LinkedHashSet<>();
+        for (SourceFile file : files) {
+            for (AstUsingDecl using : file.usings) {
+                if (moduleNames.contains(using.path)) {
+                    dependencies.add(using.path);
+                }
+            }
+        }
+
+        return List.copyOf(dependencies);
+    }
+
+    /**
+     * Puts the modules in an order where each one comes after the modules it uses, and returns the
+     * modules that can't be, because they're part of a cycle or use a module that is.
+     */
+    private static Set<String> sort(Map<String, List<String>> dependencies, List<String> order) {
+        Map<String, Integer> remaining = new TreeMap<>();
+        Map<String, List<String>> dependents = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : dependencies.entrySet()) {
+            remaining.put(entry.getKey(), entry.getValue().size());
+            for (String dependency : entry.getValue()) {
+                dependents.computeIfAbsent(dependency, name -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+
+        Deque<String> ready = new ArrayDeque<>();
+        remaining.forEach((name, count) -> {
+            if (count == 0) {
+                ready.add(name);
+            }
+        });
+
+        while (!ready.isEmpty()) {
+            String name = ready.poll();
+            remaining.remove(name);
+            order.add(name);
+            for (String dependent : dependents.getOrDefault(name, List.of())) {
+                if (remaining.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        return remaining.keySet();
+    }
+
+    private ProjectModule analyze(String name, List<SourceFile> files, List<String> dependencies, List<ProjectModule> used, Set<String> moduleNames, List<String> rebuilt) {
+        Set<String> exports = exports(files);
+        Set<String> imported = new HashSet<>(exports);
+        for (ProjectModule module : used) {
+            imported.addAll(module.exports);
+        }
+
+        ProjectModule previous = modules.get(name);
+        if (previous != null && previous.sources.equals(files) && previous.dependencies.equals(dependencies) && previous.imported.equals(imported)) {
+            return previous;
+        }
+
+        rebuilt.add(name);
+
+        List<CompiledFile> compiled = new ArrayList<>();
+        for (SourceFile file : files) {
+            Diagnostics diagnostics = new Diagnostics();
+            for (AstUsingDecl using : file.usings) {
+                if (!using.isExternal() && !moduleNames.contains(using.path)) {
+                    diagnostics.error(Stage.RESOLVE, using.keyword.line, using.keyword.col, "Unknown module `" + using.path + "`");
+                }
+            }
+
+            // like a single file, a file with syntax errors isn't analyzed any further
+            if (file.diagnostics.hasErrors()) {
+                compiled.add(new CompiledFile(file, file.statements, 0, diagnostics));
+                continue;
+            }
+
+            List<AstStmt> statements = new ConstantFolder().fold(file.statements);
+            Resolver resolver = new Resolver(diagnostics);
+            resolver.resolve(statements, imported);
+            compiled.add(new CompiledFile(file, statements, resolver.getGlobalFrameSize(), diagnostics));
+        }
+
+        return new ProjectModule(name, files, dependencies, compiled, exports, imported);
+    }
+
+    private static ProjectModule cycleError(String name, List<SourceFile> files, List<String> dependencies, Set<String> cyclic) {
+        List<CompiledFile> compiled = new ArrayList<>();
+        for (SourceFile file : files) {
+            Diagnostics diagnostics = new Diagnostics();
+            for (AstUsingDecl using : file.usings) {
+                if (cyclic.contains(using.path)) {
+                    diagnostics.error(Stage.RESOLVE, using.keyword.line, using.keyword.col, "Module `" + using.path + "` is part of, or uses, a cycle of modules that use each other");
+                }
+            }
+
+            compiled.add(new CompiledFile(file, file.statements, 0, diagnostics));
+        }
+
+        return new ProjectModule(name, files, dependencies, compiled, exports(files), Set.of());
+    }
+
+    private static Set<String> exports(List<SourceFile> files) {
+        Set<String> exports = new HashSet<>();
+        for (SourceFile file : files) {
+            for (AstStmt stmt : file.statements) {
+                if (stmt instanceof AstVariableDecl variable) {
+                    exports.add(variable.name.lexeme);
+                } else if (stmt instanceof AstFunctionDecl function) {
+                    exports.add(function.name.lexeme);
+                }
+            }
+        }
+
+        return exports;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+}
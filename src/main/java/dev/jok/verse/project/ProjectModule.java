@@ -0,0 +1,36 @@
+package dev.jok.verse.project;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The files in one directory of a project. {@code using { LGLib.Base }} refers to the module in the
+ * {@code LGLib/Base} directory under the source root, and files directly in the root make up a
+ * module named after the root.
+ */
+@RequiredArgsConstructor
+public class ProjectModule {
+
+    public final String name;
+    public final List<SourceFile> sources;
+    // the project modules this one uses, modules from outside the project aren't included
+    public final List<String> dependencies;
+    public final List<CompiledFile> files;
+    // the top-level names the module defines, which are visible to every module that uses it
+    public final Set<String> exports;
+    // the names the files were resolved against, if they change the module has to be analyzed again
+    final Set<String> imported;
+
+    public boolean hasErrors() {
+        for (CompiledFile file : files) {
+            if (file.hasErrors()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
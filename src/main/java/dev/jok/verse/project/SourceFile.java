@@ -0,0 +1,31 @@
+package dev.jok.verse.project;
+
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
+import dev.jok.verse.diagnostic.Diagnostics;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+/**
+ * A file of a project as it was parsed. It's kept between builds and only parsed again once the
+ * file's size or modification time changes.
+ */
+@RequiredArgsConstructor
+public class SourceFile {
+
+    public final Path path;
+    public final long lastModified;
+    public final long size;
+    public final List<AstStmt> statements;
+    public final List<AstUsingDecl> usings;
+    // errors from scanning and parsing
+    public final Diagnostics diagnostics;
+
+    boolean isUpToDate(BasicFileAttributes attributes) {
+        return attributes.lastModifiedTime().toMillis() == lastModified && attributes.size() == size;
+    }
+
+}
@@ -0,0 +1,15 @@
+package dev.jok.verse.task;
+
+/**
+ * Where the {@link TaskScheduler} gets the time from, and how it waits for sleeping tasks.
+ */
+public interface Clock {
+
+    long nanoTime();
+
+    /**
+     * Blocks until {@link #nanoTime()} has reached the given time.
+     */
+    void waitUntil(long nanoTime) throws InterruptedException;
+
+}
@@ -0,0 +1,18 @@
+package dev.jok.verse.task;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Parks a task for a number of seconds. No time at all just lets every other ready task run first.
+ */
+@RequiredArgsConstructor
+public class Delay implements Suspension {
+
+    public final float seconds;
+
+    @Override
+    public void suspend(Task task, TaskScheduler scheduler) {
+        scheduler.sleep(task, seconds);
+    }
+
+}
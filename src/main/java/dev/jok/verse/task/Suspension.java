@@ -0,0 +1,12 @@
+package dev.jok.verse.task;
+
+/**
+ * What a {@code <suspends>} native returns to park the task that called it. The task's state is
+ * already saved by the engine running it, so all a suspension does is tell the scheduler when the
+ * task should carry on.
+ */
+public interface Suspension {
+
+    void suspend(Task task, TaskScheduler scheduler);
+
+}
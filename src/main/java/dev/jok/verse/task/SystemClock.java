@@ -0,0 +1,23 @@
+package dev.jok.verse.task;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Real time, tasks sleep for as long as they asked to.
+ */
+public class SystemClock implements Clock {
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void waitUntil(long nanoTime) throws InterruptedException {
+        long wait = nanoTime - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package dev.jok.verse.task;
+
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A routine started by {@code spawn} or one of the concurrency expressions. A task isn't a thread,
+ * it's just the engine's saved state, so a parked task costs no more than the frames it's in the
+ * middle of.
+ * <p>
+ * Tasks started by a concurrency expression are children of the task that ran it, linked into its
+ * list of children so they can be cancelled along with it. Spawned tasks have no parent.
+ */
+public class Task {
+
+    public enum State {
+        READY, SUSPENDED, COMPLETED, CANCELLED
+    }
+
+    private final @Getter int id;
+    private @Getter State state = State.READY;
+    private @Getter @Nullable Object result;
+
+    // the engine's saved state, only the engine that runs the task looks inside it
+    public @Nullable Object continuation;
+    // what the call the task suspended at evaluates to when it carries on
+    public @Nullable Object resumeValue;
+
+    // the cancellation tree, children are a doubly linked list so any of them can leave in O(1)
+    @Nullable Task parent;
+    @Nullable Task firstChild;
+    @Nullable Task previousSibling;
+    @Nullable Task nextSibling;
+
+    // the concurrency expression waiting on this task, and which of its branches it is
+    @Nullable TaskGroup group;
+    int groupIndex;
+
+    // where the task is asleep, if it is
+    TimerWheel.@Nullable Timer timer;
+
+    Task(int id, Object continuation) {
+        this.id = id;
+        this.continuation = continuation;
+    }
+
+    public boolean isDone() {
+        return state == State.COMPLETED || state == State.CANCELLED;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    void complete(@Nullable Object result) {
+        this.result = result;
+        this.state = State.COMPLETED;
+        this.continuation = null;
+    }
+
+    void cancel() {
+        this.state = State.CANCELLED;
+        this.continuation = null;
+        this.resumeValue = null;
+    }
+
+    void attachTo(Task parent) {
+        this.parent = parent;
+        this.nextSibling = parent.firstChild;
+        if (parent.firstChild != null) {
+            parent.firstChild.previousSibling = this;
+        }
+
+        parent.firstChild = this;
+    }
+
+    void detach() {
+        if (parent == null) {
+            return;
+        }
+
+        if (previousSibling != null) {
+            previousSibling.nextSibling = nextSibling;
+        } else {
+            parent.firstChild = nextSibling;
+        }
+
+        if (nextSibling != null) {
+            nextSibling.previousSibling = previousSibling;
+        }
+
+        parent = null;
+        previousSibling = null;
+        nextSibling = null;
+    }
+
+    @Override
+    public String toString() {
+        return "task#" + id;
+    }
+
+}
@@ -0,0 +1,116 @@
+package dev.jok.verse.task;
+
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * The tasks started by one {@code sync}, {@code race}, {@code rush} or {@code branch}. Awaiting the
+ * group parks the task that started it until the group has a result, which depends on the kind.
+ */
+public class TaskGroup implements Suspension {
+
+    public enum Kind {
+        // every branch's result, in order
+        SYNC,
+        // the first result, the other branches are cancelled
+        RACE,
+        // the first result, the other branches carry on by themselves
+        RUSH,
+        // nothing to wait for, the branch is cancelled if its parent finishes first
+        BRANCH;
+
+        private static final Kind[] VALUES = values();
+
+        public static Kind of(int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+
+    private final @Getter Kind kind;
+    private final @Getter Task owner;
+    private Task[] members = new Task[2];
+    private int memberCount = 0;
+    private @Nullable Object[] results;
+    private int remaining = 0;
+    private boolean done = false;
+    private @Nullable Object value;
+    private @Nullable Task waiter;
+
+    TaskGroup(Kind kind, Task owner) {
+        this.kind = kind;
+        this.owner = owner;
+    }
+
+    void add(Task task) {
+        if (memberCount == members.length) {
+            members = Arrays.copyOf(members, memberCount * 2);
+        }
+
+        task.group = this;
+        task.groupIndex = memberCount;
+        members[memberCount++] = task;
+        remaining++;
+    }
+
+    void completed(Task task, @Nullable Object result, TaskScheduler scheduler) {
+        if (done) {
+            return;
+        }
+
+        switch (kind) {
+            case SYNC -> {
+                if (results == null) {
+                    results = new Object[memberCount];
+                }
+
+                results[task.groupIndex] = result;
+                if (--remaining == 0) {
+                    finish(results, scheduler);
+                }
+            }
+
+            case RACE -> {
+                finish(result, scheduler);
+                for (int i = 0; i < memberCount; i++) {
+                    if (members[i] != task) {
+                        scheduler.cancel(members[i]);
+                    }
+                }
+            }
+
+            case RUSH -> {
+                finish(result, scheduler);
+                // the rest outlive the task that's waiting on them
+                for (int i = 0; i < memberCount; i++) {
+                    members[i].detach();
+                }
+            }
+
+            case BRANCH -> { }
+        }
+    }
+
+    private void finish(@Nullable Object value, TaskScheduler scheduler) {
+        this.done = true;
+        this.value = value;
+        if (waiter != null) {
+            scheduler.wake(waiter, value);
+        }
+    }
+
+    @Override
+    public void suspend(Task task, TaskScheduler scheduler) {
+        if (task != owner) {
+            throw new IllegalStateException(task + " can't wait on a group started by " + owner);
+        }
+
+        if (done) {
+            scheduler.wake(task, value);
+        } else {
+            waiter = task;
+        }
+    }
+
+}
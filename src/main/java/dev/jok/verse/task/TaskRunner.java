@@ -0,0 +1,16 @@
+package dev.jok.verse.task;
+
+/**
+ * The engine side of a {@link TaskScheduler}, which knows how to carry on running a task from
+ * wherever it last stopped.
+ */
+@FunctionalInterface
+public interface TaskRunner {
+
+    /**
+     * Runs the task until it completes, returning its result, or until it suspends, returning the
+     * {@link Suspension} it stopped at.
+     */
+    Object resume(Task task);
+
+}
@@ -0,0 +1,200 @@
+package dev.jok.verse.task;
+
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs tasks one at a time on the calling thread, so the order they interleave in only depends on
+ * the script. A task runs until it completes or suspends, then the next ready task gets a turn, and
+ * once none are ready the scheduler waits for the first sleeping one to wake up. Time comes from a
+ * {@link Clock}, so with a {@link VirtualClock} that wait takes no time at all.
+ * <p>
+ * Parked tasks don't hold on to a thread, so a script can have as many of them as it has memory for.
+ * <p>
+ * Cancelling a task walks the tree of tasks under it and marks each one cancelled, nothing is
+ * interrupted or unwound. A cancelled task that was asleep is taken out of the {@link TimerWheel},
+ * and one still in the ready queue is just skipped when its turn comes around.
+ */
+public class TaskScheduler {
+
+    // sleeps are rounded up to whole ticks
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final @Getter Clock clock;
+    private final ArrayDeque<Task> ready = new ArrayDeque<>();
+    private final TimerWheel timers;
+    private final Consumer<Task> expire = this::expire;
+    // reused by cancel, so cancelling doesn't recurse once per level of the tree
+    private final ArrayDeque<Task> cancelling = new ArrayDeque<>();
+    private int nextId = 0;
+
+    private @Getter long spawnedTasks = 0;
+    private @Getter long completedTasks = 0;
+    private @Getter long cancelledTasks = 0;
+
+    public TaskScheduler() {
+        this(new SystemClock());
+    }
+
+    public TaskScheduler(Clock clock) {
+        this.clock = clock;
+        this.timers = new TimerWheel(TICK_NANOS, clock.nanoTime());
+    }
+
+    /**
+     * A new task that will carry on from the given engine state on its first turn.
+     */
+    public Task spawn(Object continuation) {
+        Task task = new Task(nextId++, continuation);
+        spawnedTasks++;
+        ready.add(task);
+        return task;
+    }
+
+    /**
+     * A group for the concurrency expression the task is running to start its branches in.
+     */
+    public TaskGroup group(Task owner, TaskGroup.Kind kind) {
+        return new TaskGroup(kind, owner);
+    }
+
+    /**
+     * Like {@link #spawn}, but the new task is a child of the group's owner and reports back to the
+     * group when it completes.
+     */
+    public Task branch(TaskGroup group, Object continuation) {
+        Task task = spawn(continuation);
+        task.attachTo(group.getOwner());
+        group.add(task);
+        return task;
+    }
+
+    /**
+     * Cancels the task and every task under it, in time proportional to how many there are. Tasks
+     * that are already done are left alone.
+     */
+    public void cancel(Task task) {
+        if (task.isDone()) {
+            return;
+        }
+
+        task.detach();
+        cancelling.push(task);
+        while (!cancelling.isEmpty()) {
+            Task next = cancelling.pop();
+            for (Task child = next.firstChild; child != null; child = child.nextSibling) {
+                cancelling.push(child);
+            }
+
+            if (next.timer != null) {
+                timers.cancel(next.timer);
+                next.timer = null;
+            }
+
+            next.firstChild = null;
+            next.parent = null;
+            next.previousSibling = null;
+            next.nextSibling = null;
+            next.cancel();
+            cancelledTasks++;
+        }
+    }
+
+    public long getLiveTasks() {
+        return spawnedTasks - completedTasks - cancelledTasks;
+    }
+
+    /**
+     * Makes a suspended task ready again, the call it suspended at evaluating to the given value.
+     */
+    public void wake(Task task, @Nullable Object value) {
+        if (task.isDone()) {
+            return;
+        }
+
+        task.resumeValue = value;
+        task.setState(Task.State.READY);
+        ready.add(task);
+    }
+
+    public void sleep(Task task, float seconds) {
+        if (!(seconds > 0)) {
+            // no time, or NaN, is just a turn at the back of the queue
+            wake(task, null);
+            return;
+        }
+
+        long due = clock.nanoTime() + (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+        task.timer = timers.schedule(task, due);
+    }
+
+    /**
+     * Runs tasks until all of them have completed.
+     */
+    public void run(TaskRunner runner) {
+        while (true) {
+            // sleepers that are due get their turn even while other tasks keep the queue busy
+            if (!timers.isEmpty()) {
+                timers.advance(clock.nanoTime(), expire);
+            }
+
+            Task task = ready.poll();
+            if (task != null && task.isDone()) {
+                continue;
+            }
+
+            if (task == null) {
+                if (timers.isEmpty()) {
+                    return;
+                }
+
+                waitForTimers();
+                continue;
+            }
+
+            Object outcome = runner.resume(task);
+            if (outcome instanceof Suspension suspension) {
+                task.setState(Task.State.SUSPENDED);
+                suspension.suspend(task, this);
+            } else {
+                complete(task, outcome);
+            }
+        }
+    }
+
+    // a task that finishes takes any branches it started with it
+    private void complete(Task task, @Nullable Object result) {
+        task.complete(result);
+        completedTasks++;
+        task.detach();
+
+        while (task.firstChild != null) {
+            cancel(task.firstChild);
+        }
+
+        if (task.group != null) {
+            task.group.completed(task, result, this);
+            task.group = null;
+        }
+    }
+
+    // waits for the next tick the wheel has anything on, the loop wakes whatever's due then
+    private void waitForTimers() {
+        try {
+            clock.waitUntil(timers.nextTickNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a sleeping task", e);
+        }
+    }
+
+    private void expire(Task task) {
+        task.timer = null;
+        wake(task, null);
+    }
+
+}
@@ -0,0 +1,248 @@
+package dev.jok.verse.task;
+
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Consumer;
+
+/**
+ * Sleeping tasks, bucketed by the tick they're due on in a hierarchical hashed wheel. Scheduling and
+ * cancelling a timer are O(1), and every timer due on a tick expires together, in the order they
+ * were scheduled.
+ * <p>
+ * Each level has 256 slots, and a slot on one level spans a whole turn of the level below it. With
+ * 1ms ticks the levels cover 256ms, about a minute, about 4.6 hours and about 49 days. A timer goes
+ * in the lowest level whose current turn it's due in, and when the wheel moves onto a new turn of a
+ * level the timers in that slot of the level above are moved down. Timers further off than all of
+ * them wait in an overflow list, which is gone through once every 49 days.
+ */
+public class TimerWheel {
+
+    private static final int BITS = 8;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickNanos;
+    private final long origin;
+    // the next tick to expire, every tick before it has been, and the timers due on its turn of
+    // each level have already been moved down
+    private long currentTick = 0;
+
+    private final Timer[][] heads = new Timer[LEVELS + 1][SLOTS];
+    private final Timer[][] tails = new Timer[LEVELS + 1][SLOTS];
+    // how many timers are on each level, the last is the overflow list in slot 0
+    private final int[] counts = new int[LEVELS + 1];
+    private @Getter int size = 0;
+
+    public TimerWheel(long tickNanos, long origin) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Ticks have to be at least a nanosecond long, got " + tickNanos);
+        }
+
+        this.tickNanos = tickNanos;
+        this.origin = origin;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Schedules the task to expire on the first tick at or after the given time. A time that has
+     * already passed expires on the next tick.
+     */
+    public Timer schedule(Task task, long dueNanos) {
+        long elapsed = Math.max(dueNanos - origin, 0);
+        // rounded up, so a task never wakes early
+        long due = Math.max(elapsed / tickNanos + (elapsed % tickNanos != 0 ? 1 : 0), currentTick);
+
+        Timer timer = new Timer(due, task);
+        insert(timer);
+        size++;
+        return timer;
+    }
+
+    public void cancel(Timer timer) {
+        if (timer.level == -1) {
+            return;
+        }
+
+        unlink(timer);
+        size--;
+    }
+
+    /**
+     * Expires every timer due up to and including the given time, passing their tasks to the
+     * consumer.
+     */
+    public void advance(long nanos, Consumer<Task> expired) {
+        long target = Math.floorDiv(nanos - origin, tickNanos);
+        while (currentTick <= target) {
+            if (size == 0) {
+                // nothing to move down or expire, so the ticks in between don't matter
+                currentTick = target + 1;
+                return;
+            }
+
+            expire(currentTick & MASK, expired);
+            currentTick = skip(currentTick + 1, target + 1);
+
+            // straight away rather than on the tick, so timers scheduled before then go on the right level
+            if ((currentTick & MASK) == 0) {
+                cascade();
+            }
+        }
+    }
+
+    /**
+     * The time of the next tick anything happens on, either a timer expiring or timers moving down
+     * a level, or {@link Long#MAX_VALUE} if there are no timers. Nothing expires before it.
+     */
+    public long nextTickNanos() {
+        if (size == 0) {
+            return Long.MAX_VALUE;
+        }
+
+        for (int level = 0; level < LEVELS; level++) {
+            if (counts[level] == 0) {
+                continue;
+            }
+
+            int shift = level * BITS;
+            // a level's timers are all after its current slot, otherwise they'd be on a lower level
+            int from = level == 0 ? (int) (currentTick & MASK) : (int) ((currentTick >>> shift) & MASK) + 1;
+
+            for (int slot = from; slot < SLOTS; slot++) {
+                if (heads[level][slot] != null) {
+                    long turn = currentTick & ~((1L << (shift + BITS)) - 1);
+                    return origin + (turn + ((long) slot << shift)) * tickNanos;
+                }
+            }
+        }
+
+        // only the overflow is left, and it's next looked at on the next turn of the top level
+        long turn = (currentTick >>> (LEVELS * BITS)) + 1;
+        return origin + (turn << (LEVELS * BITS)) * tickNanos;
+    }
+
+    // moves the slots of every level that's starting a new turn down, from the top level first
+    private void cascade() {
+        int top = 0;
+        while (top < LEVELS && ((currentTick >>> (top * BITS)) & MASK) == 0) {
+            top++;
+        }
+
+        for (int level = top; level >= 1; level--) {
+            int slot = level == LEVELS ? 0 : (int) ((currentTick >>> (level * BITS)) & MASK);
+            Timer timer = heads[level][slot];
+            heads[level][slot] = null;
+            tails[level][slot] = null;
+            while (timer != null) {
+                Timer next = timer.next;
+                counts[level]--;
+                timer.previous = null;
+                timer.next = null;
+                insert(timer);
+                timer = next;
+            }
+        }
+    }
+
+    private void expire(long slot, Consumer<Task> expired) {
+        Timer timer = heads[0][(int) slot];
+        heads[0][(int) slot] = null;
+        tails[0][(int) slot] = null;
+        while (timer != null) {
+            Timer next = timer.next;
+            counts[0]--;
+            size--;
+            timer.level = -1;
+            timer.previous = null;
+            timer.next = null;
+            expired.accept(timer.task);
+            timer = next;
+        }
+    }
+
+    // the next tick worth stopping at, past whole turns of the empty levels at the bottom
+    private long skip(long tick, long limit) {
+        int level = 0;
+        while (level < LEVELS && counts[level] == 0) {
+            level++;
+        }
+
+        if (level == 0) {
+            return tick;
+        }
+
+        long turn = 1L << (level * BITS);
+        long next = (tick + turn - 1) & -turn;
+        return Math.min(next, limit);
+    }
+
+    private void insert(Timer timer) {
+        long due = timer.due;
+        int level = 0;
+        while (level < LEVELS && (due >>> ((level + 1) * BITS)) != (currentTick >>> ((level + 1) * BITS))) {
+            level++;
+        }
+
+        int slot = level == LEVELS ? 0 : (int) ((due >>> (level * BITS)) & MASK);
+        timer.level = level;
+        timer.slot = slot;
+
+        Timer tail = tails[level][slot];
+        if (tail == null) {
+            heads[level][slot] = timer;
+        } else {
+            tail.next = timer;
+            timer.previous = tail;
+        }
+
+        tails[level][slot] = timer;
+        counts[level]++;
+    }
+
+    private void unlink(Timer timer) {
+        int level = timer.level;
+        int slot = timer.slot;
+        if (timer.previous != null) {
+            timer.previous.next = timer.next;
+        } else {
+            heads[level][slot] = timer.next;
+        }
+
+        if (timer.next != null) {
+            timer.next.previous = timer.previous;
+        } else {
+            tails[level][slot] = timer.previous;
+        }
+
+        counts[level]--;
+        timer.level = -1;
+        timer.previous = null;
+        timer.next = null;
+    }
+
+    /**
+     * A task's place in the wheel, which it can be cancelled with.
+     */
+    public static final class Timer {
+
+        private final long due;
+        private final Task task;
+        // -1 once the timer has expired or been cancelled
+        private int level = -1;
+        private int slot;
+        private @Nullable Timer previous;
+        private @Nullable Timer next;
+
+        private Timer(long due, Task task) {
+            this.due = due;
+            this.task = task;
+        }
+
+    }
+
+}
@@ -0,0 +1,30 @@
+package dev.jok.verse.task;
+
+/**
+ * Simulated time that only moves when it's told to. Waiting jumps straight to the time waited for,
+ * so once every task is asleep the scheduler skips ahead to the next one to wake, and hours of
+ * sleeps run as fast as the tasks in between them.
+ */
+public class VirtualClock implements Clock {
+
+    private long nanoTime = 0;
+
+    @Override
+    public long nanoTime() {
+        return nanoTime;
+    }
+
+    @Override
+    public void waitUntil(long nanoTime) {
+        this.nanoTime = Math.max(this.nanoTime, nanoTime);
+    }
+
+    public void advance(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Time can't go backwards, tried to advance by " + nanos + "ns");
+        }
+
+        nanoTime += nanos;
+    }
+
+}
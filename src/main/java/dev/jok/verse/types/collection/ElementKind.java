@@ -0,0 +1,218 @@
+package dev.jok.verse.types.collection;
+
+import dev.jok.verse.ast.types.AstType;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * How a {@link VArray} keeps its elements. Each leaf of the array's trie is one array of the kind's
+ * choosing, so {@code []int} and {@code []float} take 4 bytes an element rather than a reference and
+ * a boxed number each, and {@code []logic} packs a whole leaf into one int.
+ * <p>
+ * Elements still go in and come out as Verse values, the kind only changes how they're stored.
+ */
+public enum ElementKind {
+
+    GENERIC {
+        @Override
+        Object newLeaf(int length) {
+            return new Object[length];
+        }
+
+        @Override
+        @Nullable Object get(Object leaf, int index) {
+            return ((Object[]) leaf)[index];
+        }
+
+        @Override
+        void set(Object leaf, int index, @Nullable Object element) {
+            ((Object[]) leaf)[index] = element;
+        }
+
+        @Override
+        Object copyOf(Object leaf, int length) {
+            return Arrays.copyOf((Object[]) leaf, length);
+        }
+
+        @Override
+        void visit(Object leaf, int length, ElementVisitor visitor) {
+            Object[] elements = (Object[]) leaf;
+            for (int i = 0; i < length; i++) {
+                visitor.visit(elements[i]);
+            }
+        }
+
+        @Override
+        public boolean accepts(@Nullable Object element) {
+            return true;
+        }
+    },
+
+    INT {
+        @Override
+        Object newLeaf(int length) {
+            return new int[length];
+        }
+
+        @Override
+        Object get(Object leaf, int index) {
+            return VInteger.valueOf(((int[]) leaf)[index]);
+        }
+
+        @Override
+        void set(Object leaf, int index, @Nullable Object element) {
+            ((int[]) leaf)[index] = ((VInteger) element).intValue();
+        }
+
+        @Override
+        Object copyOf(Object leaf, int length) {
+            return Arrays.copyOf((int[]) leaf, length);
+        }
+
+        @Override
+        void visit(Object leaf, int length, ElementVisitor visitor) {
+            int[] elements = (int[]) leaf;
+            for (int i = 0; i < length; i++) {
+                visitor.visitInt(elements[i]);
+            }
+        }
+
+        @Override
+        public boolean accepts(@Nullable Object element) {
+            return element instanceof VInteger;
+        }
+    },
+
+    FLOAT {
+        @Override
+        Object newLeaf(int length) {
+            return new float[length];
+        }
+
+        @Override
+        Object get(Object leaf, int index) {
+            return new VFloat(((float[]) leaf)[index]);
+        }
+
+        @Override
+        void set(Object leaf, int index, @Nullable Object element) {
+            ((float[]) leaf)[index] = ((VFloat) element).floatValue();
+        }
+
+        @Override
+        Object copyOf(Object leaf, int length) {
+            return Arrays.copyOf((float[]) leaf, length);
+        }
+
+        @Override
+        void visit(Object leaf, int length, ElementVisitor visitor) {
+            float[] elements = (float[]) leaf;
+            for (int i = 0; i < length; i++) {
+                visitor.visitFloat(elements[i]);
+            }
+        }
+
+        @Override
+        public boolean accepts(@Nullable Object element) {
+            return element instanceof VFloat;
+        }
+    },
+
+    // a bit per element, which works because leaves are never more than 32 long
+    LOGIC {
+        @Override
+        Object newLeaf(int length) {
+            return new int[1];
+        }
+
+        @Override
+        Object get(Object leaf, int index) {
+            return (((int[]) leaf)[0] & (1 << index)) != 0;
+        }
+
+        @Override
+        void set(Object leaf, int index, @Nullable Object element) {
+            int[] bits = (int[]) leaf;
+            if ((Boolean) element) {
+                bits[0] |= 1 << index;
+            } else {
+                bits[0] &= ~(1 << index);
+            }
+        }
+
+        @Override
+        Object copyOf(Object leaf, int length) {
+            return ((int[]) leaf).clone();
+        }
+
+        @Override
+        void visit(Object leaf, int length, ElementVisitor visitor) {
+            int bits = ((int[]) leaf)[0];
+            for (int i = 0; i < length; i++) {
+                visitor.visitLogic((bits & (1 << i)) != 0);
+            }
+        }
+
+        @Override
+        public boolean accepts(@Nullable Object element) {
+            return element instanceof Boolean;
+        }
+    };
+
+    /**
+     * A leaf with room for the given number of elements, all of them the kind's zero value.
+     */
+    abstract Object newLeaf(int length);
+
+    abstract @Nullable Object get(Object leaf, int index);
+
+    // only ever given elements the kind accepts
+    abstract void set(Object leaf, int index, @Nullable Object element);
+
+    abstract Object copyOf(Object leaf, int length);
+
+    // the first length elements of the leaf, in order
+    abstract void visit(Object leaf, int length, ElementVisitor visitor);
+
+    public abstract boolean accepts(@Nullable Object element);
+
+    /**
+     * The most compact kind that can hold the element.
+     */
+    public static ElementKind of(@Nullable Object element) {
+        if (element instanceof VInteger) {
+            return INT;
+        }
+
+        if (element instanceof VFloat) {
+            return FLOAT;
+        }
+
+        if (element instanceof Boolean) {
+            return LOGIC;
+        }
+
+        return GENERIC;
+    }
+
+    /**
+     * The kind for an array of the given type, so {@code []int} is {@link #INT}. Anything that isn't
+     * an array of plain ints, floats or logics is {@link #GENERIC}.
+     */
+    public static ElementKind forType(AstType type) {
+        if (!type.array || type.optional) {
+            return GENERIC;
+        }
+
+        return switch (type.name.lexeme) {
+            case "int" -> INT;
+            case "float" -> FLOAT;
+            case "logic" -> LOGIC;
+            default -> GENERIC;
+        };
+    }
+
+}
@@ -0,0 +1,28 @@
+package dev.jok.verse.types.collection;
+
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Sees a {@link VArray}'s elements the way its leaves store them, so ints, floats and logics don't
+ * have to be boxed to be read. Anything that doesn't override the primitive methods gets the boxed
+ * value instead, the same as iterating would give it.
+ */
+public interface ElementVisitor {
+
+    void visit(@Nullable Object element);
+
+    default void visitInt(int element) {
+        visit(VInteger.valueOf(element));
+    }
+
+    default void visitFloat(float element) {
+        visit(new VFloat(element));
+    }
+
+    default void visitLogic(boolean element) {
+        visit(element);
+    }
+
+}
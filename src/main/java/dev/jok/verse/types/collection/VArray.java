@@ -0,0 +1,524 @@
+package dev.jok.verse.types.collection;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A Verse {@code []T} value. Arrays are immutable, so "changing" one makes a new array, but the new
+ * one shares all of the old one's elements apart from the path to the one that changed.
+ * <p>
+ * The elements are kept in a trie with 32 children per node, plus a tail of up to 32 elements that
+ * haven't been pushed into it yet. Getting or setting an element is O(log32 n), which is at most 7
+ * levels for any array that fits in memory, and appending usually only copies the tail.
+ * <p>
+ * Each leaf is stored as its {@link ElementKind}'s array, so ints, floats and logics aren't boxed. An
+ * array with nothing in it yet picks its kind from its first element, and an element the kind can't
+ * hold widens the whole array to {@link ElementKind#GENERIC} once.
+ * <p>
+ * A {@link Builder} makes the same changes in place, for building an array up one element at a time
+ * without a copy per element.
+ */
+public final class VArray implements Iterable<Object> {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final ElementKind[] KINDS = ElementKind.values();
+    private static final VArray[] EMPTY = new VArray[KINDS.length];
+
+    static {
+        for (ElementKind kind : KINDS) {
+            EMPTY[kind.ordinal()] = new VArray(kind, 0, BITS, new Node(null, new Object[WIDTH]), kind.newLeaf(0));
+        }
+    }
+
+    private final ElementKind kind;
+    private final int length;
+    // how far the root's index bits are shifted, BITS for a root whose children are leaves
+    private final int shift;
+    private final Node root;
+    // a leaf with just the elements after the trie's, apart from logic leaves which are always one int
+    private final Object tail;
+
+    private VArray(ElementKind kind, int length, int shift, Node root, Object tail) {
+        this.kind = kind;
+        this.length = length;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+    }
+
+    public static VArray empty() {
+        return empty(ElementKind.GENERIC);
+    }
+
+    public static VArray empty(ElementKind kind) {
+        return EMPTY[kind.ordinal()];
+    }
+
+    public static VArray of(Object... elements) {
+        Builder builder = builder();
+        for (Object element : elements) {
+            builder.add(element);
+        }
+
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return builder(ElementKind.GENERIC);
+    }
+
+    /**
+     * A builder for an array whose elements are known up front to be of the given kind, usually from
+     * {@link ElementKind#forType}.
+     */
+    public static Builder builder(ElementKind kind) {
+        return new Builder(empty(kind));
+    }
+
+    /**
+     * A builder that starts out with this array's elements. The array itself is never changed.
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    public ElementKind getKind() {
+        return kind;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    public @Nullable Object get(int index) {
+        return kind.get(leafFor(index), index & MASK);
+    }
+
+    /**
+     * An array with the element at the index replaced, or added on the end if the index is the
+     * array's length.
+     */
+    public VArray set(int index, @Nullable Object element) {
+        if (index == length) {
+            return append(element);
+        }
+
+        checkIndex(index);
+        if (!kind.accepts(element)) {
+            return widen().set(index, element);
+        }
+
+        if (index >= tailOffset()) {
+            Object newTail = copy(tail);
+            kind.set(newTail, index & MASK, element);
+            return new VArray(kind, length, shift, root, newTail);
+        }
+
+        return new VArray(kind, length, shift, setIn(shift, root, index, element), tail);
+    }
+
+    public VArray append(@Nullable Object element) {
+        if (length == 0 && kind == ElementKind.GENERIC && ElementKind.of(element) != kind) {
+            return empty(ElementKind.of(element)).append(element);
+        }
+
+        if (!kind.accepts(element)) {
+            return widen().append(element);
+        }
+
+        // room in the tail
+        int inTail = length - tailOffset();
+        if (inTail < WIDTH) {
+            Object newTail = kind.copyOf(tail, inTail + 1);
+            kind.set(newTail, inTail, element);
+            return new VArray(kind, length + 1, shift, root, newTail);
+        }
+
+        // the full tail goes into the trie, which gets a new root once it's full as well
+        Node tailNode = new Node(null, tail);
+        Node newRoot;
+        int newShift = shift;
+        if ((length >>> BITS) > (1 << shift)) {
+            newRoot = new Node(null, new Object[WIDTH]);
+            newRoot.children()[0] = root;
+            newRoot.children()[1] = newPath(null, shift, tailNode);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(null, length, shift, root, tailNode);
+        }
+
+        Object newTail = kind.newLeaf(1);
+        kind.set(newTail, 0, element);
+        return new VArray(kind, length + 1, newShift, newRoot, newTail);
+    }
+
+    @Override
+    public Iterator<Object> iterator() {
+        return new Iterator<>() {
+
+            private int index = 0;
+            private @Nullable Object leaf;
+
+            @Override
+            public boolean hasNext() {
+                return index < length;
+            }
+
+            @Override
+            public Object next() {
+                if (index >= length) {
+                    throw new NoSuchElementException();
+                }
+
+                // a leaf at a time, rather than walking down from the root for every element
+                if ((index & MASK) == 0) {
+                    leaf = leafFor(index);
+                }
+
+                return kind.get(leaf, index++ & MASK);
+            }
+
+        };
+    }
+
+    /**
+     * Gives the visitor every element in order, a leaf at a time and without boxing the ones the
+     * leaves keep unboxed.
+     */
+    public void visitElements(ElementVisitor visitor) {
+        int tailOffset = tailOffset();
+        for (int index = 0; index < tailOffset; index += WIDTH) {
+            kind.visit(leafFor(shift, root, index), WIDTH, visitor);
+        }
+
+        kind.visit(tail, length - tailOffset, visitor);
+    }
+
+    public Object[] toArray() {
+        Object[] elements = new Object[length];
+        int index = 0;
+        for (Object element : this) {
+            elements[index++] = element;
+        }
+
+        return elements;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof VArray array) || array.length != length) {
+            return false;
+        }
+
+        Iterator<Object> theirs = array.iterator();
+        for (Object element : this) {
+            if (!Objects.equals(element, theirs.next())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (Object element : this) {
+            hash = 31 * hash + Objects.hashCode(element);
+        }
+
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("array{");
+        int i = 0;
+        for (Object element : this) {
+            if (i++ > 0) {
+                builder.append(", ");
+            }
+
+            builder.append(element);
+        }
+
+        return builder.append('}').toString();
+    }
+
+    // the index of the first element in the tail
+    private int tailOffset() {
+        return tailOffset(length);
+    }
+
+    private static int tailOffset(int length) {
+        return length < WIDTH ? 0 : ((length - 1) >>> BITS) << BITS;
+    }
+
+    private Object leafFor(int index) {
+        checkIndex(index);
+        if (index >= tailOffset()) {
+            return tail;
+        }
+
+        return leafFor(shift, root, index);
+    }
+
+    private static Object leafFor(int shift, Node root, int index) {
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Node) node.children()[(index >>> level) & MASK];
+        }
+
+        return node.array;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for an array of length " + length);
+        }
+    }
+
+    // the same array with every element boxed, for when one turns up that the kind can't hold
+    private VArray widen() {
+        int inTail = length - tailOffset();
+        return new VArray(ElementKind.GENERIC, length, shift, widen(kind, null, shift, root), widenLeaf(kind, tail, inTail));
+    }
+
+    private static Node widen(ElementKind kind, @Nullable Object edit, int level, Node node) {
+        if (level == 0) {
+            return new Node(edit, widenLeaf(kind, node.array, WIDTH));
+        }
+
+        Object[] children = node.children();
+        Object[] widened = new Object[WIDTH];
+        for (int i = 0; i < WIDTH && children[i] != null; i++) {
+            widened[i] = widen(kind, edit, level - BITS, (Node) children[i]);
+        }
+
+        return new Node(edit, widened);
+    }
+
+    private static Object[] widenLeaf(ElementKind kind, Object leaf, int length) {
+        Object[] widened = new Object[length];
+        for (int i = 0; i < length; i++) {
+            widened[i] = kind.get(leaf, i);
+        }
+
+        return widened;
+    }
+
+    private Node setIn(int level, Node node, int index, @Nullable Object element) {
+        Node copy = new Node(null, copy(node.array));
+        if (level == 0) {
+            kind.set(copy.array, index & MASK, element);
+        } else {
+            int child = (index >>> level) & MASK;
+            copy.children()[child] = setIn(level - BITS, (Node) node.children()[child], index, element);
+        }
+
+        return copy;
+    }
+
+    // a chain of nodes down to the given leaf, for a part of the trie that doesn't exist yet
+    private static Node newPath(@Nullable Object edit, int level, Node leaf) {
+        if (level == 0) {
+            return leaf;
+        }
+
+        Node node = new Node(edit, new Object[WIDTH]);
+        node.children()[0] = newPath(edit, level - BITS, leaf);
+        return node;
+    }
+
+    // the parent with the full tail added as the last leaf, copying the nodes that aren't the edit's
+    private static Node pushTail(@Nullable Object edit, int length, int level, Node parent, Node tailNode) {
+        Node node = parent.editableBy(edit);
+        Object[] children = node.children();
+        int child = ((length - 1) >>> level) & MASK;
+        if (level == BITS) {
+            children[child] = tailNode;
+        } else {
+            Node existing = (Node) children[child];
+            children[child] = existing != null ? pushTail(edit, length, level - BITS, existing, tailNode) : newPath(edit, level - BITS, tailNode);
+        }
+
+        return node;
+    }
+
+    private static Object copy(Object array) {
+        if (array instanceof Object[] objects) {
+            return objects.clone();
+        }
+
+        if (array instanceof int[] ints) {
+            return ints.clone();
+        }
+
+        return ((float[]) array).clone();
+    }
+
+    private static final class Node {
+
+        // the builder that's allowed to change this node in place, null once it's part of an array
+        private final @Nullable Object edit;
+        // the child nodes, or for a leaf its kind's array of elements
+        private final Object array;
+
+        private Node(@Nullable Object edit, Object array) {
+            this.edit = edit;
+            this.array = array;
+        }
+
+        private Object[] children() {
+            return (Object[]) array;
+        }
+
+        private Node editableBy(@Nullable Object edit) {
+            return edit != null && this.edit == edit ? this : new Node(edit, copy(array));
+        }
+
+    }
+
+    /**
+     * Builds an array in place, for array literals and comprehensions. Nodes the builder made itself
+     * are changed without copying, and {@link #build()} hands them over to the array, after which
+     * the builder can't be used any more.
+     */
+    public static final class Builder {
+
+        private @Nullable Object edit = new Object();
+        private ElementKind kind;
+        private int length;
+        private int shift;
+        private Node root;
+        // always a whole leaf while building, so adding doesn't copy it
+        private Object tail;
+
+        private Builder(VArray array) {
+            this.kind = array.kind;
+            this.length = array.length;
+            this.shift = array.shift;
+            this.root = array.root.editableBy(edit);
+            this.tail = kind.copyOf(array.tail, WIDTH);
+        }
+
+        public ElementKind getKind() {
+            return kind;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public Builder add(@Nullable Object element) {
+            Object edit = ensureEditable();
+            if (length == 0 && kind == ElementKind.GENERIC && ElementKind.of(element) != kind) {
+                kind = ElementKind.of(element);
+                tail = kind.newLeaf(WIDTH);
+            }
+
+            if (!kind.accepts(element)) {
+                widen(edit);
+            }
+
+            int inTail = length - tailOffset(length);
+            if (inTail < WIDTH) {
+                kind.set(tail, inTail, element);
+                length++;
+                return this;
+            }
+
+            Node tailNode = new Node(edit, tail);
+            tail = kind.newLeaf(WIDTH);
+            kind.set(tail, 0, element);
+
+            if ((length >>> BITS) > (1 << shift)) {
+                Node newRoot = new Node(edit, new Object[WIDTH]);
+                newRoot.children()[0] = root;
+                newRoot.children()[1] = newPath(edit, shift, tailNode);
+                root = newRoot;
+                shift += BITS;
+            } else {
+                root = pushTail(edit, length, shift, root, tailNode);
+            }
+
+            length++;
+            return this;
+        }
+
+        public Builder set(int index, @Nullable Object element) {
+            Object edit = ensureEditable();
+            if (index == length) {
+                return add(element);
+            }
+
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for an array of length " + length);
+            }
+
+            if (!kind.accepts(element)) {
+                widen(edit);
+            }
+
+            if (index >= tailOffset(length)) {
+                kind.set(tail, index & MASK, element);
+                return this;
+            }
+
+            root = root.editableBy(edit);
+            Node node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                Object[] children = node.children();
+                int child = (index >>> level) & MASK;
+                Node next = ((Node) children[child]).editableBy(edit);
+                children[child] = next;
+                node = next;
+            }
+
+            kind.set(node.array, index & MASK, element);
+            return this;
+        }
+
+        public VArray build() {
+            ensureEditable();
+            // the nodes keep this builder's edit, which nothing else has, so they're never changed again
+            edit = null;
+            if (length == 0) {
+                return empty(kind);
+            }
+
+            int inTail = length - tailOffset(length);
+            return new VArray(kind, length, shift, root, kind.copyOf(tail, inTail));
+        }
+
+        private void widen(Object edit) {
+            root = VArray.widen(kind, edit, shift, root);
+            tail = widenLeaf(kind, tail, WIDTH);
+            kind = ElementKind.GENERIC;
+        }
+
+        private Object ensureEditable() {
+            if (edit == null) {
+                throw new IllegalStateException("The array has already been built");
+            }
+
+            return edit;
+        }
+
+    }
+
+}
@@ -0,0 +1,529 @@
+package dev.jok.verse.types.collection;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * A Verse {@code [K]V} value, an immutable map that shares everything but the changed path with the
+ * map it was made from.
+ * <p>
+ * It's a hash array mapped trie: each node takes 5 bits of the key's hash and only has room for the
+ * children it actually has, found through a 32 bit bitmap. Looking up, adding and removing a key are
+ * O(log32 n), and keys whose hashes are the same all the way down share a collision node.
+ * <p>
+ * Keys stay in the order they were first added. The trie maps each key to its entry, and the
+ * entries are also kept in that order in an array, at the index the entry knows. Removing a key
+ * leaves a hole in the array, and once the holes outnumber the entries the array is rebuilt without
+ * them.
+ * <p>
+ * A {@link Builder} makes the same changes in place, for map literals and comprehensions.
+ */
+public final class VMap {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    // small maps are left with their holes, they're cheaper to skip than to compact
+    private static final int MIN_COMPACT_LENGTH = 32;
+
+    private static final VMap EMPTY = new VMap(0, BitmapNode.EMPTY, VArray.empty(ElementKind.GENERIC));
+
+    private final int size;
+    private final Node root;
+    // every entry at its index, with null where an entry was removed
+    private final VArray order;
+
+    private VMap(int size, Node root, VArray order) {
+        this.size = size;
+        this.root = root;
+        this.order = order;
+    }
+
+    public static VMap empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder() {
+        return new Builder(EMPTY);
+    }
+
+    /**
+     * A builder that starts out with this map's entries. The map itself is never changed.
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * The key's value, or null if the map doesn't have the key.
+     */
+    public @Nullable Object get(Object key) {
+        Entry entry = (Entry) root.find(0, hash(key), key);
+        return entry != null ? entry.value : null;
+    }
+
+    public boolean containsKey(Object key) {
+        return root.find(0, hash(key), key) != null;
+    }
+
+    /**
+     * A map with the key set to the value, replacing any value it already had. A key that's new
+     * goes after all the others, one that's already there keeps its place.
+     */
+    public VMap put(Object key, Object value) {
+        Objects.requireNonNull(value, "Map values can't be null");
+        int hash = hash(key);
+        Entry existing = (Entry) root.find(0, hash, key);
+        if (existing != null && value.equals(existing.value)) {
+            return this;
+        }
+
+        Entry entry = new Entry(existing != null ? existing.index : order.length(), key, value);
+        Node newRoot = root.put(null, 0, hash, key, entry);
+        return new VMap(existing != null ? size : size + 1, newRoot, order.set(entry.index, entry));
+    }
+
+    public VMap remove(Object key) {
+        int hash = hash(key);
+        Entry existing = (Entry) root.find(0, hash, key);
+        if (existing == null) {
+            return this;
+        }
+
+        if (size == 1) {
+            return EMPTY;
+        }
+
+        Node newRoot = root.remove(null, 0, hash, key);
+        VArray newOrder = order.set(existing.index, null);
+        if (needsCompacting(size - 1, newOrder.length())) {
+            return compact(newOrder);
+        }
+
+        return new VMap(size - 1, newRoot != null ? newRoot : BitmapNode.EMPTY, newOrder);
+    }
+
+    /**
+     * Goes through the entries in the order their keys were added.
+     */
+    public void forEach(BiConsumer<Object, Object> action) {
+        for (Object element : order) {
+            if (element != null) {
+                Entry entry = (Entry) element;
+                action.accept(entry.key, entry.value);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof VMap map) || map.size != size) {
+            return false;
+        }
+
+        boolean[] equal = { true };
+        forEach((key, value) -> {
+            if (equal[0] && !value.equals(map.get(key))) {
+                equal[0] = false;
+            }
+        });
+
+        return equal[0];
+    }
+
+    @Override
+    public int hashCode() {
+        int[] hash = { 0 };
+        forEach((key, value) -> hash[0] += key.hashCode() ^ value.hashCode());
+        return hash[0];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("map{");
+        forEach((key, value) -> {
+            if (builder.length() > 4) {
+                builder.append(", ");
+            }
+
+            builder.append(key).append(" => ").append(value);
+        });
+
+        return builder.append('}').toString();
+    }
+
+    private static boolean needsCompacting(int size, int length) {
+        return length > MIN_COMPACT_LENGTH && length - size > size;
+    }
+
+    // the same entries again without the holes, which moves them all so the trie is rebuilt as well
+    private static VMap compact(VArray order) {
+        Builder builder = builder();
+        for (Object element : order) {
+            if (element != null) {
+                Entry entry = (Entry) element;
+                builder.put(entry.key, entry.value);
+            }
+        }
+
+        return builder.build();
+    }
+
+    private static int hash(Object key) {
+        int hash = Objects.requireNonNull(key, "Map keys can't be null").hashCode();
+        // spread the high bits down, the low ones are used first
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    // what the trie holds for each key, and where in the order it is
+    private static final class Entry {
+
+        private final int index;
+        private final Object key;
+        private final Object value;
+
+        private Entry(int index, Object key, Object value) {
+            this.index = index;
+            this.key = key;
+            this.value = value;
+        }
+
+    }
+
+    private interface Node {
+
+        @Nullable Object find(int shift, int hash, Object key);
+
+        Node put(@Nullable Object edit, int shift, int hash, Object key, Object value);
+
+        // null once the node has nothing left in it
+        @Nullable Node remove(@Nullable Object edit, int shift, int hash, Object key);
+
+    }
+
+    /**
+     * Up to 32 children, each either an entry or a node for the keys that share this part of the
+     * hash. Entries take two slots, the key and the value, and a child node takes two with a null
+     * key.
+     */
+    private static final class BitmapNode implements Node {
+
+        private static final BitmapNode EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+        private final @Nullable Object edit;
+        private int bitmap;
+        private Object[] slots;
+
+        private BitmapNode(@Nullable Object edit, int bitmap, Object[] slots) {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        // where the child for the bit is, counting the children before it
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private BitmapNode editableBy(@Nullable Object edit) {
+            return edit != null && this.edit == edit ? this : new BitmapNode(edit, bitmap, slots.clone());
+        }
+
+        @Override
+        public @Nullable Object find(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+
+            int index = index(bit);
+            Object childKey = slots[2 * index];
+            Object child = slots[2 * index + 1];
+            if (childKey == null) {
+                return ((Node) child).find(shift + BITS, hash, key);
+            }
+
+            return key.equals(childKey) ? child : null;
+        }
+
+        @Override
+        public Node put(@Nullable Object edit, int shift, int hash, Object key, Object value) {
+            int bit = bit(hash, shift);
+            int index = index(bit);
+
+            if ((bitmap & bit) == 0) {
+                Object[] newSlots = new Object[slots.length + 2];
+                System.arraycopy(slots, 0, newSlots, 0, 2 * index);
+                newSlots[2 * index] = key;
+                newSlots[2 * index + 1] = value;
+                System.arraycopy(slots, 2 * index, newSlots, 2 * (index + 1), slots.length - 2 * index);
+
+                BitmapNode node = editableBy(edit);
+                node.bitmap |= bit;
+                node.slots = newSlots;
+                return node;
+            }
+
+            Object childKey = slots[2 * index];
+            Object child = slots[2 * index + 1];
+            Object newChild;
+            Object newKey = null;
+            if (childKey == null) {
+                newChild = ((Node) child).put(edit, shift + BITS, hash, key, value);
+            } else if (key.equals(childKey)) {
+                if (value.equals(child)) {
+                    return this;
+                }
+
+                newChild = value;
+                newKey = childKey;
+            } else {
+                // two keys in the same place, they get a node of their own a level down
+                newChild = pair(edit, shift + BITS, hash(childKey), childKey, child, hash, key, value);
+            }
+
+            if (newChild == child) {
+                return this;
+            }
+
+            BitmapNode node = editableBy(edit);
+            node.slots[2 * index] = newKey;
+            node.slots[2 * index + 1] = newChild;
+            return node;
+        }
+
+        @Override
+        public @Nullable Node remove(@Nullable Object edit, int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+
+            int index = index(bit);
+            Object childKey = slots[2 * index];
+            Object child = slots[2 * index + 1];
+            if (childKey == null) {
+                Node newChild = ((Node) child).remove(edit, shift + BITS, hash, key);
+                if (newChild == child) {
+                    return this;
+                }
+
+                if (newChild != null) {
+                    BitmapNode node = editableBy(edit);
+                    node.slots[2 * index + 1] = newChild;
+                    return node;
+                }
+            } else if (!key.equals(childKey)) {
+                return this;
+            }
+
+            if (bitmap == bit) {
+                return null;
+            }
+
+            Object[] newSlots = new Object[slots.length - 2];
+            System.arraycopy(slots, 0, newSlots, 0, 2 * index);
+            System.arraycopy(slots, 2 * (index + 1), newSlots, 2 * index, newSlots.length - 2 * index);
+
+            BitmapNode node = editableBy(edit);
+            node.bitmap ^= bit;
+            node.slots = newSlots;
+            return node;
+        }
+
+    }
+
+    /**
+     * Keys whose hashes are the same all the way down, searched one by one.
+     */
+    private static final class CollisionNode implements Node {
+
+        private final @Nullable Object edit;
+        private final int hash;
+        private Object[] entries;
+
+        private CollisionNode(@Nullable Object edit, int hash, Object[] entries) {
+            this.edit = edit;
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < entries.length; i += 2) {
+                if (key.equals(entries[i])) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        private CollisionNode editableBy(@Nullable Object edit) {
+            return edit != null && this.edit == edit ? this : new CollisionNode(edit, hash, entries.clone());
+        }
+
+        @Override
+        public @Nullable Object find(int shift, int hash, Object key) {
+            int index = indexOf(key);
+            return index != -1 ? entries[index + 1] : null;
+        }
+
+        @Override
+        public Node put(@Nullable Object edit, int shift, int hash, Object key, Object value) {
+            if (hash != this.hash) {
+                // a different hash that happens to share every level so far, the collision moves down a level
+                BitmapNode node = new BitmapNode(edit, bit(this.hash, shift), new Object[] { null, this });
+                return node.put(edit, shift, hash, key, value);
+            }
+
+            int index = indexOf(key);
+            if (index != -1) {
+                if (value.equals(entries[index + 1])) {
+                    return this;
+                }
+
+                CollisionNode node = editableBy(edit);
+                node.entries[index + 1] = value;
+                return node;
+            }
+
+            Object[] newEntries = Arrays.copyOf(entries, entries.length + 2);
+            newEntries[entries.length] = key;
+            newEntries[entries.length + 1] = value;
+
+            CollisionNode node = editableBy(edit);
+            node.entries = newEntries;
+            return node;
+        }
+
+        @Override
+        public @Nullable Node remove(@Nullable Object edit, int shift, int hash, Object key) {
+            int index = indexOf(key);
+            if (index == -1) {
+                return this;
+            }
+
+            if (entries.length == 2) {
+                return null;
+            }
+
+            Object[] newEntries = new Object[entries.length - 2];
+            System.arraycopy(entries, 0, newEntries, 0, index);
+            System.arraycopy(entries, index + 2, newEntries, index, newEntries.length - index);
+
+            CollisionNode node = editableBy(edit);
+            node.entries = newEntries;
+            return node;
+        }
+
+    }
+
+    // a node for two keys that landed in the same slot
+    private static Node pair(@Nullable Object edit, int shift, int hash1, Object key1, Object value1, int hash2, Object key2, Object value2) {
+        if (hash1 == hash2) {
+            return new CollisionNode(edit, hash1, new Object[] { key1, value1, key2, value2 });
+        }
+
+        return BitmapNode.EMPTY
+                .put(edit, shift, hash1, key1, value1)
+                .put(edit, shift, hash2, key2, value2);
+    }
+
+    /**
+     * Builds a map in place. Nodes the builder made itself are changed without copying, and
+     * {@link #build()} hands them over to the map, after which the builder can't be used any more.
+     */
+    public static final class Builder {
+
+        private @Nullable Object edit = new Object();
+        private int size;
+        private Node root;
+        private VArray.Builder order;
+
+        private Builder(VMap map) {
+            this.size = map.size;
+            this.root = map.root;
+            this.order = map.order.toBuilder();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Builder put(Object key, Object value) {
+            Object edit = ensureEditable();
+            Objects.requireNonNull(value, "Map values can't be null");
+            int hash = hash(key);
+            Entry existing = (Entry) root.find(0, hash, key);
+            if (existing != null && value.equals(existing.value)) {
+                return this;
+            }
+
+            Entry entry = new Entry(existing != null ? existing.index : order.length(), key, value);
+            root = root.put(edit, 0, hash, key, entry);
+            order.set(entry.index, entry);
+            if (existing == null) {
+                size++;
+            }
+
+            return this;
+        }
+
+        public Builder remove(Object key) {
+            Object edit = ensureEditable();
+            int hash = hash(key);
+            Entry existing = (Entry) root.find(0, hash, key);
+            if (existing == null) {
+                return this;
+            }
+
+            Node newRoot = root.remove(edit, 0, hash, key);
+            root = newRoot != null ? newRoot : BitmapNode.EMPTY;
+            order.set(existing.index, null);
+            size--;
+
+            if (needsCompacting(size, order.length())) {
+                VMap compacted = compact(order.build());
+                root = compacted.root;
+                order = compacted.order.toBuilder();
+            }
+
+            return this;
+        }
+
+        public VMap build() {
+            ensureEditable();
+            // the nodes keep this builder's edit, which nothing else has, so they're never changed again
+            edit = null;
+            return size == 0 ? EMPTY : new VMap(size, root, order.build());
+        }
+
+        private Object ensureEditable() {
+            if (edit == null) {
+                throw new IllegalStateException("The map has already been built");
+            }
+
+            return edit;
+        }
+
+    }
+
+}
@@ -2,8 +2,6 @@ package dev.jok.verse.types.number;
 
 import lombok.RequiredArgsConstructor;
 
-import java.util.Objects;
-
 @RequiredArgsConstructor
 public class VFloat extends VNumber<VFloat> {
 
@@ -13,34 +11,61 @@ public class VFloat extends VNumber<VFloat> {
         return new VFloat(Float.parseFloat(text));
     }
 
+    public float floatValue() {
+        return value;
+    }
+
     @Override
     public VFloat negate() {
-        ensureSameType(this);
         return new VFloat(-value);
     }
 
     @Override
     public VFloat add(VNumber<?> rightVal) {
-        ensureSameType(rightVal);
-        return new VFloat(value + ((VFloat) rightVal).value);
+        return new VFloat(value + other(rightVal));
     }
 
     @Override
     public VFloat subtract(VNumber<?> rightVal) {
-        ensureSameType(rightVal);
-        return new VFloat(value - ((VFloat) rightVal).value);
+        return new VFloat(value - other(rightVal));
     }
 
     @Override
     public VFloat multiply(VNumber<?> rightVal) {
-        ensureSameType(rightVal);
-        return new VFloat(value * ((VFloat) rightVal).value);
+        return new VFloat(value * other(rightVal));
     }
 
     @Override
     public VFloat divide(VNumber<?> rightVal) {
-        ensureSameType(rightVal);
-        return new VFloat(value / ((VFloat) rightVal).value);
+        return new VFloat(value / other(rightVal));
+    }
+
+    @Override
+    public boolean greaterThan(VNumber<?> other) {
+        return value > other(other);
+    }
+
+    @Override
+    public boolean greaterThanOrEqual(VNumber<?> other) {
+        return value >= other(other);
+    }
+
+    @Override
+    public boolean lessThan(VNumber<?> other) {
+        return value < other(other);
+    }
+
+    @Override
+    public boolean lessThanOrEqual(VNumber<?> other) {
+        return value <= other(other);
+    }
+
+    private static float other(VNumber<?> other) {
+        if (other instanceof VFloat number) {
+            return number.value;
+        }
+
+        throw differentTypes();
     }
 
     @Override
@@ -50,10 +75,13 @@ public class VFloat extends VNumber<VFloat> {
 
     @Override
     public boolean equals(Object other) {
-        if (!(other instanceof VNumber<?> otherVal)) {
-            return false;
-        }
-        return Objects.equals(value, otherVal.getRawValue());
+        // same semantics as Float.equals, without boxing
+        return other instanceof VFloat number && Float.floatToIntBits(number.value) == Float.floatToIntBits(value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Float.hashCode(value);
     }
 
     @Override
@@ -1,43 +1,91 @@
 package dev.jok.verse.types.number;
 
+import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 
-@RequiredArgsConstructor
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 public class VInteger extends VNumber<VInteger> {
 
+    // small values are shared so loop counters and the like don't allocate
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1024;
+    private static final VInteger[] CACHE = new VInteger[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new VInteger(i + CACHE_LOW);
+        }
+    }
+
     private final int value;
 
+    public static VInteger valueOf(int value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return CACHE[value - CACHE_LOW];
+        }
+
+        return new VInteger(value);
+    }
+
     public static Object parseInt(String text) {
-        return new VInteger(Integer.parseInt(text));
+        return valueOf(Integer.parseInt(text));
+    }
+
+    public int intValue() {
+        return value;
     }
 
     @Override
     public VInteger negate() {
-        return new VInteger(-value);
+        return valueOf(-value);
     }
 
     @Override
     public VInteger add(VNumber<?> rightVal) {
-        ensureSameType(rightVal);
-        return new VInteger(value + ((VInteger) rightVal).value);
+        return valueOf(value + other(rightVal));
     }
 
     @Override
     public VInteger subtract(VNumber<?> rightVal) {
-        ensureSameType(rightVal);
-        return new VInteger(value - ((VInteger) rightVal).value);
+        return valueOf(value - other(rightVal));
     }
 
     @Override
     public VInteger multiply(VNumber<?> rightVal) {
-        ensureSameType(rightVal);
-        return new VInteger(value * ((VInteger) rightVal).value);
+        return valueOf(value * other(rightVal));
     }
 
     @Override
     public VInteger divide(VNumber<?> rightVal) {
-        ensureSameType(rightVal);
-        return new VInteger(value / ((VInteger) rightVal).value);
+        return valueOf(value / other(rightVal));
+    }
+
+    @Override
+    public boolean greaterThan(VNumber<?> other) {
+        return value > other(other);
+    }
+
+    @Override
+    public boolean greaterThanOrEqual(VNumber<?> other) {
+        return value >= other(other);
+    }
+
+    @Override
+    public boolean lessThan(VNumber<?> other) {
+        return value < other(other);
+    }
+
+    @Override
+    public boolean lessThanOrEqual(VNumber<?> other) {
+        return value <= other(other);
+    }
+
+    private static int other(VNumber<?> other) {
+        if (other instanceof VInteger integer) {
+            return integer.value;
+        }
+
+        throw differentTypes();
     }
 
     @Override
@@ -45,6 +93,16 @@ public class VInteger extends VNumber<VInteger> {
         return value;
     }
 
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof VInteger integer && integer.value == value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(value);
+    }
+
     @Override
     public String toString() {
         return String.valueOf(value);
@@ -2,6 +2,10 @@ package dev.jok.verse.types.number;
 
 import dev.jok.verse.interpreter.VerseInterpreter;
 
+/**
+ * Base for Verse numbers. Operations only work between numbers of the same type, and subclasses
+ * work on their primitive value directly so arithmetic and comparisons never box.
+ */
 public abstract class VNumber<T extends VNumber<T>> {
 
     public abstract T negate();
@@ -11,47 +15,24 @@ public abstract class VNumber<T extends VNumber<T>> {
     public abstract T multiply(VNumber<?> rightVal);
     public abstract T divide(VNumber<?> rightVal);
 
+    public abstract boolean greaterThan(VNumber<?> other);
+    public abstract boolean greaterThanOrEqual(VNumber<?> other);
+    public abstract boolean lessThan(VNumber<?> other);
+    public abstract boolean lessThanOrEqual(VNumber<?> other);
+
     public abstract Number getRawValue();
 
-    protected void ensureSameType(VNumber<?> rightVal) {
-        if (!isSameType(rightVal)) {
-            throw VerseInterpreter.runtimeError(null, "Cannot operate on different types");
-        }
+    protected static RuntimeException differentTypes() {
+        return VerseInterpreter.runtimeError(null, "Cannot operate on different types");
     }
 
-    private boolean isSameType(VNumber<?> other) {
-        return this.getClass().equals(other.getClass());
-    }
+    @Override
+    public abstract boolean equals(Object other);
 
     @Override
-    public boolean equals(Object other) {
-        if (!(other instanceof VNumber<?> otherVal)) {
-            return false;
-        }
-        return getRawValue().equals(otherVal.getRawValue());
-    }
+    public abstract int hashCode();
 
     @Override
     public abstract String toString();
 
-    public boolean greaterThan(VNumber<?> other) {
-        ensureSameType(other);
-        return getRawValue().doubleValue() > other.getRawValue().doubleValue();
-    }
-
-    public boolean greaterThanOrEqual(VNumber<?> other) {
-        ensureSameType(other);
-        return getRawValue().doubleValue() >= other.getRawValue().doubleValue();
-    }
-
-    public boolean lessThan(VNumber<?> other) {
-        ensureSameType(other);
-        return getRawValue().doubleValue() < other.getRawValue().doubleValue();
-    }
-
-    public boolean lessThanOrEqual(VNumber<?> other) {
-        ensureSameType(other);
-        return getRawValue().doubleValue() <= other.getRawValue().doubleValue();
-    }
-
 }
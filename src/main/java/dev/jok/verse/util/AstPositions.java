@@ -0,0 +1,144 @@
+package dev.jok.verse.util;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.ast.AstVisitor;
+import dev.jok.verse.ast.types.AstParameter;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.AstType;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
+import dev.jok.verse.ast.types.decl.AstVariableDecl;
+import dev.jok.verse.ast.types.expr.*;
+import dev.jok.verse.ast.types.stmt.AstBlock;
+import dev.jok.verse.ast.types.stmt.AstExpressionStmt;
+import dev.jok.verse.lexer.Token;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Finds where a node starts in the source, for reporting problems the later passes find. Only some
+ * nodes keep a token, so the rest use the first one of their children.
+ */
+public final class AstPositions implements AstVisitor<Token> {
+
+    private static final AstPositions INSTANCE = new AstPositions();
+
+    private AstPositions() { }
+
+    /**
+     * The first token of the node, or null if nothing in it has one, like a literal the
+     * ConstantFolder made.
+     */
+    public static @Nullable Token firstToken(AstNode node) {
+        return node.accept(INSTANCE);
+    }
+
+    private static @Nullable Token firstToken(List<AstStmt> statements) {
+        for (AstStmt stmt : statements) {
+            Token token = firstToken(stmt);
+            if (token != null) {
+                return token;
+            }
+        }
+
+        return null;
+    }
+
+    private static Token either(@Nullable Token first, Token fallback) {
+        return first != null ? first : fallback;
+    }
+
+    @Override
+    public Token visitTypeExpr(AstType type) {
+        return type.name;
+    }
+
+    @Override
+    public Token visitFunctionDecl(AstFunctionDecl function) {
+        return function.name;
+    }
+
+    @Override
+    public Token visitVariableDecl(AstVariableDecl variable) {
+        return variable.name;
+    }
+
+    @Override
+    public Token visitUsingDecl(AstUsingDecl using) {
+        return using.keyword;
+    }
+
+    @Override
+    public @Nullable Token visitExpressionStmt(AstExpressionStmt expression) {
+        return firstToken(expression.expression);
+    }
+
+    @Override
+    public @Nullable Token visitBlock(AstBlock block) {
+        return firstToken(block.statements);
+    }
+
+    @Override
+    public Token visitParameter(AstParameter parameter) {
+        return parameter.name;
+    }
+
+    @Override
+    public @Nullable Token visitIf(AstIfExpr astIf) {
+        // the `if` itself isn't kept
+        Token token = firstToken(astIf.condition);
+        return token != null ? token : firstToken(astIf.thenBranch);
+    }
+
+    @Override
+    public Token visitAssignExpr(AstAssignExpr assign) {
+        return assign.name;
+    }
+
+    @Override
+    public Token visitBinaryExpr(AstBinaryExpr binary) {
+        return either(firstToken(binary.left), binary.operator);
+    }
+
+    @Override
+    public @Nullable Token visitGroupingExpr(AstGroupingExpr grouping) {
+        return firstToken(grouping.expression);
+    }
+
+    @Override
+    public @Nullable Token visitLiteralExpr(AstLiteralExpr literal) {
+        return null;
+    }
+
+    @Override
+    public Token visitUnaryExpr(AstUnaryExpr unary) {
+        return unary.operator;
+    }
+
+    @Override
+    public Token visitVariableExpr(AstVariableExpr variable) {
+        return variable.name;
+    }
+
+    @Override
+    public @Nullable Token visitCallExpr(AstCallExpr call) {
+        return firstToken(call.callee);
+    }
+
+    @Override
+    public Token visitGetExpr(AstGetExpr get) {
+        return either(firstToken(get.expr), get.name);
+    }
+
+    @Override
+    public Token visitSpawnExpr(AstSpawnExpr spawn) {
+        return spawn.keyword;
+    }
+
+    @Override
+    public Token visitConcurrentExpr(AstConcurrentExpr concurrent) {
+        return concurrent.keyword;
+    }
+
+}
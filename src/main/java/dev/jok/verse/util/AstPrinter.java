@@ -4,6 +4,7 @@ import dev.jok.verse.ast.AstNode;
 import dev.jok.verse.ast.AstVisitor;
 import dev.jok.verse.ast.types.*;
 import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
 import dev.jok.verse.ast.types.decl.AstVariableDecl;
 import dev.jok.verse.ast.types.expr.*;
 import dev.jok.verse.ast.types.stmt.AstBlock;
@@ -95,9 +96,14 @@ public class AstPrinter implements AstVisitor<String> {
         return (variableDeclaration.mutable ? "var " : "") + variableDeclaration.name.lexeme + type + variableDeclaration.initializer.accept(this);
     }
 
+    @Override
+    public String visitUsingDecl(AstUsingDecl using) {
+        return "using { " + using.path + " }";
+    }
+
     @Override
     public String visitAssignExpr(AstAssignExpr assign) {
-        return assign.name.lexeme + " = " + assign.value.accept(this);
+        return "set " + assign.name.lexeme + " = " + assign.value.accept(this);
     }
 
     @Override
@@ -145,6 +151,21 @@ public class AstPrinter implements AstVisitor<String> {
         return astGet.toString();
     }
 
+    @Override
+    public String visitSpawnExpr(AstSpawnExpr spawn) {
+        return "spawn { " + spawn.call.accept(this) + " }";
+    }
+
+    @Override
+    public String visitConcurrentExpr(AstConcurrentExpr concurrent) {
+        StringBuilder builder = new StringBuilder(concurrent.keyword.lexeme).append(" {\n");
+        for (AstCallExpr branch : concurrent.branches) {
+            builder.append(branch.accept(this)).append('\n');
+        }
+
+        return builder.append('}').toString();
+    }
+
     private void appendCommaSeperatedStatements(List<? extends AstNode> statements, StringBuilder builder) {
         for (int i = 0; i < statements.size(); i++) {
             AstNode node = statements.get(i);
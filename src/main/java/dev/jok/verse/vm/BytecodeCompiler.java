@@ -0,0 +1,659 @@
+package dev.jok.verse.vm;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.ast.AstVisitor;
+import dev.jok.verse.ast.types.AstExpr;
+import dev.jok.verse.ast.types.AstParameter;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.AstType;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
+import dev.jok.verse.ast.types.decl.AstVariableDecl;
+import dev.jok.verse.ast.types.expr.*;
+import dev.jok.verse.ast.types.stmt.AstBlock;
+import dev.jok.verse.ast.types.stmt.AstExpressionStmt;
+import dev.jok.verse.diagnostic.CompileError;
+import dev.jok.verse.interpreter.FunctionTable;
+import dev.jok.verse.interpreter.NativeFunction;
+import dev.jok.verse.interpreter.VerseCallable;
+import dev.jok.verse.interpreter.VerseFunction;
+import dev.jok.verse.interpreter.VerseNative;
+import dev.jok.verse.lexer.Symbols;
+import dev.jok.verse.task.TaskGroup;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import dev.jok.verse.util.AstPositions;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Lowers resolved statements into register bytecode for {@link VerseVM}.
+ * <p>
+ * The Resolver's frame slots are used directly as registers, so reading a local costs nothing and
+ * temporaries are allocated above them. Every visit returns the register holding the result.
+ * <p>
+ * Ints, floats and logics whose type is known are kept in the unboxed bank of registers and use the
+ * typed instructions, which ones that are is worked out by {@link TypeInference}.
+ */
+public class BytecodeCompiler implements AstVisitor<Integer> {
+
+    private final List<AstStmt> statements;
+    private final int globalCount;
+    private final FunctionTable functionTable;
+    private final Map<AstFunctionDecl, Integer> functionIndexes = new HashMap<>();
+    private final Map<NativeFunction, Integer> nativeIndexes = new LinkedHashMap<>();
+    private final TypeInference inference;
+
+    // state for the function currently being compiled
+    private Emitter emitter;
+    // register the next expression should write its result to, -1 to allocate a fresh one
+    private int destination = -1;
+
+    public BytecodeCompiler(List<AstStmt> statements, int globalCount, VerseNative verseNative) {
+        this.statements = statements;
+        this.globalCount = globalCount;
+        this.functionTable = FunctionTable.build(statements, verseNative);
+        this.inference = new TypeInference(functionTable);
+    }
+
+    public CompiledProgram compile() {
+        List<AstFunctionDecl> declarations = new ArrayList<>();
+        for (AstStmt stmt : statements) {
+            if (stmt instanceof AstFunctionDecl function && function.body != null && !function.hasSpecifier(Symbols.NATIVE)) {
+                functionIndexes.put(function, declarations.size());
+                declarations.add(function);
+            }
+        }
+
+        inference.inferSignatures(statements, declarations);
+
+        CompiledFunction[] functions = new CompiledFunction[declarations.size()];
+        Map<String, CompiledFunction> functionsByName = new HashMap<>();
+        for (int i = 0; i < functions.length; i++) {
+            AstFunctionDecl declaration = declarations.get(i);
+            functions[i] = compileFunction(declaration);
+            functionsByName.putIfAbsent(declaration.name.lexeme, functions[i]);
+        }
+
+        CompiledFunction initializer = compileInitializer();
+        NativeFunction[] natives = nativeIndexes.keySet().toArray(new NativeFunction[0]);
+        return new CompiledProgram(initializer, functions, natives, globalCount, functionsByName);
+    }
+
+    private CompiledFunction compileFunction(AstFunctionDecl function) {
+        TypeInference.Signature signature = Objects.requireNonNull(inference.signature(function));
+        inference.beginFunction(function);
+        emitter = new Emitter(function.name.lexeme, function.frameSize);
+
+        compileReturn(Objects.requireNonNull(function.body), signature.getReturnType(), function);
+        return emitter.finish(signature.parameters.clone(), signature.getReturnType());
+    }
+
+    /**
+     * Compiles statements whose value is returned. An {@code if} at the end returns from each of its
+     * branches instead of moving the value to a shared RETURN, which is how most recursive functions
+     * end.
+     */
+    private void compileReturn(List<AstStmt> statements, ValueType type, AstNode owner) {
+        int opcode = type == ValueType.OBJECT ? Opcode.RETURN : Opcode.RETURN_VALUE;
+        if (statements.isEmpty() || !(statements.get(statements.size() - 1) instanceof AstExpressionStmt last)) {
+            int result = emitter.allocate();
+            compileStatements(statements, result, type, owner);
+            emitter.emit(owner, opcode, result);
+            return;
+        }
+
+        for (AstStmt stmt : statements.subList(0, statements.size() - 1)) {
+            int mark = emitter.nextRegister;
+            compile(stmt);
+            emitter.nextRegister = mark;
+        }
+
+        if (last.expression instanceof AstIfExpr astIf) {
+            int jumpToElse = compileCondition(astIf);
+            compileReturn(astIf.thenBranch, type, astIf);
+            emitter.patchJump(jumpToElse);
+            compileReturn(astIf.elseBranch, type, astIf);
+            return;
+        }
+
+        emitter.emit(last, opcode, compile(last.expression, type));
+    }
+
+    private CompiledFunction compileInitializer() {
+        inference.beginTopLevel();
+        emitter = new Emitter("<init>", 0);
+
+        int result = emitter.allocate();
+        for (AstStmt stmt : statements) {
+            if (stmt instanceof AstFunctionDecl || stmt instanceof AstUsingDecl) {
+                continue;
+            }
+
+            int mark = emitter.nextRegister;
+            compile(stmt);
+            emitter.nextRegister = mark;
+        }
+
+        emitter.emit(null, Opcode.LOAD_NIL, result);
+        emitter.emit(null, Opcode.RETURN, result);
+        return emitter.finish(new ValueType[0], ValueType.OBJECT);
+    }
+
+    // compiles a list of statements, leaving the value of the last one in dst as the given type
+    private void compileStatements(List<AstStmt> statements, int dst, ValueType type, AstNode owner) {
+        if (statements.isEmpty()) {
+            // inferred as OBJECT, so dst is always a boxed register here
+            emitter.emit(owner, Opcode.LOAD_NIL, dst);
+            return;
+        }
+
+        AstStmt last = statements.get(statements.size() - 1);
+        for (AstStmt stmt : statements) {
+            int mark = emitter.nextRegister;
+            if (stmt == last && stmt instanceof AstExpressionStmt expression) {
+                compileInto(expression.expression, dst, type);
+            } else {
+                int result = compile(stmt);
+                if (stmt == last) {
+                    convert(stmt, inference.infer(stmt), type, dst, result);
+                }
+            }
+
+            emitter.nextRegister = mark;
+        }
+    }
+
+    private int compile(AstStmt stmt) {
+        destination = -1;
+        return stmt.accept(this);
+    }
+
+    private int compile(AstExpr expr) {
+        destination = -1;
+        return expr.accept(this);
+    }
+
+    // compiles an expression into a register of the given type, converting it if it's inferred as another
+    private int compile(AstExpr expr, ValueType type) {
+        if (inference.infer(expr) == type) {
+            return compile(expr);
+        }
+
+        int converted = emitter.allocate();
+        compileInto(expr, converted, type);
+        return converted;
+    }
+
+    // compiles an expression so its result ends up in dst as the given type, without a move where possible
+    private void compileInto(AstExpr expr, int dst, ValueType type) {
+        ValueType from = inference.infer(expr);
+        if (from != type && expr instanceof AstLiteralExpr literal && type == ValueType.OBJECT) {
+            // already boxed in the constants
+            emitter.emit(literal, Opcode.LOAD_CONST, dst, emitter.constant(literal.value));
+            return;
+        }
+
+        if (from != type) {
+            convert(expr, from, type, dst, compile(expr));
+            return;
+        }
+
+        destination = dst;
+        int result = expr.accept(this);
+        destination = -1;
+        convert(expr, type, type, dst, result);
+    }
+
+    /**
+     * Moves a value from src to dst, boxing or unboxing it on the way. A primitive of the wrong type
+     * is boxed first, so unboxing it fails the same way it does at runtime.
+     */
+    private void convert(AstNode node, ValueType from, ValueType to, int dst, int src) {
+        if (from == to) {
+            if (src != dst) {
+                emitter.emit(node, to == ValueType.OBJECT ? Opcode.MOVE : Opcode.MOVE_VALUE, dst, src);
+            }
+
+            return;
+        }
+
+        // the two banks are separate, so dst's boxed register is free to hold the value on its way
+        int boxed = from == ValueType.OBJECT ? src : dst;
+        switch (from) {
+            case INT -> emitter.emit(node, Opcode.BOX_INT, dst, src);
+            case FLOAT -> emitter.emit(node, Opcode.BOX_FLOAT, dst, src);
+            case LOGIC -> emitter.emit(node, Opcode.BOX_LOGIC, dst, src);
+            case OBJECT -> {
+            }
+        }
+
+        switch (to) {
+            case INT -> emitter.emit(node, Opcode.UNBOX_INT, dst, boxed);
+            case FLOAT -> emitter.emit(node, Opcode.UNBOX_FLOAT, dst, boxed);
+            case LOGIC -> emitter.emit(node, Opcode.UNBOX_LOGIC, dst, boxed);
+            case OBJECT -> {
+            }
+        }
+    }
+
+    // must be called before compiling any sub-expressions, as they reset the destination
+    private int takeDestination() {
+        int dst = destination;
+        destination = -1;
+        return dst != -1 ? dst : emitter.allocate();
+    }
+
+    @Override
+    public Integer visitTypeExpr(AstType type) {
+        throw compileError(type, "Types can't be compiled");
+    }
+
+    @Override
+    public Integer visitFunctionDecl(AstFunctionDecl function) {
+        throw compileError(function, "Nested functions are not supported");
+    }
+
+    @Override
+    public Integer visitVariableDecl(AstVariableDecl variable) {
+        return store(variable, 0, variable.slot, variable.initializer, inference.declare(variable));
+    }
+
+    @Override
+    public Integer visitUsingDecl(AstUsingDecl using) {
+        throw compileError(using, "Using declarations can't be compiled");
+    }
+
+    @Override
+    public Integer visitExpressionStmt(AstExpressionStmt expression) {
+        return compile(expression.expression);
+    }
+
+    @Override
+    public Integer visitBlock(AstBlock block) {
+        int dst = takeDestination();
+        compileStatements(block.statements, dst, inference.infer(block), block);
+        return dst;
+    }
+
+    @Override
+    public Integer visitParameter(AstParameter parameter) {
+        throw compileError(parameter, "Parameters can't be compiled");
+    }
+
+    @Override
+    public Integer visitIf(AstIfExpr astIf) {
+        ValueType type = inference.infer(astIf);
+        int dst = takeDestination();
+
+        int jumpToElse = compileCondition(astIf);
+        compileStatements(astIf.thenBranch, dst, type, astIf);
+        int jumpToEnd = emitter.emitJump(astIf, Opcode.JUMP);
+
+        emitter.patchJump(jumpToElse);
+        compileStatements(astIf.elseBranch, dst, type, astIf);
+        emitter.patchJump(jumpToEnd);
+
+        return dst;
+    }
+
+    // emits the jump taken when the condition is false, returns it to be patched
+    private int compileCondition(AstIfExpr astIf) {
+        AstExpr condition = astIf.condition;
+        while (condition instanceof AstGroupingExpr grouping) {
+            condition = grouping.expression;
+        }
+
+        // comparing two ints jumps on the result straight away
+        if (condition instanceof AstBinaryExpr binary && inference.operandType(binary) == ValueType.INT) {
+            int opcode = switch (binary.operator.type) {
+                case EQUALS -> Opcode.JUMP_IF_NOT_EQUAL_INT;
+                case GREATER -> Opcode.JUMP_IF_NOT_GREATER_INT;
+                case GREATER_EQUAL -> Opcode.JUMP_IF_NOT_GREATER_EQUAL_INT;
+                case LESS -> Opcode.JUMP_IF_NOT_LESS_INT;
+                case LESS_EQUAL -> Opcode.JUMP_IF_NOT_LESS_EQUAL_INT;
+                default -> -1;
+            };
+
+            if (opcode != -1) {
+                int left = compile(binary.left, ValueType.INT);
+                int right = compile(binary.right, ValueType.INT);
+                return emitter.emitJump(binary, opcode, left, right);
+            }
+        }
+
+        // only a logic is tested unboxed, anything else goes by its truthiness like in the interpreter
+        boolean logic = inference.infer(astIf.condition) == ValueType.LOGIC;
+        int register = compile(astIf.condition, logic ? ValueType.LOGIC : ValueType.OBJECT);
+        return emitter.emitJump(astIf, logic ? Opcode.JUMP_IF_FALSE_VALUE : Opcode.JUMP_IF_FALSE, register);
+    }
+
+    @Override
+    public Integer visitAssignExpr(AstAssignExpr assign) {
+        return store(assign, assign.depth, assign.slot, assign.value, inference.infer(assign));
+    }
+
+    @Override
+    public Integer visitBinaryExpr(AstBinaryExpr binary) {
+        ValueType type = inference.operandType(binary);
+        int dst = takeDestination();
+
+        // adding or subtracting a literal takes it as an operand, like the 1 in `N - 1`
+        if (type == ValueType.INT && binary.right instanceof AstLiteralExpr literal && literal.value instanceof VInteger integer) {
+            int opcode = switch (binary.operator.type) {
+                case PLUS -> Opcode.ADD_INT_CONST;
+                case MINUS -> Opcode.SUBTRACT_INT_CONST;
+                default -> -1;
+            };
+
+            if (opcode != -1) {
+                emitter.emit(binary, opcode, dst, compile(binary.left, ValueType.INT), integer.intValue());
+                return dst;
+            }
+        }
+
+        int left = compile(binary.left, type);
+        int right = compile(binary.right, type);
+
+        int opcode = switch (type) {
+            case INT, LOGIC -> switch (binary.operator.type) {
+                case PLUS -> Opcode.ADD_INT;
+                case MINUS -> Opcode.SUBTRACT_INT;
+                case STAR -> Opcode.MULTIPLY_INT;
+                case SLASH -> Opcode.DIVIDE_INT;
+                case EQUALS -> Opcode.EQUAL_INT;
+                case GREATER -> Opcode.GREATER_INT;
+                case GREATER_EQUAL -> Opcode.GREATER_EQUAL_INT;
+                case LESS -> Opcode.LESS_INT;
+                case LESS_EQUAL -> Opcode.LESS_EQUAL_INT;
+                default -> throw compileError(binary, "Unknown binary operator: " + binary.operator.type);
+            };
+            case FLOAT -> switch (binary.operator.type) {
+                case PLUS -> Opcode.ADD_FLOAT;
+                case MINUS -> Opcode.SUBTRACT_FLOAT;
+                case STAR -> Opcode.MULTIPLY_FLOAT;
+                case SLASH -> Opcode.DIVIDE_FLOAT;
+                case EQUALS -> Opcode.EQUAL_FLOAT;
+                case GREATER -> Opcode.GREATER_FLOAT;
+                case GREATER_EQUAL -> Opcode.GREATER_EQUAL_FLOAT;
+                case LESS -> Opcode.LESS_FLOAT;
+                case LESS_EQUAL -> Opcode.LESS_EQUAL_FLOAT;
+                default -> throw compileError(binary, "Unknown binary operator: " + binary.operator.type);
+            };
+            case OBJECT -> switch (binary.operator.type) {
+                case PLUS -> Opcode.ADD;
+                case MINUS -> Opcode.SUBTRACT;
+                case STAR -> Opcode.MULTIPLY;
+                case SLASH -> Opcode.DIVIDE;
+                case EQUALS -> Opcode.EQUAL;
+                case GREATER -> Opcode.GREATER;
+                case GREATER_EQUAL -> Opcode.GREATER_EQUAL;
+                case LESS -> Opcode.LESS;
+                case LESS_EQUAL -> Opcode.LESS_EQUAL;
+                default -> throw compileError(binary, "Unknown binary operator: " + binary.operator.type);
+            };
+        };
+
+        emitter.emit(binary, opcode, dst, left, right);
+        return dst;
+    }
+
+    @Override
+    public Integer visitGroupingExpr(AstGroupingExpr grouping) {
+        return compile(grouping.expression);
+    }
+
+    @Override
+    public Integer visitLiteralExpr(AstLiteralExpr literal) {
+        int dst = takeDestination();
+        if (literal.value instanceof VInteger integer) {
+            emitter.emit(literal, Opcode.LOAD_VALUE, dst, integer.intValue());
+        } else if (literal.value instanceof VFloat number) {
+            emitter.emit(literal, Opcode.LOAD_VALUE, dst, Float.floatToRawIntBits(number.floatValue()));
+        } else if (literal.value instanceof Boolean logic) {
+            emitter.emit(literal, Opcode.LOAD_VALUE, dst, logic ? 1 : 0);
+        } else {
+            emitter.emit(literal, Opcode.LOAD_CONST, dst, emitter.constant(literal.value));
+        }
+
+        return dst;
+    }
+
+    @Override
+    public Integer visitUnaryExpr(AstUnaryExpr unary) {
+        ValueType type = inference.infer(unary);
+        int dst = takeDestination();
+        int right = compile(unary.right, type);
+
+        int opcode = switch (unary.operator.type) {
+            case MINUS -> switch (type) {
+                case INT -> Opcode.NEGATE_INT;
+                case FLOAT -> Opcode.NEGATE_FLOAT;
+                default -> Opcode.NEGATE;
+            };
+            case NOT -> type == ValueType.LOGIC ? Opcode.NOT_VALUE : Opcode.NOT;
+            default -> throw compileError(unary, "Unknown unary operator: " + unary.operator.type);
+        };
+
+        emitter.emit(unary, opcode, dst, right);
+        return dst;
+    }
+
+    @Override
+    public Integer visitVariableExpr(AstVariableExpr variable) {
+        if (variable.slot == -1) {
+            throw compileError(variable, "Unresolved variable '" + variable.name.lexeme + "'.");
+        }
+
+        if (inference.isGlobal(variable, variable.depth)) {
+            int dst = takeDestination();
+            emitter.emit(variable, Opcode.GET_GLOBAL, dst, variable.slot);
+            return dst;
+        }
+
+        // locals already live in a register
+        return variable.slot;
+    }
+
+    @Override
+    public Integer visitCallExpr(AstCallExpr call) {
+        VerseCallable target = target(call);
+        int dst = takeDestination();
+        int argumentStart = compileArguments(call, target);
+
+        if (target instanceof NativeFunction nativeFunction) {
+            if (nativeFunction.getLinkError() != null) {
+                throw compileError(call, nativeFunction.getLinkError());
+            }
+
+            int index = nativeIndexes.computeIfAbsent(nativeFunction, key -> nativeIndexes.size());
+            emitter.emit(call, Opcode.CALL_NATIVE, dst, index, argumentStart, call.arguments.size());
+        } else if (target instanceof VerseFunction verseFunction) {
+            int index = functionIndexes.get(verseFunction.declaration);
+            emitter.emit(call, Opcode.CALL, dst, index, argumentStart, call.arguments.size());
+        } else {
+            throw compileError(call, "Unsupported call target '" + target.name() + "'");
+        }
+
+        return dst;
+    }
+
+    @Override
+    public Integer visitGetExpr(AstGetExpr get) {
+        throw compileError(get, "Member access is not supported by the bytecode compiler yet");
+    }
+
+    @Override
+    public Integer visitSpawnExpr(AstSpawnExpr spawn) {
+        VerseCallable target = target(spawn.call);
+        if (!(target instanceof VerseFunction verseFunction)) {
+            throw compileError(spawn, "Can only spawn functions with a body, not '" + target.name() + "'");
+        }
+
+        int dst = takeDestination();
+        int argumentStart = compileArguments(spawn.call, target);
+        emitter.emit(spawn, Opcode.SPAWN, dst, functionIndexes.get(verseFunction.declaration), argumentStart, spawn.call.arguments.size());
+        return dst;
+    }
+
+    @Override
+    public Integer visitConcurrentExpr(AstConcurrentExpr concurrent) {
+        TaskGroup.Kind kind = switch (concurrent.keyword.type) {
+            case SYNC -> TaskGroup.Kind.SYNC;
+            case RACE -> TaskGroup.Kind.RACE;
+            case RUSH -> TaskGroup.Kind.RUSH;
+            case BRANCH -> TaskGroup.Kind.BRANCH;
+            default -> throw compileError(concurrent, "Unknown concurrency expression '" + concurrent.keyword.lexeme + "'");
+        };
+
+        int dst = takeDestination();
+        int group = emitter.allocate();
+        emitter.emit(concurrent, Opcode.GROUP, group, kind.ordinal());
+
+        for (AstCallExpr branch : concurrent.branches) {
+            VerseCallable target = target(branch);
+            if (!(target instanceof VerseFunction verseFunction)) {
+                throw compileError(branch, "Can only run functions with a body in " + concurrent.keyword.lexeme + ", not '" + target.name() + "'");
+            }
+
+            // each branch's arguments are only needed until it's started
+            int mark = emitter.nextRegister;
+            int argumentStart = compileArguments(branch, target);
+            emitter.emit(branch, Opcode.BRANCH, group, functionIndexes.get(verseFunction.declaration), argumentStart, branch.arguments.size());
+            emitter.nextRegister = mark;
+        }
+
+        if (kind == TaskGroup.Kind.BRANCH) {
+            emitter.emit(concurrent, Opcode.LOAD_NIL, dst);
+        } else {
+            emitter.emit(concurrent, Opcode.AWAIT, dst, group);
+        }
+
+        return dst;
+    }
+
+    private VerseCallable target(AstCallExpr call) {
+        if (!(call.callee instanceof AstVariableExpr variable)) {
+            throw compileError(call, "Can only call functions");
+        }
+
+        VerseCallable target = functionTable.lookup(variable.name.symbol);
+        if (target == null) {
+            throw compileError(call, "Undefined function '" + variable.name.lexeme + "'.");
+        }
+
+        if (target.arity() != call.arguments.size()) {
+            throw compileError(call, "Function '" + target.name() + "' expects " + target.arity() + " arguments but got " + call.arguments.size());
+        }
+
+        return target;
+    }
+
+    // arguments have to be in consecutive registers, each as its parameter's type, returns the first one
+    private int compileArguments(AstCallExpr call, VerseCallable target) {
+        ValueType[] parameters = target instanceof VerseFunction verseFunction ? Objects.requireNonNull(inference.signature(verseFunction.declaration)).parameters : null;
+
+        int argumentStart = emitter.nextRegister;
+        for (int i = 0; i < call.arguments.size(); i++) {
+            emitter.allocate();
+        }
+
+        for (int i = 0; i < call.arguments.size(); i++) {
+            compileInto(call.arguments.get(i), argumentStart + i, parameters != null ? parameters[i] : ValueType.OBJECT);
+        }
+
+        return argumentStart;
+    }
+
+    private int store(AstNode node, int depth, int slot, AstExpr value, ValueType type) {
+        if (slot == -1) {
+            throw compileError(node, "Unresolved variable");
+        }
+
+        if (inference.isGlobal(node, depth)) {
+            int result = compile(value, ValueType.OBJECT);
+            emitter.emit(node, Opcode.SET_GLOBAL, slot, result);
+            return result;
+        }
+
+        compileInto(value, slot, type);
+        return slot;
+    }
+
+    private static CompileError compileError(AstNode node, String message) {
+        return new CompileError(AstPositions.firstToken(node), message);
+    }
+
+    private static final class Emitter {
+
+        private final String name;
+        private final List<Object> constants = new ArrayList<>();
+        private final Map<Object, Integer> constantIndexes = new HashMap<>();
+        private int[] code = new int[64];
+        private AstNode[] sourceMap = new AstNode[64];
+        private int length = 0;
+        private int nextRegister;
+        private int registerCount;
+
+        private Emitter(String name, int localCount) {
+            this.name = name;
+            this.nextRegister = localCount;
+            this.registerCount = localCount;
+        }
+
+        private int allocate() {
+            int register = nextRegister++;
+            registerCount = Math.max(registerCount, nextRegister);
+            return register;
+        }
+
+        private int constant(Object value) {
+            // Boolean and VNumber equality is by value, so equal literals share a slot
+            if (value == null) {
+                constants.add(null);
+                return constants.size() - 1;
+            }
+
+            return constantIndexes.computeIfAbsent(value, key -> {
+                constants.add(key);
+                return constants.size() - 1;
+            });
+        }
+
+        private void emit(AstNode node, int opcode, int... operands) {
+            ensureCapacity(operands.length + 1);
+            sourceMap[length] = node;
+            code[length++] = opcode;
+            for (int operand : operands) {
+                code[length++] = operand;
+            }
+        }
+
+        private int emitJump(AstNode node, int opcode, int... operands) {
+            int[] withTarget = Arrays.copyOf(operands, operands.length + 1);
+            withTarget[operands.length] = -1;
+            emit(node, opcode, withTarget);
+            // offset of the target operand
+            return length - 1;
+        }
+
+        private void patchJump(int operand) {
+            code[operand] = length;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > code.length) {
+                int size = Math.max(code.length * 2, length + extra);
+                code = Arrays.copyOf(code, size);
+                sourceMap = Arrays.copyOf(sourceMap, size);
+            }
+        }
+
+        private @NotNull CompiledFunction finish(ValueType[] parameterTypes, ValueType returnType) {
+            return new CompiledFunction(name, parameterTypes.length, registerCount, Arrays.copyOf(code, length), constants.toArray(), Arrays.copyOf(sourceMap, length), parameterTypes, returnType);
+        }
+
+    }
+
+}
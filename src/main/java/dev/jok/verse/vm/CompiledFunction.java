@@ -0,0 +1,45 @@
+package dev.jok.verse.vm;
+
+import dev.jok.verse.ast.AstNode;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class CompiledFunction {
+
+    public final String name;
+    public final int arity;
+    public final int registerCount;
+    public final int[] code;
+    public final Object[] constants;
+    // the node each instruction was compiled from, indexed by the instruction's offset, for errors
+    public final AstNode[] sourceMap;
+    // which bank each parameter is passed in, and the return value is returned from
+    public final ValueType[] parameterTypes;
+    public final ValueType returnType;
+
+    public String disassemble() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(name).append(" (").append(arity).append(" args, ").append(registerCount).append(" registers)\n");
+
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc];
+            builder.append(String.format("%04d ", pc)).append(Opcode.name(opcode));
+
+            int operands = Opcode.operandCount(opcode);
+            for (int i = 1; i <= operands; i++) {
+                builder.append(' ').append(code[pc + i]);
+            }
+
+            if (opcode == Opcode.LOAD_CONST) {
+                builder.append("  ; ").append(constants[code[pc + 2]]);
+            }
+
+            builder.append('\n');
+            pc += operands + 1;
+        }
+
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,23 @@
+package dev.jok.verse.vm;
+
+import dev.jok.verse.interpreter.NativeFunction;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class CompiledProgram {
+
+    // runs the top-level statements, which initializes the globals
+    public final CompiledFunction initializer;
+    public final CompiledFunction[] functions;
+    public final NativeFunction[] natives;
+    public final int globalCount;
+    private final Map<String, CompiledFunction> functionsByName;
+
+    public @Nullable CompiledFunction lookupFunction(String name) {
+        return functionsByName.get(name);
+    }
+
+}
@@ -0,0 +1,163 @@
+package dev.jok.verse.vm;
+
+/**
+ * Instruction set for the register VM. Every instruction is the opcode followed by its operands,
+ * all stored inline in the function's {@code int[]} code. Operands named {@code dst}, {@code a} and
+ * {@code b} are register indexes.
+ * <p>
+ * The generic instructions work on boxed values in the {@code Object[]} bank. The {@code _INT},
+ * {@code _FLOAT} and {@code _VALUE} ones work on the unboxed {@code int[]} bank, and are emitted
+ * wherever the compiler knows the types (see {@link ValueType}).
+ */
+public final class Opcode {
+
+    // dst, constant
+    public static final int LOAD_CONST = 0;
+    // dst
+    public static final int LOAD_NIL = 1;
+    // dst, src
+    public static final int MOVE = 2;
+    // dst, global slot
+    public static final int GET_GLOBAL = 3;
+    // global slot, src
+    public static final int SET_GLOBAL = 4;
+
+    // dst, a, b
+    public static final int ADD = 5;
+    public static final int SUBTRACT = 6;
+    public static final int MULTIPLY = 7;
+    public static final int DIVIDE = 8;
+    public static final int EQUAL = 9;
+    public static final int GREATER = 10;
+    public static final int GREATER_EQUAL = 11;
+    public static final int LESS = 12;
+    public static final int LESS_EQUAL = 13;
+
+    // dst, a
+    public static final int NEGATE = 14;
+    public static final int NOT = 15;
+
+    // target
+    public static final int JUMP = 16;
+    // condition, target
+    public static final int JUMP_IF_FALSE = 17;
+
+    // dst, function, first argument, argument count
+    public static final int CALL = 18;
+    public static final int CALL_NATIVE = 19;
+
+    // src
+    public static final int RETURN = 20;
+
+    // dst, function, first argument, argument count
+    public static final int SPAWN = 21;
+    // dst, group kind
+    public static final int GROUP = 22;
+    // group, function, first argument, argument count
+    public static final int BRANCH = 23;
+    // dst, group
+    public static final int AWAIT = 24;
+
+    // dst, immediate, the raw bits of an int, float or logic
+    public static final int LOAD_VALUE = 25;
+    // dst, src
+    public static final int MOVE_VALUE = 26;
+
+    // dst, src, between the banks
+    public static final int BOX_INT = 27;
+    public static final int BOX_FLOAT = 28;
+    public static final int BOX_LOGIC = 29;
+    public static final int UNBOX_INT = 30;
+    public static final int UNBOX_FLOAT = 31;
+    public static final int UNBOX_LOGIC = 32;
+
+    // dst, a, b
+    public static final int ADD_INT = 33;
+    public static final int SUBTRACT_INT = 34;
+    public static final int MULTIPLY_INT = 35;
+    public static final int DIVIDE_INT = 36;
+    // also used for logics
+    public static final int EQUAL_INT = 37;
+    public static final int GREATER_INT = 38;
+    public static final int GREATER_EQUAL_INT = 39;
+    public static final int LESS_INT = 40;
+    public static final int LESS_EQUAL_INT = 41;
+    // dst, a
+    public static final int NEGATE_INT = 42;
+
+    // dst, a, b
+    public static final int ADD_FLOAT = 43;
+    public static final int SUBTRACT_FLOAT = 44;
+    public static final int MULTIPLY_FLOAT = 45;
+    public static final int DIVIDE_FLOAT = 46;
+    public static final int EQUAL_FLOAT = 47;
+    public static final int GREATER_FLOAT = 48;
+    public static final int GREATER_EQUAL_FLOAT = 49;
+    public static final int LESS_FLOAT = 50;
+    public static final int LESS_EQUAL_FLOAT = 51;
+    // dst, a
+    public static final int NEGATE_FLOAT = 52;
+
+    // dst, a
+    public static final int NOT_VALUE = 53;
+    // condition, target
+    public static final int JUMP_IF_FALSE_VALUE = 54;
+    // src
+    public static final int RETURN_VALUE = 55;
+
+    // dst, a, immediate
+    public static final int ADD_INT_CONST = 56;
+    public static final int SUBTRACT_INT_CONST = 57;
+    // a, b, target, a comparison and the JUMP_IF_FALSE_VALUE after it in one
+    public static final int JUMP_IF_NOT_EQUAL_INT = 58;
+    public static final int JUMP_IF_NOT_GREATER_INT = 59;
+    public static final int JUMP_IF_NOT_GREATER_EQUAL_INT = 60;
+    public static final int JUMP_IF_NOT_LESS_INT = 61;
+    public static final int JUMP_IF_NOT_LESS_EQUAL_INT = 62;
+
+    private static final String[] NAMES = {
+            "LOAD_CONST", "LOAD_NIL", "MOVE", "GET_GLOBAL", "SET_GLOBAL",
+            "ADD", "SUBTRACT", "MULTIPLY", "DIVIDE", "EQUAL", "GREATER", "GREATER_EQUAL", "LESS", "LESS_EQUAL",
+            "NEGATE", "NOT",
+            "JUMP", "JUMP_IF_FALSE",
+            "CALL", "CALL_NATIVE",
+            "RETURN",
+            "SPAWN", "GROUP", "BRANCH", "AWAIT",
+            "LOAD_VALUE", "MOVE_VALUE",
+            "BOX_INT", "BOX_FLOAT", "BOX_LOGIC", "UNBOX_INT", "UNBOX_FLOAT", "UNBOX_LOGIC",
+            "ADD_INT", "SUBTRACT_INT", "MULTIPLY_INT", "DIVIDE_INT", "EQUAL_INT", "GREATER_INT", "GREATER_EQUAL_INT", "LESS_INT", "LESS_EQUAL_INT", "NEGATE_INT",
+            "ADD_FLOAT", "SUBTRACT_FLOAT", "MULTIPLY_FLOAT", "DIVIDE_FLOAT", "EQUAL_FLOAT", "GREATER_FLOAT", "GREATER_EQUAL_FLOAT", "LESS_FLOAT", "LESS_EQUAL_FLOAT", "NEGATE_FLOAT",
+            "NOT_VALUE", "JUMP_IF_FALSE_VALUE", "RETURN_VALUE",
+            "ADD_INT_CONST", "SUBTRACT_INT_CONST",
+            "JUMP_IF_NOT_EQUAL_INT", "JUMP_IF_NOT_GREATER_INT", "JUMP_IF_NOT_GREATER_EQUAL_INT", "JUMP_IF_NOT_LESS_INT", "JUMP_IF_NOT_LESS_EQUAL_INT",
+    };
+
+    private static final int[] OPERANDS = {
+            2, 1, 2, 2, 2,
+            3, 3, 3, 3, 3, 3, 3, 3, 3,
+            2, 2,
+            1, 2,
+            4, 4,
+            1,
+            4, 2, 4, 2,
+            2, 2,
+            2, 2, 2, 2, 2, 2,
+            3, 3, 3, 3, 3, 3, 3, 3, 3, 2,
+            3, 3, 3, 3, 3, 3, 3, 3, 3, 2,
+            2, 2, 1,
+            3, 3,
+            3, 3, 3, 3, 3,
+    };
+
+    private Opcode() {
+    }
+
+    public static String name(int opcode) {
+        return NAMES[opcode];
+    }
+
+    public static int operandCount(int opcode) {
+        return OPERANDS[opcode];
+    }
+
+}
@@ -0,0 +1,438 @@
+package dev.jok.verse.vm;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.ast.AstVisitor;
+import dev.jok.verse.ast.types.AstExpr;
+import dev.jok.verse.ast.types.AstParameter;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.AstType;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstUsingDecl;
+import dev.jok.verse.ast.types.decl.AstVariableDecl;
+import dev.jok.verse.ast.types.expr.*;
+import dev.jok.verse.ast.types.stmt.AstBlock;
+import dev.jok.verse.ast.types.stmt.AstExpressionStmt;
+import dev.jok.verse.diagnostic.CompileError;
+import dev.jok.verse.interpreter.FunctionTable;
+import dev.jok.verse.interpreter.NativeFunction;
+import dev.jok.verse.interpreter.VerseCallable;
+import dev.jok.verse.interpreter.VerseFunction;
+import dev.jok.verse.lexer.TokenType;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import dev.jok.verse.util.AstPositions;
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Works out which values can be kept unboxed, for the compilers that lower to typed code. Declared
+ * types are trusted until the script contradicts them, and anything else is boxed.
+ * <p>
+ * Types are inferred for one function at a time without emitting anything, so both branches of an
+ * {@code if} can be converted to the same type. Declarations it passes record their slot type.
+ */
+public class TypeInference implements AstVisitor<ValueType> {
+
+    private final FunctionTable functionTable;
+    private final Map<AstFunctionDecl, Signature> signatures = new LinkedHashMap<>();
+    // locals assigned a value of another type than they were declared with, by function
+    private final Map<AstFunctionDecl, BitSet> boxedLocals = new HashMap<>();
+    // types inferred for the function currently being compiled, cleared for each function
+    private final Map<AstNode, ValueType> inferredTypes = new IdentityHashMap<>();
+
+    // state for the function currently being compiled
+    private ValueType[] slotTypes;
+    private BitSet boxed;
+    // 0 while compiling top-level statements, 1 inside a function body
+    private int level;
+    // set when a parameter or local was boxed, so everything inferred from it has to be redone
+    private boolean changed;
+
+    public TypeInference(FunctionTable functionTable) {
+        this.functionTable = functionTable;
+    }
+
+    /**
+     * Starts from the declared types and boxes any parameter, return value or local the script
+     * contradicts, until nothing changes. Only ever moves types to OBJECT, so it always terminates.
+     */
+    public void inferSignatures(List<AstStmt> statements, List<AstFunctionDecl> functions) {
+        for (AstFunctionDecl function : functions) {
+            signatures.put(function, new Signature(function));
+            boxedLocals.put(function, new BitSet());
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            beginTopLevel();
+            for (AstStmt stmt : statements) {
+                if (!(stmt instanceof AstFunctionDecl)) {
+                    infer(stmt);
+                }
+            }
+            changed |= this.changed;
+
+            for (AstFunctionDecl function : functions) {
+                Signature signature = signatures.get(function);
+                beginFunction(function);
+                ValueType bodyType = inferStatements(Objects.requireNonNull(function.body));
+                changed |= this.changed;
+
+                if (signature.returnType != ValueType.OBJECT && bodyType != signature.returnType) {
+                    signature.returnType = ValueType.OBJECT;
+                    changed = true;
+                }
+            }
+        }
+
+        inferredTypes.clear();
+    }
+
+    public @Nullable Signature signature(AstFunctionDecl function) {
+        return signatures.get(function);
+    }
+
+    public void beginTopLevel() {
+        begin(0, 0, new BitSet());
+    }
+
+    public void beginFunction(AstFunctionDecl function) {
+        Signature signature = signatures.get(function);
+        begin(1, function.frameSize, boxedLocals.get(function));
+        System.arraycopy(signature.parameters, 0, slotTypes, 0, signature.parameters.length);
+    }
+
+    private void begin(int level, int frameSize, BitSet boxed) {
+        this.level = level;
+        this.slotTypes = new ValueType[frameSize];
+        this.boxed = boxed;
+        inferredTypes.clear();
+        changed = false;
+    }
+
+    public ValueType infer(AstNode node) {
+        ValueType type = inferredTypes.get(node);
+        if (type == null) {
+            type = node.accept(this);
+            inferredTypes.put(node, type);
+        }
+
+        return type;
+    }
+
+    public ValueType inferStatements(List<AstStmt> statements) {
+        ValueType type = ValueType.OBJECT;
+        for (AstStmt stmt : statements) {
+            type = infer(stmt);
+        }
+
+        return type;
+    }
+
+    /**
+     * Works out the type of a local from its declaration. Typed and immutable locals can stay
+     * unboxed, a {@code var} without a type could be assigned anything so it stays boxed, as does
+     * one that's assigned something its type doesn't allow.
+     */
+    public ValueType declare(AstVariableDecl variable) {
+        if (variable.slot == -1) {
+            throw compileError(variable, "Unresolved variable '" + variable.name.lexeme + "'.");
+        }
+
+        if (isGlobal(variable, 0)) {
+            return ValueType.OBJECT;
+        }
+
+        ValueType type = slotTypes[variable.slot];
+        if (type == null) {
+            ValueType initializer = infer(variable.initializer);
+            if (boxed.get(variable.slot)) {
+                type = ValueType.OBJECT;
+            } else if (variable.type != null) {
+                type = ValueType.of(variable.type);
+                if (type != ValueType.OBJECT && initializer != ValueType.OBJECT && initializer != type) {
+                    type = ValueType.OBJECT;
+                }
+            } else if (!variable.mutable) {
+                type = initializer;
+            } else {
+                type = ValueType.OBJECT;
+            }
+
+            slotTypes[variable.slot] = type;
+        }
+
+        return type;
+    }
+
+    public ValueType slotType(AstNode node, int slot) {
+        ValueType type = slotTypes[slot];
+        if (type == null) {
+            throw compileError(node, "Variable is used before it is declared");
+        }
+
+        return type;
+    }
+
+    public boolean isGlobal(AstNode node, int depth) {
+        int targetLevel = level - depth;
+        if (targetLevel < 0) {
+            throw compileError(node, "Variable is outside of the frame chain");
+        }
+
+        return targetLevel == 0;
+    }
+
+    // numbers only operate on their own type, so a boxed operand next to an unboxed one can be unboxed to match
+    public static ValueType numericType(ValueType left, ValueType right) {
+        boolean leftNumber = left == ValueType.INT || left == ValueType.FLOAT;
+        boolean rightNumber = right == ValueType.INT || right == ValueType.FLOAT;
+
+        if (leftNumber && (right == left || right == ValueType.OBJECT)) {
+            return left;
+        }
+
+        if (rightNumber && left == ValueType.OBJECT) {
+            return right;
+        }
+
+        return ValueType.OBJECT;
+    }
+
+    /**
+     * The type a comparison of operands of the given type gives. Comparing boxed values gives a
+     * boxed logic.
+     */
+    protected ValueType comparisonType(ValueType operandType) {
+        return operandType == ValueType.OBJECT ? ValueType.OBJECT : ValueType.LOGIC;
+    }
+
+    // the type `not` gives for an operand of the given type
+    protected ValueType notType(ValueType operandType) {
+        return operandType == ValueType.LOGIC ? ValueType.LOGIC : ValueType.OBJECT;
+    }
+
+    // natives take and return boxed values unless the compiler calls them directly
+    protected ValueType nativeReturnType(NativeFunction nativeFunction) {
+        return ValueType.OBJECT;
+    }
+
+    // boxes any parameter a call passes an unboxed value of another type to
+    private void inferArguments(AstCallExpr call) {
+        for (AstExpr argument : call.arguments) {
+            infer(argument);
+        }
+
+        if (!(call.callee instanceof AstVariableExpr variable) || !(functionTable.lookup(variable.name.symbol) instanceof VerseFunction verseFunction)) {
+            return;
+        }
+
+        Signature signature = signatures.get(verseFunction.declaration);
+        if (signature == null) {
+            return;
+        }
+
+        for (int i = 0; i < Math.min(signature.parameters.length, call.arguments.size()); i++) {
+            ValueType parameter = signature.parameters[i];
+            ValueType argument = infer(call.arguments.get(i));
+            if (parameter != ValueType.OBJECT && argument != ValueType.OBJECT && argument != parameter) {
+                signature.parameters[i] = ValueType.OBJECT;
+                changed = true;
+            }
+        }
+    }
+
+    @Override
+    public ValueType visitTypeExpr(AstType type) {
+        return ValueType.OBJECT;
+    }
+
+    @Override
+    public ValueType visitFunctionDecl(AstFunctionDecl function) {
+        return ValueType.OBJECT;
+    }
+
+    @Override
+    public ValueType visitVariableDecl(AstVariableDecl variable) {
+        return declare(variable);
+    }
+
+    @Override
+    public ValueType visitUsingDecl(AstUsingDecl using) {
+        return ValueType.OBJECT;
+    }
+
+    @Override
+    public ValueType visitExpressionStmt(AstExpressionStmt expression) {
+        return infer(expression.expression);
+    }
+
+    @Override
+    public ValueType visitBlock(AstBlock block) {
+        return inferStatements(block.statements);
+    }
+
+    @Override
+    public ValueType visitParameter(AstParameter parameter) {
+        return ValueType.OBJECT;
+    }
+
+    @Override
+    public ValueType visitIf(AstIfExpr astIf) {
+        infer(astIf.condition);
+        ValueType thenType = inferStatements(astIf.thenBranch);
+        ValueType elseType = inferStatements(astIf.elseBranch);
+        return thenType == elseType ? thenType : ValueType.OBJECT;
+    }
+
+    @Override
+    public ValueType visitAssignExpr(AstAssignExpr assign) {
+        ValueType value = infer(assign.value);
+        if (assign.slot == -1 || isGlobal(assign, assign.depth)) {
+            return ValueType.OBJECT;
+        }
+
+        ValueType type = slotType(assign, assign.slot);
+        if (type != ValueType.OBJECT && value != ValueType.OBJECT && value != type) {
+            // what was inferred from the declaration so far is wrong now, so the function is inferred again
+            boxed.set(assign.slot);
+            slotTypes[assign.slot] = ValueType.OBJECT;
+            changed = true;
+            return ValueType.OBJECT;
+        }
+
+        return type;
+    }
+
+    @Override
+    public ValueType visitBinaryExpr(AstBinaryExpr binary) {
+        ValueType type = operandType(binary);
+        return switch (binary.operator.type) {
+            case PLUS, MINUS, STAR, SLASH -> type;
+            default -> comparisonType(type);
+        };
+    }
+
+    // the type both operands of a binary expression are compiled as
+    public ValueType operandType(AstBinaryExpr binary) {
+        ValueType left = infer(binary.left);
+        ValueType right = infer(binary.right);
+
+        if (binary.operator.type == TokenType.EQUALS) {
+            // boxed equality also compares across types, so only values of the same type are compared unboxed
+            return left == right ? left : ValueType.OBJECT;
+        }
+
+        return numericType(left, right);
+    }
+
+    @Override
+    public ValueType visitGroupingExpr(AstGroupingExpr grouping) {
+        return infer(grouping.expression);
+    }
+
+    @Override
+    public ValueType visitLiteralExpr(AstLiteralExpr literal) {
+        if (literal.value instanceof VInteger) {
+            return ValueType.INT;
+        }
+
+        if (literal.value instanceof VFloat) {
+            return ValueType.FLOAT;
+        }
+
+        if (literal.value instanceof Boolean) {
+            return ValueType.LOGIC;
+        }
+
+        return ValueType.OBJECT;
+    }
+
+    @Override
+    public ValueType visitUnaryExpr(AstUnaryExpr unary) {
+        ValueType type = infer(unary.right);
+        if (unary.operator.type == TokenType.NOT) {
+            return notType(type);
+        }
+
+        return type == ValueType.INT || type == ValueType.FLOAT ? type : ValueType.OBJECT;
+    }
+
+    @Override
+    public ValueType visitVariableExpr(AstVariableExpr variable) {
+        if (variable.slot == -1 || isGlobal(variable, variable.depth)) {
+            return ValueType.OBJECT;
+        }
+
+        return slotType(variable, variable.slot);
+    }
+
+    @Override
+    public ValueType visitCallExpr(AstCallExpr call) {
+        inferArguments(call);
+        if (!(call.callee instanceof AstVariableExpr variable)) {
+            return ValueType.OBJECT;
+        }
+
+        VerseCallable target = functionTable.lookup(variable.name.symbol);
+        if (target instanceof VerseFunction verseFunction) {
+            Signature signature = signatures.get(verseFunction.declaration);
+            return signature != null ? signature.returnType : ValueType.OBJECT;
+        }
+
+        if (target instanceof NativeFunction nativeFunction) {
+            return nativeReturnType(nativeFunction);
+        }
+
+        return ValueType.OBJECT;
+    }
+
+    @Override
+    public ValueType visitGetExpr(AstGetExpr get) {
+        return ValueType.OBJECT;
+    }
+
+    @Override
+    public ValueType visitSpawnExpr(AstSpawnExpr spawn) {
+        inferArguments(spawn.call);
+        return ValueType.OBJECT;
+    }
+
+    @Override
+    public ValueType visitConcurrentExpr(AstConcurrentExpr concurrent) {
+        for (AstCallExpr branch : concurrent.branches) {
+            inferArguments(branch);
+        }
+
+        return ValueType.OBJECT;
+    }
+
+    private static CompileError compileError(AstNode node, String message) {
+        return new CompileError(AstPositions.firstToken(node), message);
+    }
+
+    /**
+     * The types a function is compiled with, once they've been inferred.
+     */
+    public static final class Signature {
+
+        public final ValueType[] parameters;
+        @Getter
+        private ValueType returnType;
+
+        private Signature(AstFunctionDecl function) {
+            this.parameters = new ValueType[function.parameters.size()];
+            for (int i = 0; i < parameters.length; i++) {
+                parameters[i] = ValueType.of(function.parameters.get(i).type);
+            }
+
+            this.returnType = ValueType.of(function.type);
+        }
+
+    }
+
+}
@@ -0,0 +1,31 @@
+package dev.jok.verse.vm;
+
+import dev.jok.verse.ast.types.AstType;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Which bank of a frame's registers a value is kept in. Ints, floats and logics whose type is known
+ * at compile time are kept unboxed in the {@code int[]} bank, floats as their raw bits and logics as
+ * 0 or 1. Everything else is a boxed Verse value in the {@code Object[]} bank.
+ */
+public enum ValueType {
+
+    INT,
+    FLOAT,
+    LOGIC,
+    OBJECT;
+
+    public static ValueType of(@Nullable AstType type) {
+        if (type == null) {
+            return OBJECT;
+        }
+
+        return switch (type.toString()) {
+            case "int" -> INT;
+            case "float" -> FLOAT;
+            case "logic" -> LOGIC;
+            default -> OBJECT;
+        };
+    }
+
+}
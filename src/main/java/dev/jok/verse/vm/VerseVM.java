@@ -0,0 +1,596 @@
+package dev.jok.verse.vm;
+
+import dev.jok.verse.interpreter.NativeFunction;
+import dev.jok.verse.interpreter.VerseInterpreter;
+import dev.jok.verse.task.Suspension;
+import dev.jok.verse.task.Task;
+import dev.jok.verse.task.TaskGroup;
+import dev.jok.verse.task.TaskScheduler;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import dev.jok.verse.types.number.VNumber;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * Runs {@link CompiledProgram}s. Calls don't recurse on the Java stack, each one pushes a heap
+ * allocated {@link Frame} and the dispatch loop carries on with the callee. A frame keeps the frame
+ * its calls ran in, so once a call chain has been as deep as it gets calls stop allocating.
+ * <p>
+ * That makes a task's frames all there is to it, so when a task suspends the loop just returns and
+ * leaves them for the {@link TaskScheduler} to hand back later.
+ */
+public class VerseVM {
+
+    private final CompiledProgram program;
+    private final Object[] globals;
+    private final TaskScheduler scheduler;
+
+    public VerseVM(CompiledProgram program) {
+        this(program, new TaskScheduler());
+    }
+
+    public VerseVM(CompiledProgram program, TaskScheduler scheduler) {
+        this.program = program;
+        this.globals = new Object[program.globalCount];
+        this.scheduler = scheduler;
+    }
+
+    public void initialize() {
+        call(program.initializer, new Object[0]);
+    }
+
+    /**
+     * Calls a function with already evaluated arguments. Any parameters without an argument are left unset.
+     */
+    public Object call(CompiledFunction function, Object[] arguments) {
+        return execute(entry(function, arguments), null);
+    }
+
+    /**
+     * Runs the function as a task, along with every task it spawns, until all of them are done.
+     * Returns what the function returned.
+     */
+    public Object run(CompiledFunction function, Object[] arguments) {
+        Task task = scheduler.spawn(entry(function, arguments));
+        scheduler.run(this::resume);
+        return task.getResult();
+    }
+
+    // the bottom frame of a chain, with boxed arguments unboxed into the parameters that take them unboxed
+    private static Frame entry(CompiledFunction function, Object[] arguments) {
+        Frame frame = new Frame(function, null);
+        for (int i = 0; i < arguments.length; i++) {
+            Object argument = arguments[i];
+            switch (function.parameterTypes[i]) {
+                case INT -> frame.values[i] = toInt(argument, function);
+                case FLOAT -> frame.values[i] = Float.floatToRawIntBits(toFloat(argument, function));
+                case LOGIC -> frame.values[i] = toLogic(argument, function) ? 1 : 0;
+                case OBJECT -> frame.registers[i] = argument;
+            }
+        }
+
+        return frame;
+    }
+
+    private Object resume(Task task) {
+        Frame frame = (Frame) task.continuation;
+        if (frame.resumeRegister != -1) {
+            frame.registers[frame.resumeRegister] = task.resumeValue;
+            frame.resumeRegister = -1;
+        }
+
+        return execute(frame, task);
+    }
+
+    /**
+     * Runs from the frame's pc until the bottom frame of its chain returns. When running a task this
+     * can also stop early, returning the {@link Suspension} the task stopped at.
+     */
+    private Object execute(Frame start, @Nullable Task task) {
+        Frame frame = start;
+        int[] code = frame.function.code;
+        Object[] constants = frame.function.constants;
+        Object[] registers = frame.registers;
+        int[] values = frame.values;
+        int pc = frame.pc;
+
+        while (true) {
+            switch (code[pc]) {
+                case Opcode.LOAD_CONST -> {
+                    registers[code[pc + 1]] = constants[code[pc + 2]];
+                    pc += 3;
+                }
+
+                case Opcode.LOAD_NIL -> {
+                    registers[code[pc + 1]] = null;
+                    pc += 2;
+                }
+
+                case Opcode.MOVE -> {
+                    registers[code[pc + 1]] = registers[code[pc + 2]];
+                    pc += 3;
+                }
+
+                case Opcode.GET_GLOBAL -> {
+                    registers[code[pc + 1]] = globals[code[pc + 2]];
+                    pc += 3;
+                }
+
+                case Opcode.SET_GLOBAL -> {
+                    globals[code[pc + 1]] = registers[code[pc + 2]];
+                    pc += 3;
+                }
+
+                case Opcode.ADD -> {
+                    registers[code[pc + 1]] = number(frame, pc, registers[code[pc + 2]]).add(number(frame, pc, registers[code[pc + 3]]));
+                    pc += 4;
+                }
+
+                case Opcode.SUBTRACT -> {
+                    registers[code[pc + 1]] = number(frame, pc, registers[code[pc + 2]]).subtract(number(frame, pc, registers[code[pc + 3]]));
+                    pc += 4;
+                }
+
+                case Opcode.MULTIPLY -> {
+                    registers[code[pc + 1]] = number(frame, pc, registers[code[pc + 2]]).multiply(number(frame, pc, registers[code[pc + 3]]));
+                    pc += 4;
+                }
+
+                case Opcode.DIVIDE -> {
+                    registers[code[pc + 1]] = number(frame, pc, registers[code[pc + 2]]).divide(number(frame, pc, registers[code[pc + 3]]));
+                    pc += 4;
+                }
+
+                case Opcode.EQUAL -> {
+                    registers[code[pc + 1]] = Objects.equals(registers[code[pc + 2]], registers[code[pc + 3]]);
+                    pc += 4;
+                }
+
+                case Opcode.GREATER -> {
+                    registers[code[pc + 1]] = number(frame, pc, registers[code[pc + 2]]).greaterThan(number(frame, pc, registers[code[pc + 3]]));
+                    pc += 4;
+                }
+
+                case Opcode.GREATER_EQUAL -> {
+                    registers[code[pc + 1]] = number(frame, pc, registers[code[pc + 2]]).greaterThanOrEqual(number(frame, pc, registers[code[pc + 3]]));
+                    pc += 4;
+                }
+
+                case Opcode.LESS -> {
+                    registers[code[pc + 1]] = number(frame, pc, registers[code[pc + 2]]).lessThan(number(frame, pc, registers[code[pc + 3]]));
+                    pc += 4;
+                }
+
+                case Opcode.LESS_EQUAL -> {
+                    registers[code[pc + 1]] = number(frame, pc, registers[code[pc + 2]]).lessThanOrEqual(number(frame, pc, registers[code[pc + 3]]));
+                    pc += 4;
+                }
+
+                case Opcode.NEGATE -> {
+                    registers[code[pc + 1]] = number(frame, pc, registers[code[pc + 2]]).negate();
+                    pc += 3;
+                }
+
+                case Opcode.NOT -> {
+                    registers[code[pc + 1]] = !isTruthy(registers[code[pc + 2]]);
+                    pc += 3;
+                }
+
+                case Opcode.JUMP -> pc = code[pc + 1];
+
+                case Opcode.JUMP_IF_FALSE -> {
+                    if (isTruthy(registers[code[pc + 1]])) {
+                        pc += 3;
+                    } else {
+                        pc = code[pc + 2];
+                    }
+                }
+
+                case Opcode.CALL -> {
+                    CompiledFunction callee = program.functions[code[pc + 2]];
+                    Frame calleeFrame = frame.callee;
+                    if (calleeFrame == null) {
+                        calleeFrame = new Frame(callee, frame);
+                        frame.callee = calleeFrame;
+                    } else {
+                        calleeFrame.enter(callee);
+                    }
+
+                    calleeFrame.returnRegister = code[pc + 1];
+                    // a plain loop beats System.arraycopy for the handful of arguments a call has
+                    Object[] calleeRegisters = calleeFrame.registers;
+                    int[] calleeValues = calleeFrame.values;
+                    for (int i = 0, first = code[pc + 3], count = code[pc + 4]; i < count; i++) {
+                        calleeRegisters[i] = registers[first + i];
+                        calleeValues[i] = values[first + i];
+                    }
+
+                    frame.pc = pc + 5;
+                    frame = calleeFrame;
+                    code = callee.code;
+                    constants = callee.constants;
+                    registers = calleeFrame.registers;
+                    values = calleeFrame.values;
+                    pc = 0;
+                }
+
+                case Opcode.CALL_NATIVE -> {
+                    NativeFunction nativeFunction = program.natives[code[pc + 2]];
+                    Object result = nativeFunction.invoke(registers, code[pc + 3], code[pc + 4]);
+                    if (result instanceof Suspension suspension) {
+                        if (task == null) {
+                            throw VerseInterpreter.runtimeError(frame.function.sourceMap[pc], "Can only suspend inside a task");
+                        }
+
+                        // the call's result is filled in when the task carries on
+                        frame.resumeRegister = code[pc + 1];
+                        frame.pc = pc + 5;
+                        task.continuation = frame;
+                        return suspension;
+                    }
+
+                    registers[code[pc + 1]] = result;
+                    pc += 5;
+                }
+
+                case Opcode.RETURN -> {
+                    Object result = registers[code[pc + 1]];
+                    Frame caller = frame.caller;
+                    if (caller == null) {
+                        return result;
+                    }
+
+                    caller.registers[frame.returnRegister] = result;
+
+                    frame = caller;
+                    code = caller.function.code;
+                    constants = caller.function.constants;
+                    registers = caller.registers;
+                    values = caller.values;
+                    pc = caller.pc;
+                }
+
+                case Opcode.RETURN_VALUE -> {
+                    int result = values[code[pc + 1]];
+                    Frame caller = frame.caller;
+                    if (caller == null) {
+                        return box(frame.function.returnType, result);
+                    }
+
+                    caller.values[frame.returnRegister] = result;
+
+                    frame = caller;
+                    code = caller.function.code;
+                    constants = caller.function.constants;
+                    registers = caller.registers;
+                    values = caller.values;
+                    pc = caller.pc;
+                }
+
+                case Opcode.SPAWN -> {
+                    CompiledFunction callee = program.functions[code[pc + 2]];
+                    Frame taskFrame = new Frame(callee, null);
+                    System.arraycopy(registers, code[pc + 3], taskFrame.registers, 0, code[pc + 4]);
+                    System.arraycopy(values, code[pc + 3], taskFrame.values, 0, code[pc + 4]);
+
+                    registers[code[pc + 1]] = scheduler.spawn(taskFrame);
+                    pc += 5;
+                }
+
+                case Opcode.GROUP -> {
+                    if (task == null) {
+                        throw VerseInterpreter.runtimeError(frame.function.sourceMap[pc], "Can only start branches inside a task");
+                    }
+
+                    registers[code[pc + 1]] = scheduler.group(task, TaskGroup.Kind.of(code[pc + 2]));
+                    pc += 3;
+                }
+
+                case Opcode.BRANCH -> {
+                    CompiledFunction callee = program.functions[code[pc + 2]];
+                    Frame taskFrame = new Frame(callee, null);
+                    System.arraycopy(registers, code[pc + 3], taskFrame.registers, 0, code[pc + 4]);
+                    System.arraycopy(values, code[pc + 3], taskFrame.values, 0, code[pc + 4]);
+
+                    scheduler.branch((TaskGroup) registers[code[pc + 1]], taskFrame);
+                    pc += 5;
+                }
+
+                case Opcode.AWAIT -> {
+                    // only ever after a GROUP, so this is inside a task
+                    frame.resumeRegister = code[pc + 1];
+                    frame.pc = pc + 3;
+                    Objects.requireNonNull(task).continuation = frame;
+                    return registers[code[pc + 2]];
+                }
+
+                case Opcode.LOAD_VALUE -> {
+                    values[code[pc + 1]] = code[pc + 2];
+                    pc += 3;
+                }
+
+                case Opcode.MOVE_VALUE -> {
+                    values[code[pc + 1]] = values[code[pc + 2]];
+                    pc += 3;
+                }
+
+                case Opcode.BOX_INT -> {
+                    registers[code[pc + 1]] = VInteger.valueOf(values[code[pc + 2]]);
+                    pc += 3;
+                }
+
+                case Opcode.BOX_FLOAT -> {
+                    registers[code[pc + 1]] = new VFloat(Float.intBitsToFloat(values[code[pc + 2]]));
+                    pc += 3;
+                }
+
+                case Opcode.BOX_LOGIC -> {
+                    registers[code[pc + 1]] = values[code[pc + 2]] != 0;
+                    pc += 3;
+                }
+
+                case Opcode.UNBOX_INT -> {
+                    values[code[pc + 1]] = toInt(frame, pc, registers[code[pc + 2]]);
+                    pc += 3;
+                }
+
+                case Opcode.UNBOX_FLOAT -> {
+                    values[code[pc + 1]] = Float.floatToRawIntBits(toFloat(frame, pc, registers[code[pc + 2]]));
+                    pc += 3;
+                }
+
+                case Opcode.UNBOX_LOGIC -> {
+                    values[code[pc + 1]] = toLogic(frame, pc, registers[code[pc + 2]]) ? 1 : 0;
+                    pc += 3;
+                }
+
+                case Opcode.ADD_INT -> {
+                    values[code[pc + 1]] = values[code[pc + 2]] + values[code[pc + 3]];
+                    pc += 4;
+                }
+
+                case Opcode.SUBTRACT_INT -> {
+                    values[code[pc + 1]] = values[code[pc + 2]] - values[code[pc + 3]];
+                    pc += 4;
+                }
+
+                case Opcode.MULTIPLY_INT -> {
+                    values[code[pc + 1]] = values[code[pc + 2]] * values[code[pc + 3]];
+                    pc += 4;
+                }
+
+                case Opcode.DIVIDE_INT -> {
+                    values[code[pc + 1]] = values[code[pc + 2]] / values[code[pc + 3]];
+                    pc += 4;
+                }
+
+                case Opcode.EQUAL_INT -> {
+                    values[code[pc + 1]] = values[code[pc + 2]] == values[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                }
+
+                case Opcode.GREATER_INT -> {
+                    values[code[pc + 1]] = values[code[pc + 2]] > values[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                }
+
+                case Opcode.GREATER_EQUAL_INT -> {
+                    values[code[pc + 1]] = values[code[pc + 2]] >= values[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                }
+
+                case Opcode.LESS_INT -> {
+                    values[code[pc + 1]] = values[code[pc + 2]] < values[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                }
+
+                case Opcode.LESS_EQUAL_INT -> {
+                    values[code[pc + 1]] = values[code[pc + 2]] <= values[code[pc + 3]] ? 1 : 0;
+                    pc += 4;
+                }
+
+                case Opcode.NEGATE_INT -> {
+                    values[code[pc + 1]] = -values[code[pc + 2]];
+                    pc += 3;
+                }
+
+                case Opcode.ADD_FLOAT -> {
+                    values[code[pc + 1]] = Float.floatToRawIntBits(Float.intBitsToFloat(values[code[pc + 2]]) + Float.intBitsToFloat(values[code[pc + 3]]));
+                    pc += 4;
+                }
+
+                case Opcode.SUBTRACT_FLOAT -> {
+                    values[code[pc + 1]] = Float.floatToRawIntBits(Float.intBitsToFloat(values[code[pc + 2]]) - Float.intBitsToFloat(values[code[pc + 3]]));
+                    pc += 4;
+                }
+
+                case Opcode.MULTIPLY_FLOAT -> {
+                    values[code[pc + 1]] = Float.floatToRawIntBits(Float.intBitsToFloat(values[code[pc + 2]]) * Float.intBitsToFloat(values[code[pc + 3]]));
+                    pc += 4;
+                }
+
+                case Opcode.DIVIDE_FLOAT -> {
+                    values[code[pc + 1]] = Float.floatToRawIntBits(Float.intBitsToFloat(values[code[pc + 2]]) / Float.intBitsToFloat(values[code[pc + 3]]));
+                    pc += 4;
+                }
+
+                case Opcode.EQUAL_FLOAT -> {
+                    // by bits, like VFloat's equals
+                    values[code[pc + 1]] = Float.floatToIntBits(Float.intBitsToFloat(values[code[pc + 2]])) == Float.floatToIntBits(Float.intBitsToFloat(values[code[pc + 3]])) ? 1 : 0;
+                    pc += 4;
+                }
+
+                case Opcode.GREATER_FLOAT -> {
+                    values[code[pc + 1]] = Float.intBitsToFloat(values[code[pc + 2]]) > Float.intBitsToFloat(values[code[pc + 3]]) ? 1 : 0;
+                    pc += 4;
+                }
+
+                case Opcode.GREATER_EQUAL_FLOAT -> {
+                    values[code[pc + 1]] = Float.intBitsToFloat(values[code[pc + 2]]) >= Float.intBitsToFloat(values[code[pc + 3]]) ? 1 : 0;
+                    pc += 4;
+                }
+
+                case Opcode.LESS_FLOAT -> {
+                    values[code[pc + 1]] = Float.intBitsToFloat(values[code[pc + 2]]) < Float.intBitsToFloat(values[code[pc + 3]]) ? 1 : 0;
+                    pc += 4;
+                }
+
+                case Opcode.LESS_EQUAL_FLOAT -> {
+                    values[code[pc + 1]] = Float.intBitsToFloat(values[code[pc + 2]]) <= Float.intBitsToFloat(values[code[pc + 3]]) ? 1 : 0;
+                    pc += 4;
+                }
+
+                case Opcode.NEGATE_FLOAT -> {
+                    values[code[pc + 1]] = Float.floatToRawIntBits(-Float.intBitsToFloat(values[code[pc + 2]]));
+                    pc += 3;
+                }
+
+                case Opcode.NOT_VALUE -> {
+                    values[code[pc + 1]] = values[code[pc + 2]] ^ 1;
+                    pc += 3;
+                }
+
+                case Opcode.JUMP_IF_FALSE_VALUE -> {
+                    if (values[code[pc + 1]] != 0) {
+                        pc += 3;
+                    } else {
+                        pc = code[pc + 2];
+                    }
+                }
+
+                case Opcode.ADD_INT_CONST -> {
+                    values[code[pc + 1]] = values[code[pc + 2]] + code[pc + 3];
+                    pc += 4;
+                }
+
+                case Opcode.SUBTRACT_INT_CONST -> {
+                    values[code[pc + 1]] = values[code[pc + 2]] - code[pc + 3];
+                    pc += 4;
+                }
+
+                case Opcode.JUMP_IF_NOT_EQUAL_INT -> pc = values[code[pc + 1]] == values[code[pc + 2]] ? pc + 4 : code[pc + 3];
+                case Opcode.JUMP_IF_NOT_GREATER_INT -> pc = values[code[pc + 1]] > values[code[pc + 2]] ? pc + 4 : code[pc + 3];
+                case Opcode.JUMP_IF_NOT_GREATER_EQUAL_INT -> pc = values[code[pc + 1]] >= values[code[pc + 2]] ? pc + 4 : code[pc + 3];
+                case Opcode.JUMP_IF_NOT_LESS_INT -> pc = values[code[pc + 1]] < values[code[pc + 2]] ? pc + 4 : code[pc + 3];
+                case Opcode.JUMP_IF_NOT_LESS_EQUAL_INT -> pc = values[code[pc + 1]] <= values[code[pc + 2]] ? pc + 4 : code[pc + 3];
+
+                default -> throw new IllegalStateException("Unknown opcode " + code[pc] + " at " + pc + " in " + frame.function.name);
+            }
+        }
+    }
+
+    private static VNumber<?> number(Frame frame, int pc, Object value) {
+        if (value instanceof VNumber<?> number) {
+            return number;
+        }
+
+        throw VerseInterpreter.runtimeError(frame.function.sourceMap[pc], "Expected numbers");
+    }
+
+    private static int toInt(Frame frame, int pc, Object value) {
+        if (value instanceof VInteger integer) {
+            return integer.intValue();
+        }
+
+        throw VerseInterpreter.runtimeError(frame.function.sourceMap[pc], "Expected int, but got " + typeName(value));
+    }
+
+    private static float toFloat(Frame frame, int pc, Object value) {
+        if (value instanceof VFloat number) {
+            return number.floatValue();
+        }
+
+        throw VerseInterpreter.runtimeError(frame.function.sourceMap[pc], "Expected float, but got " + typeName(value));
+    }
+
+    private static boolean toLogic(Frame frame, int pc, Object value) {
+        if (value instanceof Boolean logic) {
+            return logic;
+        }
+
+        throw VerseInterpreter.runtimeError(frame.function.sourceMap[pc], "Expected logic, but got " + typeName(value));
+    }
+
+    // arguments from outside the VM have no instruction to blame
+    private static int toInt(Object value, CompiledFunction function) {
+        if (value instanceof VInteger integer) {
+            return integer.intValue();
+        }
+
+        throw new IllegalArgumentException(function.name + " expected int, but got " + typeName(value));
+    }
+
+    private static float toFloat(Object value, CompiledFunction function) {
+        if (value instanceof VFloat number) {
+            return number.floatValue();
+        }
+
+        throw new IllegalArgumentException(function.name + " expected float, but got " + typeName(value));
+    }
+
+    private static boolean toLogic(Object value, CompiledFunction function) {
+        if (value instanceof Boolean logic) {
+            return logic;
+        }
+
+        throw new IllegalArgumentException(function.name + " expected logic, but got " + typeName(value));
+    }
+
+    private static Object box(ValueType type, int value) {
+        return switch (type) {
+            case INT -> VInteger.valueOf(value);
+            case FLOAT -> new VFloat(Float.intBitsToFloat(value));
+            case LOGIC -> value != 0;
+            case OBJECT -> throw new IllegalStateException("Boxed values aren't returned unboxed");
+        };
+    }
+
+    private static String typeName(@Nullable Object value) {
+        return value == null ? "nil" : value.getClass().getSimpleName();
+    }
+
+    private static boolean isTruthy(Object obj) {
+        if (obj instanceof Boolean val) {
+            return val;
+        }
+
+        return false;
+    }
+
+    private static final class Frame {
+
+        private CompiledFunction function;
+        private final @Nullable Frame caller;
+        // register in the caller that receives our return value
+        private int returnRegister;
+        private Object[] registers;
+        // the unboxed bank, ints and logics as themselves and floats as their raw bits
+        private int[] values;
+        // only kept up to date while a callee is running, or the frame's task is suspended
+        private int pc;
+        // register waiting for the result of the call the task suspended at, -1 if it isn't suspended
+        private int resumeRegister = -1;
+        // the frame this frame's last call ran in, reused by the next one
+        private @Nullable Frame callee;
+
+        private Frame(CompiledFunction function, @Nullable Frame caller) {
+            this.function = function;
+            this.caller = caller;
+            this.registers = new Object[function.registerCount];
+            this.values = new int[function.registerCount];
+        }
+
+        // readies a reused frame for another call, registers are always written before they're read
+        private void enter(CompiledFunction function) {
+            this.function = function;
+            if (registers.length < function.registerCount) {
+                registers = new Object[function.registerCount];
+                values = new int[function.registerCount];
+            }
+        }
+
+    }
+
+}
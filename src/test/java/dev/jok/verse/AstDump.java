@@ -0,0 +1,73 @@
+package dev.jok.verse;
+
+import dev.jok.verse.ast.AstNode;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.lexer.Token;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/**
+ * Writes out everything the parser put in an AST, every token with its position included, so two
+ * ASTs can be compared for being the same parse. What the Resolver fills in later is left out.
+ */
+public final class AstDump {
+
+    private AstDump() {
+    }
+
+    public static String dump(List<AstStmt> statements) {
+        StringBuilder builder = new StringBuilder();
+        for (AstStmt stmt : statements) {
+            dump(stmt, builder);
+            builder.append('\n');
+        }
+
+        return builder.toString();
+    }
+
+    private static void dump(Object value, StringBuilder builder) {
+        if (value instanceof AstNode node) {
+            builder.append(node.getClass().getSimpleName()).append('(');
+            for (Class<?> type = node.getClass(); type != Object.class; type = type.getSuperclass()) {
+                for (Field field : type.getDeclaredFields()) {
+                    // only what the parser sets, slots and the like aren't final
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || !Modifier.isFinal(modifiers)) {
+                        continue;
+                    }
+
+                    builder.append(field.getName()).append('=');
+                    dump(get(field, node), builder);
+                    builder.append(' ');
+                }
+            }
+
+            builder.append(')');
+        } else if (value instanceof Token token) {
+            builder.append(token.type).append(" `").append(token.lexeme).append("` ").append(token.literal)
+                    .append(" @").append(token.line).append(':').append(token.col).append(" #").append(token.symbol);
+        } else if (value instanceof List<?> list) {
+            builder.append('[');
+            for (Object element : list) {
+                dump(element, builder);
+                builder.append(", ");
+            }
+
+            builder.append(']');
+        } else {
+            builder.append(value);
+        }
+    }
+
+    private static Object get(Field field, Object owner) {
+        try {
+            field.setAccessible(true);
+            return field.get(owner);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
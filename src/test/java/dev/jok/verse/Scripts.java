@@ -0,0 +1,105 @@
+package dev.jok.verse;
+
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.lexer.StreamingTokenSource;
+import dev.jok.verse.lexer.VerseScanner;
+import dev.jok.verse.parser.VerseParser;
+import dev.jok.verse.parser.pass.ConstantFolder;
+import dev.jok.verse.parser.pass.Resolver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Compiles scripts the same way {@link VerseLang} does, for running them in tests.
+ */
+public final class Scripts {
+
+    /**
+     * Prints "ok" if Fib(10) is 55, which takes 177 calls to Fib and one to Print.
+     */
+    public static final String FIB = """
+            Print<native>(Message : string) : void
+
+            Fib(N : int) : int = {
+                if (N < 2) {
+                    N
+                } else {
+                    Fib(N - 1) + Fib(N - 2)
+                }
+            }
+
+            Main() : void = {
+                if (Fib(10) = 55) { Print("ok") } else { Print("wrong") }
+            }
+            """;
+
+    private Scripts() {
+    }
+
+    public static Script compile(String source) {
+        Diagnostics diagnostics = new Diagnostics();
+        List<AstStmt> statements = new VerseParser(false, new StreamingTokenSource(new VerseScanner(source, diagnostics)), diagnostics).parse();
+        statements = new ConstantFolder().fold(statements);
+
+        Resolver resolver = new Resolver(diagnostics);
+        resolver.resolve(statements);
+
+        if (diagnostics.hasErrors()) {
+            throw new IllegalArgumentException("Script has errors: " + diagnostics.getDiagnostics());
+        }
+
+        return new Script(statements, resolver.getGlobalFrameSize());
+    }
+
+    /**
+     * Everything the action printed to {@link System#out}.
+     */
+    public static String captureOutput(Runnable action) {
+        PrintStream previous = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+        try {
+            action.run();
+        } finally {
+            System.setOut(previous);
+        }
+
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A large script of generated functions, for comparing ways of scanning and parsing. Some
+     * statements start in the first column inside braces, where a top-level statement would.
+     */
+    public static String generate(int functions) {
+        StringBuilder source = new StringBuilder("Sqrt<native>(X : float) : float\n\nScale : int = 3\n\n");
+        for (int i = 0; i < functions; i++) {
+            source.append("# generated function ").append(i).append('\n')
+                    .append("Compute").append(i).append("(A : int, B : int) : int = {\n")
+                    .append("    var Sum : int = A + B * ").append(i).append('\n')
+                    .append("    Root := Sqrt(").append(i).append(".5)\n")
+                    .append("    if (Sum > ").append(i).append(") {\n")
+                    .append("        set Sum = Sum - Scale\n")
+                    .append("    } else {\n")
+                    .append(i % 3 == 0 ? "set Sum = Sum + Scale\n" : "        set Sum = Sum + Scale\n")
+                    .append("    }\n");
+
+            if (i % 5 == 0) {
+                source.append("Flag := not Sum < A\n");
+            }
+
+            source.append(i > 0 ? "    Compute" + (i - 1) + "(Sum, -B) / 2\n" : "    Sum\n")
+                    .append("}\n\n");
+        }
+
+        return source.toString();
+    }
+
+    public record Script(List<AstStmt> statements, int globalFrameSize) {
+    }
+
+}
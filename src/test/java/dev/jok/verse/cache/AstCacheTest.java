@@ -0,0 +1,118 @@
+package dev.jok.verse.cache;
+
+import dev.jok.verse.AstDump;
+import dev.jok.verse.Scripts;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.lexer.VerseScanner;
+import dev.jok.verse.parser.VerseParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AstCacheTest {
+
+    @TempDir
+    Path directory;
+
+    // classes and test still have errors the parser doesn't recover from
+    @ParameterizedTest
+    @ValueSource(strings = {"expression", "function", "new-test", "parsing-errors"})
+    void roundTripsResources(String name) throws IOException {
+        try (InputStream input = AstCacheTest.class.getResourceAsStream("/" + name + ".verse")) {
+            assertNotNull(input, name);
+            assertRoundTrips(input.readAllBytes());
+        }
+    }
+
+    @Test
+    void roundTripsALargeSource() throws IOException {
+        assertRoundTrips(Scripts.generate(500).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void roundTripsStatementsThatFailedToParse() throws IOException {
+        // the statement with the error is left in the AST as null
+        assertRoundTrips("A : int = 1 +\n\nB : float = 2.5\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void otherSourcesMiss() throws IOException {
+        AstCache cache = new AstCache(directory);
+        byte[] source = "A : int = 1\n".getBytes(StandardCharsets.UTF_8);
+        cache.store(source, parse(source));
+
+        assertNull(cache.load("A : int = 2\n".getBytes(StandardCharsets.UTF_8)));
+        assertNotNull(cache.load(source));
+    }
+
+    @Test
+    void otherFormatVersionsMiss() throws IOException {
+        AstCache cache = new AstCache(directory);
+        byte[] source = "A : int = 1\n".getBytes(StandardCharsets.UTF_8);
+        cache.store(source, parse(source));
+
+        // the version follows the magic number
+        Path entry = entry();
+        byte[] bytes = Files.readAllBytes(entry);
+        assertEquals(AstFormat.VERSION, ByteBuffer.wrap(bytes, 4, 4).getInt());
+        ByteBuffer.wrap(bytes, 4, 4).putInt(AstFormat.VERSION + 1);
+        Files.write(entry, bytes);
+
+        assertNull(cache.load(source));
+    }
+
+    @Test
+    void brokenEntriesMiss() throws IOException {
+        AstCache cache = new AstCache(directory);
+        byte[] source = Scripts.generate(5).getBytes(StandardCharsets.UTF_8);
+        cache.store(source, parse(source));
+
+        Path entry = entry();
+        byte[] bytes = Files.readAllBytes(entry);
+        Files.write(entry, Arrays.copyOf(bytes, bytes.length / 2));
+        assertNull(cache.load(source));
+
+        Files.write(entry, new byte[0]);
+        assertNull(cache.load(source));
+    }
+
+    private void assertRoundTrips(byte[] source) throws IOException {
+        AstCache cache = new AstCache(directory);
+        assertNull(cache.load(source));
+
+        List<AstStmt> parsed = parse(source);
+        cache.store(source, parsed);
+
+        List<AstStmt> loaded = cache.load(source);
+        assertNotNull(loaded);
+        assertEquals(AstDump.dump(parsed), AstDump.dump(loaded));
+    }
+
+    private Path entry() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> entries = files.toList();
+            assertEquals(1, entries.size(), entries.toString());
+            return entries.get(0);
+        }
+    }
+
+    private static List<AstStmt> parse(byte[] source) {
+        Diagnostics diagnostics = new Diagnostics();
+        return new VerseParser(false, new VerseScanner(new String(source, StandardCharsets.UTF_8), diagnostics).scanBuffer(), diagnostics).parse();
+    }
+
+}
@@ -0,0 +1,35 @@
+package dev.jok.verse.interpreter;
+
+import dev.jok.verse.Scripts;
+import dev.jok.verse.lexer.Symbols;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FunctionTableTest {
+
+    @Test
+    void sizedToTheFileNotEverySymbol() {
+        Scripts.Script script = Scripts.compile("""
+                Print<native>(Message : string) : void
+
+                Double(X : int) : int = { X * 2 }
+                """);
+
+        // names from other files the process has scanned since
+        for (int i = 0; i < 100_000; i++) {
+            Symbols.intern("FunctionTableTest" + i);
+        }
+
+        FunctionTable table = FunctionTable.build(script.statements(), new VerseNative());
+        int largest = Math.max(Symbols.find("Print"), Symbols.find("Double"));
+        assertEquals(largest + 1, table.capacity());
+        assertTrue(table.capacity() < Symbols.count());
+
+        assertInstanceOf(NativeFunction.class, table.lookup("Print"));
+        assertInstanceOf(VerseFunction.class, table.lookup("Double"));
+        assertNull(table.lookup("FunctionTableTest0"));
+        assertNull(table.lookup("NotAFunction"));
+    }
+
+}
@@ -0,0 +1,36 @@
+package dev.jok.verse.interpreter;
+
+import dev.jok.verse.Scripts;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProfilerTest {
+
+    @Test
+    void countsCallsLinkedBeforeProfiling() {
+        Scripts.Script script = Scripts.compile(Scripts.FIB);
+
+        // every call site is linked by an interpreter that isn't profiled first
+        Scripts.captureOutput(() -> VerseInterpreterTest.runMain(new VerseInterpreter(script.statements(), script.globalFrameSize())));
+
+        Profiler profiler = new Profiler();
+        Scripts.captureOutput(() -> VerseInterpreterTest.runMain(new VerseInterpreter(script.statements(), script.globalFrameSize(), profiler)));
+        assertEquals(177, VerseInterpreterTest.calls(profiler, "Fib"));
+        assertEquals(1, VerseInterpreterTest.calls(profiler, "Print"));
+    }
+
+    @Test
+    void profilersCountSeparately() {
+        Scripts.Script script = Scripts.compile(Scripts.FIB);
+
+        Profiler first = new Profiler();
+        Profiler second = new Profiler();
+        Scripts.captureOutput(() -> VerseInterpreterTest.runMain(new VerseInterpreter(script.statements(), script.globalFrameSize(), first)));
+        Scripts.captureOutput(() -> VerseInterpreterTest.runMain(new VerseInterpreter(script.statements(), script.globalFrameSize(), second)));
+
+        assertEquals(177, VerseInterpreterTest.calls(first, "Fib"));
+        assertEquals(177, VerseInterpreterTest.calls(second, "Fib"));
+    }
+
+}
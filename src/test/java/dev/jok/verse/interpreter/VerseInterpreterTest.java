@@ -0,0 +1,49 @@
+package dev.jok.verse.interpreter;
+
+import dev.jok.verse.Scripts;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class VerseInterpreterTest {
+
+    @Test
+    void interpretersDontShareLinkedCalls() {
+        Scripts.Script script = Scripts.compile(Scripts.FIB);
+
+        Profiler profiler = new Profiler();
+        assertEquals("ok\n", Scripts.captureOutput(() -> runMain(new VerseInterpreter(script.statements(), script.globalFrameSize(), profiler))));
+        assertEquals(177, calls(profiler, "Fib"));
+
+        // the same statements again, in an interpreter that isn't profiled
+        assertEquals("ok\n", Scripts.captureOutput(() -> runMain(new VerseInterpreter(script.statements(), script.globalFrameSize()))));
+        assertEquals(177, calls(profiler, "Fib"));
+    }
+
+    static void runMain(VerseInterpreter interpreter) {
+        AstFunctionDecl main = interpreter.lookupFunctionDecl("Main");
+        assertNotNull(main);
+        interpreter.call(main, new Object[0]);
+    }
+
+    // the calls column of the function's row in the report, 0 if it isn't there
+    static long calls(Profiler profiler, String function) {
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        profiler.printReport(new PrintStream(report, true, StandardCharsets.UTF_8));
+        for (String line : report.toString(StandardCharsets.UTF_8).split("\n")) {
+            String[] columns = line.trim().split("\\s+");
+            if (columns[0].equals(function)) {
+                return Long.parseLong(columns[2]);
+            }
+        }
+
+        return 0;
+    }
+
+}
@@ -0,0 +1,31 @@
+package dev.jok.verse.jvm;
+
+import dev.jok.verse.Scripts;
+import dev.jok.verse.diagnostic.CompileError;
+import dev.jok.verse.interpreter.VerseNative;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JvmCompilerTest {
+
+    @Test
+    void compileErrorsPointAtTheirSource() {
+        CompileError error = assertThrows(CompileError.class, () -> compile("""
+                Main() : void = {
+                    X := 1
+                    Missing(X)
+                }
+                """));
+
+        assertEquals("Undefined function 'Missing'.", error.getMessage());
+        assertEquals(3, error.line);
+        assertEquals(5, error.col);
+    }
+
+    private static JvmProgram compile(String source) {
+        Scripts.Script script = Scripts.compile(source);
+        return new JvmCompiler(script.statements(), script.globalFrameSize(), "test.verse", new VerseNative()).compile();
+    }
+
+}
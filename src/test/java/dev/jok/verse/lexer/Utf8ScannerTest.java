@@ -0,0 +1,89 @@
+package dev.jok.verse.lexer;
+
+import dev.jok.verse.Scripts;
+import dev.jok.verse.diagnostic.Diagnostic;
+import dev.jok.verse.diagnostic.Diagnostics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Utf8ScannerTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"classes", "expression", "function", "new-test", "parsing-errors", "test"})
+    void matchesVerseScannerOnResources(String name) throws IOException {
+        try (InputStream input = Utf8ScannerTest.class.getResourceAsStream("/" + name + ".verse")) {
+            assertNotNull(input, name);
+            assertMatchesVerseScanner(new String(input.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void matchesVerseScannerOnALargeSource() {
+        assertMatchesVerseScanner(Scripts.generate(500));
+    }
+
+    @Test
+    void matchesVerseScannerOutsideAscii() {
+        // two, three and four byte characters, the last one two UTF-16 chars wide, before tokens on the same line
+        assertMatchesVerseScanner("""
+                # Gr\u00fc\u00dfe, \u65e5\u672c\u8a9e and \uD83C\uDF89 in a comment
+                Greeting : string = "h\u00e9llo \uD83C\uDF89 w\u00f6rld" # after a string
+                Main() : void = {
+                    Print("\u65e5\u672c\u8a9e"); Print("ok")
+                    X := 1 + 2 \u00a7 3
+                    Y := "\uD83C\uDF89\uD83C\uDF89" ; Z := 4.5
+                }
+                """);
+    }
+
+    @Test
+    void badCharactersAreReportedWhereTheyAre() {
+        List<String> errors = assertMatchesVerseScanner("A := 1\nB := \u00a7\n\uD83C\uDF89 := 2\n");
+        assertEquals(2, errors.size(), errors.toString());
+    }
+
+    @Test
+    void scansFromTheBuffersPosition() {
+        byte[] bytes = "ignored\nA := \"\u00fc\"\n".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).position(8);
+        assertEquals(tokens(new VerseScanner("A := \"\u00fc\"\n", new Diagnostics()).scanBuffer()), tokens(new Utf8Scanner(buffer).scanBuffer()));
+    }
+
+    // the errors both reported
+    private static List<String> assertMatchesVerseScanner(String source) {
+        Diagnostics expectedDiagnostics = new Diagnostics();
+        TokenBuffer expected = new VerseScanner(source, expectedDiagnostics).scanBuffer();
+
+        Diagnostics actualDiagnostics = new Diagnostics();
+        TokenBuffer actual = new Utf8Scanner(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8)), actualDiagnostics).scanBuffer();
+
+        assertEquals(tokens(expected), tokens(actual));
+        assertEquals(messages(expectedDiagnostics), messages(actualDiagnostics));
+        return messages(actualDiagnostics);
+    }
+
+    // everything but the offsets, which are in chars for one and bytes for the other
+    private static List<String> tokens(TokenBuffer tokens) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            result.add(tokens.type(i) + " `" + tokens.lexeme(i) + "` " + tokens.literal(i) + " @" + tokens.line(i) + ":" + tokens.col(i) + " #" + tokens.symbol(i));
+        }
+
+        return result;
+    }
+
+    private static List<String> messages(Diagnostics diagnostics) {
+        return diagnostics.getDiagnostics().stream().map(Diagnostic::toString).toList();
+    }
+
+}
@@ -0,0 +1,165 @@
+package dev.jok.verse.nodes;
+
+import com.sun.management.ThreadMXBean;
+import dev.jok.verse.Scripts;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.interpreter.VerseEnvironment;
+import dev.jok.verse.interpreter.VerseInterpreter;
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeInterpreterTest {
+
+    private static final String ARITHMETIC = """
+            Scale : int = 3
+
+            Compute(X : int) : int = {
+                A := X * Scale + 7
+                var B : int = A - X / 2
+                set B = B * 2 - -A
+                A + B
+            }
+
+            Mix(X : float) : float = {
+                Y := X * 1.5 - 0.25
+                -Y / 2.0 + X
+            }
+            """;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"fib", "arithmetic", "floats", "logic", "boxing", "errors", "reassign"})
+    void matchesInterpreter(String name) throws IOException {
+        String source = load(name);
+        String interpreted = run(() -> {
+            Scripts.Script script = Scripts.compile(source);
+            VerseInterpreter interpreter = new VerseInterpreter(script.statements(), script.globalFrameSize());
+            AstFunctionDecl main = interpreter.lookupFunctionDecl("Main");
+            assertNotNull(main);
+            interpreter.interpret(script.statements());
+            interpreter.call(main, new Object[0]);
+        });
+
+        String executed = run(() -> {
+            Scripts.Script script = Scripts.compile(source);
+            NodeInterpreter interpreter = new NodeInterpreter(script.statements(), script.globalFrameSize());
+            FunctionRoot main = interpreter.lookupFunction("Main");
+            assertNotNull(main);
+            interpreter.initialize();
+            main.call(new Object[0]);
+        });
+
+        assertEquals(interpreted, executed);
+    }
+
+    @Test
+    void intArithmeticDoesNotAllocate() throws UnexpectedResultException {
+        NodeInterpreter interpreter = initialize(ARITHMETIC);
+        FunctionRoot compute = interpreter.lookupFunction("Compute");
+        assertNotNull(compute);
+
+        // big enough that none of the values are in VInteger's cache
+        VerseEnvironment frame = new VerseEnvironment(interpreter.globals, compute.declaration.frameSize);
+        frame.define(0, VInteger.valueOf(100_000));
+        assertEquals(VInteger.valueOf(1_100_028), compute.execute(frame));
+
+        long total = 0;
+        for (int i = 0; i < 100_000; i++) {
+            total += compute.executeInt(frame);
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < 1_000_000; i++) {
+            total += compute.executeInt(frame);
+        }
+
+        long allocated = allocatedBytes() - before;
+        assertNotEquals(0, total);
+        assertTrue(allocated < 64 * 1024, "allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void floatArithmeticDoesNotAllocate() throws UnexpectedResultException {
+        NodeInterpreter interpreter = initialize(ARITHMETIC);
+        FunctionRoot mix = interpreter.lookupFunction("Mix");
+        assertNotNull(mix);
+
+        VerseEnvironment frame = new VerseEnvironment(interpreter.globals, mix.declaration.frameSize);
+        frame.define(0, new VFloat(2.0f));
+        assertEquals(new VFloat(0.625f), mix.execute(frame));
+
+        float total = 0;
+        for (int i = 0; i < 100_000; i++) {
+            total += mix.executeFloat(frame);
+        }
+
+        long before = allocatedBytes();
+        for (int i = 0; i < 1_000_000; i++) {
+            total += mix.executeFloat(frame);
+        }
+
+        long allocated = allocatedBytes() - before;
+        assertNotEquals(0, total);
+        assertTrue(allocated < 64 * 1024, "allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void slotsFallBackWhenTheTypeChanges() {
+        NodeInterpreter interpreter = initialize("""
+                Pick(Small : logic) : any = {
+                    var X : any = 1
+                    if (Small) { set X = 2 } else { set X = 2.5 }
+                    X + X
+                }
+                """);
+        FunctionRoot pick = interpreter.lookupFunction("Pick");
+        assertNotNull(pick);
+
+        assertEquals(VInteger.valueOf(4), pick.call(new Object[] {true}));
+        assertEquals(new VFloat(5.0f), pick.call(new Object[] {false}));
+        assertEquals(VInteger.valueOf(4), pick.call(new Object[] {true}));
+    }
+
+    private static NodeInterpreter initialize(String source) {
+        Scripts.Script script = Scripts.compile(source);
+        NodeInterpreter interpreter = new NodeInterpreter(script.statements(), script.globalFrameSize());
+        interpreter.initialize();
+        return interpreter;
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // what the script printed, followed by a line saying if it stopped with an error
+    private static String run(Runnable script) {
+        boolean[] failed = {false};
+        String output = Scripts.captureOutput(() -> {
+            try {
+                script.run();
+            } catch (RuntimeException e) {
+                failed[0] = true;
+            }
+        });
+
+        return output + (failed[0] ? "error\n" : "done\n");
+    }
+
+    private static String load(String name) throws IOException {
+        try (InputStream input = NodeInterpreterTest.class.getResourceAsStream("/parity/" + name + ".verse")) {
+            assertNotNull(input, name);
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
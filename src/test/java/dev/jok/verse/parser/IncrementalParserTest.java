@@ -0,0 +1,103 @@
+package dev.jok.verse.parser;
+
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.diagnostic.Diagnostic;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalParserTest {
+
+    @Test
+    void fixedErrorsGoAway() {
+        String source = "A : int = 1 +\n\nB : int = 2\n";
+        IncrementalParser parser = new IncrementalParser(false, source);
+        assertTrue(parser.getDiagnostics().hasErrors());
+
+        // A is reused as it was, and still has its error
+        edit(parser, "B : int = 2", "B : int = 3");
+        assertTrue(parser.getDiagnostics().hasErrors());
+        assertMatchesFreshParse(parser);
+
+        edit(parser, "1 +", "1");
+        assertFalse(parser.getDiagnostics().hasErrors(), parser.getDiagnostics().getDiagnostics().toString());
+        assertMatchesFreshParse(parser);
+    }
+
+    @Test
+    void errorsMoveWithTheirStatement() {
+        IncrementalParser parser = new IncrementalParser(false, "A : int = 1\nB : int = 2 +\nC : int = $3\n");
+        assertMatchesFreshParse(parser);
+
+        edit(parser, "A : int = 1\n", "A : int = 1\n\nZ : int = 0\n");
+        assertMatchesFreshParse(parser);
+
+        // the rest of the line moves too
+        edit(parser, "C : int", "C : float");
+        assertMatchesFreshParse(parser);
+    }
+
+    @Test
+    void scanErrorsAreReplacedWhenRelexed() {
+        IncrementalParser parser = new IncrementalParser(false, "$\nA : int = 1\nB : int = @2\n");
+        assertEquals(2, parser.getDiagnostics().getDiagnostics().size());
+
+        edit(parser, "@2", "2");
+        assertMatchesFreshParse(parser);
+        assertEquals(1, parser.getDiagnostics().getDiagnostics().size());
+
+        edit(parser, "$\n", "");
+        assertMatchesFreshParse(parser);
+        assertFalse(parser.getDiagnostics().hasErrors());
+    }
+
+    @Test
+    void matchesAFreshParseAfterEachEdit() {
+        String[][] edits = {
+                {"X : int = 1", "X : int = 1 *"},
+                {"Y : int = 2", "Y : int = (2"},
+                {"X : int = 1 *", "X : int = 1"},
+                {"Main() : void = {", "Main() : void = {\n    Z := $"},
+                {"(2", "2"},
+                {"Z := $", "Z := 1"},
+        };
+
+        IncrementalParser parser = new IncrementalParser(false, "X : int = 1\n\nY : int = 2\n\nMain() : void = {\n    X + Y\n}\n");
+        for (String[] edit : edits) {
+            edit(parser, edit[0], edit[1]);
+            assertMatchesFreshParse(parser);
+        }
+
+        assertFalse(parser.getDiagnostics().hasErrors());
+    }
+
+    @Test
+    void failedEditsChangeNothing() {
+        IncrementalParser parser = new IncrementalParser(false, "A : int = 1\n");
+        List<AstStmt> statements = parser.getStatements();
+
+        // an unexpected token after a whole statement isn't recovered from at the top level
+        assertThrows(RuntimeException.class, () -> edit(parser, "1", "1 2"));
+        assertEquals("A : int = 1\n", parser.getSource());
+        assertSame(statements, parser.getStatements());
+        assertFalse(parser.getDiagnostics().hasErrors());
+    }
+
+    private static void edit(IncrementalParser parser, String target, String replacement) {
+        int offset = parser.getSource().indexOf(target);
+        assertTrue(offset >= 0, target);
+        parser.edit(offset, target.length(), replacement);
+    }
+
+    private static void assertMatchesFreshParse(IncrementalParser parser) {
+        IncrementalParser fresh = new IncrementalParser(false, parser.getSource());
+        assertEquals(messages(fresh.getDiagnostics().getDiagnostics()), messages(parser.getDiagnostics().getDiagnostics()), parser.getSource());
+    }
+
+    private static List<String> messages(List<Diagnostic> diagnostics) {
+        return diagnostics.stream().map(Diagnostic::toString).toList();
+    }
+
+}
@@ -0,0 +1,116 @@
+package dev.jok.verse.parser;
+
+import dev.jok.verse.AstDump;
+import dev.jok.verse.Scripts;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.diagnostic.Diagnostic;
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.lexer.TokenBuffer;
+import dev.jok.verse.lexer.VerseScanner;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelParserTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"classes", "expression", "function", "new-test", "parsing-errors", "test"})
+    void matchesSequentialOnResources(String name) throws IOException {
+        try (InputStream input = ParallelParserTest.class.getResourceAsStream("/" + name + ".verse")) {
+            assertNotNull(input, name);
+            String source = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            for (int minChunkTokens = 1; minChunkTokens <= 16; minChunkTokens++) {
+                assertMatchesSequential(source, minChunkTokens);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 16, 64, 4096})
+    void matchesSequentialOnALargeSource(int minChunkTokens) {
+        List<AstStmt> statements = assertMatchesSequential(Scripts.generate(500), minChunkTokens);
+        assertEquals(502, statements.size());
+        assertFalse(statements.contains(null));
+    }
+
+    @Test
+    void chunksDontStartInsideBrackets() {
+        // every line of the body starts in the first column, so only the depth tells them apart from top-level statements
+        String source = """
+                A : int = 1
+
+                Main() : void = {
+                X := 1
+                if (X > 0) {
+                Y := 2
+                }
+                }
+
+                B : int = 2
+                """;
+
+        TokenBuffer tokens = new VerseScanner(source, new Diagnostics()).scanBuffer();
+        for (int minChunkTokens = 1; minChunkTokens < tokens.size(); minChunkTokens++) {
+            List<AstStmt> statements = assertMatchesSequential(source, minChunkTokens);
+            assertEquals(3, statements.size(), "chunks of " + minChunkTokens);
+        }
+    }
+
+    @Test
+    void statementsRunningPastAChunkAreParsedAgain() {
+        // the unclosed brace makes Main run to the end of the file, over every later chunk start
+        String source = Scripts.generate(5).replace("Compute1(A : int, B : int) : int = {", "Compute1(A : int, B : int) : int = { {");
+        for (int minChunkTokens = 1; minChunkTokens <= 64; minChunkTokens *= 2) {
+            assertMatchesSequential(source, minChunkTokens);
+        }
+    }
+
+    private static List<AstStmt> assertMatchesSequential(String source, int minChunkTokens) {
+        Diagnostics sequentialDiagnostics = new Diagnostics();
+        TokenBuffer tokens = new VerseScanner(source, sequentialDiagnostics).scanBuffer();
+        Diagnostics parallelDiagnostics = new Diagnostics();
+        parallelDiagnostics.reportAll(sequentialDiagnostics);
+
+        List<AstStmt> sequential;
+        try {
+            sequential = new VerseParser(false, tokens, sequentialDiagnostics).parse();
+        } catch (RuntimeException e) {
+            // some errors aren't recovered from at the top level yet, which has to happen the same way
+            assertThrows(e.getClass(), () -> new ParallelParser(false, tokens, parallelDiagnostics, pool, minChunkTokens).parse(), "chunks of " + minChunkTokens);
+            assertEquals(messages(sequentialDiagnostics), messages(parallelDiagnostics), "chunks of " + minChunkTokens);
+            return List.of();
+        }
+
+        List<AstStmt> parallel = new ParallelParser(false, tokens, parallelDiagnostics, pool, minChunkTokens).parse();
+        assertEquals(AstDump.dump(sequential), AstDump.dump(parallel), "chunks of " + minChunkTokens);
+        assertEquals(messages(sequentialDiagnostics), messages(parallelDiagnostics), "chunks of " + minChunkTokens);
+        return parallel;
+    }
+
+    private static List<String> messages(Diagnostics diagnostics) {
+        return diagnostics.getDiagnostics().stream().map(Diagnostic::toString).toList();
+    }
+
+}
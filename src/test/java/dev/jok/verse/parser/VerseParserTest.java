@@ -0,0 +1,97 @@
+package dev.jok.verse.parser;
+
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstVariableDecl;
+import dev.jok.verse.ast.types.expr.AstCallExpr;
+import dev.jok.verse.ast.types.stmt.AstExpressionStmt;
+import dev.jok.verse.diagnostic.Diagnostic;
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.lexer.VerseScanner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerseParserTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "F(X : int) : int = { X }",
+            "F(X : int, Y : float) : float = { Y }",
+            "F() : void = {}",
+            "F()<suspends> : void = {}",
+            "F<native>(X : int) : void",
+            "F<native>() : void",
+    })
+    void functionHeadersAreDeclarations(String source) {
+        AstStmt statement = parseOne(source);
+        assertInstanceOf(AstFunctionDecl.class, statement, source);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "F(X)",
+            "F()",
+            "F(X, Y)",
+            "F(G(X), Y)",
+            "F(X < Y)",
+            "F() < G()",
+    })
+    void callsAreExpressions(String source) {
+        AstStmt statement = parseOne(source);
+        AstExpressionStmt expression = assertInstanceOf(AstExpressionStmt.class, statement, source);
+        if (!source.contains(" < G")) {
+            assertInstanceOf(AstCallExpr.class, expression.expression, source);
+        }
+    }
+
+    @Test
+    void declarationsAndCallsInABody() {
+        Diagnostics diagnostics = new Diagnostics();
+        List<AstStmt> statements = parse("""
+                F(X : int) : int = {
+                    G(X)
+                    Y : int = G(X)
+                    X
+                }
+                """, diagnostics);
+        assertEquals(List.of(), diagnostics.getDiagnostics());
+
+        AstFunctionDecl function = assertInstanceOf(AstFunctionDecl.class, statements.get(0));
+        assertNotNull(function.body);
+        assertInstanceOf(AstExpressionStmt.class, function.body.get(0));
+        assertInstanceOf(AstVariableDecl.class, function.body.get(1));
+        assertInstanceOf(AstExpressionStmt.class, function.body.get(2));
+    }
+
+    @Test
+    void malformedHeadersAreReportedAtTheColon() {
+        // a literal can't be a parameter, so this is a call, and a call can't be followed by a :
+        Diagnostics diagnostics = new Diagnostics();
+        parse("""
+                Main() : void = {
+                    F(1) : int = { 1 }
+                }
+                """, diagnostics);
+
+        Diagnostic first = diagnostics.getDiagnostics().get(0);
+        assertEquals("Syntax Error: Unexpected `:` following expression [ Ln 2, Col 10 ]", first.toString());
+    }
+
+    private static AstStmt parseOne(String source) {
+        Diagnostics diagnostics = new Diagnostics();
+        List<AstStmt> statements = parse(source + "\n", diagnostics);
+        assertEquals(List.of(), diagnostics.getDiagnostics(), source);
+        assertEquals(1, statements.size(), source);
+        return statements.get(0);
+    }
+
+    private static List<AstStmt> parse(String source, Diagnostics diagnostics) {
+        return new VerseParser(false, new VerseScanner(source, diagnostics).scanBuffer(), diagnostics).parse();
+    }
+
+}
@@ -0,0 +1,161 @@
+package dev.jok.verse.parser.pass;
+
+import dev.jok.verse.Scripts;
+import dev.jok.verse.ast.types.AstExpr;
+import dev.jok.verse.ast.types.AstStmt;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.ast.types.decl.AstVariableDecl;
+import dev.jok.verse.ast.types.expr.AstUnaryExpr;
+import dev.jok.verse.diagnostic.Diagnostics;
+import dev.jok.verse.interpreter.VerseInterpreter;
+import dev.jok.verse.interpreter.VerseNative;
+import dev.jok.verse.lexer.StreamingTokenSource;
+import dev.jok.verse.lexer.Symbols;
+import dev.jok.verse.lexer.Token;
+import dev.jok.verse.lexer.TokenType;
+import dev.jok.verse.lexer.VerseScanner;
+import dev.jok.verse.parser.VerseParser;
+import dev.jok.verse.types.number.VInteger;
+import dev.jok.verse.util.AstPrinter;
+import dev.jok.verse.vm.BytecodeCompiler;
+import dev.jok.verse.vm.CompiledProgram;
+import dev.jok.verse.vm.VerseVM;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConstantFolderTest {
+
+    @Test
+    void foldsConstants() {
+        assertEquals("7", fold("1 + 2 * 3"));
+        assertEquals("true", fold("1 + 1 = 2"));
+        assertEquals("2.5", fold("5.0 / 2.0"));
+        assertEquals("(N + 3)", fold("N + 1 * 3"));
+    }
+
+    @Test
+    void failuresAreLeftForRuntime() {
+        assertEquals("(1 / 0)", fold("1 / 0"));
+        assertEquals("(6 / 0)", fold("2 * 3 / 0"));
+        assertEquals("(1 + 2.0)", fold("1 + 2.0"));
+        assertEquals("(1.5 < 2)", fold("1.5 < 2"));
+    }
+
+    @Test
+    void identitiesNeedAKnownType() {
+        assertEquals("(N + 1)", fold("N + 1 + 0"));
+        assertEquals("(N * 2)", fold("N * 2 * 1"));
+        assertEquals("(X * 2.0)", fold("X * 2.0 / 1.0"));
+        // N could be anything, and N + 0 fails if it's not an int
+        assertEquals("(N + 0)", fold("N + 0"));
+        assertEquals("(X - 0.0)", fold("X - 0.0"));
+        // a float times an int 1 fails, so it isn't an identity either
+        assertEquals("((X * 2.0) * 1)", fold("X * 2.0 * 1"));
+    }
+
+    @Test
+    void addingFloatZeroIsKept() {
+        // -0.0 + 0.0 is 0.0, so it isn't an identity
+        assertEquals("((X + 1.5) + 0.0)", fold("X + 1.5 + 0.0"));
+        assertEquals("(0.0 + (X * 1.5))", fold("0.0 + X * 1.5"));
+        assertEquals("0.0", fold("-0.0 + 0.0"));
+        assertEquals("(X + 1.5)", fold("X + 1.5 - 0.0"));
+    }
+
+    @Test
+    void doubleNegation() {
+        assertEquals("5", fold("- -5"));
+        // - -N fails if N isn't a number
+        assertEquals("--N", fold("- -N"));
+
+        // there are no parentheses to write - -(N + 1) with yet
+        AstExpr sum = initializer(parse("F(N : int) : void = {\n    Y := N + 1\n}\n"));
+        AstExpr negated = new AstUnaryExpr(minus(), new AstUnaryExpr(minus(), sum));
+        assertSame(sum, negated.accept(new ConstantFolder()));
+    }
+
+    @Test
+    void onlyChangedNodesAreRebuilt() {
+        List<AstStmt> statements = parse("""
+                Same(N : int) : int = {
+                    N * 2
+                }
+
+                Changed(N : int) : int = {
+                    X := N
+                    X + 2 * 3
+                }
+                """);
+
+        List<AstStmt> folded = new ConstantFolder().fold(statements);
+        assertNotSame(statements, folded);
+        assertSame(statements.get(0), folded.get(0));
+
+        AstFunctionDecl before = (AstFunctionDecl) statements.get(1);
+        AstFunctionDecl after = (AstFunctionDecl) folded.get(1);
+        assertNotSame(before, after);
+        assertSame(Objects.requireNonNull(before.body).get(0), Objects.requireNonNull(after.body).get(0));
+
+        // nothing is left to fold the second time
+        assertSame(folded, new ConstantFolder().fold(folded));
+    }
+
+    @Test
+    void constantIfCanEndAFunction() {
+        String source = """
+                Pick() : int = {
+                    if (1 < 2) {
+                        1
+                    } else {
+                        2
+                    }
+                }
+
+                Other() : int = {
+                    if (false) {
+                        1
+                    } else {
+                        2
+                    }
+                }
+                """;
+
+        Scripts.Script script = Scripts.compile(source);
+        VerseInterpreter interpreter = new VerseInterpreter(script.statements(), script.globalFrameSize());
+        assertEquals(VInteger.valueOf(1), interpreter.call(Objects.requireNonNull(interpreter.lookupFunctionDecl("Pick")), new Object[0]));
+        assertEquals(VInteger.valueOf(2), interpreter.call(Objects.requireNonNull(interpreter.lookupFunctionDecl("Other")), new Object[0]));
+
+        CompiledProgram program = new BytecodeCompiler(script.statements(), script.globalFrameSize(), new VerseNative()).compile();
+        assertEquals(VInteger.valueOf(1), new VerseVM(program).call(program.lookupFunction("Pick"), new Object[0]));
+        assertEquals(VInteger.valueOf(2), new VerseVM(program).call(program.lookupFunction("Other"), new Object[0]));
+    }
+
+    // folds an expression in a function where N is an int and X a float
+    private static String fold(String expression) {
+        List<AstStmt> statements = parse("F(N : int, X : float) : void = {\n    Y := " + expression + "\n}\n");
+        return new AstPrinter().print(initializer(new ConstantFolder().fold(statements)));
+    }
+
+    // of the first local in the first function
+    private static AstExpr initializer(List<AstStmt> statements) {
+        AstFunctionDecl function = (AstFunctionDecl) statements.get(0);
+        AstVariableDecl variable = (AstVariableDecl) Objects.requireNonNull(function.body).get(0);
+        return variable.initializer;
+    }
+
+    private static Token minus() {
+        return new Token(TokenType.MINUS, "-", null, 1, 1, Symbols.NONE);
+    }
+
+    private static List<AstStmt> parse(String source) {
+        Diagnostics diagnostics = new Diagnostics();
+        List<AstStmt> statements = new VerseParser(false, new StreamingTokenSource(new VerseScanner(source, diagnostics)), diagnostics).parse();
+        assertFalse(diagnostics.hasErrors(), diagnostics.getDiagnostics().toString());
+        return statements;
+    }
+
+}
@@ -0,0 +1,221 @@
+package dev.jok.verse.task;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskSchedulerTest {
+
+    private final VirtualClock clock = new VirtualClock();
+    private final TaskScheduler scheduler = new TaskScheduler(clock);
+    // the tasks in the order they completed
+    private final List<Task> completed = new ArrayList<>();
+
+    @Test
+    void spawnedTasksAllRun() {
+        List<Task> tasks = new ArrayList<>();
+        Task main = scheduler.spawn(routine(
+                task -> {
+                    for (int i = 0; i < 1000; i++) {
+                        int millis = i % 10;
+                        tasks.add(scheduler.spawn(routine(sleep(millis / 1000f), ignored -> millis)));
+                    }
+
+                    return "main";
+                }
+        ));
+
+        run();
+
+        assertEquals(Task.State.COMPLETED, main.getState());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(Task.State.COMPLETED, tasks.get(i).getState());
+            assertEquals(i % 10, tasks.get(i).getResult());
+        }
+
+        // the spawning task doesn't wait for them, and they wake in the order they're due
+        assertSame(main, completed.get(0));
+        for (int i = 2; i < completed.size(); i++) {
+            assertTrue((int) completed.get(i - 1).getResult() <= (int) completed.get(i).getResult());
+        }
+
+        assertEquals(1001, scheduler.getSpawnedTasks());
+        assertEquals(1001, scheduler.getCompletedTasks());
+        assertEquals(0, scheduler.getCancelledTasks());
+        assertEquals(0, scheduler.getLiveTasks());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(9), clock.nanoTime());
+    }
+
+    @Test
+    void raceCancelsTheLosersAndEverythingUnderThem() {
+        Task[] branches = new Task[3];
+        List<Task> nested = new ArrayList<>();
+        Task main = scheduler.spawn(routine(
+                task -> {
+                    TaskGroup race = scheduler.group(task, TaskGroup.Kind.RACE);
+                    branches[0] = scheduler.branch(race, routine(sleep(1), ignored -> "first"));
+                    branches[1] = scheduler.branch(race, routine(
+                            loser -> {
+                                TaskGroup sync = scheduler.group(loser, TaskGroup.Kind.SYNC);
+                                nested.add(scheduler.branch(sync, routine(sleep(5), ignored -> "nested")));
+                                nested.add(scheduler.branch(sync, routine(sleep(6), ignored -> "nested")));
+                                return sync;
+                            },
+                            ignored -> fail("a cancelled task carried on")
+                    ));
+                    branches[2] = scheduler.branch(race, routine(sleep(10), ignored -> fail("a cancelled task carried on")));
+                    return race;
+                },
+                task -> task.resumeValue
+        ));
+
+        run();
+
+        assertEquals("first", main.getResult());
+        assertEquals(Task.State.COMPLETED, branches[0].getState());
+        assertEquals(Task.State.CANCELLED, branches[1].getState());
+        assertEquals(Task.State.CANCELLED, branches[2].getState());
+        for (Task task : nested) {
+            assertEquals(Task.State.CANCELLED, task.getState());
+        }
+
+        assertEquals(6, scheduler.getSpawnedTasks());
+        assertEquals(2, scheduler.getCompletedTasks());
+        assertEquals(4, scheduler.getCancelledTasks());
+        assertEquals(0, scheduler.getLiveTasks());
+        // the losers' sleeps went with them, so nothing was waited for after the winner
+        assertEquals(TimeUnit.SECONDS.toNanos(1), clock.nanoTime());
+    }
+
+    @Test
+    void rushLeavesTheLosersRunning() {
+        Task[] branches = new Task[2];
+        long[] liveAfterMain = {-1};
+        Task main = scheduler.spawn(routine(
+                task -> {
+                    TaskGroup rush = scheduler.group(task, TaskGroup.Kind.RUSH);
+                    branches[0] = scheduler.branch(rush, routine(sleep(1), ignored -> "first"));
+                    branches[1] = scheduler.branch(rush, routine(sleep(10), ignored -> {
+                        liveAfterMain[0] = scheduler.getLiveTasks();
+                        return "second";
+                    }));
+                    return rush;
+                },
+                task -> task.resumeValue
+        ));
+
+        run();
+
+        assertEquals("first", main.getResult());
+        assertEquals(List.of(branches[0], main, branches[1]), completed);
+        assertEquals("second", branches[1].getResult());
+        // only the loser itself was still going once the task that started it was done
+        assertEquals(1, liveAfterMain[0]);
+
+        assertEquals(3, scheduler.getCompletedTasks());
+        assertEquals(0, scheduler.getCancelledTasks());
+        assertEquals(0, scheduler.getLiveTasks());
+        assertEquals(TimeUnit.SECONDS.toNanos(10), clock.nanoTime());
+    }
+
+    @Test
+    void branchIsCancelledWhenItsParentFinishes() {
+        Task[] branches = new Task[2];
+        Task main = scheduler.spawn(routine(
+                task -> {
+                    TaskGroup group = scheduler.group(task, TaskGroup.Kind.BRANCH);
+                    branches[0] = scheduler.branch(group, routine(sleep(5), ignored -> fail("a cancelled task carried on")));
+                    return new Delay(1);
+                },
+                task -> {
+                    TaskGroup group = scheduler.group(task, TaskGroup.Kind.BRANCH);
+                    // one that's never had a turn yet
+                    branches[1] = scheduler.branch(group, routine(ignored -> fail("a cancelled task carried on")));
+                    return "main";
+                }
+        ));
+
+        run();
+
+        assertEquals(Task.State.COMPLETED, main.getState());
+        assertEquals(Task.State.CANCELLED, branches[0].getState());
+        assertEquals(Task.State.CANCELLED, branches[1].getState());
+        assertEquals(List.of(main), completed);
+
+        assertEquals(3, scheduler.getSpawnedTasks());
+        assertEquals(1, scheduler.getCompletedTasks());
+        assertEquals(2, scheduler.getCancelledTasks());
+        assertEquals(0, scheduler.getLiveTasks());
+        assertEquals(TimeUnit.SECONDS.toNanos(1), clock.nanoTime());
+    }
+
+    @Test
+    void syncWaitsForEveryBranch() {
+        Task main = scheduler.spawn(routine(
+                task -> {
+                    TaskGroup sync = scheduler.group(task, TaskGroup.Kind.SYNC);
+                    scheduler.branch(sync, routine(sleep(3), ignored -> "a"));
+                    scheduler.branch(sync, routine(ignored -> "b"));
+                    scheduler.branch(sync, routine(sleep(1), sleep(1), ignored -> "c"));
+                    return sync;
+                },
+                task -> List.of((Object[]) task.resumeValue)
+        ));
+
+        run();
+
+        assertEquals(List.of("a", "b", "c"), main.getResult());
+        assertSame(main, completed.get(completed.size() - 1));
+        assertEquals(4, scheduler.getCompletedTasks());
+        assertEquals(0, scheduler.getLiveTasks());
+        assertEquals(TimeUnit.SECONDS.toNanos(3), clock.nanoTime());
+    }
+
+    private void run() {
+        scheduler.run(task -> {
+            Object outcome = ((Routine) task.continuation).next(task);
+            if (!(outcome instanceof Suspension)) {
+                completed.add(task);
+            }
+
+            return outcome;
+        });
+    }
+
+    private static Step sleep(float seconds) {
+        return task -> new Delay(seconds);
+    }
+
+    private static Routine routine(Step... steps) {
+        return new Routine(steps);
+    }
+
+    // one turn of a task, which suspends it by returning a Suspension and completes it otherwise
+    @FunctionalInterface
+    private interface Step {
+
+        Object run(Task task);
+
+    }
+
+    // stands in for an engine's saved state, carrying on from the next step each turn
+    private static final class Routine {
+
+        private final Step[] steps;
+        private int next = 0;
+
+        Routine(Step[] steps) {
+            this.steps = steps;
+        }
+
+        Object next(Task task) {
+            return steps[next++].run(task);
+        }
+
+    }
+
+}
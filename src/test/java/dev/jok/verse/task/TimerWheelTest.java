@@ -0,0 +1,198 @@
+package dev.jok.verse.task;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+    // the first tick of each level above the bottom one, and of the overflow list
+    private static final long LEVEL_1 = 1L << 8;
+    private static final long LEVEL_2 = 1L << 16;
+    private static final long LEVEL_3 = 1L << 24;
+    private static final long OVERFLOW = 1L << 32;
+
+    @ParameterizedTest
+    @ValueSource(longs = {LEVEL_1, LEVEL_2, LEVEL_3, OVERFLOW})
+    void expiresOnTheTickAcrossLevels(long boundary) {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        wheel.schedule(task(0), boundary - 1);
+        wheel.schedule(task(1), boundary);
+        wheel.schedule(task(2), boundary + 1);
+
+        assertEquals(List.of(), advance(wheel, boundary - 2));
+        assertEquals(List.of(0), advance(wheel, boundary - 1));
+        assertEquals(List.of(1), advance(wheel, boundary));
+        assertEquals(List.of(2), advance(wheel, boundary + 1));
+        assertTrue(wheel.isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {LEVEL_1, LEVEL_2, LEVEL_3, OVERFLOW})
+    void cascadesWhenSteppedThroughNextTick(long boundary) {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        long[] due = {boundary - 1, boundary, boundary + 1, 2 * boundary + 3};
+        for (int i = 0; i < due.length; i++) {
+            wheel.schedule(task(i), due[i]);
+        }
+
+        // only ever advancing to the next tick something happens on, the way the scheduler does
+        Map<Integer, Long> expiredAt = new HashMap<>();
+        while (!wheel.isEmpty()) {
+            long next = wheel.nextTickNanos();
+            for (int id : advance(wheel, next)) {
+                expiredAt.put(id, next);
+            }
+        }
+
+        for (int i = 0; i < due.length; i++) {
+            assertEquals(due[i], expiredAt.get(i), "timer " + i);
+        }
+    }
+
+    @Test
+    void overflowTimersWaitForTheirTurn() {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        TimerWheel.Timer cancelled = wheel.schedule(task(0), 3 * OVERFLOW);
+        wheel.schedule(task(1), 3 * OVERFLOW + 7);
+        wheel.schedule(task(2), OVERFLOW + 7);
+
+        assertEquals(List.of(), advance(wheel, OVERFLOW));
+        assertEquals(List.of(2), advance(wheel, 2 * OVERFLOW));
+
+        wheel.cancel(cancelled);
+        assertEquals(1, wheel.getSize());
+        assertEquals(List.of(), advance(wheel, 3 * OVERFLOW + 6));
+        assertEquals(List.of(1), advance(wheel, 3 * OVERFLOW + 7));
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    void pastTimersExpireOnTheNextTick() {
+        TimerWheel wheel = new TimerWheel(10, 5);
+        advance(wheel, 1005);
+
+        wheel.schedule(task(0), 0);
+        wheel.schedule(task(1), 1005);
+        wheel.schedule(task(2), 1006);
+        assertEquals(List.of(), advance(wheel, 1014));
+        assertEquals(List.of(0, 1, 2), advance(wheel, 1015));
+    }
+
+    @Test
+    void timersOnTheSameTickExpireInOrder() {
+        TimerWheel wheel = new TimerWheel(1, 0);
+        // on different levels when scheduled, but all due on the same tick by the time they expire
+        wheel.schedule(task(0), LEVEL_2 + 3);
+        advance(wheel, LEVEL_2 - 1);
+        wheel.schedule(task(1), LEVEL_2 + 3);
+        advance(wheel, LEVEL_2 + 1);
+        wheel.schedule(task(2), LEVEL_2 + 3);
+
+        assertEquals(List.of(0, 1, 2), advance(wheel, LEVEL_2 + 3));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5, 6, 7, 8})
+    void matchesASortedList(long seed) {
+        Random random = new Random(seed);
+        long tickNanos = 1 + random.nextInt(5);
+        long origin = random.nextLong() % 1_000_000;
+        TimerWheel wheel = new TimerWheel(tickNanos, origin);
+
+        // what should still be pending, as {due tick, id}
+        List<long[]> pending = new ArrayList<>();
+        Map<Integer, TimerWheel.Timer> timers = new HashMap<>();
+        long now = origin + random.nextInt(100);
+        // every tick up to this one has been expired, so nothing can be due before it
+        long firstTick = 0;
+
+        for (int id = 0, step = 0; step < 20_000; step++) {
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                // anywhere from the past to well into the overflow list
+                long delay = switch (random.nextInt(5)) {
+                    case 0 -> random.nextInt(10) - 5;
+                    case 1 -> random.nextInt(300) * tickNanos;
+                    case 2 -> random.nextInt(70_000) * tickNanos;
+                    case 3 -> random.nextInt(20_000_000) * tickNanos;
+                    default -> (random.nextLong() & ((1L << 34) - 1)) * tickNanos - random.nextInt(50);
+                };
+
+                long due = now + delay;
+                timers.put(id, wheel.schedule(task(id), due));
+                long elapsed = Math.max(due - origin, 0);
+                long dueTick = Math.max(elapsed / tickNanos + (elapsed % tickNanos != 0 ? 1 : 0), firstTick);
+                pending.add(new long[] {dueTick, id});
+                id++;
+            } else if (operation < 7 && !pending.isEmpty()) {
+                long[] timer = pending.remove(random.nextInt(pending.size()));
+                // twice, which has to be harmless
+                wheel.cancel(timers.get((int) timer[1]));
+                wheel.cancel(timers.get((int) timer[1]));
+            } else {
+                if (random.nextInt(20) == 0 && !wheel.isEmpty()) {
+                    // nothing may expire before the next tick the wheel reports
+                    long next = wheel.nextTickNanos();
+                    assertEquals(List.of(), advance(wheel, next - 1), "before the next tick");
+                    assertEquals(List.of(), expected(pending, Math.floorDiv(next - 1 - origin, tickNanos)));
+                    now = Math.max(now, next);
+                } else {
+                    now += switch (random.nextInt(4)) {
+                        case 0 -> random.nextInt(5);
+                        case 1 -> random.nextInt(500) * tickNanos;
+                        case 2 -> random.nextInt(100_000) * tickNanos;
+                        default -> 0;
+                    };
+                }
+
+                long target = Math.floorDiv(now - origin, tickNanos);
+                assertEquals(expected(pending, target), advance(wheel, now), "step " + step);
+                firstTick = Math.max(firstTick, target + 1);
+            }
+
+            assertEquals(pending.size(), wheel.getSize());
+        }
+    }
+
+    // takes the timers due up to the tick out of pending, in the order they should expire
+    private static List<Integer> expected(List<long[]> pending, long tick) {
+        List<long[]> due = new ArrayList<>();
+        for (Iterator<long[]> iterator = pending.iterator(); iterator.hasNext(); ) {
+            long[] timer = iterator.next();
+            if (timer[0] <= tick) {
+                due.add(timer);
+                iterator.remove();
+            }
+        }
+
+        due.sort(Comparator.<long[]>comparingLong(timer -> timer[0]).thenComparingLong(timer -> timer[1]));
+        List<Integer> ids = new ArrayList<>();
+        for (long[] timer : due) {
+            ids.add((int) timer[1]);
+        }
+
+        return ids;
+    }
+
+    private static List<Integer> advance(TimerWheel wheel, long nanos) {
+        List<Integer> expired = new ArrayList<>();
+        wheel.advance(nanos, task -> expired.add(task.getId()));
+        return expired;
+    }
+
+    private static Task task(int id) {
+        return new Task(id, "test");
+    }
+
+}
@@ -0,0 +1,172 @@
+package dev.jok.verse.types.collection;
+
+import dev.jok.verse.types.number.VFloat;
+import dev.jok.verse.types.number.VInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VArrayTest {
+
+    @Test
+    void picksTheKindFromTheFirstElement() {
+        assertEquals(ElementKind.INT, VArray.of(VInteger.valueOf(1), VInteger.valueOf(2)).getKind());
+        assertEquals(ElementKind.FLOAT, VArray.empty().append(new VFloat(1.5f)).getKind());
+        assertEquals(ElementKind.LOGIC, VArray.builder().add(true).build().getKind());
+        assertEquals(ElementKind.GENERIC, VArray.of("a").getKind());
+    }
+
+    @Test
+    void widensForElementsTheKindCantHold() {
+        VArray ints = VArray.of(VInteger.valueOf(1), VInteger.valueOf(2));
+        VArray mixed = ints.set(1, new VFloat(2.5f));
+        assertEquals(ElementKind.GENERIC, mixed.getKind());
+        assertEquals(VArray.of(VInteger.valueOf(1), new VFloat(2.5f)), mixed);
+        // the array it came from is still ints
+        assertEquals(ElementKind.INT, ints.getKind());
+        assertEquals(VInteger.valueOf(2), ints.get(1));
+    }
+
+    @Test
+    void checksIndices() {
+        VArray array = VArray.of(VInteger.valueOf(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> array.set(2, VInteger.valueOf(3)));
+        assertThrows(IndexOutOfBoundsException.class, () -> array.toBuilder().set(-1, VInteger.valueOf(3)));
+    }
+
+    @Test
+    void builtArraysCantBeChanged() {
+        VArray.Builder builder = VArray.builder().add(VInteger.valueOf(1));
+        builder.build();
+        assertThrows(IllegalStateException.class, () -> builder.add(VInteger.valueOf(2)));
+    }
+
+    @Test
+    void visitsPrimitiveLeavesUnboxed() {
+        VArray.Builder builder = VArray.builder(ElementKind.INT);
+        for (int i = 0; i < 1000; i++) {
+            builder.add(VInteger.valueOf(i));
+        }
+
+        int[] next = {0};
+        builder.build().visitElements(new ElementVisitor() {
+            @Override
+            public void visit(Object element) {
+                fail("boxed " + element);
+            }
+
+            @Override
+            public void visitInt(int element) {
+                assertEquals(next[0]++, element);
+            }
+        });
+        assertEquals(1000, next[0]);
+
+        List<Boolean> logics = new ArrayList<>();
+        VArray.of(true, false, true).visitElements(new ElementVisitor() {
+            @Override
+            public void visit(Object element) {
+                fail("boxed " + element);
+            }
+
+            @Override
+            public void visitLogic(boolean element) {
+                logics.add(element);
+            }
+        });
+        assertEquals(List.of(true, false, true), logics);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 4, 5, 6, 7})
+    void matchesAnArrayList(int seed) {
+        Random random = new Random(seed);
+        // mostly one kind, so leaves stay primitive for a while before something widens them
+        int kind = seed % 4;
+        int length = seed % 2 == 0 ? 40_000 : random.nextInt(3000);
+
+        List<Object> model = new ArrayList<>();
+        VArray array = VArray.empty();
+        List<VArray> snapshots = new ArrayList<>();
+        List<List<Object>> models = new ArrayList<>();
+
+        for (int step = 0; step < length; step++) {
+            Object element = element(random, kind);
+            if (random.nextInt(10) < 7 || model.isEmpty()) {
+                model.add(element);
+                array = array.append(element);
+            } else {
+                int index = random.nextInt(model.size());
+                model.set(index, element);
+                array = array.set(index, element);
+            }
+
+            if (random.nextInt(500) == 0) {
+                snapshots.add(array);
+                models.add(new ArrayList<>(model));
+            }
+
+            if (random.nextInt(2000) == 0) {
+                VArray.Builder builder = array.toBuilder();
+                for (int i = random.nextInt(2000); i > 0; i--) {
+                    Object builderElement = element(random, kind);
+                    if (random.nextBoolean() && builder.length() > 0) {
+                        int index = random.nextInt(builder.length());
+                        builder.set(index, builderElement);
+                        model.set(index, builderElement);
+                    } else {
+                        builder.add(builderElement);
+                        model.add(builderElement);
+                    }
+                }
+
+                array = builder.build();
+            }
+        }
+
+        assertMatches(model, array);
+        // the old arrays mustn't have been changed by anything made from them
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertMatches(models.get(i), snapshots.get(i));
+        }
+    }
+
+    private static Object element(Random random, int kind) {
+        // now and then something of another kind
+        int pick = random.nextInt(5000) == 0 ? random.nextInt(4) : kind;
+        return switch (pick) {
+            case 0 -> VInteger.valueOf(random.nextInt());
+            case 1 -> new VFloat(random.nextFloat());
+            case 2 -> random.nextBoolean();
+            default -> "s" + random.nextInt(100);
+        };
+    }
+
+    private static void assertMatches(List<Object> model, VArray array) {
+        assertEquals(model.size(), array.length());
+        for (int i = 0; i < model.size(); i++) {
+            assertEquals(model.get(i), array.get(i), "at " + i);
+        }
+
+        List<Object> iterated = new ArrayList<>();
+        array.forEach(iterated::add);
+        assertEquals(model, iterated);
+
+        List<Object> visited = new ArrayList<>();
+        array.visitElements(visited::add);
+        assertEquals(model, visited);
+        assertEquals(model, Arrays.asList(array.toArray()));
+
+        VArray built = VArray.of(model.toArray());
+        assertEquals(built, array);
+        assertEquals(model.hashCode(), array.hashCode());
+    }
+
+}
@@ -0,0 +1,161 @@
+package dev.jok.verse.types.collection;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VMapTest {
+
+    // a key with a chosen hash, so keys can be made to collide
+    private record Key(int hash, int id) {
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+    @Test
+    void keepsKeysInTheOrderTheyWereAdded() {
+        VMap map = VMap.empty().put("c", 1).put("a", 2).put("b", 3);
+        assertEquals("map{c => 1, a => 2, b => 3}", map.toString());
+
+        // a new value keeps the key's place, a key added again after being removed goes last
+        map = map.put("a", 4).remove("c").put("c", 5);
+        assertEquals("map{a => 4, b => 3, c => 5}", map.toString());
+    }
+
+    @Test
+    void equalityIgnoresOrder() {
+        VMap first = VMap.empty().put("a", 1).put("b", 2);
+        VMap second = VMap.empty().put("b", 2).put("a", 1);
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(first, second.put("a", 3));
+    }
+
+    @Test
+    void unchangedMapsAreTheSameMap() {
+        VMap map = VMap.empty().put("a", 1);
+        assertSame(map, map.put("a", 1));
+        assertSame(map, map.remove("b"));
+        assertSame(VMap.empty(), map.remove("a"));
+    }
+
+    @Test
+    void builtMapsCantBeChanged() {
+        VMap.Builder builder = VMap.builder().put("a", 1);
+        builder.build();
+        assertThrows(IllegalStateException.class, () -> builder.put("b", 2));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2, 3, 4, 5, 6, 7})
+    void matchesALinkedHashMap(int seed) {
+        Random random = new Random(seed);
+        // few hashes for lots of collisions, or many for a deep trie
+        int hashes = seed % 2 == 0 ? 50 : 100_000;
+        int ids = seed % 3 == 0 ? 3 : 1000;
+
+        Map<Object, Object> model = new LinkedHashMap<>();
+        VMap map = VMap.empty();
+        List<VMap> snapshots = new ArrayList<>();
+        List<Map<Object, Object>> models = new ArrayList<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            Object key = new Key(random.nextInt(hashes), random.nextInt(ids));
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                Object value = random.nextInt(5);
+                model.put(key, value);
+                map = map.put(key, value);
+            } else if (operation < 9) {
+                model.remove(key);
+                map = map.remove(key);
+            } else {
+                VMap.Builder builder = map.toBuilder();
+                for (int i = 0; i < 50; i++) {
+                    Object builderKey = new Key(random.nextInt(hashes), random.nextInt(3));
+                    if (random.nextBoolean()) {
+                        builder.put(builderKey, i);
+                        model.put(builderKey, i);
+                    } else {
+                        builder.remove(builderKey);
+                        model.remove(builderKey);
+                    }
+                }
+
+                map = builder.build();
+            }
+
+            assertEquals(model.size(), map.size());
+            if (random.nextInt(1000) == 0) {
+                snapshots.add(map);
+                models.add(new LinkedHashMap<>(model));
+            }
+        }
+
+        assertMatches(model, map);
+        // the old maps mustn't have been changed by anything made from them
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertMatches(models.get(i), snapshots.get(i));
+        }
+    }
+
+    @Test
+    void removingMostKeysKeepsTheRestInOrder() {
+        Map<Object, Object> model = new LinkedHashMap<>();
+        VMap map = VMap.empty();
+        VMap.Builder builder = VMap.builder();
+        for (int i = 0; i < 1000; i++) {
+            model.put(i, i);
+            map = map.put(i, i);
+            builder.put(i, i);
+        }
+
+        // enough holes that the order is compacted a few times over
+        for (int i = 0; i < 1000; i++) {
+            if (i % 7 != 0) {
+                model.remove(i);
+                map = map.remove(i);
+                builder.remove(i);
+            }
+        }
+
+        assertMatches(model, map);
+        assertMatches(model, builder.build());
+    }
+
+    private static void assertMatches(Map<Object, Object> model, VMap map) {
+        assertEquals(model.size(), map.size());
+        model.forEach((key, value) -> {
+            assertTrue(map.containsKey(key));
+            assertEquals(value, map.get(key));
+        });
+
+        List<Object> keys = new ArrayList<>();
+        map.forEach((key, value) -> {
+            keys.add(key);
+            assertEquals(model.get(key), value);
+        });
+
+        assertEquals(new ArrayList<>(model.keySet()), keys);
+
+        VMap.Builder builder = VMap.builder();
+        model.forEach(builder::put);
+        VMap built = builder.build();
+        assertEquals(built, map);
+        assertEquals(built.hashCode(), map.hashCode());
+        assertEquals(built.toString(), map.toString());
+    }
+
+}
@@ -0,0 +1,167 @@
+package dev.jok.verse.vm;
+
+import dev.jok.verse.Scripts;
+import dev.jok.verse.ast.types.decl.AstFunctionDecl;
+import dev.jok.verse.diagnostic.CompileError;
+import dev.jok.verse.interpreter.VerseInterpreter;
+import dev.jok.verse.interpreter.VerseNative;
+import dev.jok.verse.jvm.JvmCompiler;
+import dev.jok.verse.jvm.JvmFunction;
+import dev.jok.verse.jvm.JvmProgram;
+import dev.jok.verse.types.number.VInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerseVMTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"fib", "arithmetic", "floats", "logic", "boxing", "errors", "reassign"})
+    void matchesInterpreter(String name) throws IOException {
+        String source = load(name);
+        String executed = run(() -> {
+            CompiledProgram program = compile(source);
+            VerseVM vm = new VerseVM(program);
+            vm.initialize();
+            vm.run(program.lookupFunction("Main"), new Object[0]);
+        });
+
+        assertEquals(interpret(source), executed);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"fib", "arithmetic", "floats", "logic", "boxing", "errors", "reassign"})
+    void jvmMatchesInterpreter(String name) throws IOException {
+        String source = load(name);
+        String executed = run(() -> {
+            Scripts.Script script = Scripts.compile(source);
+            JvmProgram program = new JvmCompiler(script.statements(), script.globalFrameSize(), "test.verse", new VerseNative()).compile();
+            program.initialize();
+            JvmFunction main = program.lookupFunction("Main");
+            assertNotNull(main);
+            main.call(new Object[0]);
+        });
+
+        assertEquals(interpret(source), executed);
+    }
+
+    @Test
+    void typedFunctionsDontBox() {
+        CompiledProgram program = compile("""
+                Fib(N : int) : int = {
+                    if (N < 2) {
+                        N
+                    } else {
+                        Fib(N - 1) + Fib(N - 2)
+                    }
+                }
+                """);
+
+        CompiledFunction fib = program.lookupFunction("Fib");
+        assertArrayEquals(new ValueType[] {ValueType.INT}, fib.parameterTypes);
+        assertEquals(ValueType.INT, fib.returnType);
+        assertFalse(fib.disassemble().contains("BOX"), fib.disassemble());
+        assertEquals(VInteger.valueOf(6765), new VerseVM(program).call(fib, new Object[] {VInteger.valueOf(20)}));
+    }
+
+    @Test
+    void contradictedTypesAreBoxed() {
+        CompiledProgram program = compile("""
+                Add(A : int, B : int) : int = {
+                    A + B
+                }
+
+                Main() : void = {
+                    Add(1.5, 2.0)
+                }
+                """);
+
+        CompiledFunction add = program.lookupFunction("Add");
+        assertArrayEquals(new ValueType[] {ValueType.OBJECT, ValueType.OBJECT}, add.parameterTypes);
+        assertEquals(ValueType.OBJECT, add.returnType);
+    }
+
+    @Test
+    void onlyContradictedLocalsAreBoxed() {
+        CompiledProgram program = compile("""
+                Same(N : int) : int = {
+                    var Total : int = 1
+                    set Total = Total + N
+                    Total
+                }
+
+                Other(N : int) : int = {
+                    var Total : int = 1
+                    set Total = 2.5
+                    N
+                }
+                """);
+
+        CompiledFunction same = program.lookupFunction("Same");
+        assertFalse(same.disassemble().contains("BOX"), same.disassemble());
+        assertEquals(VInteger.valueOf(4), new VerseVM(program).call(same, new Object[] {VInteger.valueOf(3)}));
+
+        CompiledFunction other = program.lookupFunction("Other");
+        assertArrayEquals(new ValueType[] {ValueType.INT}, other.parameterTypes);
+        assertEquals(ValueType.INT, other.returnType);
+        assertEquals(VInteger.valueOf(3), new VerseVM(program).call(other, new Object[] {VInteger.valueOf(3)}));
+    }
+
+    @Test
+    void compileErrorsPointAtTheirSource() {
+        CompileError error = assertThrows(CompileError.class, () -> compile("""
+                Main() : void = {
+                    X := 1
+                    Missing(X)
+                }
+                """));
+
+        assertEquals("Undefined function 'Missing'.", error.getMessage());
+        assertEquals(3, error.line);
+        assertEquals(5, error.col);
+    }
+
+    private static String interpret(String source) {
+        return run(() -> {
+            Scripts.Script script = Scripts.compile(source);
+            VerseInterpreter interpreter = new VerseInterpreter(script.statements(), script.globalFrameSize());
+            AstFunctionDecl main = interpreter.lookupFunctionDecl("Main");
+            assertNotNull(main);
+            interpreter.interpret(script.statements());
+            interpreter.call(main, new Object[0]);
+        });
+    }
+
+    private static CompiledProgram compile(String source) {
+        Scripts.Script script = Scripts.compile(source);
+        return new BytecodeCompiler(script.statements(), script.globalFrameSize(), new VerseNative()).compile();
+    }
+
+    // what the script printed, followed by a line saying if it stopped with an error
+    private static String run(Runnable script) {
+        boolean[] failed = {false};
+        String output = Scripts.captureOutput(() -> {
+            try {
+                script.run();
+            } catch (RuntimeException e) {
+                failed[0] = true;
+            }
+        });
+
+        return output + (failed[0] ? "error\n" : "done\n");
+    }
+
+    private static String load(String name) throws IOException {
+        try (InputStream input = VerseVMTest.class.getResourceAsStream("/parity/" + name + ".verse")) {
+            assertNotNull(input, name);
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}